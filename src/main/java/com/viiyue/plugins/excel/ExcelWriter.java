@@ -1,316 +1,1737 @@
-/**
- * Copyright (C) 2022 the original author or authors.
- *
- * Licensed under the Apache License, Version 2.0 (the "License");
- * you may not use this file except in compliance with the License.
- * You may obtain a copy of the License at
- *
- *     http://www.apache.org/licenses/LICENSE-2.0
- *
- * Unless required by applicable law or agreed to in writing, software
- * distributed under the License is distributed on an "AS IS" BASIS,
- * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
- * See the License for the specific language governing permissions and
- * limitations under the License.
- */
-package com.viiyue.plugins.excel;
-
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
-import java.io.IOException;
-import java.io.OutputStream;
-import java.time.LocalDate;
-import java.time.LocalDateTime;
-import java.util.ArrayList;
-import java.util.Date;
-import java.util.LinkedHashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
-import java.util.Objects;
-
-import org.apache.commons.collections4.CollectionUtils;
-import org.apache.commons.lang3.StringUtils;
-import org.apache.poi.ss.usermodel.Cell;
-import org.apache.poi.ss.usermodel.Row;
-import org.apache.poi.ss.usermodel.Sheet;
-import org.apache.poi.ss.usermodel.Workbook;
-import org.apache.poi.ss.usermodel.WorkbookFactory;
-
-import com.viiyue.plugins.excel.common.Helper;
-import com.viiyue.plugins.excel.converter.DefaultStyleable;
-import com.viiyue.plugins.excel.converter.EnumConverter;
-import com.viiyue.plugins.excel.converter.Styleable;
-import com.viiyue.plugins.excel.converter.WriteConverter;
-import com.viiyue.plugins.excel.metadata.CellInfo;
-import com.viiyue.plugins.excel.metadata.ExcelInfo;
-import com.viiyue.plugins.excel.metadata.Style;
-
-/**
- * Excel <code>poi</code> writer, used to write data list into excel table.
- * 
- * @author tangxbai
- * @since 1.0.0
- */
-public final class ExcelWriter<T> extends ExcelProvider<ExcelWriter<T>, T> {
-
-	private static final String defaultSheetName = "Sheet";
-	private static final Styleable<Object> defaultStyleable = new DefaultStyleable<Object>();
-
-	private int sheetIndex = 1;
-	private String lastSheet;
-	private Map<String, List<T>> sheets;
-
-	public static final ExcelWriter<Map<String, Object>> of( ExcelInfo<Map<String, Object>> excel ) {
-		return new ExcelWriter<Map<String, Object>>( null, excel );
-	}
-
-	public static final <T> ExcelWriter<T> of( Class<T> beanType ) {
-		return new ExcelWriter<T>( beanType, null );
-	}
-
-	protected ExcelWriter( Class<T> beanType, ExcelInfo<T> em ) {
-		super( beanType, em );
-	}
-
-	public ExcelWriter<T> addSheet( String sheetName ) {
-		return addSheet( sheetName, new ArrayList<T>() );
-	}
-
-	public ExcelWriter<T> addSheet( List<T> datas ) {
-		return addSheet( defaultSheetName + ( sheetIndex ++ ), datas );
-	}
-
-	public ExcelWriter<T> addSheet( String sheetName, List<T> datas ) {
-		this.lastSheet = sheetName;
-		if ( this.sheets == null ) {
-			this.sheets = new LinkedHashMap<String, List<T>>( 4 );
-		}
-		this.sheets.put( sheetName, datas );
-		return this;
-	}
-
-	public ExcelWriter<T> append( T data ) {
-		if ( this.lastSheet == null ) {
-			addSheet( defaultSheetName );
-		}
-		List<T> sources = this.sheets.get( lastSheet );
-		if ( sources == null ) {
-			sources = new ArrayList<T>();
-		}
-		sources.add( data );
-		return this;
-	}
-
-	public void writeTo( String filePath ) throws FileNotFoundException, IOException {
-		Objects.requireNonNull( filePath, "The Excel output file path could not be null" );
-		writeTo( new File( filePath ) );
-	}
-
-	public void writeTo( File target ) throws FileNotFoundException, IOException {
-		Objects.requireNonNull( target, "The target Excel file could not be null" );
-		if ( target.isDirectory() ) {
-			String filePath = target.getAbsolutePath() + File.separator + System.currentTimeMillis() + ".xlsx";
-			target = new File( filePath );
-		}
-		if ( !target.exists() && !target.createNewFile() ) {
-			log.error( "Unable to generate target file, please check if you have permission." );
-			return;
-		}
-		String filePath = target.getAbsolutePath();
-		String extension = StringUtils.substringAfterLast( filePath, "." );
-		try ( OutputStream os = new FileOutputStream( target ) ) {
-			writeTo( os, StringUtils.equalsIgnoreCase( extension, "xls" ) );
-		}
-	}
-
-	public void writeTo( OutputStream os, boolean xssf ) throws IOException {
-		Objects.requireNonNull( os, "Target excel output stream cannot be null" );
-		Objects.requireNonNull( meta, "Excel metadata cannot be null, please initialize first" );
-		try ( Workbook wb = WorkbookFactory.create( xssf ) ) {
-			if ( sheets != null && meta.hasCells() ) {
-				for ( Entry<String, List<T>> entry : sheets.entrySet() ) {
-					String sheetName = entry.getKey();
-					List<T> elements = entry.getValue();
-					if ( CollectionUtils.isNotEmpty( elements ) ) {
-						int headerIndex = meta.getHeaderIndex();
-						int startIndex = meta.getStartIndex();
-						int cellHeight = meta.getCellHeight();
-						Sheet sheet = wb.createSheet( sheetName );
-						createHeader( wb, sheet, headerIndex, cellHeight );
-						createExcelRow( wb, sheet, elements, startIndex, cellHeight );
-						fixedColumnWidth( sheet );
-					}
-				}
-			}
-			wb.write( os );
-		}
-	}
-
-	private void createHeader( Workbook wb, Sheet sheet, int index, int cellHeight ) {
-		Row row = sheet.createRow( index );
-		row.setHeightInPoints( cellHeight );
-		List<CellInfo<T>> cells = meta.getCells();
-		for ( int cellIndex = 0, s = cells.size(); cellIndex < s; cellIndex ++ ) {
-			CellInfo<T> cellInfo = cells.get( cellIndex );
-			if ( !cellInfo.isIgnoreHeader() ) {
-				Cell cell = row.createCell( cellIndex );
-				cell.setCellValue( cellInfo.getLabel() );
-				beautifyIt( wb, cell, cellInfo, null, null, null, true );
-			}
-		}
-		sheet.createFreezePane( 0, index );
-	}
-
-	private void createExcelRow( Workbook wb, Sheet sheet, List<T> elements, int startIndex, int cellHeight ) {
-		for ( T element : elements ) {
-			Row row = sheet.createRow( startIndex ++ );
-			row.setHeightInPoints( cellHeight );
-			if ( isBeanType ) {
-				createBeanRow( wb, row, element, startIndex );
-			} else {
-				if ( element instanceof Map ) {
-					createMapRow( wb, row, element, startIndex );
-				} else {
-					log.warn( "Data element only support type of \"java.lang.Map\"" );
-				}
-			}
-		}
-	}
-
-	private void createBeanRow( Workbook wb, Row row, T element, Integer rowNumber ) {
-		List<CellInfo<T>> cells = meta.getCells();
-		for ( int cellIndex = 0, s = cells.size(); cellIndex < s; cellIndex ++ ) {
-			CellInfo<T> cellInfo = cells.get( cellIndex );
-			Cell cell = row.createCell( cellIndex );
-			if ( element != null ) {
-				Object value = cellInfo.getFieldValue( element );
-				wirteIt( wb, cell, cellInfo, cellInfo.getFieldType(), value );
-				beautifyIt( wb, cell, cellInfo, value, element, rowNumber, false );
-			} else {
-				beautifyIt( wb, cell, cellInfo, null, null, rowNumber, false );
-			}
-		}
-	}
-
-	private void createMapRow( Workbook wb, Row row, Object element, Integer rowNumber ) {
-		int cellIndex = 0;
-		for ( Entry<String, Object> entry : ( ( Map<String, Object> ) element ).entrySet() ) {
-			String label = entry.getKey();
-			CellInfo<T> cellInfo = meta.getByLabel( label );
-			if ( cellInfo != null ) {
-				Object value = entry.getValue();
-				Cell cell = row.createCell( cellIndex ++ );
-				Class<?> valueType = value == null ? String.class : value.getClass();
-				wirteIt( wb, cell, cellInfo, valueType, value );
-				beautifyIt( wb, cell, cellInfo, value, ( T ) element, rowNumber, false );
-			}
-		}
-	}
-
-	private void fixedColumnWidth( Sheet sheet ) {
-		List<CellInfo<T>> cells = meta.getCells();
-		for ( int cellIndex = 0, s = cells.size(); cellIndex < s; cellIndex ++ ) {
-			CellInfo<T> cellInfo = cells.get( cellIndex );
-			if ( cellInfo.isColumnAutoSize() ) {
-				sheet.autoSizeColumn( cellIndex );
-			} else if ( cellInfo.getWidth() != 0 ) {
-				sheet.setColumnWidth( cellIndex, cellInfo.getWidth() );
-			}
-		}
-	}
-
-	private void wirteIt( Workbook wb, Cell cell, CellInfo<T> info, Class<?> type, Object value ) {
-		WriteConverter converter = info.getWriter();
-		Object finalValue = null;
-		if ( value != null ) {
-			if ( converter != null ) {
-				finalValue = converter.convert( value );
-			}
-			if ( finalValue == null ) {
-				if ( Helper.isType( type, Boolean.class ) ) {
-					finalValue = info.getBooleanValue( value );
-				} else if ( Helper.isType( type, Enum.class ) && value instanceof EnumConverter ) {
-					finalValue = ( ( EnumConverter<?> ) value ).getValue();
-				} else {
-					finalValue = value;
-				}
-			}
-		}
-		if ( finalValue != null ) {
-			Class<? extends Object> valueType = finalValue.getClass();
-			if ( Helper.isType( valueType, Boolean.class ) ) {
-				cell.setCellValue( ( Boolean ) finalValue );
-			} else if ( Helper.isType( valueType, Number.class ) ) {
-				cell.setCellValue( ( ( Number ) finalValue ).doubleValue() );
-			} else if ( Helper.isType( valueType, Date.class ) ) {
-				Date date = ( Date ) value;
-				if ( info.hasDateformat() ) {
-					cell.setCellValue( info.formatDate( date ).toString() );
-				} else {
-					cell.setCellValue( ( Date ) value );
-				}
-			} else if ( Helper.isType( valueType, LocalDate.class ) ) {
-				LocalDate ld = ( LocalDate ) finalValue;
-				if ( info.hasDateformat() ) {
-					cell.setCellValue( info.formatTemporalAccessor( ld ).toString() );
-				} else {
-					cell.setCellValue( ld );
-				}
-			} else if ( Helper.isType( valueType, LocalDateTime.class ) ) {
-				LocalDateTime ldt = ( LocalDateTime ) finalValue;
-				if ( info.hasDateformat() ) {
-					cell.setCellValue( info.formatTemporalAccessor( ldt ).toString() );
-				} else {
-					cell.setCellValue( ldt );
-				}
-			} else {
-				cell.setCellValue( finalValue.toString() );
-			}
-		} else {
-			cell.setBlank();
-		}
-	}
-
-	private void beautifyIt( Workbook wb, Cell cell, CellInfo<T> info, Object value, T instance, Integer row,
-			boolean isHeader ) {
-		Styleable<T> styleable = info.getStyleable();
-		if ( styleable != null ) {
-			String label = info.getLabel();
-			Style beautify = null;
-			if ( isHeader ) {
-				beautify = styleable.beautifyHeader( wb, label );
-				if ( beautify == null ) {
-					styleable = meta.getStyleable();
-					if ( styleable == null ) {
-						beautify = defaultStyleable.beautifyHeader( wb, label );
-					} else {
-						beautify = styleable.beautifyHeader( wb, label );
-					}
-				}
-			} else {
-				if ( instance != null ) {
-					beautify = styleable.beautifyIt( wb, label, value, instance, row );
-				}
-				if ( beautify == null ) {
-					styleable = meta.getStyleable();
-					if ( styleable == null ) {
-						beautify = defaultStyleable.beautifyIt( wb, label, value, instance, row );
-					} else if ( instance != null ) {
-						beautify = styleable.beautifyIt( wb, label, value, instance, row );
-					}
-				}
-			}
-			if ( beautify != null ) {
-				if ( styleable == null ) {
-					defaultStyleable.applyAll( beautify, label );
-				} else {
-					styleable.applyAll( beautify, label );
-				}
-				beautify.apply( cell );
-			}
-		}
-	}
-
-}
+/**
+ * Copyright (C) 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.plugins.excel;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.IOUtils;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+import com.viiyue.plugins.excel.common.Aggregates;
+import com.viiyue.plugins.excel.common.ColumnSource;
+import com.viiyue.plugins.excel.common.ExportCache;
+import com.viiyue.plugins.excel.common.Fingerprint;
+import com.viiyue.plugins.excel.common.ResultSetSource;
+import com.viiyue.plugins.excel.common.RowQueue;
+import com.viiyue.plugins.excel.common.RowSource;
+import com.viiyue.plugins.excel.converter.DefaultStyleable;
+import com.viiyue.plugins.excel.converter.RowStyleable;
+import com.viiyue.plugins.excel.converter.Styleable;
+import com.viiyue.plugins.excel.engine.PoiWorkbookEngine;
+import com.viiyue.plugins.excel.engine.SheetWriter;
+import com.viiyue.plugins.excel.engine.WorkbookEngine;
+import com.viiyue.plugins.excel.engine.XmlWorkbookEngine;
+import com.viiyue.plugins.excel.enums.Compression;
+import com.viiyue.plugins.excel.enums.StringMode;
+import com.viiyue.plugins.excel.enums.WriteMode;
+import com.viiyue.plugins.excel.metadata.CellInfo;
+import com.viiyue.plugins.excel.metadata.ExcelInfo;
+import com.viiyue.plugins.excel.metadata.Highlight;
+import com.viiyue.plugins.excel.metadata.Style;
+
+/**
+ * Excel <code>poi</code> writer, used to write data list into excel table.
+ * 
+ * @author tangxbai
+ * @since 1.0.0
+ */
+public final class ExcelWriter<T> extends ExcelProvider<ExcelWriter<T>, T> {
+
+	private static final String defaultSheetName = "Sheet";
+	private static final String defaultRolloverPattern = "%s (%d)";
+	private static final int defaultSortRunSize = 100000;
+	private static final Date defaultTimestamp = new Date( 946684800000L ); // 2000-01-01T00:00:00Z
+	private static final String fingerprintVersion = "poi-lite/1"; // Changed whenever the same input is written differently
+	private static final Styleable<Object> defaultStyleable = new DefaultStyleable<Object>();
+	private static final Styleable<Object> bandedStyleable = new DefaultStyleable<Object>( false );
+
+	private int sheetIndex = 1;
+	private int windowSize;
+	private WriteMode mode;
+	private Executor executor;
+	private Object styleLock; // The workbook while the sheets are written in parallel
+	private String rolloverPattern = defaultRolloverPattern;
+	private int maxRows;
+	private int spillRows = -1;
+	private long spillBytes;
+	private Comparator<? super T> sorter;
+	private String sortLabel;
+	private boolean sortDescending;
+	private int sortRunSize = defaultSortRunSize;
+	private Compression compression;
+	private Executor deflateExecutor;
+	private File templateFile;
+	private InputStream templateStream;
+	private int anchorRow = -1;
+	private String lastSheet;
+	private Map<String, RowSource<T>> sheets;
+	private Set<String> sheetNames; // Lower case names of the sheets being written, including the rollover sheets
+	private boolean positional;
+	private Date timestamp;
+	private ExportCache cache;
+	private String dataDigest;
+
+	public static final ExcelWriter<Map<String, Object>> of( ExcelInfo<Map<String, Object>> excel ) {
+		return new ExcelWriter<Map<String, Object>>( null, excel );
+	}
+
+	public static final <T> ExcelWriter<T> of( Class<T> beanType ) {
+		return new ExcelWriter<T>( beanType, null );
+	}
+
+	/**
+	 * Writer of positional rows, the values of an <code>Object[]</code> or
+	 * <code>List</code> row are written to the cells of the metadata by index,
+	 * in the order of the cells. Missing values are written as blank cells, and
+	 * the values beyond the cells are ignored.
+	 * 
+	 * @param excel the metadata of the cells
+	 * @return the writer of the rows
+	 */
+	@SuppressWarnings( "unchecked" )
+	public static final <R> ExcelWriter<R> ofRows( ExcelInfo<?> excel ) {
+		Objects.requireNonNull( excel, "Excel metadata cannot be null" );
+		ExcelWriter<R> writer = new ExcelWriter<R>( null, ( ExcelInfo<R> ) excel );
+		writer.positional = true;
+		return writer;
+	}
+
+	protected ExcelWriter( Class<T> beanType, ExcelInfo<T> em ) {
+		super( beanType, em );
+	}
+
+	public ExcelWriter<T> mode( WriteMode mode ) {
+		this.mode = mode;
+		return this;
+	}
+
+	public ExcelWriter<T> streaming( int windowSize ) {
+		this.mode = WriteMode.STREAMING;
+		this.windowSize = windowSize;
+		return this;
+	}
+
+	/**
+	 * Generate the sheets in parallel on the common fork-join pool.
+	 * 
+	 * @see #parallel(Executor)
+	 */
+	public ExcelWriter<T> parallel() {
+		return parallel( ForkJoinPool.commonPool() );
+	}
+
+	/**
+	 * Generate the sheets in parallel on the given executor, the sheets are still
+	 * written in the order they were added. Only available in
+	 * {@link WriteMode#DIRECT} mode, the converters and styleables will be called
+	 * from multiple threads, styles are created while holding the workbook lock.
+	 * 
+	 * @param executor the executor that renders the sheets
+	 * @return the writer itself
+	 */
+	public ExcelWriter<T> parallel( Executor executor ) {
+		this.executor = executor;
+		return this;
+	}
+
+	/**
+	 * Set the name pattern of the continuation sheets, which are created when a
+	 * sheet exceeds the row limit of the format (65536 rows for <code>xls</code>
+	 * and 1048576 rows for <code>xlsx</code>). The pattern is formatted with the
+	 * original sheet name and the sheet sequence starting from <code>2</code>,
+	 * the default pattern is <code>"%s (%d)"</code>, such as "Orders (2)". The
+	 * original sheet name is shortened when the name exceeds 31 characters, and
+	 * the sequences already taken by the other sheets are skipped.
+	 * 
+	 * @param namePattern the {@link String#format(String, Object...)} pattern
+	 * @return the writer itself
+	 */
+	public ExcelWriter<T> rollover( String namePattern ) {
+		return rollover( namePattern, 0 );
+	}
+
+	/**
+	 * Same as {@link #rollover(String)}, but roll over to the next sheet once
+	 * the given number of rows (including the header rows) is reached.
+	 * 
+	 * @param namePattern the {@link String#format(String, Object...)} pattern
+	 * @param maxRows the maximum number of rows per sheet, the limit of the
+	 *                format is used if it is not positive or exceeds the limit
+	 * @return the writer itself
+	 */
+	public ExcelWriter<T> rollover( String namePattern, int maxRows ) {
+		this.rolloverPattern = namePattern == null ? defaultRolloverPattern : namePattern;
+		this.maxRows = maxRows;
+		return this;
+	}
+
+	/**
+	 * Keep at most the given number of appended rows in memory per sheet, the
+	 * following rows are serialized into a temporary file.
+	 * 
+	 * @see #spill(int, long)
+	 */
+	public ExcelWriter<T> spill( int maxRows ) {
+		return spill( maxRows, 0 );
+	}
+
+	/**
+	 * Bound the memory used by the rows of {@link #append(Object)}, the first
+	 * rows of each sheet are kept as they are, the following rows are
+	 * serialized, and the serialized bytes beyond the byte limit are spilled into
+	 * a temporary file, which is replayed in order while the sheet is written.
+	 * The appended rows have to be {@link java.io.Serializable Serializable},
+	 * and they are discarded once they have been written.
+	 * 
+	 * @param maxRows the number of appended rows kept in memory per sheet
+	 * @param maxBytes the number of serialized bytes kept in memory per sheet,
+	 *                 the serialized rows are spilled every 64K if it is not
+	 *                 positive
+	 * @return the writer itself
+	 */
+	public ExcelWriter<T> spill( int maxRows, long maxBytes ) {
+		this.spillRows = Math.max( maxRows, 0 );
+		this.spillBytes = maxBytes;
+		if ( sheets != null ) {
+			sheets.values().forEach( source -> source.spill( spillRows, spillBytes ) );
+		}
+		return this;
+	}
+
+	/**
+	 * Sort the rows of each sheet by the values of a cell in ascending order.
+	 * 
+	 * @see #sort(String, boolean)
+	 */
+	public ExcelWriter<T> sort( String label ) {
+		return sort( label, false );
+	}
+
+	/**
+	 * Sort the rows of each sheet by the values of a cell before they are
+	 * written, the <code>null</code> values come last in either order. Values of
+	 * the same type are compared by their natural order, numbers of different
+	 * types by their double values, and the other values by their text.
+	 * 
+	 * @param label the label of the cell
+	 * @param descending whether to sort in descending order
+	 * @return the writer itself
+	 * @see #sortRuns(int)
+	 */
+	public ExcelWriter<T> sort( String label, boolean descending ) {
+		Objects.requireNonNull( label, "The sort label cannot be null" );
+		this.sortLabel = label;
+		this.sortDescending = descending;
+		this.sorter = null;
+		return this;
+	}
+
+	/**
+	 * Sort the rows of each sheet with the comparator before they are written.
+	 * 
+	 * @see #sortRuns(int)
+	 */
+	public ExcelWriter<T> sort( Comparator<? super T> comparator ) {
+		Objects.requireNonNull( comparator, "The sort comparator cannot be null" );
+		this.sorter = comparator;
+		this.sortLabel = null;
+		return this;
+	}
+
+	/**
+	 * Bound the memory of the sort, the rows are sorted in memory in runs of the
+	 * given size, and the full runs are spilled into temporary files and merged
+	 * while the sheet is written, so the rows have to be
+	 * {@link java.io.Serializable Serializable} when a sheet has more rows than
+	 * a run. The default run size is 100000 rows.
+	 * 
+	 * @param runSize the number of rows sorted in memory at a time
+	 * @return the writer itself
+	 */
+	public ExcelWriter<T> sortRuns( int runSize ) {
+		this.sortRunSize = runSize > 0 ? runSize : defaultSortRunSize;
+		return this;
+	}
+
+	/**
+	 * Set the compression level of the <code>xlsx</code> parts.
+	 * 
+	 * @see #compression(Compression, Executor)
+	 */
+	public ExcelWriter<T> compression( Compression compression ) {
+		return compression( compression, null );
+	}
+
+	/**
+	 * Set the compression level of the <code>xlsx</code> parts, and deflate the
+	 * large parts in blocks on the given executor, the blocks are joined into
+	 * the same zip entry in order. Only available in {@link WriteMode#DIRECT}
+	 * mode, the other modes keep the compression of <code>poi</code>.
+	 * 
+	 * @param compression the compression level
+	 * @param deflateExecutor the executor deflating the blocks, or
+	 *                        <code>null</code> to deflate on the writing thread
+	 * @return the writer itself
+	 */
+	public ExcelWriter<T> compression( Compression compression, Executor deflateExecutor ) {
+		this.compression = compression;
+		this.deflateExecutor = deflateExecutor;
+		return this;
+	}
+
+	/**
+	 * Write the given time into the workbook instead of the current time, such
+	 * as the times of the zip entries and the creation time of the document
+	 * properties, so that the same content is always written as the same bytes.
+	 * 
+	 * @param timestamp the time, or <code>null</code> for the current time
+	 * @return the writer itself
+	 */
+	public ExcelWriter<T> timestamp( Date timestamp ) {
+		this.timestamp = timestamp;
+		return this;
+	}
+
+	/**
+	 * Serve the same export from the cache, the rows are digested along with
+	 * the metadata and the writer settings before the workbook is written, see
+	 * {@link #cache(ExportCache, String)}. The rows pulled while being digested
+	 * are buffered for the writing, by the limits of {@link #spill(int, long)}
+	 * if any, and result set sheets cannot be digested at all.
+	 * 
+	 * @param cache the cache of the workbooks
+	 * @return the writer itself
+	 */
+	public ExcelWriter<T> cache( ExportCache cache ) {
+		return cache( cache, null );
+	}
+
+	/**
+	 * Serve the same export from the cache, the workbook is keyed by the
+	 * fingerprint of the metadata, the writer settings, the sheet names and the
+	 * digest of the data. A cached workbook is copied to the output stream
+	 * without pulling any row, otherwise the workbook is written and cached at
+	 * the same time. The workbooks are written with a fixed time unless
+	 * {@link #timestamp(Date)} is set, so the cached bytes are the same as the
+	 * bytes written again. The converters, styleables and comparators are
+	 * fingerprinted by their classes and the values of their fields, the
+	 * workbook is not cached if any of them is a lambda or holds something that
+	 * cannot be fingerprinted, nor if it is filled into a template stream.
+	 * 
+	 * @param cache the cache of the workbooks, or <code>null</code> to disable it
+	 * @param dataDigest the digest of the data given by the caller, such as a
+	 *                   query and the version of its data, or <code>null</code>
+	 *                   to digest the rows
+	 * @return the writer itself
+	 */
+	public ExcelWriter<T> cache( ExportCache cache, String dataDigest ) {
+		this.cache = cache;
+		this.dataDigest = dataDigest;
+		return this;
+	}
+
+	public ExcelWriter<T> template( String templatePath, int anchorRow ) {
+		Objects.requireNonNull( templatePath, "The template file path could not be null" );
+		return template( new File( templatePath ), anchorRow );
+	}
+
+	/**
+	 * Fill the data into a template workbook, the output format follows the
+	 * template. The sheets added by the name of a template sheet keep the
+	 * headers, column widths, freeze panes and static content of the template,
+	 * and the data rows start from the anchor row, taking the cell styles and
+	 * the row height of the anchor row by column, the styleables are not called.
+	 * The date cells combine these styles with their date formats, while the
+	 * widths of the cells are ignored. The rows from the anchor row on are
+	 * replaced, the template sheets without
+	 * data and the other sheets are written as they are. The {@link WriteMode#DIRECT
+	 * DIRECT} mode falls back to the streaming mode for <code>xlsx</code>
+	 * templates.
+	 * 
+	 * @param template the template file, which is never modified
+	 * @param anchorRow the index of the first data row in the template sheets
+	 * @return the writer itself
+	 */
+	public ExcelWriter<T> template( File template, int anchorRow ) {
+		Objects.requireNonNull( template, "The template file could not be null" );
+		this.templateFile = template;
+		this.templateStream = null;
+		this.anchorRow = Math.max( anchorRow, 0 );
+		return this;
+	}
+
+	/**
+	 * Same as {@link #template(File, int)}, the stream is read once when the
+	 * workbook is written and it is not closed.
+	 */
+	public ExcelWriter<T> template( InputStream template, int anchorRow ) {
+		Objects.requireNonNull( template, "The template input stream could not be null" );
+		this.templateStream = template;
+		this.templateFile = null;
+		this.anchorRow = Math.max( anchorRow, 0 );
+		return this;
+	}
+
+	public ExcelWriter<T> addSheet( String sheetName ) {
+		return addSheet( sheetName, RowSource.of( ( List<T> ) null ) );
+	}
+
+	public ExcelWriter<T> addSheet( List<T> datas ) {
+		return addSheet( defaultSheetName + ( sheetIndex ++ ), datas );
+	}
+
+	public ExcelWriter<T> addSheet( String sheetName, List<T> datas ) {
+		return addSheet( sheetName, RowSource.of( datas ) );
+	}
+
+	/**
+	 * Add a lazy sheet, rows are pulled from the iterator while the sheet is
+	 * written, and the iterator will be closed afterwards if it is
+	 * {@link AutoCloseable}.
+	 */
+	public ExcelWriter<T> addSheet( String sheetName, Iterator<T> datas ) {
+		return addSheet( sheetName, RowSource.of( datas ) );
+	}
+
+	/**
+	 * Add a lazy sheet, the stream is consumed while the sheet is written and
+	 * closed afterwards.
+	 */
+	public ExcelWriter<T> addSheet( String sheetName, Stream<T> datas ) {
+		return addSheet( sheetName, RowSource.of( datas ) );
+	}
+
+	/**
+	 * Add a paged sheet, the supplier is called for the next page whenever the
+	 * previous one is written, a <code>null</code> or empty page ends the sheet.
+	 */
+	public ExcelWriter<T> addSheet( String sheetName, Supplier<List<T>> pages ) {
+		return addSheet( sheetName, RowSource.paged( pages ) );
+	}
+
+	/**
+	 * Add a sheet filled by producer threads, usually used together with
+	 * {@link #writeToAsync(OutputStream, boolean)}, so that producing the rows
+	 * overlaps with writing the workbook.
+	 */
+	public ExcelWriter<T> addSheet( String sheetName, RowQueue<T> queue ) {
+		return addSheet( sheetName, ( RowSource<T> ) queue );
+	}
+
+	/**
+	 * Add a columnar sheet, the columns are matched to the cells by label and
+	 * the numbers are written without being boxed. The cells without a column
+	 * are left blank. The converters and styleables still receive the boxed
+	 * values, and the styleables receive no element.
+	 */
+	@SuppressWarnings( "unchecked" )
+	public ExcelWriter<T> addSheet( String sheetName, ColumnSource columns ) {
+		return addSheet( sheetName, ( RowSource<T> ) ( RowSource<?> ) columns );
+	}
+
+	/**
+	 * Add a sheet of a JDBC result set, the rows are fetched while the sheet is
+	 * written and the columns are matched to the cells by label, usually with
+	 * the cells of {@link ExcelInfo#ofResultSet(java.sql.ResultSetMetaData)}.
+	 * The numbers and texts are read by their SQL types and written without
+	 * being boxed, the converters and styleables still receive the column
+	 * objects, and the styleables receive no element.
+	 */
+	@SuppressWarnings( "unchecked" )
+	public ExcelWriter<T> addSheet( String sheetName, ResultSetSource rows ) {
+		return addSheet( sheetName, ( RowSource<T> ) ( RowSource<?> ) rows );
+	}
+
+	private ExcelWriter<T> addSheet( String sheetName, RowSource<T> source ) {
+		this.lastSheet = sheetName;
+		if ( this.sheets == null ) {
+			this.sheets = new LinkedHashMap<String, RowSource<T>>( 4 );
+		}
+		if ( spillRows >= 0 ) {
+			source.spill( spillRows, spillBytes );
+		}
+		IOUtils.closeQuietly( this.sheets.put( sheetName, source ) ); // Release the replaced rows
+		return this;
+	}
+
+	public ExcelWriter<T> append( T data ) {
+		if ( this.lastSheet == null ) {
+			addSheet( defaultSheetName );
+		}
+		this.sheets.get( lastSheet ).add( data );
+		return this;
+	}
+
+	public void writeTo( String filePath ) throws FileNotFoundException, IOException {
+		Objects.requireNonNull( filePath, "The Excel output file path could not be null" );
+		writeTo( new File( filePath ) );
+	}
+
+	public void writeTo( File target ) throws FileNotFoundException, IOException {
+		Objects.requireNonNull( target, "The target Excel file could not be null" );
+		if ( target.isDirectory() ) {
+			String filePath = target.getAbsolutePath() + File.separator + System.currentTimeMillis() + ".xlsx";
+			target = new File( filePath );
+		}
+		if ( !target.exists() && !target.createNewFile() ) {
+			log.error( "Unable to generate target file, please check if you have permission." );
+			return;
+		}
+		String filePath = target.getAbsolutePath();
+		String extension = StringUtils.substringAfterLast( filePath, "." );
+		try ( OutputStream os = new FileOutputStream( target ) ) {
+			writeTo( os, !StringUtils.equalsIgnoreCase( extension, "xls" ) );
+		}
+	}
+
+	public void writeTo( OutputStream os, boolean xssf ) throws IOException {
+		Objects.requireNonNull( os, "Target excel output stream cannot be null" );
+		Objects.requireNonNull( meta, "Excel metadata cannot be null, please initialize first" );
+		if ( cache == null ) {
+			write( os, xssf, null );
+		} else {
+			writeCached( os, xssf );
+		}
+	}
+
+	/**
+	 * Append the rows of the added sheets to the sheets of the same names in an
+	 * existing <code>xlsx</code> workbook, the workbook is replaced once the new
+	 * content has been written into a temporary file next to it.
+	 * 
+	 * @see #appendTo(File, OutputStream)
+	 */
+	public void appendTo( File workbook ) throws IOException {
+		Objects.requireNonNull( workbook, "The target Excel file could not be null" );
+		Path target = workbook.toPath().toAbsolutePath();
+		Path temp = Files.createTempFile( target.getParent(), "poi-lite", ".tmp" );
+		try {
+			try ( OutputStream os = Files.newOutputStream( temp ) ) {
+				appendTo( workbook, os );
+			}
+			Files.move( temp, target, StandardCopyOption.REPLACE_EXISTING );
+		} finally {
+			Files.deleteIfExists( temp );
+		}
+	}
+
+	/**
+	 * Write an existing <code>xlsx</code> workbook with the rows of the added
+	 * sheets appended to the sheets of the same names. Only the parts of these
+	 * sheets are rewritten, the other parts are copied without being inflated,
+	 * so the cost depends on the appended sheets rather than the whole workbook.
+	 * The appended rows start after the last row of the sheet and take the
+	 * height and cell styles of the last row by column, the headers and the
+	 * styleables are skipped, and the text values are written as inline
+	 * strings. A full sheet rolls over to its continuation sheets like a new
+	 * sheet, see {@link #rollover(String, int)}.
+	 * 
+	 * <p>
+	 * The sheets that the workbook does not contain, such as new continuation
+	 * sheets, are added after the existing sheets with their headers, their
+	 * rows take the cell styles of the last row of the sheet before them by
+	 * column, since the styles of the workbook are copied unchanged.
+	 * 
+	 * @param workbook the existing workbook, which is not modified
+	 * @param os the output stream of the new workbook
+	 * @throws IOException if the workbook cannot be read or written
+	 */
+	public void appendTo( File workbook, OutputStream os ) throws IOException {
+		Objects.requireNonNull( workbook, "The target Excel file could not be null" );
+		Objects.requireNonNull( os, "Target excel output stream cannot be null" );
+		Objects.requireNonNull( meta, "Excel metadata cannot be null, please initialize first" );
+		write( os, true, workbook );
+	}
+
+	private void write( OutputStream os, boolean xssf, File appendTo ) throws IOException {
+		try ( WorkbookEngine engine = appendTo == null ? newEngine( os, xssf ) : XmlWorkbookEngine.append( appendTo, os, compression, deflateExecutor ) ) {
+			Date fixedTime = timestamp == null && cache != null ? defaultTimestamp : timestamp;
+			if ( fixedTime != null ) {
+				engine.setTimestamp( fixedTime );
+			}
+			if ( sheets != null && meta.hasCells() ) {
+				this.sheetNames = ConcurrentHashMap.newKeySet();
+				for ( String sheetName : sheets.keySet() ) {
+					sheetNames.add( sheetName.toLowerCase( Locale.ROOT ) );
+				}
+				if ( executor != null && appendTo == null && engine instanceof XmlWorkbookEngine ) {
+					writeSheetsInParallel( ( XmlWorkbookEngine ) engine );
+				} else {
+					if ( executor != null ) {
+						log.warn( "Parallel sheet generation is only supported in {} mode", WriteMode.DIRECT );
+					}
+					for ( Entry<String, RowSource<T>> entry : sheets.entrySet() ) {
+						try ( RowSource<T> elements = sorted( entry.getValue() ) ) {
+							if ( elements.hasNext() ) {
+								SheetWriter sheet = engine.createSheet( entry.getKey() );
+								writeSheet( engine.getWorkbook(), sheet, elements, ( previous, name ) -> engine.createSheet( name ) );
+							}
+						}
+					}
+				}
+			}
+			engine.finish();
+		} catch ( UncheckedIOException e ) {
+			throw e.getCause();
+		} finally {
+			closeSheets();
+		}
+	}
+
+	private void writeCached( OutputStream os, boolean xssf ) throws IOException {
+		String key;
+		try {
+			key = fingerprint( xssf );
+			if ( key != null && cache.copyTo( key, os ) ) {
+				log.debug( "The workbook is copied from the cache by the fingerprint {}", key );
+				closeSheets();
+				return;
+			}
+		} catch ( UncheckedIOException e ) {
+			closeSheets();
+			throw e.getCause();
+		} catch ( IOException | RuntimeException e ) {
+			closeSheets();
+			throw e;
+		}
+		if ( key == null ) {
+			write( os, xssf, null );
+			return;
+		}
+		try ( ExportCache.Entry entry = cache.put( key ) ) {
+			write( new CachingOutputStream( os, entry ), xssf, null );
+			entry.commit();
+		}
+	}
+
+	/**
+	 * @return the fingerprint of the workbook, or <code>null</code> if it
+	 *         cannot be cached
+	 */
+	private String fingerprint( boolean xssf ) throws IOException {
+		if ( templateStream != null ) {
+			log.warn( "The workbooks of template streams cannot be cached" );
+			return null;
+		}
+		Fingerprint fingerprint = meta.fingerprint( Fingerprint.of().add( fingerprintVersion ) );
+		fingerprint.add( xssf ).add( mode == null ? meta.getMode() : mode ).add( compression );
+		fingerprint.add( isBeanType ).add( positional ).add( rolloverPattern ).add( maxRows );
+		fingerprint.add( sortLabel ).add( sortDescending ).addSetting( sorter );
+		fingerprint.add( ( timestamp == null ? defaultTimestamp : timestamp ).getTime() );
+		if ( templateFile != null ) {
+			fingerprint.add( templateFile.getAbsolutePath() ).add( templateFile.length() ).add( templateFile.lastModified() ).add( anchorRow );
+		}
+		if ( sheets == null ) {
+			return stableDigest( fingerprint.add( dataDigest ) );
+		}
+		if ( dataDigest != null ) {
+			for ( String sheetName : sheets.keySet() ) {
+				fingerprint.add( sheetName );
+			}
+			return stableDigest( fingerprint.add( dataDigest ) );
+		}
+		if ( !digestSheets( fingerprint ) ) {
+			return null;
+		}
+		return stableDigest( fingerprint );
+	}
+
+	private String stableDigest( Fingerprint fingerprint ) {
+		if ( !fingerprint.isStable() ) {
+			log.warn( "The workbook cannot be cached, a converter, styleable, comparator or row value cannot be fingerprinted the same way in every run" );
+			return null;
+		}
+		return fingerprint.digest();
+	}
+
+	/**
+	 * Digest the values of the rows, the rows of the object sheets are
+	 * buffered for the writing, and the columnar sheets are read again.
+	 */
+	private boolean digestSheets( Fingerprint fingerprint ) throws IOException {
+		for ( RowSource<T> source : sheets.values() ) {
+			if ( source instanceof ResultSetSource ) {
+				log.warn( "Result set sheets cannot be read twice, a data digest is required to cache the workbook" );
+				return false;
+			}
+		}
+		List<CellInfo<T>> cells = meta.getCells();
+		int size = cells.size();
+		for ( Entry<String, RowSource<T>> entry : sheets.entrySet() ) {
+			fingerprint.add( entry.getKey() );
+			RowSource<T> source = entry.getValue();
+			RowSource<T> buffered = null;
+			if ( !( source instanceof ColumnSource ) ) {
+				buffered = RowSource.of( ( List<T> ) null );
+				if ( spillRows >= 0 ) {
+					buffered.spill( spillRows, spillBytes );
+				}
+				entry.setValue( buffered );
+			}
+			long count = 0;
+			try ( RowSource<T> elements = source ) { // The columns are rewound when closed
+				while ( elements.hasNext() ) {
+					T element = elements.next();
+					if ( buffered == null ) {
+						ColumnSource columns = ( ColumnSource ) source;
+						for ( int cellIndex = 0; cellIndex < size; cellIndex ++ ) {
+							ColumnSource.Column column = columns.getColumn( cells.get( cellIndex ).getLabel() );
+							fingerprint.add( column == null ? null : column.getValue( columns.getRow() ) );
+						}
+					} else {
+						for ( int cellIndex = 0; cellIndex < size; cellIndex ++ ) {
+							fingerprint.add( cellValue( element, cellIndex, cells.get( cellIndex ) ) );
+						}
+						buffered.add( element );
+					}
+					count ++;
+				}
+			}
+			fingerprint.add( count );
+		}
+		return true;
+	}
+
+	private void closeSheets() {
+		if ( sheets != null ) {
+			sheets.values().forEach( IOUtils::closeQuietly );
+		}
+	}
+
+	/**
+	 * Write the workbook on a dedicated writer thread, see
+	 * {@link #writeToAsync(OutputStream, boolean, Executor)}.
+	 */
+	public CompletableFuture<Long> writeToAsync( OutputStream os, boolean xssf ) {
+		return writeToAsync( os, xssf, runnable -> new Thread( runnable, "poi-lite-writer" ).start() );
+	}
+
+	/**
+	 * Write the workbook on the given executor while the rows of the
+	 * {@link RowQueue} sheets are still being produced, the output stream is not
+	 * closed.
+	 * 
+	 * @param os the output stream
+	 * @param xssf whether to write the <code>xlsx</code> format
+	 * @param executor the executor running the writer
+	 * @return the future of the number of bytes written, or the failure of the
+	 *         export
+	 */
+	public CompletableFuture<Long> writeToAsync( OutputStream os, boolean xssf, Executor executor ) {
+		Objects.requireNonNull( os, "Target excel output stream cannot be null" );
+		Objects.requireNonNull( executor, "The writer executor cannot be null" );
+		CompletableFuture<Long> future = new CompletableFuture<Long>();
+		executor.execute( () -> {
+			try {
+				CountingOutputStream counter = new CountingOutputStream( os );
+				writeTo( counter, xssf );
+				counter.flush();
+				future.complete( counter.count );
+			} catch ( Throwable e ) {
+				future.completeExceptionally( e );
+			}
+		} );
+		return future;
+	}
+
+	private void writeSheetsInParallel( XmlWorkbookEngine engine ) throws IOException {
+		Workbook wb = engine.getWorkbook();
+		this.styleLock = wb;
+		try {
+			writeSheetsInParallel( engine, wb );
+		} finally {
+			this.styleLock = null;
+		}
+	}
+
+	private void writeSheetsInParallel( XmlWorkbookEngine engine, Workbook wb ) throws IOException {
+		List<SheetWriter> writers = new ArrayList<SheetWriter>( sheets.size() );
+		for ( String sheetName : sheets.keySet() ) {
+			writers.add( engine.createDeferredSheet( sheetName ) );
+		}
+		Iterator<SheetWriter> iterator = writers.iterator();
+		List<CompletableFuture<Void>> tasks = new ArrayList<CompletableFuture<Void>>( writers.size() );
+		for ( RowSource<T> source : sheets.values() ) {
+			SheetWriter sheet = iterator.next();
+			tasks.add( CompletableFuture.runAsync( () -> {
+				try ( RowSource<T> elements = sorted( source ) ) {
+					writeSheet( wb, sheet, elements, ( previous, name ) -> engine.createDeferredSheet( name, previous ) );
+				} catch ( IOException e ) {
+					throw new UncheckedIOException( e );
+				}
+			}, executor ) );
+		}
+		try {
+			CompletableFuture.allOf( tasks.toArray( new CompletableFuture<?>[ tasks.size() ] ) ).join();
+		} catch ( CompletionException e ) {
+			Throwable cause = e.getCause();
+			if ( cause instanceof UncheckedIOException ) {
+				throw ( ( UncheckedIOException ) cause ).getCause();
+			}
+			if ( cause instanceof RuntimeException ) {
+				throw ( RuntimeException ) cause;
+			}
+			if ( cause instanceof Error ) {
+				throw ( Error ) cause;
+			}
+			throw new IOException( cause );
+		}
+	}
+
+	private RowSource<T> sorted( RowSource<T> source ) {
+		if ( sorter == null && sortLabel == null ) {
+			return source;
+		}
+		if ( source instanceof ColumnSource || source instanceof ResultSetSource ) {
+			log.warn( "Columnar and result set sheets cannot be sorted, sort them at the source instead" );
+			return source;
+		}
+		Comparator<? super T> comparator = sorter;
+		if ( comparator == null ) {
+			comparator = comparing( sortLabel, sortDescending );
+		}
+		return RowSource.sorted( source, comparator, sortRunSize );
+	}
+
+	private Comparator<T> comparing( String label, boolean descending ) {
+		List<CellInfo<T>> cells = meta.getCells();
+		int index = -1;
+		for ( int cellIndex = 0, s = cells.size(); cellIndex < s; cellIndex ++ ) {
+			if ( StringUtils.equals( cells.get( cellIndex ).getLabel(), label ) ) {
+				index = cellIndex;
+				break;
+			}
+		}
+		if ( index < 0 ) {
+			throw new IllegalArgumentException( "There is no cell labeled \"" + label + "\" to sort by" );
+		}
+		CellInfo<T> cellInfo = cells.get( index );
+		int cellIndex = index;
+		return ( a, b ) -> {
+			Object x = cellValue( a, cellIndex, cellInfo );
+			Object y = cellValue( b, cellIndex, cellInfo );
+			if ( x == null || y == null ) {
+				return x == y ? 0 : x == null ? 1 : -1; // Null values last
+			}
+			int result = compareValues( x, y );
+			return descending ? -result : result;
+		};
+	}
+
+	private Object cellValue( T element, int cellIndex, CellInfo<T> cellInfo ) {
+		if ( element == null ) {
+			return null;
+		}
+		if ( isBeanType ) {
+			return cellInfo.getFieldValue( element );
+		}
+		if ( positional ) {
+			if ( element instanceof RandomAccess && element instanceof List ) {
+				List<?> list = ( List<?> ) element;
+				return cellIndex < list.size() ? list.get( cellIndex ) : null;
+			}
+			Object [] array = element instanceof Object [] ? ( Object [] ) element
+					: element instanceof Collection ? ( ( Collection<?> ) element ).toArray() : null;
+			return array != null && cellIndex < array.length ? array[ cellIndex ] : null;
+		}
+		return element instanceof Map ? ( ( Map<?, ?> ) element ).get( cellInfo.getLabel() ) : null;
+	}
+
+	@SuppressWarnings( { "unchecked", "rawtypes" } )
+	private static int compareValues( Object x, Object y ) {
+		if ( x instanceof Number && y instanceof Number && x.getClass() != y.getClass() ) {
+			return Double.compare( ( ( Number ) x ).doubleValue(), ( ( Number ) y ).doubleValue() );
+		}
+		if ( x instanceof Comparable && x.getClass().isInstance( y ) ) {
+			return ( ( Comparable ) x ).compareTo( y );
+		}
+		return x.toString().compareTo( y.toString() );
+	}
+
+	/**
+	 * Write the rows into the sheet, and continue with the next sheet created by
+	 * the factory whenever the row limit is reached.
+	 */
+	private void writeSheet( Workbook wb, SheetWriter sheet, Iterator<T> elements, SheetFactory factory ) throws IOException {
+		String sheetName = sheet.getSheetName();
+		int headerIndex = meta.getHeaderIndex();
+		int startIndex = meta.getStartIndex();
+		int cellHeight = meta.getCellHeight();
+		int rowLimit = wb.getSpreadsheetVersion().getMaxRows();
+		if ( maxRows > 0 && maxRows < rowLimit ) {
+			rowLimit = maxRows;
+		}
+		if ( startIndex >= rowLimit || headerIndex >= rowLimit ) {
+			sheet.close();
+			throw new IllegalStateException( "The header or content start row exceeds the row limit of " + rowLimit );
+		}
+		Aggregates aggregates = Aggregates.of( meta.getCells(), meta.getGroupBy() ); // Across the rollover sheets
+		for ( int sequence = 2; sheet != null; ) {
+			SheetWriter next = null;
+			try ( SheetWriter writer = sheet ) {
+				if ( hasMoreRows( elements, aggregates ) ) {
+					int anchorRow = writer.getAnchorRow();
+					if ( anchorRow < 0 ) {
+						prepareColumns( writer, true );
+						createHeader( wb, writer, headerIndex, cellHeight );
+						int rowIndex = createExcelRow( wb, writer, elements, aggregates, startIndex, rowLimit, cellHeight, true );
+						formatConditionally( writer, startIndex, rowIndex, aggregates );
+						createFooters( wb, writer, elements, aggregates, rowIndex, rowLimit, cellHeight, true );
+						autoSizeColumn( writer );
+					} else if ( anchorRow < rowLimit ) {
+						// The template provides the headers, column widths and styles
+						prepareColumns( writer, false );
+						int rowIndex = createExcelRow( wb, writer, elements, aggregates, anchorRow, rowLimit, cellHeight, false );
+						formatConditionally( writer, anchorRow, rowIndex, aggregates );
+						createFooters( wb, writer, elements, aggregates, rowIndex, rowLimit, cellHeight, false );
+					} // Otherwise the sheet is already full, all the rows go to the next sheet
+					if ( hasMoreRows( elements, aggregates ) ) {
+						String name;
+						do {
+							name = rolloverName( sheetName, sequence ++ );
+						} while ( !sheetNames.add( name.toLowerCase( Locale.ROOT ) ) );
+						next = factory.create( writer, name );
+					}
+				}
+			}
+			sheet = next;
+		}
+	}
+
+	private String rolloverName( String sheetName, int sequence ) {
+		String name = String.format( rolloverPattern, sheetName, sequence );
+		if ( name.length() > 31 ) { // The maximum length of a sheet name
+			int suffix = name.length() - sheetName.length();
+			name = String.format( rolloverPattern, sheetName.substring( 0, Math.max( 0, 31 - suffix ) ), sequence );
+		}
+		return name;
+	}
+
+	private WorkbookEngine newEngine( OutputStream os, boolean xssf ) throws IOException {
+		WriteMode writeMode = mode == null ? meta.getMode() : mode;
+		if ( templateFile != null || templateStream != null ) {
+			return newTemplateEngine( os, xssf, writeMode );
+		}
+		if ( writeMode != WriteMode.MEMORY && !xssf ) {
+			log.warn( "{} mode only supports \"xlsx\" format, fall back to the memory mode", writeMode );
+			writeMode = WriteMode.MEMORY;
+		}
+		if ( writeMode != WriteMode.DIRECT && ( compression != null || deflateExecutor != null ) ) {
+			log.warn( "Compression settings are only supported in {} mode", WriteMode.DIRECT );
+		}
+		switch ( writeMode ) {
+			case DIRECT:
+				return new XmlWorkbookEngine( os, meta.getSharedStringsCacheSize(), compression, deflateExecutor );
+			case STREAMING:
+				int window = windowSize > 0 ? windowSize : meta.getWindowSize();
+				boolean shared = meta.getStringMode() == StringMode.SHARED; // Decided for the whole workbook
+				return new PoiWorkbookEngine( new SXSSFWorkbook( null, window > 0 ? window : SXSSFWorkbook.DEFAULT_WINDOW_SIZE, false, shared ), os );
+			default:
+				return new PoiWorkbookEngine( WorkbookFactory.create( xssf ), os );
+		}
+	}
+
+	private WorkbookEngine newTemplateEngine( OutputStream os, boolean xssf, WriteMode writeMode ) throws IOException {
+		Workbook wb;
+		if ( templateFile == null ) {
+			wb = WorkbookFactory.create( templateStream );
+		} else {
+			try ( InputStream is = new FileInputStream( templateFile ) ) {
+				wb = WorkbookFactory.create( is ); // Loaded into memory, never written back
+			}
+		}
+		boolean xssfTemplate = wb instanceof XSSFWorkbook;
+		if ( xssfTemplate != xssf ) {
+			log.warn( "The output format follows the template, which is \"{}\"", xssfTemplate ? "xlsx" : "xls" );
+		}
+		if ( writeMode != WriteMode.MEMORY && !xssfTemplate ) {
+			log.warn( "{} mode only supports \"xlsx\" format, fall back to the memory mode", writeMode );
+		} else if ( writeMode != WriteMode.MEMORY ) {
+			if ( writeMode == WriteMode.DIRECT ) {
+				log.warn( "{} mode does not support templates, fall back to the streaming mode", writeMode );
+			}
+			int window = windowSize > 0 ? windowSize : meta.getWindowSize();
+			boolean shared = meta.getStringMode() == StringMode.SHARED;
+			wb = new SXSSFWorkbook( ( XSSFWorkbook ) wb, window > 0 ? window : SXSSFWorkbook.DEFAULT_WINDOW_SIZE, false, shared );
+		}
+		return new PoiWorkbookEngine( wb, os, anchorRow );
+	}
+
+	private void createHeader( Workbook wb, SheetWriter sheet, int index, int cellHeight ) {
+		sheet.createRow( index, cellHeight );
+		List<CellInfo<T>> cells = meta.getCells();
+		for ( int cellIndex = 0, s = cells.size(); cellIndex < s; cellIndex ++ ) {
+			CellInfo<T> cellInfo = cells.get( cellIndex );
+			if ( !cellInfo.isIgnoreHeader() ) {
+				sheet.setValue( cellIndex, cellInfo.getLabel() );
+				beautifyIt( wb, sheet, cellIndex, cellInfo, null, null, null, true );
+			}
+		}
+		sheet.createFreezePane( index + 1 );
+	}
+
+	/**
+	 * @return the index of the row after the written rows
+	 */
+	private int createExcelRow( Workbook wb, SheetWriter sheet, Iterator<T> elements, Aggregates aggregates, int startIndex, int rowLimit,
+			int cellHeight, boolean beautify ) {
+		boolean [] dynamic = beautify ? styleColumns( wb, sheet ) : null;
+		RowStyles<T> rowStyles = beautify ? RowStyles.of( meta, dynamic, styleLock ) : null;
+		if ( elements instanceof ColumnSource ) {
+			return createColumnRows( wb, sheet, ( ColumnSource ) elements, aggregates, startIndex, rowLimit, cellHeight, dynamic, rowStyles );
+		}
+		if ( elements instanceof ResultSetSource ) {
+			return createResultRows( wb, sheet, ( ResultSetSource ) elements, aggregates, startIndex, rowLimit, cellHeight, dynamic, rowStyles );
+		}
+		List<CellInfo<T>> cells = meta.getCells();
+		int keyIndex = aggregates == null ? -1 : aggregates.getKeyIndex();
+		while ( startIndex < rowLimit && hasNextRow( elements, aggregates ) ) {
+			T element = nextRow( elements, aggregates );
+			if ( aggregates != null ) {
+				Object key = keyIndex < 0 ? null : element == null ? aggregates.getKey() : cellValue( element, keyIndex, cells.get( keyIndex ) );
+				startIndex = startGroupRow( wb, sheet, aggregates, element, key, startIndex, rowLimit, cellHeight, beautify );
+				if ( startIndex >= rowLimit ) {
+					break;
+				}
+			}
+			sheet.createRow( startIndex ++, cellHeight );
+			if ( isBeanType ) {
+				createBeanRow( wb, sheet, element, aggregates, startIndex, dynamic );
+			} else if ( positional ) {
+				createPositionalRow( wb, sheet, element, aggregates, startIndex, dynamic );
+			} else {
+				if ( element instanceof Map ) {
+					createMapRow( wb, sheet, element, aggregates, startIndex, dynamic );
+				} else {
+					log.warn( "Data element only support type of \"java.lang.Map\"" );
+				}
+			}
+			if ( rowStyles != null ) {
+				rowStyles.apply( wb, sheet, element, startIndex );
+			}
+		}
+		return startIndex;
+	}
+
+	/**
+	 * The carried row is checked first, pulling the next row of a result set
+	 * would move it away from the carried row.
+	 */
+	private boolean hasNextRow( Iterator<T> elements, Aggregates aggregates ) {
+		return isCarried( aggregates ) || elements.hasNext();
+	}
+
+	@SuppressWarnings( "unchecked" )
+	private T nextRow( Iterator<T> elements, Aggregates aggregates ) {
+		return isCarried( aggregates ) ? ( T ) aggregates.takeCarried() : elements.next();
+	}
+
+	/**
+	 * @return whether there is any row or footer row left for the sheet
+	 */
+	private boolean hasMoreRows( Iterator<T> elements, Aggregates aggregates ) {
+		return hasNextRow( elements, aggregates ) || aggregates != null && aggregates.isPending();
+	}
+
+	private static boolean isCarried( Aggregates aggregates ) {
+		return aggregates != null && aggregates.hasCarried();
+	}
+
+	/**
+	 * Write the subtotal row of the current group before the row of another key,
+	 * the row is carried to the next sheet if there is no room left for it.
+	 * 
+	 * @return the index of the row of the element
+	 */
+	private int startGroupRow( Workbook wb, SheetWriter sheet, Aggregates aggregates, Object element, Object key, int rowIndex,
+			int rowLimit, int cellHeight, boolean beautify ) {
+		if ( aggregates.isGroupBreak( key ) ) {
+			aggregates.addSubtotalRow( rowIndex );
+			createFooter( wb, sheet, aggregates, true, rowIndex ++, cellHeight, beautify );
+			aggregates.endGroup();
+		}
+		if ( rowIndex >= rowLimit ) {
+			aggregates.carry( element );
+		} else {
+			aggregates.startRow( key );
+		}
+		return rowIndex;
+	}
+
+	/**
+	 * Write the subtotal row of the last group and the total row once all the
+	 * rows are written, the rows that do not fit are written in the next sheet.
+	 */
+	private void createFooters( Workbook wb, SheetWriter sheet, Iterator<T> elements, Aggregates aggregates, int rowIndex, int rowLimit,
+			int cellHeight, boolean beautify ) {
+		if ( aggregates == null || hasNextRow( elements, aggregates ) ) {
+			return;
+		}
+		if ( aggregates.isGrouping() && rowIndex < rowLimit ) {
+			createFooter( wb, sheet, aggregates, true, rowIndex ++, cellHeight, beautify );
+			aggregates.endGroup();
+		}
+		if ( !aggregates.isGrouping() && aggregates.isPending() && rowIndex < rowLimit ) {
+			createFooter( wb, sheet, aggregates, false, rowIndex, cellHeight, beautify );
+			aggregates.finish();
+		}
+	}
+
+	/**
+	 * Write a footer row with the aggregates of the current group or of all
+	 * the rows, the subtotal row takes the key of the group in its key cell,
+	 * and the total row takes the total label in its first cell without
+	 * aggregate. The footer cells are styled as the headers.
+	 */
+	private void createFooter( Workbook wb, SheetWriter sheet, Aggregates aggregates, boolean ofGroup, int rowIndex, int cellHeight,
+			boolean beautify ) {
+		sheet.createRow( rowIndex, cellHeight );
+		List<CellInfo<T>> cells = meta.getCells();
+		boolean labeled = false;
+		for ( int cellIndex = 0, s = cells.size(); cellIndex < s; cellIndex ++ ) {
+			CellInfo<T> cellInfo = cells.get( cellIndex );
+			if ( aggregates.isAggregated( cellIndex ) ) {
+				double value = aggregates.getValue( cellIndex, ofGroup );
+				if ( Double.isNaN( value ) ) {
+					sheet.setBlank( cellIndex );
+				} else {
+					sheet.setValue( cellIndex, value );
+				}
+			} else if ( ofGroup && cellIndex == aggregates.getKeyIndex() ) {
+				wirteIt( sheet, cellIndex, cellInfo, aggregates.getKey() );
+			} else if ( !ofGroup && !labeled && meta.getTotalLabel() != null ) {
+				sheet.setValue( cellIndex, meta.getTotalLabel() );
+				labeled = true;
+			} else if ( beautify ) {
+				sheet.setBlank( cellIndex );
+			} else {
+				continue;
+			}
+			if ( beautify ) {
+				beautifyIt( wb, sheet, cellIndex, cellInfo, null, null, null, true );
+			}
+		}
+	}
+
+	/**
+	 * Take the static styles of the columns once and write them as the default
+	 * styles of the columns, see {@link Styleable#beautifyColumn(Workbook, String)}.
+	 *
+	 * @return whether the cells of each column are beautified one by one
+	 */
+	private boolean [] styleColumns( Workbook wb, SheetWriter sheet ) {
+		boolean [] dynamic = new boolean[ meta.getCells().size() ];
+		Object lock = styleLock;
+		if ( lock == null ) {
+			styleColumns( wb, sheet, dynamic );
+		} else {
+			synchronized ( lock ) { // Styles are shared by the parallel sheets
+				styleColumns( wb, sheet, dynamic );
+			}
+		}
+		return dynamic;
+	}
+
+	private void styleColumns( Workbook wb, SheetWriter sheet, boolean [] dynamic ) {
+		List<CellInfo<T>> cells = meta.getCells();
+		for ( int cellIndex = 0; cellIndex < dynamic.length; cellIndex ++ ) {
+			CellInfo<T> cellInfo = cells.get( cellIndex );
+			Styleable<T> styleable = unstriped( cellInfo.getStyleable() );
+			if ( styleable != null ) {
+				String label = cellInfo.getLabel();
+				Style style = styleable.beautifyColumn( wb, label );
+				if ( style == null ) {
+					dynamic[ cellIndex ] = true;
+				} else {
+					styleable.applyAll( style, label );
+					sheet.setColumnStyle( cellIndex, style.getCellStyle() );
+				}
+			}
+		}
+	}
+
+	/**
+	 * Declare the highlights and the banding of the rows as conditional
+	 * formatting rules of the sheet, the highlights take precedence over the
+	 * banding. The subtotal rows between the rows are left out.
+	 *
+	 * @param firstRow the index of the first row
+	 * @param endRow the index of the row after the rows
+	 */
+	private void formatConditionally( SheetWriter sheet, int firstRow, int endRow, Aggregates aggregates ) {
+		int [] subtotalRows = aggregates == null ? new int[ 0 ] : aggregates.takeSubtotalRows();
+		if ( !meta.isFormattedConditionally() || endRow <= firstRow ) {
+			return;
+		}
+		List<CellInfo<T>> cells = meta.getCells();
+		List<CellRangeAddress> rowRanges = new ArrayList<CellRangeAddress>( subtotalRows.length + 1 );
+		for ( int i = 0, from = firstRow; i <= subtotalRows.length; i ++ ) {
+			int to = i < subtotalRows.length ? subtotalRows[ i ] : endRow;
+			if ( to > from ) {
+				rowRanges.add( new CellRangeAddress( from, to - 1, 0, cells.size() - 1 ) );
+			}
+			from = to + 1;
+		}
+		if ( rowRanges.isEmpty() ) {
+			return;
+		}
+		CellRangeAddress [] rows = rowRanges.toArray( new CellRangeAddress[ rowRanges.size() ] );
+		for ( Highlight highlight : meta.getHighlights() ) {
+			int cellIndex = cells.indexOf( meta.getByLabel( highlight.getLabel() ) );
+			if ( cellIndex < 0 ) {
+				throw new IllegalArgumentException( "There is no cell labeled \"" + highlight.getLabel() + "\" to highlight" );
+			}
+			String column = CellReference.convertNumToColString( cellIndex );
+			String formula = ( highlight.isWholeRow() ? "$" : "" ) + column + ( firstRow + 1 ) + highlight.getCondition();
+			CellRangeAddress [] regions = rows;
+			if ( !highlight.isWholeRow() ) {
+				regions = new CellRangeAddress[ rows.length ];
+				for ( int i = 0; i < rows.length; i ++ ) {
+					regions[ i ] = new CellRangeAddress( rows[ i ].getFirstRow(), rows[ i ].getLastRow(), cellIndex, cellIndex );
+				}
+			}
+			sheet.addConditionalFill( regions, formula, highlight.getColor() );
+		}
+		if ( meta.getBanding() != null ) {
+			sheet.addConditionalFill( rows, "MOD(ROW(),2)=0", meta.getBanding() );
+		}
+	}
+
+	private void createBeanRow( Workbook wb, SheetWriter sheet, T element, Aggregates aggregates, Integer rowNumber, boolean [] dynamic ) {
+		List<CellInfo<T>> cells = meta.getCells();
+		for ( int cellIndex = 0, s = cells.size(); cellIndex < s; cellIndex ++ ) {
+			CellInfo<T> cellInfo = cells.get( cellIndex );
+			if ( element != null ) {
+				Object value = cellInfo.getFieldValue( element );
+				wirteIt( sheet, cellIndex, cellInfo, value );
+				if ( aggregates != null ) {
+					aggregates.add( cellIndex, value );
+				}
+				if ( dynamic != null && dynamic[ cellIndex ] ) {
+					beautifyIt( wb, sheet, cellIndex, cellInfo, value, element, rowNumber, false );
+				}
+			} else {
+				sheet.setBlank( cellIndex );
+				if ( dynamic != null && dynamic[ cellIndex ] ) {
+					beautifyIt( wb, sheet, cellIndex, cellInfo, null, null, rowNumber, false );
+				}
+			}
+		}
+	}
+
+	private int createColumnRows( Workbook wb, SheetWriter sheet, ColumnSource source, Aggregates aggregates, int startIndex, int rowLimit,
+			int cellHeight, boolean [] dynamic, RowStyles<T> rowStyles ) {
+		List<CellInfo<T>> cells = meta.getCells();
+		ColumnSource.Column [] columns = new ColumnSource.Column[ cells.size() ];
+		for ( int cellIndex = 0; cellIndex < columns.length; cellIndex ++ ) {
+			columns[ cellIndex ] = source.getColumn( cells.get( cellIndex ).getLabel() );
+		}
+		while ( startIndex < rowLimit && ( isCarried( aggregates ) || source.hasNext() ) ) {
+			if ( isCarried( aggregates ) ) {
+				aggregates.takeCarried(); // Still on the carried row
+			} else {
+				source.next();
+			}
+			int row = source.getRow();
+			if ( aggregates != null ) {
+				int keyIndex = aggregates.getKeyIndex();
+				Object key = keyIndex < 0 || columns[ keyIndex ] == null ? null : columns[ keyIndex ].getValue( row );
+				startIndex = startGroupRow( wb, sheet, aggregates, null, key, startIndex, rowLimit, cellHeight, dynamic != null );
+				if ( startIndex >= rowLimit ) {
+					break;
+				}
+			}
+			sheet.createRow( startIndex ++, cellHeight );
+			for ( int cellIndex = 0; cellIndex < columns.length; cellIndex ++ ) {
+				CellInfo<T> cellInfo = cells.get( cellIndex );
+				ColumnSource.Column column = columns[ cellIndex ];
+				boolean styled = dynamic != null && dynamic[ cellIndex ];
+				boolean aggregated = aggregates != null && aggregates.isAggregated( cellIndex );
+				Object value = null; // Boxed only if it is needed
+				if ( column == null ) {
+					sheet.setBlank( cellIndex );
+				} else if ( styled || aggregated || cellInfo.getWriter() != null ) {
+					value = column.getValue( row );
+					wirteIt( sheet, cellIndex, cellInfo, value );
+					if ( aggregated ) {
+						aggregates.add( cellIndex, value );
+					}
+				} else if ( column.isText() ) {
+					String text = column.getText( row );
+					if ( text == null ) {
+						sheet.setBlank( cellIndex );
+					} else {
+						sheet.setValue( cellIndex, text );
+					}
+				} else {
+					sheet.setValue( cellIndex, column.getNumber( row ) );
+				}
+				if ( styled ) {
+					beautifyIt( wb, sheet, cellIndex, cellInfo, value, null, startIndex, false );
+				}
+			}
+			if ( rowStyles != null ) {
+				rowStyles.apply( wb, sheet, null, startIndex );
+			}
+		}
+		return startIndex;
+	}
+
+	private int createResultRows( Workbook wb, SheetWriter sheet, ResultSetSource source, Aggregates aggregates, int startIndex,
+			int rowLimit, int cellHeight, boolean [] dynamic, RowStyles<T> rowStyles ) {
+		List<CellInfo<T>> cells = meta.getCells();
+		int [] columns = new int[ cells.size() ]; // 0 if the cell has no column
+		boolean [] bound = new boolean[ source.getColumnCount() + 1 ];
+		for ( int cellIndex = 0; cellIndex < columns.length; cellIndex ++ ) {
+			String label = cells.get( cellIndex ).getLabel();
+			for ( int column = 1; column < bound.length; column ++ ) {
+				if ( !bound[ column ] && StringUtils.equals( label, source.getColumnLabel( column ) ) ) {
+					bound[ column ] = true; // Duplicate labels are bound in order
+					columns[ cellIndex ] = column;
+					break;
+				}
+			}
+		}
+		ResultSet rs = source.getResultSet();
+		try {
+			while ( startIndex < rowLimit && ( isCarried( aggregates ) || source.hasNext() ) ) {
+				if ( isCarried( aggregates ) ) {
+					aggregates.takeCarried(); // Still on the carried row
+				} else {
+					source.next();
+				}
+				if ( aggregates != null ) {
+					int keyIndex = aggregates.getKeyIndex();
+					Object key = keyIndex < 0 || columns[ keyIndex ] == 0 ? null : rs.getObject( columns[ keyIndex ] );
+					startIndex = startGroupRow( wb, sheet, aggregates, null, key, startIndex, rowLimit, cellHeight, dynamic != null );
+					if ( startIndex >= rowLimit ) {
+						break;
+					}
+				}
+				sheet.createRow( startIndex ++, cellHeight );
+				for ( int cellIndex = 0; cellIndex < columns.length; cellIndex ++ ) {
+					CellInfo<T> cellInfo = cells.get( cellIndex );
+					int column = columns[ cellIndex ];
+					boolean styled = dynamic != null && dynamic[ cellIndex ];
+					boolean aggregated = aggregates != null && aggregates.isAggregated( cellIndex );
+					Object value = null; // Read as an object only if it is needed
+					if ( column == 0 ) {
+						sheet.setBlank( cellIndex );
+					} else if ( styled || aggregated || cellInfo.getWriter() != null ) {
+						value = rs.getObject( column );
+						wirteIt( sheet, cellIndex, cellInfo, value );
+						if ( aggregated ) {
+							aggregates.add( cellIndex, value );
+						}
+					} else {
+						writeResult( sheet, cellIndex, cellInfo, rs, column, source.getColumnType( column ) );
+					}
+					if ( styled ) {
+						beautifyIt( wb, sheet, cellIndex, cellInfo, value, null, startIndex, false );
+					}
+				}
+				if ( rowStyles != null ) {
+					rowStyles.apply( wb, sheet, null, startIndex );
+				}
+			}
+		} catch ( SQLException e ) {
+			throw ResultSetSource.unchecked( e );
+		}
+		return startIndex;
+	}
+
+	private void writeResult( SheetWriter sheet, int cellIndex, CellInfo<T> cellInfo, ResultSet rs, int column, int type )
+			throws SQLException {
+		switch ( type ) {
+			case Types.TINYINT:
+			case Types.SMALLINT:
+			case Types.INTEGER:
+			case Types.BIGINT:
+			case Types.REAL:
+			case Types.FLOAT:
+			case Types.DOUBLE:
+			case Types.DECIMAL:
+			case Types.NUMERIC:
+				double number = rs.getDouble( column );
+				if ( rs.wasNull() ) {
+					sheet.setBlank( cellIndex );
+				} else {
+					sheet.setValue( cellIndex, number );
+				}
+				break;
+			case Types.CHAR:
+			case Types.VARCHAR:
+			case Types.LONGVARCHAR:
+			case Types.NCHAR:
+			case Types.NVARCHAR:
+			case Types.LONGNVARCHAR:
+				String text = rs.getString( column );
+				if ( text == null ) {
+					sheet.setBlank( cellIndex );
+				} else {
+					sheet.setValue( cellIndex, text );
+				}
+				break;
+			case Types.DATE: // Read as dates whatever the objects of the driver are
+				wirteIt( sheet, cellIndex, cellInfo, rs.getDate( column ) );
+				break;
+			case Types.TIME:
+				wirteIt( sheet, cellIndex, cellInfo, rs.getTime( column ) );
+				break;
+			case Types.TIMESTAMP:
+				wirteIt( sheet, cellIndex, cellInfo, rs.getTimestamp( column ) );
+				break;
+			default:
+				wirteIt( sheet, cellIndex, cellInfo, rs.getObject( column ) );
+		}
+	}
+
+	private void createPositionalRow( Workbook wb, SheetWriter sheet, T element, Aggregates aggregates, Integer rowNumber, boolean [] dynamic ) {
+		Object [] array = null;
+		List<?> list = null;
+		if ( element instanceof Object [] ) {
+			array = ( Object [] ) element;
+		} else if ( element instanceof RandomAccess && element instanceof List ) {
+			list = ( List<?> ) element;
+		} else if ( element instanceof Collection ) {
+			array = ( ( Collection<?> ) element ).toArray();
+		} else if ( element != null ) {
+			log.warn( "Positional row only support type of \"java.lang.Object[]\" or \"java.util.List\"" );
+			return;
+		}
+		int size = array != null ? array.length : list != null ? list.size() : 0;
+		List<CellInfo<T>> cells = meta.getCells();
+		for ( int cellIndex = 0, s = cells.size(); cellIndex < s; cellIndex ++ ) {
+			CellInfo<T> cellInfo = cells.get( cellIndex );
+			Object value = cellIndex >= size ? null : array != null ? array[ cellIndex ] : list.get( cellIndex );
+			wirteIt( sheet, cellIndex, cellInfo, value );
+			if ( aggregates != null ) {
+				aggregates.add( cellIndex, value );
+			}
+			if ( dynamic != null && dynamic[ cellIndex ] ) {
+				beautifyIt( wb, sheet, cellIndex, cellInfo, value, element, rowNumber, false );
+			}
+		}
+	}
+
+	private void createMapRow( Workbook wb, SheetWriter sheet, Object element, Aggregates aggregates, Integer rowNumber, boolean [] dynamic ) {
+		Map<String, Object> map = ( Map<String, Object> ) element;
+		List<CellInfo<T>> cells = meta.getCells();
+		for ( int cellIndex = 0, s = cells.size(); cellIndex < s; cellIndex ++ ) {
+			CellInfo<T> cellInfo = cells.get( cellIndex );
+			Object value = map.get( cellInfo.getLabel() );
+			wirteIt( sheet, cellIndex, cellInfo, value );
+			if ( aggregates != null ) {
+				aggregates.add( cellIndex, value );
+			}
+			if ( dynamic != null && dynamic[ cellIndex ] ) {
+				beautifyIt( wb, sheet, cellIndex, cellInfo, value, ( T ) element, rowNumber, false );
+			}
+		}
+	}
+
+	/**
+	 * @param sized whether the columns are sized by the cells, otherwise only
+	 *              the way the values are stored is prepared
+	 */
+	private void prepareColumns( SheetWriter sheet, boolean sized ) {
+		sheet.setAutoSizeSampleRows( meta.getAutoSizeSampleRows() );
+		List<CellInfo<T>> cells = meta.getCells();
+		for ( int cellIndex = 0, s = cells.size(); cellIndex < s; cellIndex ++ ) {
+			CellInfo<T> cellInfo = cells.get( cellIndex );
+			StringMode stringMode = cellInfo.getStringMode();
+			if ( stringMode == StringMode.SHARED || ( stringMode == StringMode.DEFAULT && meta.getStringMode() == StringMode.SHARED ) ) {
+				sheet.shareStrings( cellIndex );
+			}
+			if ( cellInfo.isDateCell() ) {
+				sheet.setDateFormat( cellIndex, cellInfo.getExcelDateformat() );
+			}
+			if ( !sized ) {
+				continue;
+			}
+			if ( cellInfo.isColumnAutoSize() ) {
+				sheet.trackColumnForAutoSizing( cellIndex );
+			} else if ( cellInfo.getWidth() != 0 ) {
+				sheet.setColumnWidth( cellIndex, cellInfo.getWidth() );
+			}
+		}
+	}
+
+	private void autoSizeColumn( SheetWriter sheet ) {
+		List<CellInfo<T>> cells = meta.getCells();
+		for ( int cellIndex = 0, s = cells.size(); cellIndex < s; cellIndex ++ ) {
+			if ( cells.get( cellIndex ).isColumnAutoSize() ) {
+				sheet.autoSizeColumn( cellIndex );
+			}
+		}
+	}
+
+	private void wirteIt( SheetWriter sheet, int cellIndex, CellInfo<T> info, Object value ) {
+		if ( value == null ) {
+			sheet.setBlank( cellIndex );
+		} else {
+			info.getColumnWriter().write( sheet, cellIndex, value );
+		}
+	}
+
+	private void beautifyIt( Workbook wb, SheetWriter sheet, int cellIndex, CellInfo<T> info, Object value, T instance,
+			Integer row, boolean isHeader ) {
+		Object lock = styleLock;
+		if ( lock == null ) {
+			beautifyCell( wb, sheet, cellIndex, info, value, instance, row, isHeader );
+		} else {
+			synchronized ( lock ) { // Styles are shared by the parallel sheets
+				beautifyCell( wb, sheet, cellIndex, info, value, instance, row, isHeader );
+			}
+		}
+	}
+
+	private void beautifyCell( Workbook wb, SheetWriter sheet, int cellIndex, CellInfo<T> info, Object value, T instance,
+			Integer row, boolean isHeader ) {
+		Styleable<T> styleable = unstriped( info.getStyleable() );
+		if ( styleable != null ) {
+			String label = info.getLabel();
+			Style beautify = null;
+			Styleable<Object> fallback = meta.getBanding() == null ? defaultStyleable : bandedStyleable;
+			if ( isHeader ) {
+				beautify = styleable.beautifyHeader( wb, label );
+				if ( beautify == null ) {
+					styleable = meta.getStyleable();
+					if ( styleable == null ) {
+						beautify = fallback.beautifyHeader( wb, label );
+					} else {
+						beautify = styleable.beautifyHeader( wb, label );
+					}
+				}
+			} else {
+				if ( instance != null ) {
+					beautify = styleable.beautifyIt( wb, label, value, instance, row );
+				}
+				if ( beautify == null ) {
+					styleable = unstriped( meta.getStyleable() );
+					if ( styleable == null ) {
+						beautify = fallback.beautifyIt( wb, label, value, instance, row );
+					} else if ( instance != null ) {
+						beautify = styleable.beautifyIt( wb, label, value, instance, row );
+					}
+				}
+			}
+			if ( beautify != null ) {
+				if ( styleable == null ) {
+					fallback.applyAll( beautify, label );
+				} else {
+					styleable.applyAll( beautify, label );
+				}
+				sheet.setStyle( cellIndex, beautify.getCellStyle() );
+			}
+		}
+	}
+
+	/**
+	 * The even rows of a banded sheet are filled by its conditional formatting,
+	 * so the default styleable stops filling them by the cell styles.
+	 */
+	@SuppressWarnings( "unchecked" )
+	private Styleable<T> unstriped( Styleable<T> styleable ) {
+		if ( meta.getBanding() != null && styleable != null && styleable.getClass() == DefaultStyleable.class ) {
+			return ( Styleable<T> ) bandedStyleable;
+		}
+		return styleable;
+	}
+
+	/**
+	 * Styles of the content cells taken row by row from the {@link RowStyleable}
+	 * of the sheet, each style is applied and resolved only the first time it
+	 * appears in a column.
+	 */
+	private static final class RowStyles<T> {
+
+		private final RowStyleable<T> styleable;
+		private final String [] labels; // Null if the column is not styled by row
+		private final List<Map<Style, CellStyle>> resolved;
+		private final Object lock; // Null unless the sheets are written in parallel
+
+		private RowStyles( RowStyleable<T> styleable, String [] labels, Object lock ) {
+			this.styleable = styleable;
+			this.labels = labels;
+			this.lock = lock;
+			this.resolved = new ArrayList<Map<Style, CellStyle>>( labels.length );
+			for ( int i = 0; i < labels.length; i ++ ) {
+				resolved.add( new IdentityHashMap<Style, CellStyle>( 4 ) );
+			}
+		}
+
+		/**
+		 * Take the dynamic columns of the sheet styleable, which are not
+		 * beautified one by one any more.
+		 *
+		 * @param lock the lock guarding the shared styles, or <code>null</code>
+		 *             if the sheets are written one by one
+		 * @return the row styles, or <code>null</code> if the sheet is not
+		 *         beautified by a {@link RowStyleable}
+		 */
+		@SuppressWarnings( "unchecked" )
+		private static <T> RowStyles<T> of( ExcelInfo<T> meta, boolean [] dynamic, Object lock ) {
+			if ( !( meta.getStyleable() instanceof RowStyleable ) ) {
+				return null;
+			}
+			List<CellInfo<T>> cells = meta.getCells();
+			String [] labels = new String[ dynamic.length ];
+			boolean styled = false;
+			for ( int cellIndex = 0; cellIndex < dynamic.length; cellIndex ++ ) {
+				CellInfo<T> cellInfo = cells.get( cellIndex );
+				if ( dynamic[ cellIndex ] && cellInfo.getStyleable() == meta.getStyleable() ) {
+					labels[ cellIndex ] = cellInfo.getLabel();
+					dynamic[ cellIndex ] = false;
+					styled = true;
+				}
+			}
+			return styled ? new RowStyles<T>( ( RowStyleable<T> ) meta.getStyleable(), labels, lock ) : null;
+		}
+
+		private void apply( Workbook wb, SheetWriter sheet, T element, int num ) {
+			if ( lock == null ) {
+				applyRow( wb, sheet, element, num );
+			} else {
+				synchronized ( lock ) { // Styles are shared by the parallel sheets
+					applyRow( wb, sheet, element, num );
+				}
+			}
+		}
+
+		private void applyRow( Workbook wb, SheetWriter sheet, T element, int num ) {
+			Style [] row = styleable.beautifyRow( wb, element, num );
+			if ( row == null ) {
+				return;
+			}
+			for ( int cellIndex = 0, s = Math.min( row.length, labels.length ); cellIndex < s; cellIndex ++ ) {
+				Style style = row[ cellIndex ];
+				if ( style != null && labels[ cellIndex ] != null ) {
+					Map<Style, CellStyle> cellStyles = resolved.get( cellIndex );
+					CellStyle cellStyle = cellStyles.get( style );
+					if ( cellStyle == null ) {
+						styleable.applyAll( style, labels[ cellIndex ] );
+						cellStyle = style.getCellStyle();
+						cellStyles.put( style, cellStyle );
+					}
+					sheet.setStyle( cellIndex, cellStyle );
+				}
+			}
+		}
+
+	}
+
+	private static final class CountingOutputStream extends FilterOutputStream {
+
+		private long count;
+
+		private CountingOutputStream( OutputStream out ) {
+			super( out );
+		}
+
+		@Override
+		public void write( int b ) throws IOException {
+			out.write( b );
+			count ++;
+		}
+
+		@Override
+		public void write( byte [] b, int off, int len ) throws IOException {
+			out.write( b, off, len );
+			count += len;
+		}
+
+	}
+
+	/**
+	 * Writes the workbook into the cache entry along with the output stream
+	 */
+	private static final class CachingOutputStream extends FilterOutputStream {
+
+		private final OutputStream entry;
+
+		private CachingOutputStream( OutputStream out, OutputStream entry ) {
+			super( out );
+			this.entry = entry;
+		}
+
+		@Override
+		public void write( int b ) throws IOException {
+			out.write( b );
+			entry.write( b );
+		}
+
+		@Override
+		public void write( byte [] b, int off, int len ) throws IOException {
+			out.write( b, off, len );
+			entry.write( b, off, len );
+		}
+
+	}
+
+	/**
+	 * Creates the continuation sheet of a sheet exceeding the row limit
+	 */
+	@FunctionalInterface
+	private interface SheetFactory {
+
+		SheetWriter create( SheetWriter previous, String sheetName ) throws IOException;
+
+	}
+
+}
@@ -1,47 +1,101 @@
-/**
- * Copyright (C) 2022 the original author or authors.
- *
- * Licensed under the Apache License, Version 2.0 (the "License");
- * you may not use this file except in compliance with the License.
- * You may obtain a copy of the License at
- *
- *     http://www.apache.org/licenses/LICENSE-2.0
- *
- * Unless required by applicable law or agreed to in writing, software
- * distributed under the License is distributed on an "AS IS" BASIS,
- * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
- * See the License for the specific language governing permissions and
- * limitations under the License.
- */
-package com.viiyue.plugins.excel.annotation;
-
-import java.lang.annotation.Documented;
-import java.lang.annotation.ElementType;
-import java.lang.annotation.Retention;
-import java.lang.annotation.RetentionPolicy;
-import java.lang.annotation.Target;
-
-import com.viiyue.plugins.excel.converter.DefaultStyleable;
-import com.viiyue.plugins.excel.converter.Styleable;
-
-/**
- * Excel root metadata descriptor
- * @author tangxbai
- * @since 1.0.0
- */
-@Documented
-@Target( { ElementType.TYPE } )
-@Retention( RetentionPolicy.RUNTIME )
-public @interface Excel {
-
-	int headerIndex() default 0;
-	int startIndex() default 1;
-	
-	int cellHeight() default 25;
-	
-	boolean strip() default true;
-	
-	@SuppressWarnings( "rawtypes" )
-	Class<? extends Styleable> styleable() default DefaultStyleable.class;
-	
-}
+/**
+ * Copyright (C) 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.plugins.excel.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import com.viiyue.plugins.excel.converter.DefaultStyleable;
+import com.viiyue.plugins.excel.converter.Styleable;
+import com.viiyue.plugins.excel.enums.StringMode;
+import com.viiyue.plugins.excel.enums.WriteMode;
+
+/**
+ * Excel root metadata descriptor
+ * @author tangxbai
+ * @since 1.0.0
+ */
+@Documented
+@Target( { ElementType.TYPE } )
+@Retention( RetentionPolicy.RUNTIME )
+public @interface Excel {
+
+	int headerIndex() default 0;
+	int startIndex() default 1;
+	
+	int cellHeight() default 25;
+	
+	boolean strip() default true;
+	
+	@SuppressWarnings( "rawtypes" )
+	Class<? extends Styleable> styleable() default DefaultStyleable.class;
+	
+	WriteMode mode() default WriteMode.MEMORY;
+	
+	/**
+	 * Number of rows kept in memory in {@link WriteMode#STREAMING} mode
+	 */
+	int windowSize() default 100;
+	
+	/**
+	 * Number of rows measured for the {@link ExcelCell#widthAutoSize()} columns,
+	 * all the rows are measured if it is not positive. In
+	 * {@link WriteMode#DIRECT} mode the measured rows are held in memory until
+	 * the widths are decided, so only the first 5000 rows are measured if it is
+	 * not positive.
+	 */
+	int autoSizeSampleRows() default 0;
+	
+	/**
+	 * How the text cells are stored, {@link StringMode#DEFAULT} uses the shared
+	 * strings table in {@link WriteMode#MEMORY} mode and inline strings in the
+	 * other modes. Cells can override it by {@link ExcelCell#stringMode()}
+	 * in {@link WriteMode#DIRECT} mode.
+	 */
+	StringMode stringMode() default StringMode.DEFAULT;
+	
+	/**
+	 * Number of distinct texts remembered for deduplication in the shared
+	 * strings table of {@link WriteMode#DIRECT} mode, the least recently used
+	 * texts are forgotten and written again when they reappear. Unbounded if it
+	 * is not positive.
+	 */
+	int sharedStringsCacheSize() default 4096;
+	
+	/**
+	 * Label of the cell grouping the rows for the subtotal rows of the
+	 * {@link ExcelCell#aggregate()} columns, a group is a run of consecutive
+	 * rows with the same value, so the rows are expected to be sorted by it. No
+	 * subtotal rows are written by default.
+	 */
+	String groupBy() default "";
+	
+	/**
+	 * Text of the total row, written into its first cell without aggregate
+	 */
+	String totalLabel() default "Total";
+	
+	/**
+	 * Fill color of the even data rows, such as <code>#F5F5F5</code>, written
+	 * as a conditional formatting rule of the sheet instead of the cell styles.
+	 * No banding by default.
+	 */
+	String banding() default "";
+	
+}
@@ -0,0 +1,273 @@
+/**
+ * Copyright (C) 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.plugins.excel.common;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.viiyue.plugins.excel.enums.Aggregate;
+import com.viiyue.plugins.excel.metadata.CellInfo;
+
+/**
+ * Running aggregates of the columns of a sheet, updated as the rows are
+ * written, so that the subtotal rows of the groups and the total row can be
+ * written right after the rows without another pass over them. A group is a
+ * run of consecutive rows with the same key value.
+ *
+ * @author tangxbai
+ * @since 1.1.3
+ */
+public final class Aggregates {
+
+    private final Aggregate [] aggregates;
+    private final int keyIndex;
+    private final Totals group;
+    private final Totals total;
+    private Object key;
+    private boolean grouping; // The current group has rows
+    private boolean finished; // The total row has been written
+    private boolean carried;
+    private Object carriedElement;
+    private int [] subtotalRows = new int[ 0 ];
+    private int subtotalCount;
+
+    private Aggregates( Aggregate [] aggregates, int keyIndex ) {
+        this.aggregates = aggregates;
+        this.keyIndex = keyIndex;
+        this.group = keyIndex < 0 ? null : new Totals( aggregates.length );
+        this.total = new Totals( aggregates.length );
+    }
+
+    /**
+     * @param cells the cells of the sheet
+     * @param groupBy the label of the key cell, or <code>null</code>
+     * @return the aggregates of the cells, or <code>null</code> if no cell is
+     *         aggregated
+     * @throws IllegalArgumentException if there is no cell of the key label
+     */
+    public static Aggregates of( List<? extends CellInfo<?>> cells, String groupBy ) {
+        Aggregate [] aggregates = new Aggregate[ cells.size() ];
+        boolean aggregated = false;
+        int keyIndex = -1;
+        for ( int cellIndex = 0; cellIndex < aggregates.length; cellIndex ++ ) {
+            CellInfo<?> cell = cells.get( cellIndex );
+            aggregates[ cellIndex ] = cell.getAggregate();
+            aggregated |= aggregates[ cellIndex ] != Aggregate.NONE;
+            if ( keyIndex < 0 && groupBy != null && StringUtils.equals( groupBy, cell.getLabel() ) ) {
+                keyIndex = cellIndex;
+            }
+        }
+        if ( !aggregated ) {
+            return null;
+        }
+        if ( groupBy != null && keyIndex < 0 ) {
+            throw new IllegalArgumentException( "There is no cell labeled \"" + groupBy + "\" to group by" );
+        }
+        return new Aggregates( aggregates, keyIndex );
+    }
+
+    /**
+     * @return the index of the key cell, or <code>-1</code> if the rows are not
+     *         grouped
+     */
+    public int getKeyIndex() {
+        return keyIndex;
+    }
+
+    public boolean isAggregated( int cellIndex ) {
+        return cellIndex < aggregates.length && aggregates[ cellIndex ] != Aggregate.NONE;
+    }
+
+    /**
+     * @return whether the row of the key ends the current group, which needs
+     *         its subtotal row before the row
+     */
+    public boolean isGroupBreak( Object key ) {
+        return grouping && !Objects.equals( this.key, key );
+    }
+
+    /**
+     * Start a row of the key, which starts a new group if the current group
+     * has been ended
+     */
+    public void startRow( Object key ) {
+        if ( keyIndex >= 0 && !grouping ) {
+            this.key = key;
+            this.grouping = true;
+            group.reset();
+        }
+        if ( group != null ) {
+            group.rows ++;
+        }
+        total.rows ++;
+    }
+
+    public void add( int cellIndex, Object value ) {
+        if ( value != null && isAggregated( cellIndex ) ) {
+            if ( group != null ) {
+                group.add( cellIndex, value );
+            }
+            total.add( cellIndex, value );
+        }
+    }
+
+    /**
+     * @return whether a group has rows without its subtotal row
+     */
+    public boolean isGrouping() {
+        return grouping;
+    }
+
+    /**
+     * @return the key of the current group
+     */
+    public Object getKey() {
+        return key;
+    }
+
+    /**
+     * End the current group once its subtotal row is written
+     */
+    public void endGroup() {
+        this.grouping = false;
+    }
+
+    /**
+     * Remember the index of a subtotal row written between the rows of a
+     * sheet, such rows are left out of the conditional formatting of the rows.
+     */
+    public void addSubtotalRow( int rowIndex ) {
+        if ( subtotalCount == subtotalRows.length ) {
+            this.subtotalRows = Arrays.copyOf( subtotalRows, Math.max( 8, subtotalCount * 2 ) );
+        }
+        subtotalRows[ subtotalCount ++ ] = rowIndex;
+    }
+
+    /**
+     * @return the indexes of the subtotal rows added since the last call, in
+     *         the order they were written
+     */
+    public int [] takeSubtotalRows() {
+        int [] rows = Arrays.copyOf( subtotalRows, subtotalCount );
+        this.subtotalCount = 0;
+        return rows;
+    }
+
+    /**
+     * End the aggregates once the total row is written
+     */
+    public void finish() {
+        this.finished = true;
+    }
+
+    /**
+     * @param cellIndex the index of the aggregated cell
+     * @param ofGroup whether to get the aggregate of the current group or of
+     *                all the rows
+     * @return the aggregate, <code>NaN</code> if there is no number for it
+     */
+    public double getValue( int cellIndex, boolean ofGroup ) {
+        Totals totals = ofGroup ? group : total;
+        switch ( aggregates[ cellIndex ] ) {
+            case SUM:
+                return totals.numbers[ cellIndex ] == 0 ? Double.NaN : totals.sums[ cellIndex ];
+            case COUNT:
+                return totals.counts[ cellIndex ];
+            case MIN:
+                return totals.numbers[ cellIndex ] == 0 ? Double.NaN : totals.mins[ cellIndex ];
+            case MAX:
+                return totals.numbers[ cellIndex ] == 0 ? Double.NaN : totals.maxs[ cellIndex ];
+            case AVERAGE:
+                return totals.numbers[ cellIndex ] == 0 ? Double.NaN : totals.sums[ cellIndex ] / totals.numbers[ cellIndex ];
+            default:
+                return Double.NaN;
+        }
+    }
+
+    /**
+     * Keep an element that has been pulled but does not fit in the sheet, it
+     * is written first in the next sheet.
+     */
+    public void carry( Object element ) {
+        this.carried = true;
+        this.carriedElement = element;
+    }
+
+    public boolean hasCarried() {
+        return carried;
+    }
+
+    public Object takeCarried() {
+        Object element = carriedElement;
+        this.carried = false;
+        this.carriedElement = null;
+        return element;
+    }
+
+    /**
+     * @return whether there is a carried element or any footer row to write
+     */
+    public boolean isPending() {
+        return carried || ( total.rows > 0 && !finished );
+    }
+
+    /**
+     * Aggregates of a range of rows by cell
+     */
+    private static final class Totals {
+
+        private long rows;
+        private final long [] counts;
+        private final long [] numbers;
+        private final double [] sums;
+        private final double [] mins;
+        private final double [] maxs;
+
+        private Totals( int size ) {
+            this.counts = new long[ size ];
+            this.numbers = new long[ size ];
+            this.sums = new double[ size ];
+            this.mins = new double[ size ];
+            this.maxs = new double[ size ];
+        }
+
+        private void add( int cellIndex, Object value ) {
+            counts[ cellIndex ] ++;
+            if ( value instanceof Number ) {
+                double number = ( ( Number ) value ).doubleValue();
+                if ( numbers[ cellIndex ] ++ == 0 ) {
+                    mins[ cellIndex ] = maxs[ cellIndex ] = number;
+                } else {
+                    mins[ cellIndex ] = Math.min( mins[ cellIndex ], number );
+                    maxs[ cellIndex ] = Math.max( maxs[ cellIndex ], number );
+                }
+                sums[ cellIndex ] += number;
+            }
+        }
+
+        private void reset() {
+            this.rows = 0;
+            Arrays.fill( counts, 0 );
+            Arrays.fill( numbers, 0 );
+            Arrays.fill( sums, 0 );
+        }
+
+    }
+
+}
@@ -0,0 +1,175 @@
+/**
+ * Copyright (C) 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.plugins.excel.common;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.IntFunction;
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * Columnar row source, the values are given by column instead of by row, as
+ * primitive arrays or functions of the row index, and matched to the cells by
+ * label. The numbers are written without being boxed, so a sheet of numeric
+ * columns creates almost no garbage per cell.
+ *
+ * <p>
+ * The elements of the source carry no value, the writer reads the values of
+ * the current row from the columns, see {@link #getRow()}.
+ *
+ * @author tangxbai
+ * @since 1.1.3
+ */
+public final class ColumnSource extends RowSource<Object> {
+
+    private final int rows;
+    private final Map<String, Column> columns = new HashMap<String, Column>();
+    private int row = -1;
+
+    private ColumnSource( int rows ) {
+        this.rows = rows;
+    }
+
+    /**
+     * @param rows the number of rows
+     * @return an empty source of the rows
+     */
+    public static final ColumnSource of( int rows ) {
+        if ( rows < 0 ) {
+            throw new IllegalArgumentException( "The number of rows cannot be negative" );
+        }
+        return new ColumnSource( rows );
+    }
+
+    public ColumnSource column( String label, int [] values ) {
+        checkLength( label, values.length );
+        return numbers( label, row -> values[ row ] );
+    }
+
+    public ColumnSource column( String label, long [] values ) {
+        checkLength( label, values.length );
+        return numbers( label, row -> values[ row ] );
+    }
+
+    public ColumnSource column( String label, double [] values ) {
+        checkLength( label, values.length );
+        return numbers( label, row -> values[ row ] );
+    }
+
+    public ColumnSource column( String label, String [] values ) {
+        checkLength( label, values.length );
+        return texts( label, row -> values[ row ] );
+    }
+
+    /**
+     * @param label the label of the cell
+     * @param values the number of each row index
+     */
+    public ColumnSource numbers( String label, IntToDoubleFunction values ) {
+        Objects.requireNonNull( values, "Column values cannot be null" );
+        columns.put( label, new Column( values, null ) );
+        return this;
+    }
+
+    /**
+     * @param label the label of the cell
+     * @param values the text of each row index, <code>null</code> for a blank
+     *               cell
+     */
+    public ColumnSource texts( String label, IntFunction<String> values ) {
+        Objects.requireNonNull( values, "Column values cannot be null" );
+        columns.put( label, new Column( null, values ) );
+        return this;
+    }
+
+    /**
+     * @return the column of the label, or <code>null</code> if there is none
+     */
+    public Column getColumn( String label ) {
+        return columns.get( label );
+    }
+
+    /**
+     * @return the index of the current row, which is the row of the element
+     *         returned last
+     */
+    public int getRow() {
+        return row;
+    }
+
+    @Override
+    public void add( Object element ) {
+        throw new UnsupportedOperationException( "Rows cannot be appended to a column source" );
+    }
+
+    @Override
+    protected boolean hasMore() {
+        return row + 1 < rows;
+    }
+
+    @Override
+    protected Object nextOne() {
+        row ++;
+        return null;
+    }
+
+    @Override
+    protected void release() {
+        this.row = -1; // Columns can be written again
+    }
+
+    private void checkLength( String label, int length ) {
+        if ( length < rows ) {
+            throw new IllegalArgumentException( "Column \"" + label + "\" has " + length + " values, less than " + rows + " rows" );
+        }
+    }
+
+    /**
+     * Column values, either numbers or texts
+     */
+    public static final class Column {
+
+        private final IntToDoubleFunction numbers;
+        private final IntFunction<String> texts;
+
+        private Column( IntToDoubleFunction numbers, IntFunction<String> texts ) {
+            this.numbers = numbers;
+            this.texts = texts;
+        }
+
+        public boolean isText() {
+            return texts != null;
+        }
+
+        public double getNumber( int row ) {
+            return numbers.applyAsDouble( row );
+        }
+
+        public String getText( int row ) {
+            return texts.apply( row );
+        }
+
+        /**
+         * @return the boxed value for the converters and styleables
+         */
+        public Object getValue( int row ) {
+            return texts == null ? ( Object ) numbers.applyAsDouble( row ) : texts.apply( row );
+        }
+
+    }
+
+}
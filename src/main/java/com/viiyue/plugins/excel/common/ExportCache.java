@@ -0,0 +1,271 @@
+/**
+ * Copyright (C) 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.plugins.excel.common;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.regex.Pattern;
+
+/**
+ * Store of written workbooks by their fingerprints, so that the same export
+ * is served by copying the bytes of the workbook written before instead of
+ * writing it again. A cache can be shared by the writers of different threads.
+ *
+ * @author tangxbai
+ * @since 1.1.3
+ * @see Fingerprint
+ */
+public abstract class ExportCache {
+
+    private static final Pattern KEY_PATTERN = Pattern.compile( "[0-9A-Za-z_\\-]{1,128}" );
+
+    /**
+     * @param maxBytes the total size of the cached workbooks, the workbooks used
+     *                 least recently are evicted beyond it
+     * @return the cache keeping the workbooks in memory
+     */
+    public static final ExportCache memory( long maxBytes ) {
+        if ( maxBytes <= 0 ) {
+            throw new IllegalArgumentException( "The cache size must be positive" );
+        }
+        return new MemoryCache( maxBytes );
+    }
+
+    /**
+     * The workbooks are kept as files named by their keys, they are never
+     * evicted, so the directory has to be cleaned up by the caller.
+     *
+     * @param directory the directory of the cached workbooks, which is created
+     *                  if it does not exist
+     * @return the cache keeping the workbooks in the directory
+     * @throws IOException if the directory cannot be created
+     */
+    public static final ExportCache directory( File directory ) throws IOException {
+        Objects.requireNonNull( directory, "The cache directory cannot be null" );
+        return new DirectoryCache( Files.createDirectories( directory.toPath() ) );
+    }
+
+    /**
+     * Copy the cached workbook of the key to the output stream.
+     *
+     * @param key the fingerprint of the workbook
+     * @param os the output stream, which is not closed
+     * @return whether the workbook was cached
+     * @throws IOException if the workbook cannot be copied
+     */
+    public abstract boolean copyTo( String key, OutputStream os ) throws IOException;
+
+    /**
+     * Start caching a workbook, the workbook written into the entry is cached
+     * once it is committed, and dropped if the entry is closed before.
+     *
+     * @param key the fingerprint of the workbook
+     * @return the entry to write the workbook into
+     * @throws IOException if the entry cannot be created
+     */
+    public abstract Entry put( String key ) throws IOException;
+
+    protected static String checkKey( String key ) {
+        if ( key == null || !KEY_PATTERN.matcher( key ).matches() ) {
+            throw new IllegalArgumentException( "Invalid cache key \"" + key + "\"" );
+        }
+        return key;
+    }
+
+    /**
+     * Workbook being cached
+     */
+    public static abstract class Entry extends OutputStream {
+
+        /**
+         * Cache the workbook written so far, the entry is closed afterwards.
+         *
+         * @throws IOException if the workbook cannot be cached
+         */
+        public abstract void commit() throws IOException;
+
+    }
+
+    /**
+     * Workbooks in memory, evicted in the order of their last use
+     */
+    private static final class MemoryCache extends ExportCache {
+
+        private final long maxBytes;
+        private final Map<String, byte []> workbooks = new LinkedHashMap<String, byte []>( 16, 0.75f, true );
+        private long size;
+
+        private MemoryCache( long maxBytes ) {
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public boolean copyTo( String key, OutputStream os ) throws IOException {
+            byte [] workbook;
+            synchronized ( this ) {
+                workbook = workbooks.get( checkKey( key ) );
+            }
+            if ( workbook == null ) {
+                return false;
+            }
+            os.write( workbook );
+            return true;
+        }
+
+        @Override
+        public Entry put( String key ) {
+            checkKey( key );
+            return new Entry() {
+
+                private ByteArrayOutputStream buffer = new ByteArrayOutputStream( 1 << 13 );
+
+                @Override
+                public void write( int b ) {
+                    if ( fits( 1 ) ) {
+                        buffer.write( b );
+                    }
+                }
+
+                @Override
+                public void write( byte [] b, int off, int len ) {
+                    if ( fits( len ) ) {
+                        buffer.write( b, off, len );
+                    }
+                }
+
+                @Override
+                public void commit() {
+                    if ( buffer != null ) {
+                        add( key, buffer.toByteArray() );
+                    }
+                    close();
+                }
+
+                @Override
+                public void close() {
+                    this.buffer = null;
+                }
+
+                private boolean fits( int length ) {
+                    if ( buffer != null && buffer.size() + ( long ) length > maxBytes ) {
+                        this.buffer = null; // Too large to be cached at all
+                    }
+                    return buffer != null;
+                }
+
+            };
+        }
+
+        private synchronized void add( String key, byte [] workbook ) {
+            byte [] previous = workbooks.put( key, workbook );
+            size += workbook.length - ( previous == null ? 0 : previous.length );
+            for ( Iterator<byte []> iterator = workbooks.values().iterator(); size > maxBytes && iterator.hasNext(); ) {
+                size -= iterator.next().length;
+                iterator.remove();
+            }
+        }
+
+    }
+
+    /**
+     * Workbooks in the files of a directory, a workbook is written into a
+     * temporary file and moved to its key when it is committed, so that a
+     * partly written workbook is never served.
+     */
+    private static final class DirectoryCache extends ExportCache {
+
+        private final Path directory;
+
+        private DirectoryCache( Path directory ) {
+            this.directory = directory;
+        }
+
+        @Override
+        public boolean copyTo( String key, OutputStream os ) throws IOException {
+            try {
+                Files.copy( directory.resolve( checkKey( key ) ), os );
+                return true;
+            } catch ( NoSuchFileException e ) {
+                return false;
+            }
+        }
+
+        @Override
+        public Entry put( String key ) throws IOException {
+            Path target = directory.resolve( checkKey( key ) );
+            Path temp = Files.createTempFile( directory, "poi-lite", ".tmp" );
+            OutputStream out;
+            try {
+                out = Files.newOutputStream( temp );
+            } catch ( IOException e ) {
+                Files.deleteIfExists( temp );
+                throw e;
+            }
+            return new Entry() {
+
+                private boolean closed;
+
+                @Override
+                public void write( int b ) throws IOException {
+                    out.write( b );
+                }
+
+                @Override
+                public void write( byte [] b, int off, int len ) throws IOException {
+                    out.write( b, off, len );
+                }
+
+                @Override
+                public void commit() throws IOException {
+                    out.close();
+                    try {
+                        Files.move( temp, target, StandardCopyOption.ATOMIC_MOVE );
+                    } catch ( AtomicMoveNotSupportedException e ) {
+                        Files.move( temp, target, StandardCopyOption.REPLACE_EXISTING );
+                    } finally {
+                        close();
+                    }
+                }
+
+                @Override
+                public void close() throws IOException {
+                    if ( !closed ) {
+                        this.closed = true;
+                        try {
+                            out.close();
+                        } finally {
+                            Files.deleteIfExists( temp );
+                        }
+                    }
+                }
+
+            };
+        }
+
+    }
+
+}
@@ -0,0 +1,220 @@
+/**
+ * Copyright (C) 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.plugins.excel.common;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+
+import org.slf4j.Logger;
+
+/**
+ * SHA-256 digest of the things a workbook is written from, used as the key of
+ * the {@link ExportCache}. Every value is digested along with its type and
+ * length, so that different sequences of values never run into each other.
+ * Values which cannot be digested the same way in every run make the
+ * fingerprint unstable, and an unstable fingerprint must not be used as a key.
+ *
+ * @author tangxbai
+ * @since 1.1.3
+ */
+public final class Fingerprint {
+
+    private static final char [] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private static final int MAX_SETTING_DEPTH = 3;
+    private static final ClassValue<Boolean> OWN_STRINGS = new ClassValue<Boolean>() {
+        @Override
+        protected Boolean computeValue( Class<?> type ) {
+            try {
+                return type.getMethod( "toString" ).getDeclaringClass() != Object.class;
+            } catch ( NoSuchMethodException e ) {
+                return false;
+            }
+        }
+    };
+
+    private final MessageDigest digest;
+    private boolean stable = true;
+
+    private Fingerprint() {
+        try {
+            this.digest = MessageDigest.getInstance( "SHA-256" );
+        } catch ( NoSuchAlgorithmException e ) {
+            throw new IllegalStateException( e ); // Every Java platform supports SHA-256
+        }
+    }
+
+    public static final Fingerprint of() {
+        return new Fingerprint();
+    }
+
+    public Fingerprint add( String value ) {
+        if ( value == null ) {
+            digest.update( ( byte ) 0 );
+        } else {
+            byte [] bytes = value.getBytes( StandardCharsets.UTF_8 );
+            digest.update( ( byte ) 1 );
+            addInt( bytes.length );
+            digest.update( bytes );
+        }
+        return this;
+    }
+
+    public Fingerprint add( long value ) {
+        digest.update( ( byte ) 2 );
+        for ( int shift = 56; shift >= 0; shift -= 8 ) {
+            digest.update( ( byte ) ( value >>> shift ) );
+        }
+        return this;
+    }
+
+    public Fingerprint add( double value ) {
+        return add( Double.doubleToLongBits( value ) );
+    }
+
+    public Fingerprint add( boolean value ) {
+        digest.update( value ? ( byte ) 3 : ( byte ) 4 );
+        return this;
+    }
+
+    /**
+     * Digest a cell value, dates by their times, arrays by their elements and
+     * other values by their string forms. Values without a string form of their
+     * own make the fingerprint unstable.
+     *
+     * @param value the value to digest, or <code>null</code>
+     * @return the fingerprint itself
+     */
+    public Fingerprint add( Object value ) {
+        if ( value == null ) {
+            digest.update( ( byte ) 0 );
+        } else if ( value instanceof Date ) {
+            add( value.getClass().getName() ).add( ( ( Date ) value ).getTime() );
+        } else if ( value.getClass().isArray() ) {
+            int length = Array.getLength( value );
+            add( value.getClass().getName() ).add( ( long ) length );
+            for ( int i = 0; i < length; i ++ ) {
+                add( Array.get( value, i ) );
+            }
+        } else {
+            if ( !OWN_STRINGS.get( value.getClass() ) ) {
+                stable = false; // Identity hash codes change on every run
+            }
+            add( value.getClass().getName() ).add( value.toString() );
+        }
+        return this;
+    }
+
+    /**
+     * Digest a setting, such as a converter, a styleable or a comparator, by its
+     * class and the values of its fields, loggers and transient fields are
+     * left out. Lambdas and the settings holding values that cannot be digested
+     * make the fingerprint unstable, since their classes do not tell what they
+     * do.
+     *
+     * @param value the setting, or <code>null</code>
+     * @return the fingerprint itself
+     */
+    public Fingerprint addSetting( Object value ) {
+        if ( !addSetting( value, 0 ) ) {
+            stable = false;
+        }
+        return this;
+    }
+
+    /**
+     * @return whether the same things are digested the same way in every run,
+     *         an unstable fingerprint cannot be used as a key
+     */
+    public boolean isStable() {
+        return stable;
+    }
+
+    /**
+     * @return the hexadecimal digest, the fingerprint is reset afterwards
+     */
+    public String digest() {
+        byte [] bytes = digest.digest();
+        char [] chars = new char[ bytes.length * 2 ];
+        for ( int i = 0; i < bytes.length; i ++ ) {
+            chars[ i * 2 ] = HEX_DIGITS[ ( bytes[ i ] >> 4 ) & 0xF ];
+            chars[ i * 2 + 1 ] = HEX_DIGITS[ bytes[ i ] & 0xF ];
+        }
+        return new String( chars );
+    }
+
+    private boolean addSetting( Object value, int depth ) {
+        if ( value == null ) {
+            digest.update( ( byte ) 0 );
+            return true;
+        }
+        Class<?> type = value.getClass();
+        if ( value instanceof Enum ) {
+            add( ( ( Enum<?> ) value ).getDeclaringClass().getName() ).add( ( ( Enum<?> ) value ).name() );
+            return true;
+        }
+        if ( value instanceof Class ) {
+            add( Class.class.getName() ).add( ( ( Class<?> ) value ).getName() );
+            return true;
+        }
+        if ( value instanceof String || value instanceof Number || value instanceof Boolean || value instanceof Character ) {
+            add( value );
+            return true;
+        }
+        if ( depth >= MAX_SETTING_DEPTH || type.isSynthetic() || type.isArray() || type.getName().contains( "$$Lambda" ) ) {
+            return false;
+        }
+        add( type.getName() );
+        for ( Class<?> declaring = type; declaring != Object.class; declaring = declaring.getSuperclass() ) {
+            Field [] fields = declaring.getDeclaredFields();
+            Arrays.sort( fields, Comparator.comparing( Field::getName ) );
+            for ( Field field : fields ) {
+                int modifiers = field.getModifiers();
+                if ( Modifier.isStatic( modifiers ) || Modifier.isTransient( modifiers ) || Logger.class.isAssignableFrom( field.getType() ) ) {
+                    continue;
+                }
+                Object fieldValue;
+                try {
+                    field.setAccessible( true );
+                    fieldValue = field.get( value );
+                } catch ( ReflectiveOperationException | RuntimeException e ) {
+                    return false; // Such as the private fields of the JDK classes
+                }
+                add( field.getName() );
+                if ( !addSetting( fieldValue, depth + 1 ) ) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+
+    private void addInt( int value ) {
+        digest.update( ( byte ) ( value >>> 24 ) );
+        digest.update( ( byte ) ( value >>> 16 ) );
+        digest.update( ( byte ) ( value >>> 8 ) );
+        digest.update( ( byte ) value );
+    }
+
+}
@@ -0,0 +1,151 @@
+/**
+ * Copyright (C) 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.plugins.excel.common;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.Objects;
+
+/**
+ * JDBC result set row source, the rows are fetched from the result set while
+ * the sheet is written and the values are read from the current row of the
+ * result set by column, nothing is copied in between. The result set is
+ * closed after its sheet is finished, the statement and the connection are
+ * left to the caller.
+ *
+ * <p>
+ * The elements of the source carry no value, the writer reads the values of
+ * the current row from {@link #getResultSet()}.
+ *
+ * @author tangxbai
+ * @since 1.1.3
+ * @see com.viiyue.plugins.excel.metadata.ExcelInfo#ofResultSet(ResultSetMetaData)
+ */
+public final class ResultSetSource extends RowSource<Object> {
+
+    private final ResultSet resultSet;
+    private final String [] labels;
+    private final int [] types;
+    private boolean fetched; // The current row has been fetched but not returned yet
+    private boolean ended;
+
+    private ResultSetSource( ResultSet resultSet ) throws SQLException {
+        ResultSetMetaData metadata = resultSet.getMetaData();
+        int count = metadata.getColumnCount();
+        this.resultSet = resultSet;
+        this.labels = new String[ count ];
+        this.types = new int[ count ];
+        for ( int i = 0; i < count; i ++ ) {
+            labels[ i ] = metadata.getColumnLabel( i + 1 );
+            types[ i ] = metadata.getColumnType( i + 1 );
+        }
+    }
+
+    public static final ResultSetSource of( ResultSet resultSet ) throws SQLException {
+        return of( resultSet, 0 );
+    }
+
+    /**
+     * @param resultSet the result set positioned before its first row
+     * @param fetchSize the number of rows fetched from the database at a time,
+     *                  which is only a hint to the driver, the fetch size of
+     *                  the statement is kept if it is not positive
+     * @return the source of the rows
+     * @throws SQLException if the metadata of the result set cannot be read
+     */
+    public static final ResultSetSource of( ResultSet resultSet, int fetchSize ) throws SQLException {
+        Objects.requireNonNull( resultSet, "Result set cannot be null" );
+        if ( fetchSize > 0 ) {
+            resultSet.setFetchSize( fetchSize );
+        }
+        return new ResultSetSource( resultSet );
+    }
+
+    /**
+     * @return the result set positioned on the row of the element returned last
+     */
+    public ResultSet getResultSet() {
+        return resultSet;
+    }
+
+    public int getColumnCount() {
+        return labels.length;
+    }
+
+    /**
+     * @param column the first column is 1
+     */
+    public String getColumnLabel( int column ) {
+        return labels[ column - 1 ];
+    }
+
+    /**
+     * @param column the first column is 1
+     * @return the SQL type from {@link java.sql.Types}
+     */
+    public int getColumnType( int column ) {
+        return types[ column - 1 ];
+    }
+
+    @Override
+    public void add( Object element ) {
+        throw new UnsupportedOperationException( "Rows cannot be appended to a result set source" );
+    }
+
+    @Override
+    protected boolean hasMore() {
+        if ( !fetched && !ended ) {
+            try {
+                if ( resultSet.next() ) {
+                    this.fetched = true;
+                } else {
+                    this.ended = true;
+                }
+            } catch ( SQLException e ) {
+                throw unchecked( e );
+            }
+        }
+        return fetched;
+    }
+
+    @Override
+    protected Object nextOne() {
+        this.fetched = false;
+        return null;
+    }
+
+    @Override
+    protected void release() throws IOException {
+        this.ended = true;
+        try {
+            resultSet.close();
+        } catch ( SQLException e ) {
+            throw new IOException( e.getMessage(), e );
+        }
+    }
+
+    /**
+     * @return the SQL exception as an I/O exception, which is thrown by the
+     *         writer as it is
+     */
+    public static UncheckedIOException unchecked( SQLException e ) {
+        return new UncheckedIOException( new IOException( e.getMessage(), e ) );
+    }
+
+}
@@ -0,0 +1,189 @@
+/**
+ * Copyright (C) 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.plugins.excel.common;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Buffer of the appended rows. The first rows are kept as they are, once the
+ * row limit is reached the following rows are serialized, and the serialized
+ * bytes exceeding the byte limit are spilled into a temporary file. Without a
+ * byte limit, the serialized rows are still collected in 64K chunks before
+ * being spilled. The rows are read back in the order they were added.
+ *
+ * <p>
+ * An unbounded buffer keeps all the rows in memory and can be read again after
+ * {@link #close()}, a bounded buffer is discarded once it has been read.
+ *
+ * @author tangxbai
+ * @since 1.1.3
+ * @param <T> row element type
+ */
+final class RowBuffer<T> implements Closeable {
+
+    private static final int WRITE_BUFFER_SIZE = 1 << 16;
+    private static final int RESET_INTERVAL = 1024;
+
+    private int maxRows = Integer.MAX_VALUE;
+    private long maxBytes;
+    private boolean bounded;
+
+    private final List<T> rows = new ArrayList<T>();
+    private int size;
+    private ByteArrayOutputStream bytes;
+    private ObjectOutputStream output;
+    private int unreset;
+    private Path file;
+    private OutputStream fileOutput;
+
+    // Reading
+    private int index;
+    private ObjectInputStream input;
+
+    /**
+     * Bound the memory of the buffer, rows that have been added stay where they
+     * are.
+     *
+     * @param maxRows the number of rows kept as they are
+     * @param maxBytes the number of serialized bytes kept in memory, the
+     *                 serialized rows are spilled every 64K if it is not
+     *                 positive
+     */
+    void bound( int maxRows, long maxBytes ) {
+        this.maxRows = Math.max( maxRows, 0 );
+        this.maxBytes = maxBytes;
+        this.bounded = true;
+    }
+
+    void add( T element ) throws IOException {
+        if ( output == null && rows.size() < maxRows ) {
+            rows.add( element );
+        } else {
+            if ( output == null ) {
+                this.bytes = new ByteArrayOutputStream( 8192 );
+                this.output = new ObjectOutputStream( bytes );
+            }
+            output.writeObject( element );
+            if ( ++ unreset >= RESET_INTERVAL ) {
+                output.reset(); // Release the references to the written rows
+                this.unreset = 0;
+            }
+            if ( bytes.size() > ( maxBytes > 0 ? maxBytes : WRITE_BUFFER_SIZE ) ) {
+                spill();
+            }
+        }
+        size ++;
+    }
+
+    boolean hasNext() {
+        return index < size;
+    }
+
+    @SuppressWarnings( "unchecked" )
+    T next() throws IOException {
+        if ( index >= size ) {
+            throw new NoSuchElementException();
+        }
+        if ( index < rows.size() ) {
+            return rows.get( index ++ );
+        }
+        if ( input == null ) {
+            this.input = new ObjectInputStream( new BufferedInputStream( openSerialized() ) );
+        }
+        try {
+            T element = ( T ) input.readObject();
+            index ++;
+            return element;
+        } catch ( ClassNotFoundException e ) {
+            throw new IOException( "Unable to read the spilled row", e );
+        }
+    }
+
+    /**
+     * Finish reading, the rows of an unbounded buffer can be read again, a
+     * bounded buffer is discarded along with its temporary file.
+     */
+    @Override
+    public void close() throws IOException {
+        this.index = 0;
+        try {
+            if ( input != null ) {
+                input.close();
+            }
+        } finally {
+            this.input = null;
+            if ( bounded ) {
+                discard();
+            }
+        }
+    }
+
+    private void spill() throws IOException {
+        output.flush();
+        if ( fileOutput == null ) {
+            this.file = Files.createTempFile( "poi-lite-rows", ".bin" );
+            file.toFile().deleteOnExit(); // In case the buffer is never closed
+            this.fileOutput = new BufferedOutputStream( Files.newOutputStream( file ), WRITE_BUFFER_SIZE );
+        }
+        bytes.writeTo( fileOutput );
+        bytes.reset();
+    }
+
+    private InputStream openSerialized() throws IOException {
+        output.flush();
+        InputStream memory = new ByteArrayInputStream( bytes.toByteArray() );
+        if ( fileOutput == null ) {
+            return memory;
+        }
+        fileOutput.flush();
+        return new SequenceInputStream( Files.newInputStream( file ), memory );
+    }
+
+    private void discard() throws IOException {
+        rows.clear();
+        this.size = 0;
+        this.bytes = null;
+        this.output = null;
+        this.unreset = 0;
+        try {
+            if ( fileOutput != null ) {
+                fileOutput.close();
+            }
+        } finally {
+            this.fileOutput = null;
+            if ( file != null ) {
+                Files.deleteIfExists( file );
+                this.file = null;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,158 @@
+/**
+ * Copyright (C) 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.plugins.excel.common;
+
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded row source filled by producer threads while the sheet is written,
+ * {@link #put(Object)} blocks once the queue is full until the writer catches
+ * up. Producers have to call {@link #complete()} after the last row, or
+ * {@link #fail(Throwable)} to abort the export.
+ *
+ * <p>
+ * Once the sheet is closed, for example because the export failed, the
+ * remaining rows are discarded and further puts throw
+ * {@link IllegalStateException}, so that producers are never blocked forever.
+ *
+ * @author tangxbai
+ * @since 1.1.3
+ * @param <T> row element type
+ */
+public final class RowQueue<T> extends RowSource<T> {
+
+    private static final Object END = new Object();
+    private static final Object NULL = new Object();
+    private static final long POLL_MILLIS = 100;
+
+    private final BlockingQueue<Object> queue;
+    private volatile boolean closed;
+    private volatile boolean completed;
+    private volatile Throwable failure;
+
+    // Consumer side
+    private Object element;
+    private boolean finished;
+
+    /**
+     * @param capacity the maximum number of rows waiting to be written
+     */
+    public RowQueue( int capacity ) {
+        this.queue = new ArrayBlockingQueue<Object>( capacity );
+    }
+
+    /**
+     * Put the next row, waiting if the queue is full
+     *
+     * @param element the row element, <code>null</code> is written as an empty row
+     * @throws InterruptedException if interrupted while waiting
+     * @throws IllegalStateException if the queue is completed or the sheet is closed
+     */
+    public void put( T element ) throws InterruptedException {
+        offer( element == null ? NULL : element );
+    }
+
+    /**
+     * No more rows, the sheet is finished after the queued rows are written.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void complete() throws InterruptedException {
+        offer( END );
+        this.completed = true;
+    }
+
+    /**
+     * Abort the export, the writer fails with an {@link IllegalStateException}
+     * caused by the given exception.
+     *
+     * @param cause the failure of the producer
+     */
+    public void fail( Throwable cause ) {
+        this.failure = cause == null ? new IllegalStateException( "Unknown failure" ) : cause;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    private void offer( Object value ) throws InterruptedException {
+        while ( true ) {
+            if ( closed || completed ) {
+                throw new IllegalStateException( "The row queue has been " + ( closed ? "closed" : "completed" ) );
+            }
+            if ( failure != null ) {
+                throw new IllegalStateException( "The row producer has failed", failure );
+            }
+            if ( queue.offer( value, POLL_MILLIS, TimeUnit.MILLISECONDS ) ) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    protected boolean hasMore() {
+        if ( element != null ) {
+            return true;
+        }
+        if ( finished ) {
+            return false;
+        }
+        try {
+            Object value;
+            do {
+                checkFailure();
+                value = queue.poll( POLL_MILLIS, TimeUnit.MILLISECONDS );
+            } while ( value == null );
+            if ( value == END ) {
+                this.finished = true;
+                return false;
+            }
+            this.element = value;
+            return true;
+        } catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new UncheckedIOException( new InterruptedIOException( "Interrupted while waiting for the next row" ) );
+        }
+    }
+
+    @Override
+    @SuppressWarnings( "unchecked" )
+    protected T nextOne() {
+        Object value = element;
+        this.element = null;
+        return value == NULL ? null : ( T ) value;
+    }
+
+    @Override
+    protected void release() {
+        this.closed = true;
+        this.finished = true;
+        this.element = null;
+        this.queue.clear(); // Wake up the blocked producers
+    }
+
+    private void checkFailure() {
+        if ( failure != null ) {
+            throw new IllegalStateException( "The row producer has failed", failure );
+        }
+    }
+
+}
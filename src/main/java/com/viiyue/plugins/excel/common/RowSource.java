@@ -0,0 +1,264 @@
+/**
+ * Copyright (C) 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.plugins.excel.common;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Sheet row source, rows are pulled one by one while the sheet is written and
+ * the source is closed after its sheet is finished. Rows appended after the
+ * source was created are written after the source rows.
+ *
+ * @author tangxbai
+ * @since 1.1.3
+ * @param <T> row element type
+ */
+public abstract class RowSource<T> implements Iterator<T>, Closeable {
+
+    private RowBuffer<T> appended;
+    private int maxRows;
+    private long maxBytes;
+    private boolean bounded;
+
+    public static final <T> RowSource<T> of( List<T> elements ) {
+        return new ListSource<T>( elements == null ? Collections.<T> emptyList() : elements );
+    }
+
+    public static final <T> RowSource<T> of( Iterator<T> iterator ) {
+        return new IteratorSource<T>( iterator == null ? Collections.<T> emptyIterator() : iterator, iterator );
+    }
+
+    public static final <T> RowSource<T> of( Stream<T> stream ) {
+        return stream == null ? of( ( List<T> ) null ) : new IteratorSource<T>( stream.iterator(), stream );
+    }
+
+    public static final <T> RowSource<T> paged( Supplier<List<T>> pages ) {
+        return pages == null ? of( ( List<T> ) null ) : new PagedSource<T>( pages );
+    }
+
+    /**
+     * Sort the rows of a source with an external sort, the rows are sorted in
+     * memory in runs of the given size, and the full runs are spilled into
+     * temporary files and merged while the rows are pulled. The rows have to be
+     * {@link java.io.Serializable Serializable} once there is more than one
+     * run. The source is closed along with the sorted source.
+     *
+     * @param source     the rows to sort
+     * @param comparator the order of the rows
+     * @param runSize    the number of rows sorted in memory at a time
+     * @return the sorted rows
+     */
+    public static final <T> RowSource<T> sorted( RowSource<T> source, Comparator<? super T> comparator, int runSize ) {
+        return new SortedSource<T>( source, comparator, runSize );
+    }
+
+    /**
+     * Pull the next element of the underlying source
+     *
+     * @return whether the underlying source still has any element
+     */
+    protected abstract boolean hasMore();
+
+    protected abstract T nextOne();
+
+    /**
+     * Release the underlying source, called once the sheet has been written.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    protected void release() throws IOException {
+        // Ignore implementation
+    }
+
+    /**
+     * Bound the memory used by the appended rows, the first rows are kept as
+     * they are, the following rows are serialized and the serialized bytes
+     * beyond the byte limit are spilled into a temporary file, so the rows have
+     * to be {@link java.io.Serializable Serializable}. Unlike the unbounded
+     * rows, the appended rows are discarded once they have been written.
+     *
+     * @param maxRows  the number of rows kept in memory as they are
+     * @param maxBytes the number of serialized bytes kept in memory, the
+     *                 serialized rows are spilled every 64K if it is not
+     *                 positive
+     */
+    public void spill( int maxRows, long maxBytes ) {
+        this.maxRows = maxRows;
+        this.maxBytes = maxBytes;
+        this.bounded = true;
+        if ( appended != null ) {
+            appended.bound( maxRows, maxBytes );
+        }
+    }
+
+    public void add( T element ) {
+        if ( appended == null ) {
+            this.appended = new RowBuffer<T>();
+            if ( bounded ) {
+                appended.bound( maxRows, maxBytes );
+            }
+        }
+        try {
+            this.appended.add( element );
+        } catch ( IOException e ) {
+            throw new UncheckedIOException( e );
+        }
+    }
+
+    @Override
+    public final boolean hasNext() {
+        return hasMore() || ( appended != null && appended.hasNext() );
+    }
+
+    @Override
+    public final T next() {
+        if ( hasMore() ) {
+            return nextOne();
+        }
+        if ( appended != null && appended.hasNext() ) {
+            try {
+                return appended.next();
+            } catch ( IOException e ) {
+                throw new UncheckedIOException( e );
+            }
+        }
+        throw new NoSuchElementException();
+    }
+
+    @Override
+    public final void close() throws IOException {
+        try {
+            if ( appended != null ) {
+                appended.close();
+            }
+        } finally {
+            release();
+        }
+    }
+
+    private static final class ListSource<T> extends RowSource<T> {
+
+        private final List<T> elements;
+        private int index;
+
+        private ListSource( List<T> elements ) {
+            this.elements = elements;
+        }
+
+        @Override
+        protected boolean hasMore() {
+            return index < elements.size();
+        }
+
+        @Override
+        protected T nextOne() {
+            return elements.get( index ++ );
+        }
+
+        @Override
+        protected void release() {
+            this.index = 0; // Lists can be written again
+        }
+
+    }
+
+    private static final class IteratorSource<T> extends RowSource<T> {
+
+        private Iterator<T> iterator;
+        private Object resource;
+
+        private IteratorSource( Iterator<T> iterator, Object resource ) {
+            this.iterator = iterator;
+            this.resource = resource;
+        }
+
+        @Override
+        protected boolean hasMore() {
+            return iterator.hasNext();
+        }
+
+        @Override
+        protected T nextOne() {
+            return iterator.next();
+        }
+
+        @Override
+        protected void release() throws IOException {
+            this.iterator = Collections.emptyIterator();
+            if ( resource instanceof AutoCloseable ) {
+                try {
+                    ( ( AutoCloseable ) resource ).close();
+                } catch ( IOException e ) {
+                    throw e;
+                } catch ( Exception e ) {
+                    throw new IOException( e.getMessage(), e );
+                } finally {
+                    this.resource = null;
+                }
+            }
+        }
+
+    }
+
+    private static final class PagedSource<T> extends RowSource<T> {
+
+        private Supplier<List<T>> pages;
+        private List<T> page;
+        private int index;
+
+        private PagedSource( Supplier<List<T>> pages ) {
+            this.pages = pages;
+        }
+
+        @Override
+        protected boolean hasMore() {
+            while ( page == null || index >= page.size() ) {
+                if ( pages == null ) {
+                    return false;
+                }
+                this.index = 0;
+                this.page = pages.get();
+                if ( page == null || page.isEmpty() ) {
+                    this.page = null;
+                    this.pages = null; // An empty page is the last page
+                }
+            }
+            return true;
+        }
+
+        @Override
+        protected T nextOne() {
+            return page.get( index ++ );
+        }
+
+        @Override
+        protected void release() {
+            this.page = null;
+            this.pages = null;
+        }
+
+    }
+
+}
@@ -0,0 +1,252 @@
+/**
+ * Copyright (C) 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.plugins.excel.common;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * External sort of another row source. The rows are sorted in runs of a
+ * bounded size, every full run is serialized into a temporary file, and the
+ * runs are merged while the rows are pulled, so that at most one run and the
+ * head row of each spilled run are held in memory. The sort is stable, and the
+ * rows have to be {@link java.io.Serializable Serializable} once there is more
+ * than one run.
+ *
+ * @author tangxbai
+ * @since 1.1.3
+ * @param <T> row element type
+ */
+final class SortedSource<T> extends RowSource<T> {
+
+    private static final int RESET_INTERVAL = 1024;
+    private static final int READ_BUFFER_SIZE = 1 << 13; // Per run while merging
+    private static final int WRITE_BUFFER_SIZE = 1 << 16;
+
+    private final RowSource<T> source;
+    private final Comparator<? super T> comparator;
+    private final int runSize;
+    private boolean sorted;
+    private List<T> run; // The last run, which is never spilled
+    private int index;
+    private final List<SpilledRun<T>> spilled = new ArrayList<SpilledRun<T>>();
+    private PriorityQueue<Run<T>> merging;
+
+    SortedSource( RowSource<T> source, Comparator<? super T> comparator, int runSize ) {
+        this.source = source;
+        this.comparator = comparator;
+        this.runSize = Math.max( runSize, 1 );
+    }
+
+    @Override
+    protected boolean hasMore() {
+        if ( !sorted ) {
+            try {
+                sort();
+            } catch ( IOException e ) {
+                throw new UncheckedIOException( e );
+            }
+        }
+        return merging == null ? index < run.size() : !merging.isEmpty();
+    }
+
+    @Override
+    protected T nextOne() {
+        if ( merging == null ) {
+            return run.get( index ++ );
+        }
+        Run<T> head = merging.poll();
+        T element = head.element;
+        try {
+            if ( head.advance() ) {
+                merging.add( head );
+            }
+        } catch ( IOException e ) {
+            throw new UncheckedIOException( e );
+        }
+        return element;
+    }
+
+    @Override
+    protected void release() throws IOException {
+        this.run = null;
+        this.merging = null;
+        IOException failure = null;
+        for ( SpilledRun<T> spilledRun : spilled ) {
+            try {
+                spilledRun.discard();
+            } catch ( IOException e ) { // Keep deleting the other runs
+                if ( failure == null ) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed( e );
+                }
+            }
+        }
+        spilled.clear();
+        try {
+            source.close();
+        } finally {
+            if ( failure != null ) {
+                throw failure;
+            }
+        }
+    }
+
+    private void sort() throws IOException {
+        this.sorted = true;
+        this.run = new ArrayList<T>( Math.min( runSize, 1 << 16 ) );
+        while ( source.hasNext() ) {
+            if ( run.size() == runSize ) {
+                spill();
+            }
+            run.add( source.next() );
+        }
+        run.sort( comparator );
+        if ( spilled.isEmpty() ) {
+            return; // Sorted in memory
+        }
+        this.merging = new PriorityQueue<Run<T>>( spilled.size() + 1, ( a, b ) -> {
+            int result = comparator.compare( a.element, b.element );
+            return result == 0 ? Integer.compare( a.order, b.order ) : result; // Earlier runs first
+        } );
+        for ( SpilledRun<T> spilledRun : spilled ) {
+            if ( spilledRun.advance() ) {
+                merging.add( spilledRun );
+            }
+        }
+        MemoryRun<T> last = new MemoryRun<T>( spilled.size(), run );
+        if ( last.advance() ) {
+            merging.add( last );
+        }
+    }
+
+    private void spill() throws IOException {
+        run.sort( comparator );
+        SpilledRun<T> spilledRun = new SpilledRun<T>( spilled.size(), Files.createTempFile( "poi-lite-sort", ".bin" ), run.size() );
+        spilledRun.file.toFile().deleteOnExit(); // In case the source is never closed
+        spilled.add( spilledRun );
+        try ( ObjectOutputStream output = new ObjectOutputStream( new BufferedOutputStream( Files.newOutputStream( spilledRun.file ), WRITE_BUFFER_SIZE ) ) ) {
+            int unreset = 0;
+            for ( T element : run ) {
+                output.writeObject( element );
+                if ( ++ unreset >= RESET_INTERVAL ) {
+                    output.reset(); // Release the references to the written rows
+                    unreset = 0;
+                }
+            }
+        }
+        run.clear();
+    }
+
+    /**
+     * Sorted run being merged, positioned on its head element
+     */
+    private static abstract class Run<T> {
+
+        final int order;
+        T element;
+
+        Run( int order ) {
+            this.order = order;
+        }
+
+        /**
+         * @return whether the run has moved to its next element
+         */
+        abstract boolean advance() throws IOException;
+
+    }
+
+    private static final class MemoryRun<T> extends Run<T> {
+
+        private final List<T> elements;
+        private int index;
+
+        MemoryRun( int order, List<T> elements ) {
+            super( order );
+            this.elements = elements;
+        }
+
+        @Override
+        boolean advance() {
+            if ( index < elements.size() ) {
+                this.element = elements.get( index );
+                elements.set( index ++, null ); // Released as it is merged
+                return true;
+            }
+            this.element = null;
+            return false;
+        }
+
+    }
+
+    private static final class SpilledRun<T> extends Run<T> {
+
+        private final Path file;
+        private int remaining;
+        private ObjectInputStream input;
+
+        SpilledRun( int order, Path file, int size ) {
+            super( order );
+            this.file = file;
+            this.remaining = size;
+        }
+
+        @Override
+        @SuppressWarnings( "unchecked" )
+        boolean advance() throws IOException {
+            if ( remaining == 0 ) {
+                this.element = null;
+                discard();
+                return false;
+            }
+            if ( input == null ) {
+                this.input = new ObjectInputStream( new BufferedInputStream( Files.newInputStream( file ), READ_BUFFER_SIZE ) );
+            }
+            try {
+                this.element = ( T ) input.readObject();
+                remaining --;
+                return true;
+            } catch ( ClassNotFoundException e ) {
+                throw new IOException( "Unable to read the sorted row", e );
+            }
+        }
+
+        void discard() throws IOException {
+            try {
+                if ( input != null ) {
+                    input.close();
+                }
+            } finally {
+                this.input = null;
+                Files.deleteIfExists( file );
+            }
+        }
+
+    }
+
+}
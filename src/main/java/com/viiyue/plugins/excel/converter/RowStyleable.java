@@ -0,0 +1,63 @@
+/**
+ * Copyright (C) 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.plugins.excel.converter;
+
+import org.apache.poi.ss.usermodel.Workbook;
+
+import com.viiyue.plugins.excel.metadata.Style;
+
+/**
+ * Styleable beautifying the content cells row by row instead of cell by cell,
+ * it is used as the styleable of the whole sheet, see
+ * {@link com.viiyue.plugins.excel.metadata.ExcelInfo#styleable(Styleable)}.
+ * The static columns declared by {@link #beautifyColumn(Workbook, String)}
+ * and the cells with styleables of their own are styled as usual, the other
+ * cells take their styles from {@link #beautifyRow(Workbook, Object, int)}.
+ *
+ * <p>
+ * A style is applied by {@link #applyAll(Style, String)} and resolved only
+ * the first time it appears in a column, so the styles should not be changed
+ * once they are returned.
+ *
+ * @author tangxbai
+ * @since 1.1.3
+ */
+public interface RowStyleable<T> extends Styleable<T> {
+
+	/**
+	 * Beautify the cells of a row at once, such as highlighting the rows of
+	 * failed orders. The same array can be returned for many rows, for example
+	 * one array for the normal rows and another for the highlighted rows.
+	 *
+	 * @param wb Excel workbook refrence
+	 * @param element the element of the row, <code>null</code> for the rows of
+	 *                the column sources and result sets
+	 * @param num Excel row number
+	 * @return the styles by column index, in the order of the cells, a
+	 *         <code>null</code> style leaves its cell unstyled, and a
+	 *         <code>null</code> array leaves the whole row unstyled
+	 */
+	Style [] beautifyRow( Workbook wb, T element, int num );
+
+	/**
+	 * Not called for the cells styled by {@link #beautifyRow(Workbook, Object, int)}
+	 */
+	@Override
+	default Style beautifyIt( Workbook wb, String label, Object value, T element, Integer num ) {
+		return null;
+	}
+
+}
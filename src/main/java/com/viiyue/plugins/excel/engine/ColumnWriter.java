@@ -0,0 +1,36 @@
+/**
+ * Copyright (C) 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.plugins.excel.engine;
+
+import com.viiyue.plugins.excel.metadata.CellInfo;
+
+/**
+ * Column value writer, see {@link ColumnWriters#compile(CellInfo, Class)}
+ *
+ * @author tangxbai
+ * @since 1.1.3
+ */
+@FunctionalInterface
+public interface ColumnWriter {
+
+	/**
+	 * @param sheet the sheet writer
+	 * @param cellIndex column index
+	 * @param value cell value, never <code>null</code>
+	 */
+	void write( SheetWriter sheet, int cellIndex, Object value );
+
+}
@@ -0,0 +1,178 @@
+/**
+ * Copyright (C) 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.plugins.excel.engine;
+
+import java.lang.reflect.Modifier;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+
+import org.apache.commons.lang3.time.FastDateFormat;
+
+import com.viiyue.plugins.excel.common.Helper;
+import com.viiyue.plugins.excel.converter.EnumConverter;
+import com.viiyue.plugins.excel.converter.WriteConverter;
+import com.viiyue.plugins.excel.metadata.CellInfo;
+
+/**
+ * Column value writer factory, the way a column value is written (converter,
+ * boolean mapping, enum value, date format and cell type) is decided once by
+ * the column type, instead of checking the value type on every cell.
+ *
+ * @author tangxbai
+ * @since 1.1.3
+ */
+public final class ColumnWriters {
+
+	private ColumnWriters() {}
+
+	/**
+	 * Compile the column writer of the cell
+	 *
+	 * @param info cell metadata
+	 * @param type value type, or <code>null</code> if the type can only be known
+	 *        by the value itself
+	 * @return the column writer
+	 */
+	public static ColumnWriter compile( CellInfo<?> info, Class<?> type ) {
+		ColumnWriter writer = type == null ? new DynamicWriter( info, true ) : typed( info, type );
+		WriteConverter converter = info.getWriter();
+		if ( converter == null ) {
+			return writer;
+		}
+		ColumnWriter converted = new DynamicWriter( info, false );
+		return ( sheet, cellIndex, value ) -> {
+			Object finalValue = converter.convert( value );
+			if ( finalValue == null ) {
+				writer.write( sheet, cellIndex, value );
+			} else {
+				converted.write( sheet, cellIndex, finalValue );
+			}
+		};
+	}
+
+	/**
+	 * Writer of the declared type, boolean and enum values are mapped to text.
+	 */
+	private static ColumnWriter typed( CellInfo<?> info, Class<?> type ) {
+		if ( Helper.isType( type, Boolean.class ) ) {
+			return ( sheet, cellIndex, value ) -> sheet.setValue( cellIndex, info.getBooleanValue( value ) );
+		}
+		if ( Helper.isType( type, Enum.class ) ) {
+			ColumnWriter fallback = raw( info, type );
+			return ( sheet, cellIndex, value ) -> {
+				if ( value instanceof EnumConverter ) {
+					writeText( sheet, cellIndex, ( ( EnumConverter<?> ) value ).getValue() );
+				} else {
+					fallback.write( sheet, cellIndex, value );
+				}
+			};
+		}
+		if ( type.isPrimitive() || Modifier.isFinal( type.getModifiers() ) || isKnownType( type ) ) {
+			return raw( info, type );
+		}
+		return new DynamicWriter( info, false );
+	}
+
+	/**
+	 * Writer of the value type without any mapping.
+	 */
+	private static ColumnWriter raw( CellInfo<?> info, Class<?> type ) {
+		if ( Helper.isType( type, Boolean.class ) || type == boolean.class ) {
+			return ( sheet, cellIndex, value ) -> sheet.setValue( cellIndex, ( ( Boolean ) value ).booleanValue() );
+		}
+		if ( Helper.isType( type, Number.class ) || ( type.isPrimitive() && type != char.class ) ) {
+			return ( sheet, cellIndex, value ) -> sheet.setValue( cellIndex, ( ( Number ) value ).doubleValue() );
+		}
+		boolean formatted = info.hasDateformat() && !info.isDateCell(); // Native date cells take the format by style
+		if ( Helper.isType( type, Date.class ) ) {
+			if ( formatted ) {
+				FastDateFormat formatter = info.getDateFormatter();
+				return ( sheet, cellIndex, value ) -> sheet.setValue( cellIndex, formatter.format( ( Date ) value ) );
+			}
+			return ( sheet, cellIndex, value ) -> sheet.setValue( cellIndex, ( Date ) value );
+		}
+		if ( Helper.isType( type, LocalDate.class ) ) {
+			if ( formatted ) {
+				DateTimeFormatter formatter = info.getTemporalFormatter();
+				return ( sheet, cellIndex, value ) -> sheet.setValue( cellIndex, formatter.format( ( LocalDate ) value ) );
+			}
+			return ( sheet, cellIndex, value ) -> sheet.setValue( cellIndex, ( LocalDate ) value );
+		}
+		if ( Helper.isType( type, LocalDateTime.class ) ) {
+			if ( formatted ) {
+				DateTimeFormatter formatter = info.getTemporalFormatter();
+				return ( sheet, cellIndex, value ) -> sheet.setValue( cellIndex, formatter.format( ( LocalDateTime ) value ) );
+			}
+			return ( sheet, cellIndex, value ) -> sheet.setValue( cellIndex, ( LocalDateTime ) value );
+		}
+		return ( sheet, cellIndex, value ) -> sheet.setValue( cellIndex, value.toString() );
+	}
+
+	private static boolean isKnownType( Class<?> type ) {
+		return Helper.isType( type, Number.class ) || Helper.isType( type, Date.class );
+	}
+
+	private static void writeText( SheetWriter sheet, int cellIndex, String text ) {
+		if ( text == null ) {
+			sheet.setBlank( cellIndex );
+		} else {
+			sheet.setValue( cellIndex, text );
+		}
+	}
+
+	/**
+	 * Writer that is compiled by the type of the value, the writer of the last
+	 * type is kept since the values of a column usually share the same type.
+	 */
+	private static final class DynamicWriter implements ColumnWriter {
+
+		private final CellInfo<?> info;
+		private final boolean typed;
+		private volatile Compiled last;
+
+		private DynamicWriter( CellInfo<?> info, boolean typed ) {
+			this.info = info;
+			this.typed = typed;
+		}
+
+		@Override
+		public void write( SheetWriter sheet, int cellIndex, Object value ) {
+			Class<?> type = value.getClass();
+			Compiled compiled = last;
+			if ( compiled == null || compiled.type != type ) {
+				ColumnWriter writer = typed ? typed( info, type ) : raw( info, type );
+				this.last = compiled = new Compiled( type, writer );
+			}
+			compiled.writer.write( sheet, cellIndex, value );
+		}
+
+	}
+
+	private static final class Compiled {
+
+		private final Class<?> type;
+		private final ColumnWriter writer;
+
+		private Compiled( Class<?> type, ColumnWriter writer ) {
+			this.type = type;
+			this.writer = writer;
+		}
+
+	}
+
+}
@@ -0,0 +1,89 @@
+/**
+ * Copyright (C) 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.plugins.excel.engine;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Workbook;
+
+/**
+ * Date cell styles of a workbook, the data format of a pattern and the style
+ * applying it to a base style are created once and shared by all the sheets,
+ * instead of creating a style for every date cell. The created ones are looked
+ * up without locking, only creating a new one takes the workbook lock.
+ *
+ * @author tangxbai
+ * @since 1.1.3
+ */
+final class DateStyles {
+
+	private final Workbook wb;
+	private final Map<String, Short> formats = new ConcurrentHashMap<String, Short>();
+	private final Map<Long, CellStyle> styles = new ConcurrentHashMap<Long, CellStyle>();
+
+	DateStyles( Workbook wb ) {
+		this.wb = wb;
+	}
+
+	/**
+	 * @param pattern the Excel number format, such as <code>yyyy-mm-dd</code>
+	 * @return the index of the data format
+	 */
+	short getFormat( String pattern ) {
+		Short format = formats.get( pattern );
+		if ( format == null ) {
+			synchronized ( wb ) { // Styles are shared by all sheets
+				format = formats.get( pattern );
+				if ( format == null ) {
+					format = wb.createDataFormat().getFormat( pattern );
+					formats.put( pattern, format );
+				}
+			}
+		}
+		return format;
+	}
+
+	/**
+	 * @param base the style of the cell, or <code>null</code> for the default
+	 *             style
+	 * @param format the index of the data format
+	 * @return the base style with the data format
+	 */
+	CellStyle getStyle( CellStyle base, short format ) {
+		if ( base != null && base.getDataFormat() == format ) {
+			return base;
+		}
+		long key = ( base == null ? 0L : base.getIndex() & 0xFFFFL ) << 16 | ( format & 0xFFFFL );
+		CellStyle style = styles.get( key );
+		if ( style == null ) {
+			synchronized ( wb ) {
+				style = styles.get( key );
+				if ( style == null ) {
+					style = wb.createCellStyle();
+					if ( base != null ) {
+						style.cloneStyleFrom( base );
+					}
+					style.setDataFormat( format );
+					styles.put( key, style );
+				}
+			}
+		}
+		return style;
+	}
+
+}
@@ -0,0 +1,396 @@
+/**
+ * Copyright (C) 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.plugins.excel.engine;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Optional;
+import java.util.zip.Deflater;
+
+import org.apache.poi.ooxml.POIXMLProperties.CoreProperties;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.ConditionalFormattingRule;
+import org.apache.poi.ss.usermodel.PatternFormatting;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.SheetConditionalFormatting;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+import com.viiyue.plugins.excel.metadata.Style;
+
+/**
+ * Write engine based on the <code>poi</code> usermodel, supports <code>xls</code>,
+ * <code>xlsx</code> and the windowed streaming workbook.
+ *
+ * <p>
+ * The workbook can be loaded from a template, the sheets of the template that
+ * are written by name keep everything above the anchor row, and the rows from
+ * the anchor row on are replaced by the data rows. The cells of the anchor row
+ * provide the cell styles and the row height of the data rows by column, the
+ * other sheets of the template are written as they are.
+ *
+ * @author tangxbai
+ * @since 1.1.3
+ */
+public final class PoiWorkbookEngine implements WorkbookEngine {
+
+	private final Workbook wb;
+	private final OutputStream os;
+	private final int anchorRow;
+	private final DateStyles dateStyles;
+	private final Closeable stylePool;
+	private Date timestamp;
+
+	public PoiWorkbookEngine( Workbook wb, OutputStream os ) {
+		this( wb, os, -1 );
+	}
+
+	/**
+	 * @param wb the workbook loaded from a template, or a streaming workbook
+	 *           wrapping it
+	 * @param os the output stream
+	 * @param anchorRow the index of the first data row of the template sheets,
+	 *                  or <code>-1</code> if the workbook is not a template
+	 */
+	public PoiWorkbookEngine( Workbook wb, OutputStream os, int anchorRow ) {
+		this.wb = wb;
+		this.os = os;
+		this.anchorRow = anchorRow;
+		this.dateStyles = new DateStyles( wb );
+		this.stylePool = Style.open( wb );
+	}
+
+	@Override
+	public Workbook getWorkbook() {
+		return wb;
+	}
+
+	@Override
+	public SheetWriter createSheet( String sheetName ) {
+		if ( anchorRow >= 0 && wb.getSheet( sheetName ) != null ) {
+			return fillSheet( sheetName );
+		}
+		return new PoiSheetWriter( wb.createSheet( sheetName ), dateStyles );
+	}
+
+	/**
+	 * The <code>xlsx</code> workbooks take the time as the creation time of the
+	 * document properties, and the zip file written by <code>poi</code> is
+	 * copied once more with the time of the entries replaced, the
+	 * <code>xls</code> workbooks keep no time of their own.
+	 */
+	@Override
+	public void setTimestamp( Date timestamp ) {
+		XSSFWorkbook xssf = wb instanceof SXSSFWorkbook ? ( ( SXSSFWorkbook ) wb ).getXSSFWorkbook() : wb instanceof XSSFWorkbook ? ( XSSFWorkbook ) wb : null;
+		if ( xssf != null ) {
+			this.timestamp = timestamp;
+			CoreProperties properties = xssf.getProperties().getCoreProperties();
+			properties.setCreated( Optional.of( timestamp ) );
+			if ( properties.getModified() != null ) {
+				properties.setModified( Optional.of( timestamp ) );
+			}
+		}
+	}
+
+	@Override
+	public void finish() throws IOException {
+		if ( timestamp == null ) {
+			wb.write( os );
+			return;
+		}
+		Path temp = Files.createTempFile( "poi-lite", ".xlsx" );
+		try {
+			try ( OutputStream out = Files.newOutputStream( temp ) ) {
+				wb.write( out );
+			}
+			try ( ZipReader source = new ZipReader( temp ) ) {
+				ZipWriter zip = new ZipWriter( os, Deflater.DEFAULT_COMPRESSION, null );
+				zip.setTime( LocalDateTime.ofInstant( timestamp.toInstant(), ZoneOffset.UTC ) );
+				for ( ZipReader.ZipEntry entry : source.getEntries() ) {
+					zip.copyEntry( source, entry ); // Copied without being inflated
+				}
+				zip.finish();
+			}
+		} finally {
+			Files.deleteIfExists( temp );
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			if ( wb instanceof SXSSFWorkbook ) {
+				( ( SXSSFWorkbook ) wb ).dispose(); // Delete temporary files
+			}
+		} finally {
+			try {
+				wb.close();
+			} finally {
+				stylePool.close();
+			}
+		}
+	}
+
+	/**
+	 * Take the styles of the anchor row and clear the rows from the anchor row
+	 * on, a streaming sheet only accepts rows after the rows of its template.
+	 */
+	private SheetWriter fillSheet( String sheetName ) {
+		Sheet template = wb instanceof SXSSFWorkbook ? ( ( SXSSFWorkbook ) wb ).getXSSFWorkbook().getSheet( sheetName ) : wb.getSheet( sheetName );
+		CellStyle [] styles = new CellStyle[ 0 ];
+		float height = -1;
+		Row anchor = template.getRow( anchorRow );
+		if ( anchor != null ) {
+			styles = new CellStyle[ Math.max( anchor.getLastCellNum(), 0 ) ];
+			for ( Cell cell : anchor ) {
+				styles[ cell.getColumnIndex() ] = cell.getCellStyle();
+			}
+			height = anchor.getHeightInPoints();
+		}
+		for ( int rowIndex = template.getLastRowNum(); rowIndex >= anchorRow; rowIndex -- ) {
+			Row row = template.getRow( rowIndex );
+			if ( row != null ) {
+				template.removeRow( row );
+			}
+		}
+		return new PoiSheetWriter( wb.getSheet( sheetName ), dateStyles, anchorRow, styles, height );
+	}
+
+	private static final class PoiSheetWriter implements SheetWriter {
+
+		private final Sheet sheet;
+		private final DateStyles dateStyles;
+		private final int anchorRow;
+		private CellStyle [] columnStyles; // Default styles of the cells by column
+		private final float rowHeight;
+		private Row row;
+		private Cell [] cells = new Cell[ 16 ];
+		private boolean [] dates = new boolean[ 16 ];
+		private short [] dateFormats = new short[ 0 ];
+		private CellStyle [] dateCellStyles = new CellStyle[ 0 ];
+		private int sampleRows;
+		private WidthEstimator estimator;
+
+		private PoiSheetWriter( Sheet sheet, DateStyles dateStyles ) {
+			this( sheet, dateStyles, -1, null, -1 );
+		}
+
+		private PoiSheetWriter( Sheet sheet, DateStyles dateStyles, int anchorRow, CellStyle [] columnStyles, float rowHeight ) {
+			this.sheet = sheet;
+			this.dateStyles = dateStyles;
+			this.anchorRow = anchorRow;
+			this.columnStyles = columnStyles == null ? new CellStyle[ 0 ] : columnStyles;
+			this.rowHeight = rowHeight;
+		}
+
+		@Override
+		public String getSheetName() {
+			return sheet.getSheetName();
+		}
+
+		@Override
+		public int getAnchorRow() {
+			return anchorRow;
+		}
+
+		@Override
+		public void createRow( int rowIndex, float heightInPoints ) {
+			this.row = sheet.createRow( rowIndex );
+			this.row.setHeightInPoints( rowHeight > 0 ? rowHeight : heightInPoints );
+			Arrays.fill( cells, null );
+			Arrays.fill( dates, false );
+			if ( estimator != null ) {
+				estimator.nextRow();
+			}
+		}
+
+		@Override
+		public void setBlank( int cellIndex ) {
+			cell( cellIndex ).setBlank();
+		}
+
+		@Override
+		public void setValue( int cellIndex, String value ) {
+			cell( cellIndex ).setCellValue( value );
+			if ( estimator != null ) {
+				estimator.measure( cellIndex, value );
+			}
+		}
+
+		@Override
+		public void setValue( int cellIndex, double value ) {
+			cell( cellIndex ).setCellValue( value );
+			if ( estimator != null ) {
+				estimator.measure( cellIndex, value );
+			}
+		}
+
+		@Override
+		public void setValue( int cellIndex, boolean value ) {
+			cell( cellIndex ).setCellValue( value );
+			measure( cellIndex, value ? 4 : 5 );
+		}
+
+		@Override
+		public void setValue( int cellIndex, Date value ) {
+			date( cellIndex ).setCellValue( value );
+			measure( cellIndex, WidthEstimator.DATE_TIME_WIDTH );
+		}
+
+		@Override
+		public void setValue( int cellIndex, LocalDate value ) {
+			date( cellIndex ).setCellValue( value );
+			measure( cellIndex, WidthEstimator.DATE_WIDTH );
+		}
+
+		@Override
+		public void setValue( int cellIndex, LocalDateTime value ) {
+			date( cellIndex ).setCellValue( value );
+			measure( cellIndex, WidthEstimator.DATE_TIME_WIDTH );
+		}
+
+		@Override
+		public void setStyle( int cellIndex, CellStyle style ) {
+			Cell cell = cell( cellIndex );
+			if ( dates[ cellIndex ] ) {
+				style = dateStyles.getStyle( style, dateFormats[ cellIndex ] );
+			}
+			cell.setCellStyle( style );
+		}
+
+		@Override
+		public void setColumnStyle( int cellIndex, CellStyle style ) {
+			if ( cellIndex >= columnStyles.length ) {
+				this.columnStyles = Arrays.copyOf( columnStyles, cellIndex + 1 );
+			}
+			columnStyles[ cellIndex ] = style;
+			if ( cellIndex < dateCellStyles.length && dateCellStyles[ cellIndex ] != null ) {
+				dateCellStyles[ cellIndex ] = dateStyles.getStyle( style, dateFormats[ cellIndex ] );
+			}
+		}
+
+		@Override
+		public void createFreezePane( int rowIndex ) {
+			sheet.createFreezePane( 0, rowIndex );
+		}
+
+		@Override
+		public void addConditionalFill( CellRangeAddress [] regions, String formula, String fillColor ) {
+			SheetConditionalFormatting formatting = sheet.getSheetConditionalFormatting();
+			ConditionalFormattingRule rule = formatting.createConditionalFormattingRule( formula );
+			PatternFormatting fill = rule.createPatternFormatting();
+			fill.setFillBackgroundColor( Style.color( sheet.getWorkbook(), fillColor ) );
+			fill.setFillPattern( PatternFormatting.SOLID_FOREGROUND );
+			formatting.addConditionalFormatting( regions, rule );
+		}
+
+		@Override
+		public void setColumnWidth( int cellIndex, int width ) {
+			sheet.setColumnWidth( cellIndex, width );
+		}
+
+		@Override
+		public void shareStrings( int cellIndex ) {
+			// Decided by the workbook
+		}
+
+		@Override
+		public void setDateFormat( int cellIndex, String pattern ) {
+			if ( cellIndex >= dateFormats.length ) {
+				this.dateFormats = Arrays.copyOf( dateFormats, cellIndex + 1 );
+				this.dateCellStyles = Arrays.copyOf( dateCellStyles, cellIndex + 1 );
+			}
+			dateFormats[ cellIndex ] = dateStyles.getFormat( pattern );
+			CellStyle columnStyle = cellIndex < columnStyles.length ? columnStyles[ cellIndex ] : null; // Taken from the template
+			dateCellStyles[ cellIndex ] = dateStyles.getStyle( columnStyle, dateFormats[ cellIndex ] );
+		}
+
+		@Override
+		public void setAutoSizeSampleRows( int sampleRows ) {
+			this.sampleRows = sampleRows;
+		}
+
+		@Override
+		public void trackColumnForAutoSizing( int cellIndex ) {
+			if ( estimator == null ) {
+				this.estimator = new WidthEstimator( sampleRows );
+			}
+			estimator.track( cellIndex );
+		}
+
+		@Override
+		public void autoSizeColumn( int cellIndex ) {
+			int width = estimator == null ? -1 : estimator.getWidth( cellIndex );
+			if ( width > 0 ) {
+				sheet.setColumnWidth( cellIndex, width );
+			}
+		}
+
+		@Override
+		public void close() {
+			this.row = null;
+		}
+
+		private void measure( int cellIndex, int width ) {
+			if ( estimator != null ) {
+				estimator.measure( cellIndex, width );
+			}
+		}
+
+		/**
+		 * @return the cell of a date value, which takes the date format of the
+		 *         column
+		 */
+		private Cell date( int cellIndex ) {
+			Cell cell = cell( cellIndex );
+			if ( cellIndex < dateCellStyles.length && dateCellStyles[ cellIndex ] != null ) {
+				cell.setCellStyle( dateCellStyles[ cellIndex ] );
+				dates[ cellIndex ] = true;
+			}
+			return cell;
+		}
+
+		private Cell cell( int cellIndex ) {
+			if ( cellIndex >= cells.length ) {
+				int capacity = Math.max( cellIndex + 1, cells.length * 2 );
+				this.cells = Arrays.copyOf( cells, capacity );
+				this.dates = Arrays.copyOf( dates, capacity );
+			}
+			Cell cell = cells[ cellIndex ];
+			if ( cell == null ) {
+				cells[ cellIndex ] = cell = row.createCell( cellIndex );
+				if ( cellIndex < columnStyles.length && columnStyles[ cellIndex ] != null ) {
+					cell.setCellStyle( columnStyles[ cellIndex ] );
+				}
+			}
+			return cell;
+		}
+
+	}
+
+}
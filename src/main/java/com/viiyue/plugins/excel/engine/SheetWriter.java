@@ -0,0 +1,141 @@
+/**
+ * Copyright (C) 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.plugins.excel.engine;
+
+import java.io.Closeable;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Date;
+
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.util.CellRangeAddress;
+
+/**
+ * Sheet content writer, cells are always written to the row created last.
+ *
+ * @author tangxbai
+ * @since 1.1.3
+ */
+public interface SheetWriter extends Closeable {
+
+	String getSheetName();
+
+	/**
+	 * @return the index of the first data row if the sheet is filled into a
+	 *         template, whose headers, column widths and cell styles are kept,
+	 *         otherwise <code>-1</code>
+	 */
+	int getAnchorRow();
+
+	void createRow( int rowIndex, float heightInPoints );
+
+	void setBlank( int cellIndex );
+
+	void setValue( int cellIndex, String value );
+
+	void setValue( int cellIndex, double value );
+
+	void setValue( int cellIndex, boolean value );
+
+	void setValue( int cellIndex, Date value );
+
+	void setValue( int cellIndex, LocalDate value );
+
+	void setValue( int cellIndex, LocalDateTime value );
+
+	void setStyle( int cellIndex, CellStyle style );
+
+	/**
+	 * Set the default style of the column, which is taken by the cells written
+	 * into the column from now on unless {@link #setStyle(int, CellStyle)}
+	 * overrides it. It is combined with the date format of the column, so it
+	 * has to be called after {@link #setDateFormat(int, String)}.
+	 *
+	 * @param cellIndex column index
+	 * @param style the cell style, or <code>null</code> for the default style
+	 */
+	void setColumnStyle( int cellIndex, CellStyle style );
+
+	void createFreezePane( int rowIndex );
+
+	/**
+	 * Fill the cells of the regions with the color wherever the formula is
+	 * true, as a conditional formatting rule of the sheet. The rules added
+	 * first take precedence over the later ones. Ignored when rows are appended
+	 * to an existing workbook, whose styles are copied unchanged.
+	 *
+	 * @param regions the cell ranges of the rule
+	 * @param formula the formula without the leading <code>=</code>, whose
+	 *                relative references are relative to the top-left cell of
+	 *                the first region
+	 * @param fillColor the hex color, such as <code>#F5F5F5</code>
+	 */
+	void addConditionalFill( CellRangeAddress [] regions, String formula, String fillColor );
+
+	/**
+	 * Set the column width, must be called before the content rows are written.
+	 *
+	 * @param cellIndex column index
+	 * @param width the width in units of 1/256th of a character width
+	 */
+	void setColumnWidth( int cellIndex, int width );
+
+	/**
+	 * Write the text values of the column into the shared strings table, must
+	 * be called before any row is created. Ignored by the engines that decide it
+	 * for the whole workbook.
+	 *
+	 * @param cellIndex column index
+	 */
+	void shareStrings( int cellIndex );
+
+	/**
+	 * Write the date values of the column as numeric cells with the data format,
+	 * must be called before any row is created. The format is combined with the
+	 * cell styles set later.
+	 *
+	 * @param cellIndex column index
+	 * @param pattern the Excel number format, such as <code>yyyy-mm-dd</code>
+	 */
+	void setDateFormat( int cellIndex, String pattern );
+
+	/**
+	 * Limit the number of rows measured for the auto-sized columns, must be
+	 * called before {@link #trackColumnForAutoSizing(int)}.
+	 *
+	 * @param sampleRows the number of rows, all the rows are measured if it is
+	 *                   not positive, unless the writer has to hold the measured
+	 *                   rows in memory and bounds them by a default sample
+	 */
+	void setAutoSizeSampleRows( int sampleRows );
+
+	/**
+	 * Mark the column to be auto-sized, the display width of the values is
+	 * estimated while the rows are written. Must be called before any row is
+	 * created, so that the header is measured as well.
+	 *
+	 * @param cellIndex column index
+	 */
+	void trackColumnForAutoSizing( int cellIndex );
+
+	/**
+	 * Apply the estimated width to the tracked column.
+	 *
+	 * @param cellIndex column index
+	 */
+	void autoSizeColumn( int cellIndex );
+
+}
@@ -0,0 +1,159 @@
+/**
+ * Copyright (C) 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.plugins.excel.engine;
+
+import java.util.Arrays;
+
+/**
+ * Column width estimator, it keeps the maximum display width of the tracked
+ * columns while the rows are written, instead of measuring every cell with the
+ * font metrics like {@link org.apache.poi.ss.usermodel.Sheet#autoSizeColumn(int)
+ * Sheet#autoSizeColumn(int)}. East asian wide characters are counted as two
+ * characters, and only the first rows are measured if the sample size is
+ * limited.
+ *
+ * @author tangxbai
+ * @since 1.1.3
+ */
+final class WidthEstimator {
+
+	static final int DATE_WIDTH = 10; // yyyy-MM-dd
+	static final int DATE_TIME_WIDTH = 19; // yyyy-MM-dd HH:mm:ss
+
+	private static final int PADDING = 2;
+	private static final int MAX_CHARS = 255;
+	private static final int GENERAL_DIGITS = 11;
+
+	private final int sampleRows;
+	private int rows;
+	private int [] chars = new int[ 0 ];
+
+	/**
+	 * @param sampleRows the number of rows to be measured, all the rows are
+	 *                   measured if it is not positive
+	 */
+	WidthEstimator( int sampleRows ) {
+		this.sampleRows = sampleRows;
+	}
+
+	void track( int cellIndex ) {
+		if ( cellIndex >= chars.length ) {
+			int size = chars.length;
+			this.chars = Arrays.copyOf( chars, cellIndex + 1 );
+			Arrays.fill( chars, size, chars.length, -1 );
+		}
+		if ( chars[ cellIndex ] < 0 ) {
+			chars[ cellIndex ] = 0;
+		}
+	}
+
+	/**
+	 * Move to the next row
+	 *
+	 * @return whether the new row is still measured
+	 */
+	boolean nextRow() {
+		rows ++;
+		return isSampling();
+	}
+
+	boolean isSampling() {
+		return sampleRows <= 0 || rows <= sampleRows;
+	}
+
+	void measure( int cellIndex, String text ) {
+		if ( text != null && isTracked( cellIndex ) ) {
+			measure( cellIndex, displayWidth( text ) );
+		}
+	}
+
+	void measure( int cellIndex, double value ) {
+		if ( isTracked( cellIndex ) ) {
+			measure( cellIndex, displayWidth( value ) );
+		}
+	}
+
+	void measure( int cellIndex, int width ) {
+		if ( isTracked( cellIndex ) && width > chars[ cellIndex ] ) {
+			chars[ cellIndex ] = width;
+		}
+	}
+
+	int getColumnCount() {
+		return chars.length;
+	}
+
+	/**
+	 * @param cellIndex column index
+	 * @return the estimated width in units of 1/256th of a character width, or
+	 *         <code>-1</code> if nothing was measured in the column
+	 */
+	int getWidth( int cellIndex ) {
+		if ( cellIndex >= chars.length || chars[ cellIndex ] <= 0 ) {
+			return -1;
+		}
+		return Math.min( chars[ cellIndex ] + PADDING, MAX_CHARS ) * 256;
+	}
+
+	private boolean isTracked( int cellIndex ) {
+		return cellIndex < chars.length && chars[ cellIndex ] >= 0 && isSampling();
+	}
+
+	/**
+	 * @return the width of the longest line in characters
+	 */
+	static int displayWidth( String text ) {
+		int max = 0, width = 0;
+		for ( int i = 0, s = text.length(); i < s; ) {
+			int codePoint = text.codePointAt( i );
+			i += Character.charCount( codePoint );
+			if ( codePoint == '\n' ) {
+				max = Math.max( max, width );
+				width = 0;
+			} else if ( codePoint >= 0x20 ) {
+				width += isWide( codePoint ) ? 2 : 1;
+			}
+		}
+		return Math.max( max, width );
+	}
+
+	static int displayWidth( double value ) {
+		if ( Double.isNaN( value ) || Double.isInfinite( value ) ) {
+			return 6; // #NUM!
+		}
+		if ( value == ( long ) value && Math.abs( value ) < 1E15 ) {
+			return Long.toString( ( long ) value ).length();
+		}
+		// The general format shows at most 11 characters
+		return Math.min( Double.toString( value ).length(), GENERAL_DIGITS );
+	}
+
+	/**
+	 * East asian wide and full-width characters, such as CJK ideographs, kana,
+	 * hangul and full-width forms.
+	 */
+	static boolean isWide( int codePoint ) {
+		return ( codePoint >= 0x1100 && codePoint <= 0x115F )
+				|| ( codePoint >= 0x2E80 && codePoint <= 0xA4CF && codePoint != 0x303F )
+				|| ( codePoint >= 0xAC00 && codePoint <= 0xD7A3 )
+				|| ( codePoint >= 0xF900 && codePoint <= 0xFAFF )
+				|| ( codePoint >= 0xFE30 && codePoint <= 0xFE4F )
+				|| ( codePoint >= 0xFF00 && codePoint <= 0xFF60 )
+				|| ( codePoint >= 0xFFE0 && codePoint <= 0xFFE6 )
+				|| ( codePoint >= 0x20000 && codePoint <= 0x3FFFD );
+	}
+
+}
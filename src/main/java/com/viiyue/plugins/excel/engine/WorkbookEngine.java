@@ -0,0 +1,57 @@
+/**
+ * Copyright (C) 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.plugins.excel.engine;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Date;
+
+import org.apache.poi.ss.usermodel.Workbook;
+
+/**
+ * Excel write engine
+ *
+ * @author tangxbai
+ * @since 1.1.3
+ */
+public interface WorkbookEngine extends Closeable {
+
+	/**
+	 * @return the workbook that cell styles are created in
+	 */
+	Workbook getWorkbook();
+
+	SheetWriter createSheet( String sheetName ) throws IOException;
+
+	/**
+	 * Write the given time instead of the current time wherever the workbook
+	 * records a time of its own, such as the zip entries and the document
+	 * properties, so that the same content is always written as the same
+	 * bytes. It has to be called before any sheet is created.
+	 *
+	 * @param timestamp the time, which is written in UTC
+	 */
+	void setTimestamp( Date timestamp );
+
+	/**
+	 * Write the rest of the workbook to the output stream, the output stream
+	 * itself will not be closed.
+	 *
+	 * @throws IOException if an I/O error occurs
+	 */
+	void finish() throws IOException;
+
+}
@@ -0,0 +1,200 @@
+/**
+ * Copyright (C) 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.plugins.excel.engine;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.apache.poi.ss.util.CellReference;
+
+/**
+ * Copies an existing worksheet part tag by tag, so that rows can be appended
+ * to its sheet data. The last row is remembered on the way, the appended rows
+ * continue after it with its height and cell styles. The dimension element is
+ * dropped, since it would not cover the appended rows.
+ *
+ * @author tangxbai
+ * @since 1.1.3
+ */
+final class WorksheetScanner {
+
+	private static final byte [] SHEET_DATA = "<sheetData>".getBytes( StandardCharsets.US_ASCII );
+
+	private final InputStream in;
+	private byte [] tag = new byte[ 256 ];
+	private int tagLength;
+	private int lastRow = -1;
+	private float lastRowHeight;
+	private int [] lastRowStyles = new int[ 16 ];
+	private int lastCell = -1;
+
+	WorksheetScanner( InputStream in ) {
+		this.in = in;
+	}
+
+	/**
+	 * Copy the part up to the end of the existing rows, the closing tag of the
+	 * sheet data is consumed but not copied, the rest of the part is left in the
+	 * input stream, which is expected to be buffered.
+	 *
+	 * @param out the output stream
+	 * @throws IOException if the part has no sheet data
+	 */
+	void copyRows( OutputStream out ) throws IOException {
+		for ( int b; ( b = in.read() ) != -1; ) {
+			if ( b != '<' ) {
+				out.write( b );
+				continue;
+			}
+			readTag();
+			String name = tagName();
+			if ( name.equals( "row" ) ) {
+				startRow( tagText() );
+			} else if ( name.equals( "c" ) ) {
+				startCell( tagText() );
+			} else if ( name.equals( "dimension" ) ) {
+				continue;
+			} else if ( name.equals( "/sheetData" ) ) {
+				return;
+			} else if ( name.equals( "sheetData" ) && isEmptyTag() ) {
+				out.write( SHEET_DATA ); // Rows will be added
+				return;
+			}
+			out.write( tag, 0, tagLength );
+		}
+		throw new IOException( "The worksheet has no sheet data" );
+	}
+
+	/**
+	 * @return the index of the last existing row, or <code>-1</code>
+	 */
+	int getLastRow() {
+		return lastRow;
+	}
+
+	/**
+	 * @return the custom height of the last row, or <code>0</code>
+	 */
+	float getLastRowHeight() {
+		return lastRowHeight;
+	}
+
+	/**
+	 * @return the style indexes of the last row by column
+	 */
+	int [] getLastRowStyles() {
+		return lastCell < 0 ? new int[ 0 ] : Arrays.copyOf( lastRowStyles, lastCell + 1 );
+	}
+
+	private void startRow( String text ) {
+		String r = attribute( text, "r" );
+		this.lastRow = r == null ? lastRow + 1 : Integer.parseInt( r ) - 1;
+		String height = attribute( text, "ht" );
+		this.lastRowHeight = height != null && isTrue( attribute( text, "customHeight" ) ) ? Float.parseFloat( height ) : 0;
+		Arrays.fill( lastRowStyles, 0 );
+		this.lastCell = -1;
+	}
+
+	private void startCell( String text ) {
+		String r = attribute( text, "r" );
+		int cellIndex = lastCell + 1;
+		if ( r != null ) {
+			int digits = 0;
+			while ( digits < r.length() && !Character.isDigit( r.charAt( digits ) ) ) {
+				digits ++;
+			}
+			cellIndex = CellReference.convertColStringToIndex( r.substring( 0, digits ) );
+		}
+		if ( cellIndex >= lastRowStyles.length ) {
+			this.lastRowStyles = Arrays.copyOf( lastRowStyles, Math.max( cellIndex + 1, lastRowStyles.length * 2 ) );
+		}
+		String style = attribute( text, "s" );
+		lastRowStyles[ cellIndex ] = style == null ? 0 : Integer.parseInt( style );
+		this.lastCell = cellIndex;
+	}
+
+	/**
+	 * Read the tag after '<' up to the closing '>', which may be quoted in the
+	 * attribute values.
+	 */
+	private void readTag() throws IOException {
+		this.tagLength = 0;
+		append( '<' );
+		for ( int b, quote = 0; ( b = in.read() ) != -1; ) {
+			append( b );
+			if ( quote != 0 ) {
+				if ( b == quote ) {
+					quote = 0;
+				}
+			} else if ( b == '"' || b == '\'' ) {
+				quote = b;
+			} else if ( b == '>' ) {
+				return;
+			}
+		}
+		throw new IOException( "Unexpected end of the worksheet" );
+	}
+
+	private void append( int b ) {
+		if ( tagLength == tag.length ) {
+			this.tag = Arrays.copyOf( tag, tagLength * 2 );
+		}
+		tag[ tagLength ++ ] = ( byte ) b;
+	}
+
+	/**
+	 * @return the tag name, starting with '/' for a closing tag
+	 */
+	private String tagName() {
+		int end = tagLength > 1 && tag[ 1 ] == '/' ? 2 : 1;
+		while ( end < tagLength && tag[ end ] != '>' && tag[ end ] != '/' && !Character.isWhitespace( tag[ end ] ) ) {
+			end ++;
+		}
+		return new String( tag, 1, end - 1, StandardCharsets.UTF_8 );
+	}
+
+	private String tagText() {
+		return new String( tag, 0, tagLength, StandardCharsets.UTF_8 );
+	}
+
+	private boolean isEmptyTag() {
+		return tagLength >= 2 && tag[ tagLength - 2 ] == '/';
+	}
+
+	private static String attribute( String tag, String name ) {
+		for ( int from = 0; ; ) {
+			int index = tag.indexOf( name, from );
+			if ( index < 0 ) {
+				return null;
+			}
+			int equals = index + name.length();
+			from = equals;
+			if ( Character.isWhitespace( tag.charAt( index - 1 ) ) && equals + 1 < tag.length() && tag.charAt( equals ) == '=' ) {
+				char quote = tag.charAt( equals + 1 );
+				int end = tag.indexOf( quote, equals + 2 );
+				return end < 0 ? null : tag.substring( equals + 2, end );
+			}
+		}
+	}
+
+	private static boolean isTrue( String value ) {
+		return "1".equals( value ) || "true".equals( value );
+	}
+
+}
@@ -0,0 +1,1382 @@
+/**
+ * Copyright (C) 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.plugins.excel.engine;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Executor;
+
+import javax.xml.XMLConstants;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
+import org.apache.poi.ooxml.util.DocumentHelper;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.ss.util.WorkbookUtil;
+import org.apache.poi.xssf.usermodel.XSSFColor;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTDxf;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTPatternFill;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.STPatternType;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+import com.viiyue.plugins.excel.enums.Compression;
+import com.viiyue.plugins.excel.metadata.Style;
+
+/**
+ * Write engine that serializes the SpreadsheetML parts straight into the
+ * output stream without building the <code>poi</code> usermodel, rows are
+ * written as soon as they are complete and no temporary file is needed.
+ *
+ * <p>
+ * Cell styles are still created by an empty {@link XSSFWorkbook}, so that all
+ * the {@link com.viiyue.plugins.excel.converter.Styleable Styleable} and
+ * {@link com.viiyue.plugins.excel.metadata.Style Style} definitions keep
+ * working, its style table is written as <code>xl/styles.xml</code> at last.
+ *
+ * <p>
+ * Sheets created by {@link #createDeferredSheet(String)} can be written by
+ * different threads at the same time, each of them is buffered in a temporary
+ * file and copied into the output stream in the original order as soon as the
+ * sheets before it are finished. Styles are created in the shared style
+ * workbook, so callers have to synchronize on {@link #getWorkbook()} when
+ * styling cells from multiple threads.
+ *
+ * <p>
+ * Text cells are written as inline strings, unless their columns are marked
+ * by {@link SheetWriter#shareStrings(int)}. Shared strings are appended to a
+ * temporary file as they appear and deduplicated by a bounded LRU cache, so
+ * that the memory stays bounded, a text forgotten by the cache is added again
+ * when it reappears.
+ *
+ * <p>
+ * Column widths have to be written before the sheet data, so the rows of a
+ * sheet with auto-sized columns are held in memory until the sample rows of
+ * its {@link WidthEstimator} are all measured, at most
+ * {@value #DEFAULT_SAMPLE_ROWS} rows unless another sample size is given.
+ *
+ * <p>
+ * The parts are deflated with the given {@link Compression} level, large
+ * parts can be deflated in blocks on a separate executor, see
+ * {@link ZipWriter}.
+ *
+ * <p>
+ * An engine created by {@link #append(File, OutputStream, Compression, Executor)}
+ * appends rows to the existing sheets of a workbook instead, only the parts of
+ * these sheets are rewritten, the other parts are copied without being
+ * inflated.
+ *
+ * @author tangxbai
+ * @since 1.1.3
+ */
+public final class XmlWorkbookEngine implements WorkbookEngine {
+
+	static final String XML_HEADER = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n";
+	static final String NS_MAIN = "http://schemas.openxmlformats.org/spreadsheetml/2006/main";
+	static final String NS_RELATIONSHIPS = "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+	static final String NS_PACKAGE_RELATIONSHIPS = "http://schemas.openxmlformats.org/package/2006/relationships";
+	static final String NS_CONTENT_TYPES = "http://schemas.openxmlformats.org/package/2006/content-types";
+	static final String CT_SPREADSHEETML = "application/vnd.openxmlformats-officedocument.spreadsheetml.";
+
+	private static final String CONTENT_TYPES_PART = "[Content_Types].xml";
+	private static final int DEFAULT_SAMPLE_ROWS = 5000; // Rows held in memory for the auto-sized columns
+	private static final byte [] END_OF_SHEET_DATA = "</sheetData>".getBytes( StandardCharsets.US_ASCII );
+
+	private final XSSFWorkbook styles;
+	private final Closeable stylePool;
+	private final DateStyles dateStyles;
+	private final Map<String, Integer> fillDxfIds = new HashMap<String, Integer>(); // By hex color
+	private final ZipWriter zip;
+	private final Writer writer;
+	private final List<String> sheetNames = new ArrayList<String>();
+	private final Set<String> reservedNames = new HashSet<String>();
+	private final LinkedList<XmlSheetWriter> deferred = new LinkedList<XmlSheetWriter>();
+	private final int sharedStringsCacheSize;
+	private Map<String, Integer> sharedIndexes;
+	private Path sharedStringsFile;
+	private Writer sharedStrings;
+	private int sharedCount;
+	private long sharedReferences;
+	private int sheetCount;
+	private XmlSheetWriter current;
+
+	// Appending to an existing workbook
+	private ZipReader source;
+	private String workbookPart;
+	private Map<String, String> sheetParts;
+	private final Set<String> rewrittenParts = new HashSet<String>();
+	private final Map<String, String> addedSheets = new LinkedHashMap<String, String>(); // Parts by the names of the new sheets
+
+	public XmlWorkbookEngine( OutputStream os ) {
+		this( os, 4096 );
+	}
+
+	/**
+	 * @param os the output stream
+	 * @param sharedStringsCacheSize the number of distinct shared strings
+	 *                               remembered for deduplication, unbounded if
+	 *                               it is not positive
+	 */
+	public XmlWorkbookEngine( OutputStream os, int sharedStringsCacheSize ) {
+		this( os, sharedStringsCacheSize, Compression.DEFAULT, null );
+	}
+
+	/**
+	 * @param os the output stream
+	 * @param sharedStringsCacheSize the number of distinct shared strings
+	 *                               remembered for deduplication, unbounded if
+	 *                               it is not positive
+	 * @param compression the compression level of the parts
+	 * @param deflateExecutor the executor deflating the blocks of the parts in
+	 *                        parallel, or <code>null</code> to deflate them on
+	 *                        the writing thread
+	 */
+	public XmlWorkbookEngine( OutputStream os, int sharedStringsCacheSize, Compression compression, Executor deflateExecutor ) {
+		this.sharedStringsCacheSize = sharedStringsCacheSize;
+		this.styles = new XSSFWorkbook();
+		this.stylePool = Style.open( styles );
+		this.dateStyles = new DateStyles( styles );
+		this.zip = new ZipWriter( os, ( compression == null ? Compression.DEFAULT : compression ).getLevel(), deflateExecutor );
+		this.writer = new BufferedWriter( new OutputStreamWriter( zip, StandardCharsets.UTF_8 ), 1 << 16 );
+	}
+
+	/**
+	 * Open an existing <code>xlsx</code> workbook to append rows to its sheets,
+	 * {@link #createSheet(String)} continues the sheet of the given name after
+	 * its last row, see {@link SheetWriter#getAnchorRow()}. The appended rows
+	 * take the height and cell styles of the last row by column, and the text
+	 * values are written as inline strings, so that the styles and shared
+	 * strings tables are copied unchanged along with all the other parts.
+	 *
+	 * <p>
+	 * A sheet that the workbook does not contain, such as the continuation
+	 * sheet of a full sheet, is added after the existing sheets. Its rows take
+	 * the cell styles of the last row of the sheet written before it by column,
+	 * and nothing else is styled, the workbook part, its relationships and the
+	 * content types are rewritten to list it.
+	 *
+	 * @param workbook the existing workbook, which must not be the target of the
+	 *                 output stream
+	 * @param os the output stream
+	 * @param compression the compression level of the rewritten sheets
+	 * @param deflateExecutor the executor deflating the blocks of the rewritten
+	 *                        sheets in parallel, or <code>null</code>
+	 * @return the engine
+	 * @throws IOException if the workbook cannot be read
+	 */
+	public static XmlWorkbookEngine append( File workbook, OutputStream os, Compression compression, Executor deflateExecutor ) throws IOException {
+		ZipReader source = new ZipReader( workbook.toPath() );
+		try {
+			XmlWorkbookEngine engine = new XmlWorkbookEngine( os, 0, compression, deflateExecutor );
+			engine.workbookPart = readWorkbookPart( source );
+			engine.sheetParts = readSheetParts( source, engine.workbookPart );
+			engine.source = source;
+			return engine;
+		} catch ( IOException | RuntimeException e ) {
+			source.close();
+			throw e;
+		}
+	}
+
+	@Override
+	public Workbook getWorkbook() {
+		return styles;
+	}
+
+	@Override
+	public void setTimestamp( Date timestamp ) {
+		zip.setTime( LocalDateTime.ofInstant( timestamp.toInstant(), ZoneOffset.UTC ) ); // No document properties are written
+	}
+
+	@Override
+	public SheetWriter createSheet( String sheetName ) throws IOException {
+		if ( source != null ) {
+			return sheetParts.containsKey( sheetName.toLowerCase( Locale.ROOT ) ) ? appendSheet( sheetName ) : addSheet( sheetName );
+		}
+		reserve( sheetName );
+		if ( current != null ) {
+			current.close();
+		}
+		synchronized ( this ) {
+			if ( !deferred.isEmpty() ) {
+				throw new IllegalStateException( "Sheets cannot be written directly while deferred sheets are pending" );
+			}
+			putNextEntry( nextSheetPart( sheetName ) );
+		}
+		return current = new XmlSheetWriter( sheetName, sheetCount ++ == 0, writer, null );
+	}
+
+	/**
+	 * Create a sheet that is buffered in a temporary file until all the sheets
+	 * created before it have been written, a deferred sheet without any row
+	 * will be dropped. The sheet order is decided by the order of this method
+	 * calls, so it has to be called on the same thread.
+	 *
+	 * @param sheetName the sheet name
+	 * @return the sheet writer, which can be used on another thread
+	 * @throws IOException if the temporary file cannot be created
+	 */
+	public SheetWriter createDeferredSheet( String sheetName ) throws IOException {
+		checkNotAppending();
+		reserve( sheetName );
+		if ( current != null ) {
+			current.close();
+		}
+		XmlSheetWriter sheet = newDeferredSheet( sheetName );
+		synchronized ( this ) {
+			deferred.add( sheet );
+		}
+		return sheet;
+	}
+
+	/**
+	 * Create a deferred sheet that is placed right after the given deferred
+	 * sheet, it can be called from the thread writing the previous sheet, but
+	 * only before the previous sheet is closed.
+	 *
+	 * @param sheetName the sheet name
+	 * @param previous the unfinished deferred sheet to follow
+	 * @return the sheet writer
+	 * @throws IOException if the temporary file cannot be created
+	 */
+	public SheetWriter createDeferredSheet( String sheetName, SheetWriter previous ) throws IOException {
+		checkNotAppending();
+		synchronized ( this ) {
+			reserve( sheetName );
+			int index = deferred.indexOf( previous );
+			if ( index < 0 || deferred.get( index ).closed ) {
+				throw new IllegalStateException( "Sheet \"" + previous.getSheetName() + "\" is not an unfinished deferred sheet" );
+			}
+			XmlSheetWriter sheet = newDeferredSheet( sheetName );
+			deferred.add( index + 1, sheet );
+			return sheet;
+		}
+	}
+
+	@Override
+	public void finish() throws IOException {
+		if ( current != null ) {
+			current.close();
+		}
+		if ( source != null ) {
+			if ( !addedSheets.isEmpty() ) {
+				listAddedSheets();
+			}
+			for ( ZipReader.ZipEntry entry : source.getEntries() ) {
+				if ( !rewrittenParts.contains( entry.name ) ) {
+					zip.copyEntry( source, entry );
+				}
+			}
+			zip.finish();
+			return;
+		}
+		synchronized ( this ) {
+			if ( !deferred.isEmpty() ) {
+				throw new IllegalStateException( "Deferred sheet \"" + deferred.peek().sheetName + "\" is not finished" );
+			}
+			if ( sheetNames.isEmpty() ) {
+				reservedNames.clear(); // Only dropped sheets have been reserved
+				createSheet( "Sheet1" ).close(); // At least one sheet is required
+			}
+		}
+		writeSharedStrings();
+		writeWorkbook();
+		writeWorkbookRelationships();
+		writeRelationships();
+		writeContentTypes();
+		putNextEntry( "xl/styles.xml" );
+		styles.getStylesSource().writeTo( zip );
+		zip.finish();
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			synchronized ( this ) {
+				if ( sharedStrings != null ) {
+					sharedStrings.close();
+					Files.deleteIfExists( sharedStringsFile );
+					this.sharedStrings = null;
+				}
+				for ( XmlSheetWriter sheet : deferred ) {
+					sheet.out.close();
+					Files.deleteIfExists( sheet.buffer );
+				}
+				deferred.clear();
+			}
+		} finally {
+			try {
+				if ( source != null ) {
+					source.close();
+				}
+			} finally {
+				try {
+					styles.close();
+				} finally {
+					stylePool.close();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Copy the existing part of the sheet up to its last row. A sheet part
+	 * marked by this engine is copied up to the mark without being inflated,
+	 * any other sheet part is inflated and copied tag by tag.
+	 */
+	private SheetWriter appendSheet( String sheetName ) throws IOException {
+		String part = sheetParts.get( sheetName.toLowerCase( Locale.ROOT ) );
+		reserve( sheetName );
+		if ( current != null ) {
+			current.close();
+		}
+		rewrittenParts.add( part );
+		ZipReader.ZipEntry entry = source.getEntry( part );
+		ByteBuffer info = entry.getMarkInfo();
+		XmlSheetWriter sheet = new XmlSheetWriter( sheetName, false, writer, null );
+		InputStream tail = null;
+		try {
+			if ( info != null && entry.method == 8 ) {
+				tail = new BufferedInputStream( zip.continueEntry( source, entry ), 1 << 16 );
+				for ( int i = 0; i < END_OF_SHEET_DATA.length; i ++ ) {
+					if ( tail.read() != END_OF_SHEET_DATA[ i ] ) {
+						throw new IOException( "Invalid mark of worksheet \"" + part + "\"" );
+					}
+				}
+				int [] styles = new int[ info.getInt( 8 ) ];
+				for ( int i = 0; i < styles.length; i ++ ) {
+					styles[ i ] = info.getInt( 12 + i * 4 );
+				}
+				sheet.continueAfter( tail, info.getInt( 0 ), info.getFloat( 4 ), styles );
+			} else {
+				putNextEntry( part );
+				tail = new BufferedInputStream( source.open( entry ), 1 << 16 );
+				WorksheetScanner scanner = new WorksheetScanner( tail );
+				OutputStream out = new BufferedOutputStream( zip, 1 << 16 );
+				scanner.copyRows( out );
+				out.flush();
+				sheet.continueAfter( tail, scanner.getLastRow(), scanner.getLastRowHeight(), scanner.getLastRowStyles() );
+			}
+		} catch ( IOException | RuntimeException e ) {
+			if ( tail != null ) {
+				tail.close();
+			}
+			throw e;
+		}
+		return current = sheet;
+	}
+
+	/**
+	 * Add a new sheet after the existing sheets, which takes the cell styles of
+	 * the last row of the sheet written before it.
+	 */
+	private SheetWriter addSheet( String sheetName ) throws IOException {
+		reserve( sheetName );
+		XmlSheetWriter previous = current;
+		if ( previous != null ) {
+			previous.close();
+		}
+		String folder = workbookPart.substring( 0, workbookPart.lastIndexOf( '/' ) + 1 );
+		String part;
+		for ( int i = sheetParts.size() + addedSheets.size() + 1;; i ++ ) {
+			part = folder + "worksheets/sheet" + i + ".xml";
+			if ( source.getEntry( part ) == null && !addedSheets.containsValue( part ) ) {
+				break;
+			}
+		}
+		addedSheets.put( sheetName, part );
+		putNextEntry( part );
+		XmlSheetWriter sheet = new XmlSheetWriter( sheetName, false, writer, null );
+		sheet.keepStyles( previous == null ? new int[ 0 ] : previous.lastRowStyles );
+		return current = sheet;
+	}
+
+	/**
+	 * Rewrite the workbook part, its relationships and the content types with
+	 * the added sheets, instead of copying them.
+	 */
+	private void listAddedSheets() throws IOException {
+		String folder = workbookPart.substring( 0, workbookPart.lastIndexOf( '/' ) + 1 );
+		Document workbook = document( source, workbookPart );
+		Document relationships = document( source, relationshipsPart( workbookPart ) );
+		Document contentTypes = document( source, CONTENT_TYPES_PART );
+		Element root = workbook.getDocumentElement();
+		String prefix = root.lookupPrefix( NS_RELATIONSHIPS );
+		if ( prefix == null ) {
+			root.setAttributeNS( XMLConstants.XMLNS_ATTRIBUTE_NS_URI, "xmlns:r", NS_RELATIONSHIPS );
+			prefix = "r";
+		}
+		Element sheets = elements( workbook, NS_MAIN, "sheets" ).get( 0 );
+		int sheetId = 0;
+		for ( Element sheet : elements( workbook, NS_MAIN, "sheet" ) ) {
+			sheetId = Math.max( sheetId, Integer.parseInt( sheet.getAttribute( "sheetId" ) ) );
+		}
+		Set<String> ids = new HashSet<String>();
+		for ( Element relationship : elements( relationships, NS_PACKAGE_RELATIONSHIPS, "Relationship" ) ) {
+			ids.add( relationship.getAttribute( "Id" ) );
+		}
+		int relationshipId = ids.size();
+		for ( Entry<String, String> added : addedSheets.entrySet() ) {
+			String id;
+			do {
+				id = "rId" + ( ++ relationshipId );
+			} while ( ids.contains( id ) );
+			Element sheet = workbook.createElementNS( NS_MAIN, sheets.getPrefix() == null ? "sheet" : sheets.getPrefix() + ":sheet" );
+			sheet.setAttribute( "name", added.getKey() );
+			sheet.setAttribute( "sheetId", Integer.toString( ++ sheetId ) );
+			sheet.setAttributeNS( NS_RELATIONSHIPS, prefix + ":id", id );
+			sheets.appendChild( sheet );
+			Element relationship = relationships.createElementNS( NS_PACKAGE_RELATIONSHIPS, "Relationship" );
+			relationship.setAttribute( "Id", id );
+			relationship.setAttribute( "Type", NS_RELATIONSHIPS + "/worksheet" );
+			relationship.setAttribute( "Target", added.getValue().substring( folder.length() ) );
+			relationships.getDocumentElement().appendChild( relationship );
+			Element override = contentTypes.createElementNS( NS_CONTENT_TYPES, "Override" );
+			override.setAttribute( "PartName", "/" + added.getValue() );
+			override.setAttribute( "ContentType", CT_SPREADSHEETML + "worksheet+xml" );
+			contentTypes.getDocumentElement().appendChild( override );
+		}
+		writeDocument( workbookPart, workbook );
+		writeDocument( relationshipsPart( workbookPart ), relationships );
+		writeDocument( CONTENT_TYPES_PART, contentTypes );
+	}
+
+	private void writeDocument( String part, Document document ) throws IOException {
+		rewrittenParts.add( part );
+		putNextEntry( part );
+		try {
+			TransformerFactory.newInstance().newTransformer().transform( new DOMSource( document ), new StreamResult( zip ) );
+		} catch ( TransformerException e ) {
+			throw new IOException( "Unable to write \"" + part + "\"", e );
+		}
+		closeEntry();
+	}
+
+	private void checkNotAppending() {
+		if ( source != null ) {
+			throw new IllegalStateException( "Deferred sheets are not supported while appending to a workbook" );
+		}
+	}
+
+	/**
+	 * @return the part name of the office document
+	 */
+	private static String readWorkbookPart( ZipReader source ) throws IOException {
+		for ( Element relationship : elements( document( source, "_rels/.rels" ), NS_PACKAGE_RELATIONSHIPS, "Relationship" ) ) {
+			if ( relationship.getAttribute( "Type" ).endsWith( "/officeDocument" ) ) {
+				return resolve( "/", relationship.getAttribute( "Target" ) );
+			}
+		}
+		throw new IOException( "Not an xlsx workbook, the office document is missing" );
+	}
+
+	/**
+	 * @return the worksheet parts by the lower case sheet names
+	 */
+	private static Map<String, String> readSheetParts( ZipReader source, String workbookPart ) throws IOException {
+		Map<String, String> targets = new HashMap<String, String>();
+		for ( Element relationship : elements( document( source, relationshipsPart( workbookPart ) ), NS_PACKAGE_RELATIONSHIPS, "Relationship" ) ) {
+			targets.put( relationship.getAttribute( "Id" ), resolve( "/" + workbookPart, relationship.getAttribute( "Target" ) ) );
+		}
+		Map<String, String> sheetParts = new HashMap<String, String>();
+		for ( Element sheet : elements( document( source, workbookPart ), NS_MAIN, "sheet" ) ) {
+			String part = targets.get( sheet.getAttributeNS( NS_RELATIONSHIPS, "id" ) );
+			if ( part != null && source.getEntry( part ) != null ) {
+				sheetParts.put( sheet.getAttribute( "name" ).toLowerCase( Locale.ROOT ), part );
+			}
+		}
+		return sheetParts;
+	}
+
+	private static String relationshipsPart( String workbookPart ) {
+		int slash = workbookPart.lastIndexOf( '/' );
+		return workbookPart.substring( 0, slash + 1 ) + "_rels/" + workbookPart.substring( slash + 1 ) + ".rels";
+	}
+
+	private static Document document( ZipReader source, String part ) throws IOException {
+		ZipReader.ZipEntry entry = source.getEntry( part );
+		if ( entry == null ) {
+			throw new IOException( "Not an xlsx workbook, \"" + part + "\" is missing" );
+		}
+		try ( InputStream in = source.open( entry ) ) {
+			return DocumentHelper.readDocument( in );
+		} catch ( SAXException e ) {
+			throw new IOException( "Unable to parse \"" + part + "\"", e );
+		}
+	}
+
+	private static List<Element> elements( Document document, String namespace, String name ) {
+		NodeList nodes = document.getElementsByTagNameNS( namespace, name );
+		List<Element> elements = new ArrayList<Element>( nodes.getLength() );
+		for ( int i = 0, s = nodes.getLength(); i < s; i ++ ) {
+			elements.add( ( Element ) nodes.item( i ) );
+		}
+		return elements;
+	}
+
+	/**
+	 * @return the part name of the relationship target, without the leading '/'
+	 */
+	private static String resolve( String base, String target ) {
+		return URI.create( base ).resolve( target ).getPath().substring( 1 );
+	}
+
+	/**
+	 * @return the index of the text in the shared strings table
+	 */
+	private synchronized int share( String text ) throws IOException {
+		if ( sharedStrings == null ) {
+			int cacheSize = sharedStringsCacheSize;
+			this.sharedIndexes = new LinkedHashMap<String, Integer>( 256, 0.75f, true ) {
+				private static final long serialVersionUID = 1L;
+				@Override
+				protected boolean removeEldestEntry( Entry<String, Integer> eldest ) {
+					return cacheSize > 0 && size() > cacheSize;
+				}
+			};
+			this.sharedStringsFile = Files.createTempFile( "poi-lite-sst", ".xml" );
+			this.sharedStrings = Files.newBufferedWriter( sharedStringsFile, StandardCharsets.UTF_8 );
+		}
+		sharedReferences ++;
+		Integer index = sharedIndexes.get( text );
+		if ( index == null ) {
+			sharedStrings.write( isPreserved( text ) ? "<si><t xml:space=\"preserve\">" : "<si><t>" );
+			escape( sharedStrings, text, false );
+			sharedStrings.write( "</t></si>" );
+			sharedIndexes.put( text, index = sharedCount ++ );
+		}
+		return index;
+	}
+
+	private synchronized void reserve( String sheetName ) {
+		WorkbookUtil.validateSheetName( sheetName );
+		if ( !reservedNames.add( sheetName.toLowerCase( Locale.ROOT ) ) ) {
+			throw new IllegalArgumentException( "The workbook already contains a sheet named '" + sheetName + "'" );
+		}
+	}
+
+	private XmlSheetWriter newDeferredSheet( String sheetName ) throws IOException {
+		Path buffer = Files.createTempFile( "poi-lite-sheet", ".xml" );
+		Writer out = Files.newBufferedWriter( buffer, StandardCharsets.UTF_8 );
+		return new XmlSheetWriter( sheetName, sheetCount ++ == 0, out, buffer );
+	}
+
+	private String nextSheetPart( String sheetName ) {
+		sheetNames.add( sheetName );
+		return "xl/worksheets/sheet" + sheetNames.size() + ".xml";
+	}
+
+	/**
+	 * Copy the finished deferred sheets into the output stream in order
+	 */
+	private synchronized void drain() throws IOException {
+		while ( !deferred.isEmpty() && deferred.peek().closed ) {
+			XmlSheetWriter sheet = deferred.poll();
+			try {
+				if ( sheet.started ) {
+					putNextEntry( nextSheetPart( sheet.sheetName ) );
+					Files.copy( sheet.buffer, zip );
+					sheet.end( writer );
+					closeEntry();
+				}
+			} finally {
+				Files.deleteIfExists( sheet.buffer );
+			}
+		}
+	}
+
+	private void putNextEntry( String name ) throws IOException {
+		zip.putNextEntry( name );
+	}
+
+	/**
+	 * @return the index of the differential format filling the cells with the
+	 *         color, which is shared by all the sheets
+	 */
+	private int getFillDxfId( String fillColor ) {
+		synchronized ( styles ) {
+			Integer dxfId = fillDxfIds.get( fillColor );
+			if ( dxfId == null ) {
+				CTDxf dxf = CTDxf.Factory.newInstance();
+				CTPatternFill fill = dxf.addNewFill().addNewPatternFill();
+				fill.setPatternType( STPatternType.SOLID );
+				fill.addNewBgColor().setRgb( ( ( XSSFColor ) Style.color( styles, fillColor ) ).getARGB() );
+				fillDxfIds.put( fillColor, dxfId = styles.getStylesSource().putDxf( dxf ) - 1 ); // Returns the count
+			}
+			return dxfId;
+		}
+	}
+
+	private void closeEntry() throws IOException {
+		writer.flush();
+		zip.closeEntry();
+	}
+
+	private void writeSharedStrings() throws IOException {
+		if ( sharedStrings == null ) {
+			return;
+		}
+		sharedStrings.close();
+		putNextEntry( "xl/sharedStrings.xml" );
+		writer.write( XML_HEADER );
+		writer.write( "<sst xmlns=\"" + NS_MAIN + "\" count=\"" + sharedReferences + "\" uniqueCount=\"" + sharedCount + "\">" );
+		writer.flush();
+		Files.copy( sharedStringsFile, zip );
+		writer.write( "</sst>" );
+		closeEntry();
+		Files.deleteIfExists( sharedStringsFile );
+		this.sharedStrings = null;
+	}
+
+	private void writeWorkbook() throws IOException {
+		putNextEntry( "xl/workbook.xml" );
+		writer.write( XML_HEADER );
+		writer.write( "<workbook xmlns=\"" + NS_MAIN + "\" xmlns:r=\"" + NS_RELATIONSHIPS + "\">" );
+		writer.write( "<bookViews><workbookView activeTab=\"0\"/></bookViews><sheets>" );
+		for ( int i = 1, s = sheetNames.size(); i <= s; i ++ ) {
+			writer.write( "<sheet name=\"" );
+			escape( writer, sheetNames.get( i - 1 ), true );
+			writer.write( "\" sheetId=\"" + i + "\" r:id=\"rId" + i + "\"/>" );
+		}
+		writer.write( "</sheets></workbook>" );
+		closeEntry();
+	}
+
+	private void writeWorkbookRelationships() throws IOException {
+		putNextEntry( "xl/_rels/workbook.xml.rels" );
+		writer.write( XML_HEADER );
+		writer.write( "<Relationships xmlns=\"" + NS_PACKAGE_RELATIONSHIPS + "\">" );
+		int size = sheetNames.size();
+		for ( int i = 1; i <= size; i ++ ) {
+			writer.write( "<Relationship Id=\"rId" + i + "\" Type=\"" + NS_RELATIONSHIPS );
+			writer.write( "/worksheet\" Target=\"worksheets/sheet" + i + ".xml\"/>" );
+		}
+		writer.write( "<Relationship Id=\"rId" + ( size + 1 ) + "\" Type=\"" + NS_RELATIONSHIPS );
+		writer.write( "/styles\" Target=\"styles.xml\"/>" );
+		if ( sharedCount > 0 ) {
+			writer.write( "<Relationship Id=\"rId" + ( size + 2 ) + "\" Type=\"" + NS_RELATIONSHIPS );
+			writer.write( "/sharedStrings\" Target=\"sharedStrings.xml\"/>" );
+		}
+		writer.write( "</Relationships>" );
+		closeEntry();
+	}
+
+	private void writeRelationships() throws IOException {
+		putNextEntry( "_rels/.rels" );
+		writer.write( XML_HEADER );
+		writer.write( "<Relationships xmlns=\"" + NS_PACKAGE_RELATIONSHIPS + "\">" );
+		writer.write( "<Relationship Id=\"rId1\" Type=\"" + NS_RELATIONSHIPS );
+		writer.write( "/officeDocument\" Target=\"xl/workbook.xml\"/>" );
+		writer.write( "</Relationships>" );
+		closeEntry();
+	}
+
+	private void writeContentTypes() throws IOException {
+		putNextEntry( CONTENT_TYPES_PART );
+		writer.write( XML_HEADER );
+		writer.write( "<Types xmlns=\"" + NS_CONTENT_TYPES + "\">" );
+		writer.write( "<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>" );
+		writer.write( "<Default Extension=\"xml\" ContentType=\"application/xml\"/>" );
+		writer.write( "<Override PartName=\"/xl/workbook.xml\" ContentType=\"" + CT_SPREADSHEETML + "sheet.main+xml\"/>" );
+		writer.write( "<Override PartName=\"/xl/styles.xml\" ContentType=\"" + CT_SPREADSHEETML + "styles+xml\"/>" );
+		if ( sharedCount > 0 ) {
+			writer.write( "<Override PartName=\"/xl/sharedStrings.xml\" ContentType=\"" + CT_SPREADSHEETML + "sharedStrings+xml\"/>" );
+		}
+		for ( int i = 1, s = sheetNames.size(); i <= s; i ++ ) {
+			writer.write( "<Override PartName=\"/xl/worksheets/sheet" + i + ".xml\" ContentType=\"" );
+			writer.write( CT_SPREADSHEETML + "worksheet+xml\"/>" );
+		}
+		writer.write( "</Types>" );
+		closeEntry();
+	}
+
+	/**
+	 * @return whether the leading or trailing whitespaces have to be preserved
+	 */
+	static boolean isPreserved( String text ) {
+		return !text.isEmpty() && ( Character.isWhitespace( text.charAt( 0 ) ) || Character.isWhitespace( text.charAt( text.length() - 1 ) ) );
+	}
+
+	/**
+	 * Write the XML escaped text, characters that are not allowed in XML 1.0 are
+	 * dropped.
+	 */
+	static void escape( Writer writer, String text, boolean attribute ) throws IOException {
+		for ( int i = 0, s = text.length(); i < s; i ++ ) {
+			char c = text.charAt( i );
+			switch ( c ) {
+				case '<':
+					writer.write( "&lt;" );
+					break;
+				case '>':
+					writer.write( "&gt;" );
+					break;
+				case '&':
+					writer.write( "&amp;" );
+					break;
+				case '"':
+					writer.write( attribute ? "&quot;" : "\"" );
+					break;
+				case '\n':
+				case '\r':
+				case '\t':
+					if ( attribute ) {
+						writer.write( "&#" + ( int ) c + ";" );
+					} else {
+						writer.write( c );
+					}
+					break;
+				default:
+					if ( c >= 0x20 && c != 0xFFFE && c != 0xFFFF ) {
+						writer.write( c );
+					}
+			}
+		}
+	}
+
+	private final class XmlSheetWriter implements SheetWriter {
+
+		private static final byte NONE = 0;
+		private static final byte BLANK = 1;
+		private static final byte STRING = 2;
+		private static final byte NUMBER = 3;
+		private static final byte BOOLEAN = 4;
+		private static final byte SHARED = 5;
+		private static final byte DATE = 6;
+
+		private final String sheetName;
+		private final boolean selected;
+		private final Writer out;
+		private final Path buffer;
+		private final Map<Integer, Integer> widths = new TreeMap<Integer, Integer>();
+		private String [] columns = new String[ 0 ];
+		private boolean [] shared = new boolean[ 0 ];
+		private short [] dateFormats = new short[ 0 ];
+		private CellStyle [] dateCellStyles = new CellStyle[ 0 ];
+		private int [] columnStyles = new int[ 0 ]; // Default styles of the cells by column
+		private int freezeIndex;
+		private volatile boolean started;
+		private volatile boolean closed;
+		private int sampleRows;
+		private WidthEstimator estimator;
+		private StringWriter pending; // Rows held back until the estimated widths are known
+		private final StringBuilder digits = new StringBuilder( 32 ); // Numbers are formatted without creating strings
+		private char [] chars = new char[ 32 ];
+		private char [] rowDigits = new char[ 16 ];
+		private int rowDigitCount;
+
+		// Written into an existing workbook, whose styles and shared strings are copied unchanged
+		private boolean stylesKept;
+
+		// Continuing an existing worksheet
+		private InputStream tail;
+		private int anchorRow = -1;
+		private float anchorHeight;
+
+		// The last row written, kept along with the mark of the sheet part
+		private int lastRow = -1;
+		private float lastRowHeight;
+		private int [] lastRowStyles = new int[ 0 ];
+
+		// Conditional formatting written after the sheet data
+		private final List<String> conditionalRules = new ArrayList<String>();
+
+		// The row being written
+		private int rowIndex = -1;
+		private float rowHeight;
+		private int cellCount;
+		private byte [] kinds = new byte[ 16 ];
+		private String [] texts = new String[ 16 ];
+		private double [] numbers = new double[ 16 ];
+		private int [] styles = new int[ 16 ];
+
+		private XmlSheetWriter( String sheetName, boolean selected, Writer out, Path buffer ) {
+			this.sheetName = sheetName;
+			this.selected = selected;
+			this.out = out;
+			this.buffer = buffer;
+		}
+
+		@Override
+		public String getSheetName() {
+			return sheetName;
+		}
+
+		@Override
+		public int getAnchorRow() {
+			return anchorRow;
+		}
+
+		@Override
+		public void createRow( int rowIndex, float heightInPoints ) {
+			flushRow();
+			this.rowIndex = rowIndex;
+			this.rowHeight = tail == null ? heightInPoints : anchorHeight;
+			if ( estimator != null && !estimator.nextRow() ) {
+				release();
+			}
+		}
+
+		@Override
+		public void setBlank( int cellIndex ) {
+			set( cellIndex, BLANK );
+		}
+
+		@Override
+		public void setValue( int cellIndex, String value ) {
+			if ( value == null ) {
+				set( cellIndex, BLANK );
+			} else if ( cellIndex < shared.length && shared[ cellIndex ] ) {
+				set( cellIndex, SHARED );
+				try {
+					numbers[ cellIndex ] = share( value );
+				} catch ( IOException e ) {
+					throw new UncheckedIOException( e );
+				}
+				if ( estimator != null ) {
+					estimator.measure( cellIndex, value );
+				}
+			} else {
+				set( cellIndex, STRING );
+				texts[ cellIndex ] = value;
+				if ( estimator != null ) {
+					estimator.measure( cellIndex, value );
+				}
+			}
+		}
+
+		@Override
+		public void setValue( int cellIndex, double value ) {
+			set( cellIndex, NUMBER );
+			numbers[ cellIndex ] = value;
+			if ( estimator != null ) {
+				estimator.measure( cellIndex, value );
+			}
+		}
+
+		@Override
+		public void setValue( int cellIndex, boolean value ) {
+			set( cellIndex, BOOLEAN );
+			numbers[ cellIndex ] = value ? 1 : 0;
+			measure( cellIndex, value ? 4 : 5 );
+		}
+
+		@Override
+		public void setValue( int cellIndex, Date value ) {
+			if ( value == null ) {
+				set( cellIndex, BLANK );
+			} else {
+				setDate( cellIndex, DateUtil.getExcelDate( value ), WidthEstimator.DATE_TIME_WIDTH );
+			}
+		}
+
+		@Override
+		public void setValue( int cellIndex, LocalDate value ) {
+			if ( value == null ) {
+				set( cellIndex, BLANK );
+			} else {
+				setDate( cellIndex, DateUtil.getExcelDate( value ), WidthEstimator.DATE_WIDTH );
+			}
+		}
+
+		@Override
+		public void setValue( int cellIndex, LocalDateTime value ) {
+			if ( value == null ) {
+				set( cellIndex, BLANK );
+			} else {
+				setDate( cellIndex, DateUtil.getExcelDate( value ), WidthEstimator.DATE_TIME_WIDTH );
+			}
+		}
+
+		@Override
+		public void setStyle( int cellIndex, CellStyle style ) {
+			if ( stylesKept ) {
+				return;
+			}
+			ensureCapacity( cellIndex );
+			if ( kinds[ cellIndex ] == NONE ) {
+				kinds[ cellIndex ] = BLANK;
+				cellCount = Math.max( cellCount, cellIndex + 1 );
+			}
+			if ( kinds[ cellIndex ] == DATE && cellIndex < dateCellStyles.length && dateCellStyles[ cellIndex ] != null ) {
+				style = dateStyles.getStyle( style, dateFormats[ cellIndex ] );
+			}
+			styles[ cellIndex ] = style == null ? 0 : style.getIndex();
+		}
+
+		@Override
+		public void setColumnStyle( int cellIndex, CellStyle style ) {
+			if ( stylesKept ) {
+				return;
+			}
+			if ( cellIndex >= columnStyles.length ) {
+				this.columnStyles = Arrays.copyOf( columnStyles, cellIndex + 1 );
+			}
+			columnStyles[ cellIndex ] = style == null ? 0 : style.getIndex();
+			if ( cellIndex < dateCellStyles.length && dateCellStyles[ cellIndex ] != null ) {
+				dateCellStyles[ cellIndex ] = dateStyles.getStyle( style, dateFormats[ cellIndex ] );
+			}
+		}
+
+		@Override
+		public void createFreezePane( int rowIndex ) {
+			checkNotStarted();
+			this.freezeIndex = rowIndex;
+		}
+
+		@Override
+		public void addConditionalFill( CellRangeAddress [] regions, String formula, String fillColor ) {
+			if ( stylesKept ) {
+				return; // The styles of the existing workbook are copied unchanged
+			}
+			StringBuilder sqref = new StringBuilder();
+			for ( CellRangeAddress region : regions ) {
+				sqref.append( sqref.length() == 0 ? "" : " " ).append( region.formatAsString() );
+			}
+			StringWriter rule = new StringWriter();
+			try {
+				rule.write( "<conditionalFormatting sqref=\"" + sqref + "\">" );
+				rule.write( "<cfRule type=\"expression\" dxfId=\"" + getFillDxfId( fillColor ) );
+				rule.write( "\" priority=\"" + ( conditionalRules.size() + 1 ) + "\"><formula>" );
+				escape( rule, formula, false );
+				rule.write( "</formula></cfRule></conditionalFormatting>" );
+			} catch ( IOException e ) {
+				throw new UncheckedIOException( e );
+			}
+			conditionalRules.add( rule.toString() );
+		}
+
+		@Override
+		public void setColumnWidth( int cellIndex, int width ) {
+			checkNotStarted();
+			widths.put( cellIndex, width );
+		}
+
+		@Override
+		public void shareStrings( int cellIndex ) {
+			if ( rowIndex >= 0 ) {
+				throw new IllegalStateException( "Columns must be shared before any row is created in sheet \"" + sheetName + "\"" );
+			}
+			if ( stylesKept ) {
+				return; // The shared strings of the existing workbook are copied unchanged
+			}
+			if ( cellIndex >= shared.length ) {
+				this.shared = Arrays.copyOf( shared, cellIndex + 1 );
+			}
+			shared[ cellIndex ] = true;
+		}
+
+		@Override
+		public void setDateFormat( int cellIndex, String pattern ) {
+			if ( rowIndex >= 0 ) {
+				throw new IllegalStateException( "Date formats must be set before any row is created in sheet \"" + sheetName + "\"" );
+			}
+			if ( stylesKept ) {
+				return; // Taken from the column styles
+			}
+			if ( cellIndex >= dateFormats.length ) {
+				this.dateFormats = Arrays.copyOf( dateFormats, cellIndex + 1 );
+				this.dateCellStyles = Arrays.copyOf( dateCellStyles, cellIndex + 1 );
+			}
+			dateFormats[ cellIndex ] = dateStyles.getFormat( pattern );
+			dateCellStyles[ cellIndex ] = dateStyles.getStyle( null, dateFormats[ cellIndex ] );
+		}
+
+		@Override
+		public void setAutoSizeSampleRows( int sampleRows ) {
+			this.sampleRows = sampleRows;
+		}
+
+		/**
+		 * The rows are held in memory from now on, until all the sample rows are
+		 * measured or the sheet is closed, since the column widths have to be
+		 * written before the sheet data. Without a sample size, the first
+		 * {@value #DEFAULT_SAMPLE_ROWS} rows are measured.
+		 */
+		@Override
+		public void trackColumnForAutoSizing( int cellIndex ) {
+			checkNotStarted();
+			if ( rowIndex >= 0 ) {
+				throw new IllegalStateException( "Columns must be tracked before any row is created in sheet \"" + sheetName + "\"" );
+			}
+			if ( estimator == null ) {
+				this.estimator = new WidthEstimator( sampleRows > 0 ? sampleRows : DEFAULT_SAMPLE_ROWS );
+				this.pending = new StringWriter( 1 << 16 );
+			}
+			estimator.track( cellIndex );
+		}
+
+		@Override
+		public void autoSizeColumn( int cellIndex ) {
+			// The estimated widths are applied when the held rows are released
+		}
+
+		@Override
+		public void close() throws IOException {
+			if ( closed ) {
+				return;
+			}
+			try {
+				flushRow();
+				release();
+				if ( buffer == null ) {
+					start();
+					end( out );
+					closeEntry();
+				} else {
+					out.close(); // Ended when it is copied
+				}
+			} catch ( UncheckedIOException e ) {
+				throw e.getCause();
+			} finally {
+				this.closed = true;
+				if ( buffer == null ) {
+					current = null;
+				}
+				if ( tail != null ) {
+					tail.close();
+				}
+			}
+			if ( buffer != null ) {
+				drain();
+			}
+		}
+
+		/**
+		 * Continue the rows of an existing worksheet, whose part has been copied
+		 * up to its last row.
+		 *
+		 * @param tail the rest of the part after the sheet data
+		 * @param lastRow the index of the last row, or <code>-1</code>
+		 * @param height the custom height of the last row, or <code>0</code>
+		 * @param styles the cell styles of the last row by column
+		 */
+		private void continueAfter( InputStream tail, int lastRow, float height, int [] styles ) {
+			keepStyles( styles );
+			this.tail = tail;
+			this.anchorRow = lastRow + 1;
+			this.anchorHeight = height;
+			this.lastRow = lastRow;
+			this.lastRowHeight = height;
+			this.lastRowStyles = styles.clone();
+			this.started = true;
+		}
+
+		/**
+		 * Keep the styles of the existing workbook, the cells only take the given
+		 * styles by column.
+		 */
+		private void keepStyles( int [] styles ) {
+			this.stylesKept = true;
+			this.columnStyles = styles.clone();
+		}
+
+		/**
+		 * Mark the end of the rows, and write the rest of the sheet part
+		 */
+		private void end( Writer out ) throws IOException {
+			out.flush();
+			ByteBuffer info = ByteBuffer.allocate( 12 + lastRowStyles.length * 4 ).order( ByteOrder.LITTLE_ENDIAN );
+			info.putInt( lastRow ).putFloat( lastRowHeight ).putInt( lastRowStyles.length );
+			for ( int style : lastRowStyles ) {
+				info.putInt( style );
+			}
+			zip.mark( info.array() );
+			out.write( "</sheetData>" );
+			if ( tail == null ) {
+				for ( String rule : conditionalRules ) {
+					out.write( rule );
+				}
+				out.write( "<pageMargins left=\"0.7\" right=\"0.7\" top=\"0.75\" bottom=\"0.75\" header=\"0.3\" footer=\"0.3\"/>" );
+				out.write( "</worksheet>" );
+			} else {
+				out.flush();
+				byte [] bytes = new byte[ 1 << 16 ];
+				for ( int count; ( count = tail.read( bytes ) ) != -1; ) {
+					zip.write( bytes, 0, count );
+				}
+			}
+		}
+
+		private void setDate( int cellIndex, double value, int width ) {
+			set( cellIndex, DATE );
+			numbers[ cellIndex ] = value;
+			if ( cellIndex < dateCellStyles.length && dateCellStyles[ cellIndex ] != null ) {
+				styles[ cellIndex ] = dateCellStyles[ cellIndex ].getIndex();
+			}
+			measure( cellIndex, width );
+		}
+
+		private void measure( int cellIndex, int width ) {
+			if ( estimator != null ) {
+				estimator.measure( cellIndex, width );
+			}
+		}
+
+		private void set( int cellIndex, byte kind ) {
+			ensureCapacity( cellIndex );
+			if ( kinds[ cellIndex ] == NONE && cellIndex < columnStyles.length ) {
+				styles[ cellIndex ] = columnStyles[ cellIndex ];
+			}
+			kinds[ cellIndex ] = kind;
+			cellCount = Math.max( cellCount, cellIndex + 1 );
+		}
+
+		private void ensureCapacity( int cellIndex ) {
+			if ( rowIndex < 0 ) {
+				throw new IllegalStateException( "No row has been created in the sheet \"" + sheetName + "\"" );
+			}
+			if ( cellIndex >= kinds.length ) {
+				int capacity = Math.max( cellIndex + 1, kinds.length * 2 );
+				this.kinds = Arrays.copyOf( kinds, capacity );
+				this.texts = Arrays.copyOf( texts, capacity );
+				this.numbers = Arrays.copyOf( numbers, capacity );
+				this.styles = Arrays.copyOf( styles, capacity );
+			}
+		}
+
+		private void checkNotStarted() {
+			if ( started ) {
+				throw new IllegalStateException( "Sheet \"" + sheetName + "\" content has already been written" );
+			}
+		}
+
+		private String column( int cellIndex ) {
+			if ( cellIndex >= columns.length ) {
+				this.columns = Arrays.copyOf( columns, Math.max( cellIndex + 1, columns.length * 2 ) );
+			}
+			String column = columns[ cellIndex ];
+			if ( column == null ) {
+				columns[ cellIndex ] = column = CellReference.convertNumToColString( cellIndex );
+			}
+			return column;
+		}
+
+		/**
+		 * Write the held rows after the estimated column widths
+		 */
+		private void release() {
+			if ( pending == null ) {
+				return;
+			}
+			for ( int i = 0, s = estimator.getColumnCount(); i < s; i ++ ) {
+				int width = estimator.getWidth( i );
+				if ( width > 0 ) {
+					widths.put( i, width );
+				}
+			}
+			StringBuffer rows = pending.getBuffer();
+			this.pending = null;
+			if ( rows.length() > 0 ) {
+				start();
+				try {
+					out.append( rows );
+				} catch ( IOException e ) {
+					throw new UncheckedIOException( e );
+				}
+			}
+		}
+
+		private void start() {
+			if ( started ) {
+				return;
+			}
+			this.started = true;
+			try {
+				out.write( XML_HEADER );
+				out.write( "<worksheet xmlns=\"" + NS_MAIN + "\" xmlns:r=\"" + NS_RELATIONSHIPS + "\">" );
+				out.write( "<sheetViews><sheetView workbookViewId=\"0\"" );
+				out.write( selected ? " tabSelected=\"1\">" : ">" );
+				if ( freezeIndex > 0 ) {
+					out.write( "<pane ySplit=\"" + freezeIndex + "\" topLeftCell=\"A" + ( freezeIndex + 1 ) );
+					out.write( "\" activePane=\"bottomLeft\" state=\"frozen\"/>" );
+					out.write( "<selection pane=\"bottomLeft\"/>" );
+				}
+				out.write( "</sheetView></sheetViews>" );
+				out.write( "<sheetFormatPr defaultRowHeight=\"15\"/>" );
+				if ( !widths.isEmpty() ) {
+					out.write( "<cols>" );
+					for ( Entry<Integer, Integer> entry : widths.entrySet() ) {
+						int index = entry.getKey() + 1;
+						out.write( "<col min=\"" + index + "\" max=\"" + index + "\" width=\"" );
+						out.write( Double.toString( entry.getValue() / 256d ) );
+						out.write( "\" customWidth=\"1\"/>" );
+					}
+					out.write( "</cols>" );
+				}
+				out.write( "<sheetData>" );
+			} catch ( IOException e ) {
+				throw new UncheckedIOException( e );
+			}
+		}
+
+		private void flushRow() {
+			if ( rowIndex < 0 ) {
+				return;
+			}
+			Writer out = sink();
+			try {
+				int r = rowIndex + 1;
+				if ( lastRowStyles.length < cellCount ) {
+					this.lastRowStyles = new int[ cellCount ];
+				} else {
+					Arrays.fill( lastRowStyles, 0 );
+				}
+				this.lastRow = rowIndex;
+				this.lastRowHeight = rowHeight;
+				digits.append( r );
+				this.rowDigitCount = digits.length();
+				digits.getChars( 0, rowDigitCount, rowDigits, 0 );
+				out.write( "<row r=\"" );
+				writeDigits( out );
+				out.write( '"' );
+				if ( rowHeight > 0 ) {
+					out.write( " ht=\"" );
+					digits.append( rowHeight );
+					writeDigits( out );
+					out.write( "\" customHeight=\"1\"" );
+				}
+				out.write( '>' );
+				for ( int i = 0; i < cellCount; i ++ ) {
+					byte kind = kinds[ i ];
+					if ( kind == NONE ) {
+						continue;
+					}
+					out.write( "<c r=\"" );
+					out.write( column( i ) );
+					out.write( rowDigits, 0, rowDigitCount );
+					out.write( '"' );
+					int style = styles[ i ];
+					if ( style != 0 ) {
+						out.write( " s=\"" );
+						digits.append( style );
+						writeDigits( out );
+						out.write( '"' );
+						lastRowStyles[ i ] = style;
+					}
+					switch ( kind ) {
+						case STRING:
+							String text = texts[ i ];
+							out.write( isPreserved( text ) ? " t=\"inlineStr\"><is><t xml:space=\"preserve\">" : " t=\"inlineStr\"><is><t>" );
+							escape( out, text, false );
+							out.write( "</t></is></c>" );
+							break;
+						case NUMBER:
+						case DATE:
+							writeNumber( out, numbers[ i ] );
+							break;
+						case SHARED:
+							out.write( " t=\"s\"><v>" );
+							digits.append( ( int ) numbers[ i ] );
+							writeDigits( out );
+							out.write( "</v></c>" );
+							break;
+						case BOOLEAN:
+							out.write( numbers[ i ] == 0 ? " t=\"b\"><v>0</v></c>" : " t=\"b\"><v>1</v></c>" );
+							break;
+						default:
+							out.write( "/>" );
+					}
+					kinds[ i ] = NONE;
+					texts[ i ] = null;
+					styles[ i ] = 0;
+				}
+				out.write( "</row>" );
+			} catch ( IOException e ) {
+				throw new UncheckedIOException( e );
+			}
+			this.cellCount = 0;
+			this.rowIndex = -1;
+		}
+
+		private Writer sink() {
+			if ( pending != null ) {
+				return pending;
+			}
+			start();
+			return out;
+		}
+
+		private void writeNumber( Writer out, double value ) throws IOException {
+			if ( Double.isNaN( value ) || Double.isInfinite( value ) ) {
+				out.write( " t=\"e\"><v>#NUM!</v></c>" );
+			} else {
+				if ( value == ( long ) value && Math.abs( value ) < 1E15 ) {
+					digits.append( ( long ) value );
+				} else {
+					digits.append( value );
+				}
+				out.write( "><v>" );
+				writeDigits( out );
+				out.write( "</v></c>" );
+			}
+		}
+
+		/**
+		 * Write the formatted digits through a reused buffer, and clear them
+		 */
+		private void writeDigits( Writer out ) throws IOException {
+			int length = digits.length();
+			digits.getChars( 0, length, chars, 0 );
+			digits.setLength( 0 );
+			out.write( chars, 0, length );
+		}
+
+	}
+
+}
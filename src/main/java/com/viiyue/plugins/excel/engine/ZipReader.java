@@ -0,0 +1,296 @@
+/**
+ * Copyright (C) 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.plugins.excel.engine;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Minimal zip reader based on the central directory, the entry data can be
+ * read as it is stored in the file, so that it can be copied into another zip
+ * file without being inflated and deflated again.
+ *
+ * @author tangxbai
+ * @since 1.1.3
+ */
+final class ZipReader implements Closeable {
+
+	private static final int MAX_TAIL_SIZE = 0xFFFF + 22; // Comment and end record
+	private static final long ZIP64_LIMIT = 0xFFFFFFFFL;
+
+	private final FileChannel channel;
+	private final Map<String, ZipEntry> entries = new LinkedHashMap<String, ZipEntry>();
+
+	ZipReader( Path file ) throws IOException {
+		this.channel = FileChannel.open( file, StandardOpenOption.READ );
+		try {
+			readCentralDirectory();
+		} catch ( IOException | RuntimeException e ) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * @return the entries in the order of the central directory
+	 */
+	List<ZipEntry> getEntries() {
+		return Collections.unmodifiableList( new ArrayList<ZipEntry>( entries.values() ) );
+	}
+
+	ZipEntry getEntry( String name ) {
+		return entries.get( name );
+	}
+
+	/**
+	 * @param entry the zip entry
+	 * @param offset the offset in the stored data
+	 * @param length the number of bytes
+	 * @return the stored data of the entry, deflated or not
+	 */
+	InputStream openRaw( ZipEntry entry, long offset, long length ) throws IOException {
+		ByteBuffer header = read( entry.offset, 30 );
+		if ( header.getInt( 0 ) != 0x04034b50 ) {
+			throw new IOException( "Invalid local header of zip entry \"" + entry.name + "\"" );
+		}
+		long start = entry.offset + 30 + ( header.getShort( 26 ) & 0xFFFF ) + ( header.getShort( 28 ) & 0xFFFF );
+		return new RangeInputStream( start + offset, Math.min( length, entry.compressedSize - offset ) );
+	}
+
+	/**
+	 * @return the inflated data of the entry
+	 */
+	InputStream open( ZipEntry entry ) throws IOException {
+		switch ( entry.method ) {
+			case 0:
+				return new BufferedInputStream( openRaw( entry, 0, entry.compressedSize ), 1 << 16 );
+			case 8:
+				return openInflated( entry, 0 );
+			default:
+				throw new IOException( "Unsupported compression method " + entry.method + " of zip entry \"" + entry.name + "\"" );
+		}
+	}
+
+	/**
+	 * @param entry the deflated entry
+	 * @param offset the offset in the deflated data where an independently
+	 *               deflated part starts
+	 * @return the inflated data from the offset
+	 */
+	InputStream openInflated( ZipEntry entry, long offset ) throws IOException {
+		InputStream raw = new BufferedInputStream( openRaw( entry, offset, entry.compressedSize - offset ), 1 << 16 );
+		Inflater inflater = new Inflater( true );
+		return new InflaterInputStream( raw, inflater, 1 << 16 ) {
+			@Override
+			public void close() throws IOException {
+				try {
+					super.close();
+				} finally {
+					inflater.end();
+				}
+			}
+		};
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	private void readCentralDirectory() throws IOException {
+		long size = channel.size();
+		int tailSize = ( int ) Math.min( size, MAX_TAIL_SIZE );
+		ByteBuffer tail = read( size - tailSize, tailSize );
+		int end = -1;
+		for ( int i = tailSize - 22; i >= 0; i -- ) {
+			if ( tail.getInt( i ) == 0x06054b50 ) {
+				end = i;
+				break;
+			}
+		}
+		if ( end < 0 ) {
+			throw new IOException( "Not a zip file, the end of central directory is missing" );
+		}
+		long count = tail.getShort( end + 10 ) & 0xFFFF;
+		long directorySize = tail.getInt( end + 12 ) & ZIP64_LIMIT;
+		long directoryOffset = tail.getInt( end + 16 ) & ZIP64_LIMIT;
+		if ( end >= 20 && tail.getInt( end - 20 ) == 0x07064b50 ) {
+			ByteBuffer record = read( tail.getLong( end - 12 ), 56 );
+			if ( record.getInt( 0 ) != 0x06064b50 ) {
+				throw new IOException( "Invalid zip64 end of central directory" );
+			}
+			count = record.getLong( 32 );
+			directorySize = record.getLong( 40 );
+			directoryOffset = record.getLong( 48 );
+		}
+		if ( directorySize > Integer.MAX_VALUE ) {
+			throw new IOException( "The central directory is too large" );
+		}
+		ByteBuffer directory = read( directoryOffset, ( int ) directorySize );
+		for ( int position = 0, i = 0; i < count; i ++ ) {
+			if ( directory.getInt( position ) != 0x02014b50 ) {
+				throw new IOException( "Invalid central directory header" );
+			}
+			ZipEntry entry = new ZipEntry();
+			entry.flags = directory.getShort( position + 8 ) & 0xFFFF;
+			entry.method = directory.getShort( position + 10 ) & 0xFFFF;
+			entry.time = directory.getInt( position + 12 );
+			entry.crc = directory.getInt( position + 16 ) & ZIP64_LIMIT;
+			entry.compressedSize = directory.getInt( position + 20 ) & ZIP64_LIMIT;
+			entry.size = directory.getInt( position + 24 ) & ZIP64_LIMIT;
+			int nameLength = directory.getShort( position + 28 ) & 0xFFFF;
+			int extraLength = directory.getShort( position + 30 ) & 0xFFFF;
+			int commentLength = directory.getShort( position + 32 ) & 0xFFFF;
+			entry.offset = directory.getInt( position + 42 ) & ZIP64_LIMIT;
+			byte [] name = new byte[ nameLength ];
+			directory.position( position + 46 );
+			directory.get( name );
+			entry.name = new String( name, ( entry.flags & 0x0800 ) != 0 ? StandardCharsets.UTF_8 : StandardCharsets.ISO_8859_1 );
+			readExtra( directory, position + 46 + nameLength, extraLength, entry );
+			entries.put( entry.name, entry );
+			position += 46 + nameLength + extraLength + commentLength;
+		}
+	}
+
+	private static void readExtra( ByteBuffer directory, int position, int length, ZipEntry entry ) {
+		for ( int end = position + length; position + 4 <= end; ) {
+			int id = directory.getShort( position ) & 0xFFFF;
+			int size = directory.getShort( position + 2 ) & 0xFFFF;
+			if ( id == ZipWriter.MARK_EXTRA_ID && size >= 20 ) {
+				entry.mark = new byte[ size ];
+				directory.position( position + 4 );
+				directory.get( entry.mark );
+				ByteBuffer mark = ByteBuffer.wrap( entry.mark ).order( ByteOrder.LITTLE_ENDIAN );
+				entry.markCompressedSize = mark.getLong( 0 );
+				entry.markSize = mark.getLong( 8 );
+				entry.markCrc = mark.getInt( 16 ) & ZIP64_LIMIT;
+			} else if ( id == 0x0001 ) {
+				int field = position + 4;
+				if ( entry.size == ZIP64_LIMIT ) {
+					entry.size = directory.getLong( field );
+					field += 8;
+				}
+				if ( entry.compressedSize == ZIP64_LIMIT ) {
+					entry.compressedSize = directory.getLong( field );
+					field += 8;
+				}
+				if ( entry.offset == ZIP64_LIMIT ) {
+					entry.offset = directory.getLong( field );
+				}
+			}
+			position += 4 + size;
+		}
+	}
+
+	private ByteBuffer read( long position, int length ) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate( length ).order( ByteOrder.LITTLE_ENDIAN );
+		while ( buffer.hasRemaining() ) {
+			if ( channel.read( buffer, position + buffer.position() ) < 0 ) {
+				throw new EOFException( "Unexpected end of zip file" );
+			}
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+	static final class ZipEntry {
+
+		String name;
+		int flags;
+		int method;
+		int time;
+		long crc;
+		long size;
+		long compressedSize;
+		long offset;
+
+		// See ZipWriter#mark(byte[])
+		byte [] mark;
+		long markCompressedSize;
+		long markSize = -1;
+		long markCrc;
+
+		/**
+		 * @return the info kept along with the mark, or <code>null</code> if the
+		 *         entry is not marked
+		 */
+		ByteBuffer getMarkInfo() {
+			if ( mark == null ) {
+				return null;
+			}
+			return ByteBuffer.wrap( mark, 20, mark.length - 20 ).slice().order( ByteOrder.LITTLE_ENDIAN );
+		}
+
+	}
+
+	/**
+	 * Reads a range of the file with positional reads
+	 */
+	private final class RangeInputStream extends InputStream {
+
+		private long position;
+		private long remaining;
+
+		private RangeInputStream( long position, long length ) {
+			this.position = position;
+			this.remaining = length;
+		}
+
+		@Override
+		public int read() throws IOException {
+			byte [] b = new byte[ 1 ];
+			return read( b, 0, 1 ) < 0 ? -1 : b[ 0 ] & 0xFF;
+		}
+
+		@Override
+		public int read( byte [] b, int off, int len ) throws IOException {
+			if ( remaining <= 0 ) {
+				return -1;
+			}
+			ByteBuffer buffer = ByteBuffer.wrap( b, off, ( int ) Math.min( len, remaining ) );
+			int count = channel.read( buffer, position );
+			if ( count < 0 ) {
+				throw new EOFException( "Unexpected end of zip file" );
+			}
+			position += count;
+			remaining -= count;
+			return count;
+		}
+
+		@Override
+		public int available() {
+			return ( int ) Math.min( remaining, Integer.MAX_VALUE );
+		}
+
+	}
+
+}
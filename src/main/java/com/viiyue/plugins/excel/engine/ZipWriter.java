@@ -0,0 +1,587 @@
+/**
+ * Copyright (C) 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.plugins.excel.engine;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipException;
+
+/**
+ * Minimal zip writer of deflated entries, the sizes and checksums are written
+ * in the data descriptors after the entry data, and zip64 records are written
+ * only when the offsets or the sizes of the copied entries require them. A
+ * written entry cannot exceed 4 GB, since its local header is written before
+ * its size is known.
+ *
+ * <p>
+ * With an executor, the entry data is split into independent blocks that are
+ * deflated on the executor, each block is primed with the last 32K of the
+ * previous block as the dictionary and ends with a sync flush, so that the
+ * compressed blocks can be concatenated into one deflate stream in order.
+ *
+ * <p>
+ * Entries of another zip file can be copied as they are stored, see
+ * {@link #copyEntry(ZipReader, ZipReader.ZipEntry)}. An entry can also be
+ * marked by {@link #mark(byte[])}, the data before the mark is deflated
+ * independently of the data after it, so that another writer can copy the
+ * entry up to the mark without inflating it, and continue it with new data,
+ * see {@link #continueEntry(ZipReader, ZipReader.ZipEntry)}.
+ *
+ * @author tangxbai
+ * @since 1.1.3
+ */
+final class ZipWriter extends OutputStream {
+
+	private static final int BLOCK_SIZE = 1 << 18;
+	private static final int DICTIONARY_SIZE = 1 << 15;
+	private static final int MAX_PENDING_BLOCKS = 16;
+	private static final long ZIP64_LIMIT = 0xFFFFFFFFL;
+
+	/**
+	 * Extra field of the entry mark: the compressed and uncompressed sizes and
+	 * the checksum of the data before the mark, followed by the mark info.
+	 */
+	static final int MARK_EXTRA_ID = 0x4c50;
+
+	private final OutputStream out;
+	private final int level;
+	private final Executor executor;
+	private int dosTime;
+	private boolean fixedTime;
+	private final List<ZipEntry> entries = new ArrayList<ZipEntry>();
+	private final byte [] single = new byte[ 1 ];
+	private long written;
+
+	private ZipEntry entry;
+	private final CRC32 crc = new CRC32();
+	private long continuedSize = -1; // Size of the copied data before the continued entry
+	private long continuedCrc;
+
+	// Deflated on the calling thread
+	private Deflater deflater;
+	private byte [] deflated;
+
+	// Deflated on the executor
+	private byte [] block;
+	private int blockSize;
+	private byte [] dictionary;
+	private final Deque<CompletableFuture<byte []>> pending = new ArrayDeque<CompletableFuture<byte []>>();
+
+	/**
+	 * @param out the output stream, which is not closed by this writer
+	 * @param level the deflate level
+	 * @param executor the executor deflating the blocks, or <code>null</code> to
+	 *                 deflate on the calling thread
+	 */
+	ZipWriter( OutputStream out, int level, Executor executor ) {
+		this.out = out;
+		this.level = level;
+		this.executor = executor;
+		this.dosTime = toDosTime( LocalDateTime.now() );
+	}
+
+	/**
+	 * Set the modification time of the entries written next, including the
+	 * copied entries, instead of the current time.
+	 *
+	 * @param time the local time, the times before 1980 are written as 1980
+	 */
+	void setTime( LocalDateTime time ) {
+		this.dosTime = toDosTime( time );
+		this.fixedTime = true;
+	}
+
+	void putNextEntry( String name ) throws IOException {
+		if ( entry != null ) {
+			closeEntry();
+		}
+		this.entry = new ZipEntry( name.getBytes( StandardCharsets.UTF_8 ), written, 0x0808, 8, dosTime );
+		writeInt( 0x04034b50 );
+		writeShort( 20 ); // Version needed to extract
+		writeShort( 0x0808 ); // Data descriptor, UTF-8 names
+		writeShort( 8 ); // Deflated
+		writeInt( dosTime );
+		writeInt( 0 ); // CRC-32, sizes are in the data descriptor
+		writeInt( 0 );
+		writeInt( 0 );
+		writeShort( entry.name.length );
+		writeShort( 0 );
+		writeBytes( entry.name, 0, entry.name.length );
+		crc.reset();
+		this.continuedSize = -1;
+	}
+
+	/**
+	 * Start a new entry with the data of the marked entry of another zip file
+	 * up to its mark, without inflating it, the data written next follows it.
+	 *
+	 * @return the inflated data after the mark
+	 */
+	InputStream continueEntry( ZipReader source, ZipReader.ZipEntry from ) throws IOException {
+		if ( from.markSize < 0 || from.method != 8 ) {
+			throw new IllegalArgumentException( "Zip entry \"" + from.name + "\" is not marked" );
+		}
+		putNextEntry( from.name );
+		try ( InputStream raw = source.openRaw( from, 0, from.markCompressedSize ) ) {
+			copy( raw, from.markCompressedSize, from.name );
+		}
+		entry.size = from.markSize;
+		entry.compressedSize = from.markCompressedSize;
+		this.continuedSize = from.markSize;
+		this.continuedCrc = from.markCrc;
+		return source.openInflated( from, from.markCompressedSize );
+	}
+
+	/**
+	 * Flush the data written so far and reset the compression state, so that
+	 * the following data can be inflated without the data before it.
+	 *
+	 * @param info the data kept along with the mark in the central directory
+	 */
+	void mark( byte [] info ) throws IOException {
+		if ( executor == null ) {
+			Deflater deflater = deflater();
+			int count;
+			do {
+				count = deflater.deflate( deflated, 0, deflated.length, Deflater.FULL_FLUSH );
+				writeDeflated( count );
+			} while ( count == deflated.length );
+		} else {
+			submitBlock( false, true );
+			while ( !pending.isEmpty() ) {
+				writeNextBlock();
+			}
+		}
+		ByteBuffer extra = ByteBuffer.allocate( 20 + info.length ).order( ByteOrder.LITTLE_ENDIAN );
+		extra.putLong( entry.compressedSize ).putLong( entry.size ).putInt( ( int ) entryCrc() ).put( info );
+		entry.mark = extra.array();
+	}
+
+	/**
+	 * Copy the entry of another zip file without inflating it, the sizes and
+	 * checksum are known in advance, so no data descriptor is written.
+	 */
+	void copyEntry( ZipReader source, ZipReader.ZipEntry from ) throws IOException {
+		closeEntry();
+		ZipEntry entry = new ZipEntry( from.name.getBytes( StandardCharsets.UTF_8 ), written, 0x0800, from.method, fixedTime ? dosTime : from.time );
+		entry.crc = from.crc;
+		entry.size = from.size;
+		entry.compressedSize = from.compressedSize;
+		entry.mark = from.mark;
+		boolean zip64 = entry.compressedSize > ZIP64_LIMIT || entry.size > ZIP64_LIMIT;
+		writeInt( 0x04034b50 );
+		writeShort( zip64 ? 45 : 20 );
+		writeShort( entry.flags );
+		writeShort( entry.method );
+		writeInt( entry.time );
+		writeInt( ( int ) entry.crc );
+		writeInt( zip64 ? -1 : ( int ) entry.compressedSize );
+		writeInt( zip64 ? -1 : ( int ) entry.size );
+		writeShort( entry.name.length );
+		writeShort( zip64 ? 20 : 0 );
+		writeBytes( entry.name, 0, entry.name.length );
+		if ( zip64 ) {
+			writeShort( 0x0001 );
+			writeShort( 16 );
+			writeLong( entry.size );
+			writeLong( entry.compressedSize );
+		}
+		try ( InputStream raw = source.openRaw( from, 0, from.compressedSize ) ) {
+			copy( raw, from.compressedSize, from.name );
+		}
+		entries.add( entry );
+	}
+
+	private void copy( InputStream raw, long length, String name ) throws IOException {
+		byte [] buffer = new byte[ 1 << 16 ];
+		for ( long remaining = length; remaining > 0; ) {
+			int count = raw.read( buffer, 0, ( int ) Math.min( buffer.length, remaining ) );
+			if ( count < 0 ) {
+				throw new EOFException( "Unexpected end of zip entry \"" + name + "\"" );
+			}
+			writeBytes( buffer, 0, count );
+			remaining -= count;
+		}
+	}
+
+	@Override
+	public void write( int b ) throws IOException {
+		single[ 0 ] = ( byte ) b;
+		write( single, 0, 1 );
+	}
+
+	@Override
+	public void write( byte [] b, int off, int len ) throws IOException {
+		if ( entry == null ) {
+			throw new IOException( "No current zip entry" );
+		}
+		if ( len == 0 ) {
+			return;
+		}
+		crc.update( b, off, len );
+		entry.size += len;
+		if ( entry.size > ZIP64_LIMIT ) {
+			throw tooLarge();
+		}
+		if ( executor == null ) {
+			Deflater deflater = deflater();
+			deflater.setInput( b, off, len );
+			while ( !deflater.needsInput() ) {
+				writeDeflated( deflater.deflate( deflated, 0, deflated.length, Deflater.NO_FLUSH ) );
+			}
+		} else {
+			while ( len > 0 ) {
+				if ( block == null ) {
+					this.block = new byte[ BLOCK_SIZE ];
+				}
+				int count = Math.min( len, BLOCK_SIZE - blockSize );
+				System.arraycopy( b, off, block, blockSize, count );
+				this.blockSize += count;
+				off += count;
+				len -= count;
+				if ( blockSize == BLOCK_SIZE ) {
+					submitBlock( false, false );
+				}
+			}
+		}
+	}
+
+	void closeEntry() throws IOException {
+		if ( entry == null ) {
+			return;
+		}
+		if ( executor == null ) {
+			Deflater deflater = deflater();
+			deflater.finish();
+			while ( !deflater.finished() ) {
+				writeDeflated( deflater.deflate( deflated ) );
+			}
+			deflater.reset();
+		} else {
+			submitBlock( true, true );
+			while ( !pending.isEmpty() ) {
+				writeNextBlock();
+			}
+		}
+		if ( entry.compressedSize > ZIP64_LIMIT ) {
+			throw tooLarge();
+		}
+		entry.crc = entryCrc();
+		writeInt( 0x08074b50 );
+		writeInt( ( int ) entry.crc );
+		writeInt( ( int ) entry.compressedSize );
+		writeInt( ( int ) entry.size );
+		entries.add( entry );
+		this.entry = null;
+	}
+
+	/**
+	 * The local header of the entry declares no zip64, and most stream readers
+	 * expect 4-byte sizes in the data descriptor unless it does.
+	 */
+	private ZipException tooLarge() {
+		String name = new String( entry.name, StandardCharsets.UTF_8 );
+		return new ZipException( "Zip entry \"" + name + "\" exceeds 4 GB, split the rows into more sheets" );
+	}
+
+	/**
+	 * Write the central directory, the output stream is flushed but not closed.
+	 */
+	void finish() throws IOException {
+		closeEntry();
+		long offset = written;
+		for ( ZipEntry entry : entries ) {
+			boolean zip64 = entry.compressedSize > ZIP64_LIMIT || entry.size > ZIP64_LIMIT || entry.offset > ZIP64_LIMIT;
+			int version = zip64 ? 45 : 20;
+			int markLength = entry.mark == null ? 0 : 4 + entry.mark.length;
+			writeInt( 0x02014b50 );
+			writeShort( version ); // Version made by
+			writeShort( version ); // Version needed to extract
+			writeShort( entry.flags );
+			writeShort( entry.method );
+			writeInt( entry.time );
+			writeInt( ( int ) entry.crc );
+			writeInt( zip64 ? -1 : ( int ) entry.compressedSize );
+			writeInt( zip64 ? -1 : ( int ) entry.size );
+			writeShort( entry.name.length );
+			writeShort( ( zip64 ? 28 : 0 ) + markLength );
+			writeShort( 0 ); // Comment length
+			writeShort( 0 ); // Disk number
+			writeShort( 0 ); // Internal attributes
+			writeInt( 0 ); // External attributes
+			writeInt( zip64 ? -1 : ( int ) entry.offset );
+			writeBytes( entry.name, 0, entry.name.length );
+			if ( zip64 ) {
+				writeShort( 0x0001 );
+				writeShort( 24 );
+				writeLong( entry.size );
+				writeLong( entry.compressedSize );
+				writeLong( entry.offset );
+			}
+			if ( entry.mark != null ) {
+				writeShort( MARK_EXTRA_ID );
+				writeShort( entry.mark.length );
+				writeBytes( entry.mark, 0, entry.mark.length );
+			}
+		}
+		long size = written - offset;
+		int count = entries.size();
+		if ( count > 0xFFFF || offset > ZIP64_LIMIT || size > ZIP64_LIMIT ) {
+			long record = written;
+			writeInt( 0x06064b50 );
+			writeLong( 44 );
+			writeShort( 45 );
+			writeShort( 45 );
+			writeInt( 0 );
+			writeInt( 0 );
+			writeLong( count );
+			writeLong( count );
+			writeLong( size );
+			writeLong( offset );
+			writeInt( 0x07064b50 );
+			writeInt( 0 );
+			writeLong( record );
+			writeInt( 1 );
+		}
+		writeInt( 0x06054b50 );
+		writeShort( 0 );
+		writeShort( 0 );
+		writeShort( Math.min( count, 0xFFFF ) );
+		writeShort( Math.min( count, 0xFFFF ) );
+		writeInt( ( int ) Math.min( size, ZIP64_LIMIT ) );
+		writeInt( ( int ) Math.min( offset, ZIP64_LIMIT ) );
+		writeShort( 0 );
+		out.flush();
+		if ( deflater != null ) {
+			deflater.end();
+			this.deflater = null;
+		}
+	}
+
+	@Override
+	public void flush() {
+		// Nothing is written before the current block is complete
+	}
+
+	@Override
+	public void close() {
+		// The output stream is left open
+	}
+
+	private Deflater deflater() {
+		if ( deflater == null ) {
+			this.deflater = new Deflater( level, true );
+			this.deflated = new byte[ 1 << 16 ];
+		}
+		return deflater;
+	}
+
+	private void writeDeflated( int length ) throws IOException {
+		writeBytes( deflated, 0, length );
+		entry.compressedSize += length;
+	}
+
+	/**
+	 * @param last whether it is the last block of the entry
+	 * @param independent whether the next block is deflated without the
+	 *                    dictionary from this block
+	 */
+	private void submitBlock( boolean last, boolean independent ) throws IOException {
+		byte [] data = block == null ? new byte[ 0 ] : block;
+		int length = blockSize;
+		byte [] primer = dictionary;
+		this.dictionary = independent ? null : Arrays.copyOfRange( data, length - DICTIONARY_SIZE, length );
+		this.block = null;
+		this.blockSize = 0;
+		if ( pending.isEmpty() && last ) {
+			writeCompressed( deflateBlock( data, length, primer, true, level ) ); // Nothing to wait for
+			return;
+		}
+		pending.add( CompletableFuture.supplyAsync( () -> deflateBlock( data, length, primer, last, level ), executor ) );
+		if ( pending.size() >= MAX_PENDING_BLOCKS ) {
+			writeNextBlock();
+		}
+	}
+
+	private void writeNextBlock() throws IOException {
+		try {
+			writeCompressed( pending.poll().join() );
+		} catch ( CompletionException e ) {
+			pending.forEach( future -> future.cancel( false ) );
+			pending.clear();
+			throw new IOException( "Failed to deflate the zip entry", e.getCause() );
+		}
+	}
+
+	private long entryCrc() {
+		if ( continuedSize < 0 ) {
+			return crc.getValue();
+		}
+		return combine( continuedCrc, crc.getValue(), entry.size - continuedSize );
+	}
+
+	private static int toDosTime( LocalDateTime time ) {
+		if ( time.getYear() < 1980 ) {
+			return 1 << 21 | 1 << 16; // 1980-01-01 00:00:00
+		}
+		return ( time.getYear() - 1980 ) << 25 | time.getMonthValue() << 21 | time.getDayOfMonth() << 16
+				| time.getHour() << 11 | time.getMinute() << 5 | time.getSecond() >> 1;
+	}
+
+	/**
+	 * The checksum of two concatenated data, see <code>crc32_combine</code> of
+	 * zlib.
+	 */
+	static long combine( long crc1, long crc2, long length2 ) {
+		if ( length2 <= 0 ) {
+			return crc1;
+		}
+		long [] even = new long[ 32 ];
+		long [] odd = new long[ 32 ];
+		odd[ 0 ] = 0xEDB88320L; // CRC-32 polynomial
+		for ( int n = 1, row = 1; n < 32; n ++, row <<= 1 ) {
+			odd[ n ] = row & ZIP64_LIMIT;
+		}
+		square( even, odd ); // Two zero bits
+		square( odd, even ); // Four zero bits
+		do {
+			square( even, odd );
+			if ( ( length2 & 1 ) != 0 ) {
+				crc1 = times( even, crc1 );
+			}
+			length2 >>= 1;
+			if ( length2 == 0 ) {
+				break;
+			}
+			square( odd, even );
+			if ( ( length2 & 1 ) != 0 ) {
+				crc1 = times( odd, crc1 );
+			}
+			length2 >>= 1;
+		} while ( length2 != 0 );
+		return crc1 ^ crc2;
+	}
+
+	private static long times( long [] matrix, long vector ) {
+		long sum = 0;
+		for ( int i = 0; vector != 0; i ++, vector >>>= 1 ) {
+			if ( ( vector & 1 ) != 0 ) {
+				sum ^= matrix[ i ];
+			}
+		}
+		return sum;
+	}
+
+	private static void square( long [] square, long [] matrix ) {
+		for ( int n = 0; n < 32; n ++ ) {
+			square[ n ] = times( matrix, matrix[ n ] );
+		}
+	}
+
+	private void writeCompressed( byte [] compressed ) throws IOException {
+		writeBytes( compressed, 0, compressed.length );
+		entry.compressedSize += compressed.length;
+	}
+
+	private static byte [] deflateBlock( byte [] data, int length, byte [] dictionary, boolean last, int level ) {
+		Deflater deflater = new Deflater( level, true );
+		try {
+			if ( dictionary != null ) {
+				deflater.setDictionary( dictionary );
+			}
+			deflater.setInput( data, 0, length );
+			ByteArrayOutputStream compressed = new ByteArrayOutputStream( length / 4 + 64 );
+			byte [] buffer = new byte[ 1 << 16 ];
+			if ( last ) {
+				deflater.finish();
+				while ( !deflater.finished() ) {
+					compressed.write( buffer, 0, deflater.deflate( buffer ) );
+				}
+			} else {
+				// Sync flush ends the block on a byte boundary without the final bit
+				int count;
+				do {
+					count = deflater.deflate( buffer, 0, buffer.length, Deflater.SYNC_FLUSH );
+					compressed.write( buffer, 0, count );
+				} while ( count == buffer.length || !deflater.needsInput() );
+			}
+			return compressed.toByteArray();
+		} finally {
+			deflater.end();
+		}
+	}
+
+	private void writeBytes( byte [] b, int off, int len ) throws IOException {
+		out.write( b, off, len );
+		this.written += len;
+	}
+
+	private void writeShort( int value ) throws IOException {
+		out.write( value & 0xFF );
+		out.write( ( value >>> 8 ) & 0xFF );
+		this.written += 2;
+	}
+
+	private void writeInt( int value ) throws IOException {
+		writeShort( value & 0xFFFF );
+		writeShort( ( value >>> 16 ) & 0xFFFF );
+	}
+
+	private void writeLong( long value ) throws IOException {
+		writeInt( ( int ) value );
+		writeInt( ( int ) ( value >>> 32 ) );
+	}
+
+	private static final class ZipEntry {
+
+		private final byte [] name;
+		private final long offset;
+		private final int flags;
+		private final int method;
+		private final int time;
+		private long crc;
+		private long size;
+		private long compressedSize;
+		private byte [] mark;
+
+		private ZipEntry( byte [] name, long offset, int flags, int method, int time ) {
+			this.name = name;
+			this.offset = offset;
+			this.flags = flags;
+			this.method = method;
+			this.time = time;
+		}
+
+	}
+
+}
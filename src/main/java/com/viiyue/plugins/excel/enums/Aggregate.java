@@ -0,0 +1,56 @@
+/**
+ * Copyright (C) 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.plugins.excel.enums;
+
+/**
+ * Aggregate of a column, written into the footer rows of the sheet
+ *
+ * @author tangxbai
+ * @since 1.1.3
+ */
+public enum Aggregate {
+
+    /**
+     * The column is not aggregated.
+     */
+    NONE,
+
+    /**
+     * Sum of the numbers.
+     */
+    SUM,
+
+    /**
+     * Number of the values that are not <code>null</code>, of any type.
+     */
+    COUNT,
+
+    /**
+     * Least of the numbers.
+     */
+    MIN,
+
+    /**
+     * Greatest of the numbers.
+     */
+    MAX,
+
+    /**
+     * Mean of the numbers.
+     */
+    AVERAGE;
+
+}
@@ -0,0 +1,59 @@
+/**
+ * Copyright (C) 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.plugins.excel.enums;
+
+import java.util.zip.Deflater;
+
+/**
+ * Compression level of the <code>xlsx</code> parts
+ *
+ * @author tangxbai
+ * @since 1.1.3
+ */
+public enum Compression {
+
+    /**
+     * The default level of the deflater, a balance between speed and size.
+     */
+    DEFAULT( Deflater.DEFAULT_COMPRESSION ),
+
+    /**
+     * No compression, the parts are written as stored deflate blocks, the
+     * fastest but the largest output.
+     */
+    STORED( Deflater.NO_COMPRESSION ),
+
+    /**
+     * The fastest compression level.
+     */
+    FASTEST( Deflater.BEST_SPEED ),
+
+    /**
+     * The best compression level, the smallest but the slowest output.
+     */
+    BEST( Deflater.BEST_COMPRESSION );
+
+    private final int level;
+
+    private Compression( int level ) {
+        this.level = level;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+}
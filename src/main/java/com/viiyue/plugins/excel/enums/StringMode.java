@@ -0,0 +1,45 @@
+/**
+ * Copyright (C) 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.plugins.excel.enums;
+
+/**
+ * How the text cells are stored in <code>xlsx</code> files
+ *
+ * @author tangxbai
+ * @since 1.1.3
+ */
+public enum StringMode {
+
+    /**
+     * Inherit the workbook setting for cells, or the default behavior of the
+     * write mode for workbooks.
+     */
+    DEFAULT,
+
+    /**
+     * Store the text in the cell itself, which keeps no state in the writer,
+     * suitable for high-cardinality columns such as IDs.
+     */
+    INLINE,
+
+    /**
+     * Store the text in the shared strings table and reference it by index,
+     * repeated values are written only once, suitable for low-cardinality
+     * columns such as status values.
+     */
+    SHARED;
+
+}
@@ -0,0 +1,44 @@
+/**
+ * Copyright (C) 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.plugins.excel.enums;
+
+/**
+ * Excel write mode
+ *
+ * @author tangxbai
+ * @since 1.1.3
+ */
+public enum WriteMode {
+
+    /**
+     * Build the whole workbook in memory before writing it out.
+     */
+    MEMORY,
+
+    /**
+     * Keep only a window of rows in memory, rows outside of the window are
+     * flushed to a temporary file (<code>.xlsx</code> only).
+     */
+    STREAMING,
+
+    /**
+     * Serialize the sheet XML straight into the output stream without the
+     * <code>poi</code> usermodel, neither temporary files nor per-cell objects
+     * are kept (<code>.xlsx</code> only).
+     */
+    DIRECT;
+
+}
@@ -1,246 +1,471 @@
-/**
- * Copyright (C) 2022 the original author or authors.
- *
- * Licensed under the Apache License, Version 2.0 (the "License");
- * you may not use this file except in compliance with the License.
- * You may obtain a copy of the License at
- *
- *     http://www.apache.org/licenses/LICENSE-2.0
- *
- * Unless required by applicable law or agreed to in writing, software
- * distributed under the License is distributed on an "AS IS" BASIS,
- * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
- * See the License for the specific language governing permissions and
- * limitations under the License.
- */
-package com.viiyue.plugins.excel.metadata;
-
-import java.lang.reflect.Field;
-import java.lang.reflect.Method;
-import java.time.format.DateTimeFormatter;
-import java.time.temporal.TemporalAccessor;
-import java.util.Date;
-import java.util.Map;
-import java.util.Objects;
-
-import org.apache.commons.lang3.ArrayUtils;
-import org.apache.commons.lang3.ObjectUtils;
-import org.apache.commons.lang3.StringUtils;
-import org.apache.commons.lang3.time.FastDateFormat;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
-import com.viiyue.plugins.excel.common.Helper;
-import com.viiyue.plugins.excel.converter.ReadConverter;
-import com.viiyue.plugins.excel.converter.Styleable;
-import com.viiyue.plugins.excel.converter.WriteConverter;
-
-/**
- * Cell metadata wrapper
- *
- * @author tangxbai
- * @since 1.0.0
- */
-public class CellInfo<T> {
-
-	protected static final Logger log = LoggerFactory.getLogger( CellInfo.class );
-
-	private int index;
-	private int width;
-	private boolean widthAutoSize;
-	private boolean ignoreHeader;
-	private final String label;
-	private Styleable<T> styleable;
-	private ReadConverter reader;
-	private WriteConverter writer;
-
-	private String [] bools;
-	private String dateformat;
-
-	private Class<?> beanType;
-	private Field field;
-	private Class<?> fieldType;
-	private String fieldName;
-	private Method getter;
-	private Method setter;
-
-	private CellInfo( String label ) {
-		this.label = label;
-	}
-
-	public static final <T> CellInfo<T> newCell( String label ) {
-		return new CellInfo<T>( label );
-	}
-	
-	public static final CellInfo<Map<String,Object>> newMapCell( String label ) {
-		return new CellInfo<Map<String,Object>>( label );
-	}
-
-	public CellInfo<T> index( int index ) {
-		this.index = index;
-		return this;
-	}
-
-	public CellInfo<T> field( Class<?> beanType, Field field ) {
-		Objects.requireNonNull( field, "Excel cell field cannot be null" );
-		this.field = field;
-		this.fieldType = field.getType();
-		this.fieldName = field.getName();
-		this.beanType = beanType;
-		return this;
-	}
-
-	public CellInfo<T> widthAutoSize( boolean widthAutoSize ) {
-		this.widthAutoSize = widthAutoSize;
-		return this;
-	}
-
-	public CellInfo<T> ignoreHeader( boolean ignoreHeader ) {
-		this.ignoreHeader = ignoreHeader;
-		return this;
-	}
-
-	public CellInfo<T> width( int width ) {
-		this.width = width == 0 ? 0 : width * 256;
-		return this;
-	}
-
-	public CellInfo<T> setter( Method setter ) {
-		this.setter = setter;
-		return this;
-	}
-
-	public CellInfo<T> getter( Method getter ) {
-		this.getter = getter;
-		return this;
-	}
-
-	public CellInfo<T> reader( ReadConverter reader ) {
-		this.reader = reader;
-		return this;
-	}
-
-	public CellInfo<T> writer( WriteConverter writer ) {
-		this.writer = writer;
-		return this;
-	}
-
-	public CellInfo<T> styleable( Styleable<T> styleable ) {
-		this.styleable = styleable;
-		return this;
-	}
-
-	public CellInfo<T> bools( String ... bools ) {
-		this.bools = bools;
-		return this;
-	}
-	
-	public CellInfo<T> dateformat( String dateformat ) {
-		this.dateformat = dateformat;
-		return this;
-	}
-
-	public int getWidth() {
-		return width;
-	}
-
-	public int getIndex() {
-		return index;
-	}
-
-	public boolean isColumnAutoSize() {
-		return widthAutoSize;
-	}
-
-	public boolean isIgnoreHeader() {
-		return ignoreHeader;
-	}
-
-	public Styleable<T> getStyleable() {
-		return styleable;
-	}
-
-	public ReadConverter getReader() {
-		return reader;
-	}
-
-	public WriteConverter getWriter() {
-		return writer;
-	}
-
-	public Class<?> getBeanType() {
-		return beanType;
-	}
-
-	public Field getField() {
-		return field;
-	}
-
-	public Class<?> getFieldType() {
-		return fieldType;
-	}
-
-	public String getFieldName() {
-		return fieldName;
-	}
-
-	public String getDateformat() {
-		return this.dateformat;
-	}
-	
-	public boolean hasDateformat() {
-		return StringUtils.isNotEmpty( dateformat );
-	}
-	
-	public Object formatDate( Date date ) {
-		if ( date != null && hasDateformat() ) {
-			return FastDateFormat.getInstance( dateformat ).format( date );
-		}
-		return date;
-	}
-	
-	public Object formatTemporalAccessor( TemporalAccessor accessor ) {
-		if ( accessor != null && hasDateformat() ) {
-			return DateTimeFormatter.ofPattern( dateformat ).format( accessor );
-		}
-		return accessor;
-	}
-	
-	public boolean hasCustomBoolean() {
-		return ArrayUtils.isNotEmpty( bools );
-	}
-
-	public String getBoolean( int index ) {
-		return hasCustomBoolean() && ( index == 0 || index == 1 ) ? bools[ index ] : null;
-	}
-
-	public Boolean getBoolean( String value ) {
-		if ( StringUtils.isNotEmpty( value ) ) {
-			if ( Objects.equals( bools[ 0 ], value ) ) {
-				return Boolean.TRUE;
-			}
-			if ( Objects.equals( bools[ 1 ], value ) ) {
-				return Boolean.FALSE;
-			}
-		}
-		return null;
-	}
-
-	public String getBooleanValue( Object value ) {
-		value = ObjectUtils.defaultIfNull( value, Boolean.FALSE );
-		return ArrayUtils.isEmpty( bools ) ? value.toString() : bools[ ( Boolean ) value ? 0 : 1 ];
-	}
-
-	public String getLabel() {
-		return StringUtils.defaultIfEmpty( label, fieldName );
-	}
-
-	public void setFieldValue( Object instance, Object value ) {
-		Helper.setFieldValue( instance, setter, field, value );
-	}
-
-	public Object getFieldValue( Object instance ) {
-		return Helper.getFieldValue( instance, getter, field );
-	}
-
-}
+/**
+ * Copyright (C) 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.plugins.excel.metadata;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAccessor;
+import java.util.Date;
+import java.util.Map;
+import java.util.Objects;
+
+import org.apache.commons.lang3.ArrayUtils;
+import org.apache.commons.lang3.ObjectUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.time.FastDateFormat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.viiyue.plugins.excel.common.Fingerprint;
+import com.viiyue.plugins.excel.common.Helper;
+import com.viiyue.plugins.excel.converter.ReadConverter;
+import com.viiyue.plugins.excel.converter.Styleable;
+import com.viiyue.plugins.excel.converter.WriteConverter;
+import com.viiyue.plugins.excel.engine.ColumnWriter;
+import com.viiyue.plugins.excel.engine.ColumnWriters;
+import com.viiyue.plugins.excel.enums.Aggregate;
+import com.viiyue.plugins.excel.enums.StringMode;
+
+/**
+ * Cell metadata wrapper
+ *
+ * @author tangxbai
+ * @since 1.0.0
+ */
+public class CellInfo<T> {
+
+	protected static final Logger log = LoggerFactory.getLogger( CellInfo.class );
+
+	private int index;
+	private int width;
+	private boolean widthAutoSize;
+	private boolean ignoreHeader;
+	private StringMode stringMode;
+	private Aggregate aggregate;
+	private final String label;
+	private Styleable<T> styleable;
+	private ReadConverter reader;
+	private WriteConverter writer;
+
+	private String [] bools;
+	private String dateformat;
+	private boolean dateCell;
+	private String excelDateformat;
+	private volatile FastDateFormat dateFormatter;
+	private volatile DateTimeFormatter temporalFormatter;
+
+	private Class<?> beanType;
+	private Field field;
+	private Class<?> fieldType;
+	private String fieldName;
+	private Method getter;
+	private Method setter;
+	private volatile ColumnWriter columnWriter;
+
+	private CellInfo( String label ) {
+		this.label = label;
+	}
+
+	public static final <T> CellInfo<T> newCell( String label ) {
+		return new CellInfo<T>( label );
+	}
+	
+	public static final CellInfo<Map<String,Object>> newMapCell( String label ) {
+		return new CellInfo<Map<String,Object>>( label );
+	}
+
+	public CellInfo<T> index( int index ) {
+		this.index = index;
+		return this;
+	}
+
+	public CellInfo<T> field( Class<?> beanType, Field field ) {
+		Objects.requireNonNull( field, "Excel cell field cannot be null" );
+		this.field = field;
+		this.fieldType = field.getType();
+		this.fieldName = field.getName();
+		this.beanType = beanType;
+		this.columnWriter = null;
+		return this;
+	}
+
+	public CellInfo<T> widthAutoSize( boolean widthAutoSize ) {
+		this.widthAutoSize = widthAutoSize;
+		return this;
+	}
+
+	public CellInfo<T> stringMode( StringMode stringMode ) {
+		this.stringMode = stringMode;
+		return this;
+	}
+
+	public CellInfo<T> ignoreHeader( boolean ignoreHeader ) {
+		this.ignoreHeader = ignoreHeader;
+		return this;
+	}
+
+	public CellInfo<T> width( int width ) {
+		this.width = width == 0 ? 0 : width * 256;
+		return this;
+	}
+
+	public CellInfo<T> setter( Method setter ) {
+		this.setter = setter;
+		return this;
+	}
+
+	public CellInfo<T> getter( Method getter ) {
+		this.getter = getter;
+		return this;
+	}
+
+	public CellInfo<T> reader( ReadConverter reader ) {
+		this.reader = reader;
+		return this;
+	}
+
+	public CellInfo<T> writer( WriteConverter writer ) {
+		this.writer = writer;
+		this.columnWriter = null;
+		return this;
+	}
+
+	public CellInfo<T> styleable( Styleable<T> styleable ) {
+		this.styleable = styleable;
+		return this;
+	}
+
+	public CellInfo<T> bools( String ... bools ) {
+		this.bools = bools;
+		this.columnWriter = null;
+		return this;
+	}
+	
+	public CellInfo<T> dateformat( String dateformat ) {
+		this.dateformat = dateformat;
+		this.dateFormatter = null;
+		this.temporalFormatter = null;
+		this.excelDateformat = hasDateformat() ? toExcelDateformat( dateformat ) : null;
+		this.columnWriter = null;
+		checkDateCell();
+		return this;
+	}
+
+	/**
+	 * Write the dates as numeric date cells in the date format, instead of the
+	 * formatted text, so that they can be sorted and filtered as dates.
+	 */
+	public CellInfo<T> dateCell( boolean dateCell ) {
+		this.dateCell = dateCell;
+		this.columnWriter = null;
+		checkDateCell();
+		return this;
+	}
+
+	/**
+	 * Aggregate the column into the footer rows of the sheet
+	 */
+	public CellInfo<T> aggregate( Aggregate aggregate ) {
+		this.aggregate = aggregate;
+		return this;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getIndex() {
+		return index;
+	}
+
+	public boolean isColumnAutoSize() {
+		return widthAutoSize;
+	}
+
+	public StringMode getStringMode() {
+		return stringMode == null ? StringMode.DEFAULT : stringMode;
+	}
+
+	public Aggregate getAggregate() {
+		return aggregate == null ? Aggregate.NONE : aggregate;
+	}
+
+	public boolean isIgnoreHeader() {
+		return ignoreHeader;
+	}
+
+	public Styleable<T> getStyleable() {
+		return styleable;
+	}
+
+	public ReadConverter getReader() {
+		return reader;
+	}
+
+	public WriteConverter getWriter() {
+		return writer;
+	}
+
+	public Class<?> getBeanType() {
+		return beanType;
+	}
+
+	public Field getField() {
+		return field;
+	}
+
+	public Class<?> getFieldType() {
+		return fieldType;
+	}
+
+	public String getFieldName() {
+		return fieldName;
+	}
+
+	/**
+	 * @return the value writer compiled by the field type, which is compiled by
+	 *         the value type if the field type is unknown
+	 */
+	public ColumnWriter getColumnWriter() {
+		ColumnWriter columnWriter = this.columnWriter;
+		if ( columnWriter == null ) {
+			this.columnWriter = columnWriter = ColumnWriters.compile( this, fieldType );
+		}
+		return columnWriter;
+	}
+
+	public String getDateformat() {
+		return this.dateformat;
+	}
+	
+	public boolean hasDateformat() {
+		return StringUtils.isNotEmpty( dateformat );
+	}
+
+	/**
+	 * @return whether the dates are written as numeric date cells, which needs
+	 *         a date format that can be expressed as an Excel number format
+	 */
+	public boolean isDateCell() {
+		return dateCell && excelDateformat != null;
+	}
+
+	/**
+	 * @return the date format as an Excel number format, or <code>null</code>
+	 *         if it has no Excel equivalent
+	 */
+	public String getExcelDateformat() {
+		return excelDateformat;
+	}
+
+	/**
+	 * @return the formatter of the date format, which is compiled only once
+	 */
+	public FastDateFormat getDateFormatter() {
+		FastDateFormat formatter = this.dateFormatter;
+		if ( formatter == null ) {
+			this.dateFormatter = formatter = FastDateFormat.getInstance( dateformat );
+		}
+		return formatter;
+	}
+
+	/**
+	 * @return the formatter of the date format, which is compiled only once
+	 */
+	public DateTimeFormatter getTemporalFormatter() {
+		DateTimeFormatter formatter = this.temporalFormatter;
+		if ( formatter == null ) {
+			this.temporalFormatter = formatter = DateTimeFormatter.ofPattern( dateformat );
+		}
+		return formatter;
+	}
+	
+	public Object formatDate( Date date ) {
+		if ( date != null && hasDateformat() ) {
+			return getDateFormatter().format( date );
+		}
+		return date;
+	}
+	
+	public Object formatTemporalAccessor( TemporalAccessor accessor ) {
+		if ( accessor != null && hasDateformat() ) {
+			return getTemporalFormatter().format( accessor );
+		}
+		return accessor;
+	}
+	
+	public boolean hasCustomBoolean() {
+		return ArrayUtils.isNotEmpty( bools );
+	}
+
+	public String getBoolean( int index ) {
+		return hasCustomBoolean() && ( index == 0 || index == 1 ) ? bools[ index ] : null;
+	}
+
+	public Boolean getBoolean( String value ) {
+		if ( StringUtils.isNotEmpty( value ) ) {
+			if ( Objects.equals( bools[ 0 ], value ) ) {
+				return Boolean.TRUE;
+			}
+			if ( Objects.equals( bools[ 1 ], value ) ) {
+				return Boolean.FALSE;
+			}
+		}
+		return null;
+	}
+
+	public String getBooleanValue( Object value ) {
+		value = ObjectUtils.defaultIfNull( value, Boolean.FALSE );
+		return ArrayUtils.isEmpty( bools ) ? value.toString() : bools[ ( Boolean ) value ? 0 : 1 ];
+	}
+
+	public String getLabel() {
+		return StringUtils.defaultIfEmpty( label, fieldName );
+	}
+
+	/**
+	 * Digest the settings of the cell that decide how its values are written,
+	 * the converters and styleables by their classes and fields.
+	 *
+	 * @param fingerprint the fingerprint of the workbook
+	 * @return the fingerprint itself
+	 */
+	public Fingerprint fingerprint( Fingerprint fingerprint ) {
+		fingerprint.add( getLabel() ).add( fieldName ).add( fieldType == null ? null : fieldType.getName() );
+		fingerprint.add( index ).add( width ).add( widthAutoSize ).add( ignoreHeader );
+		fingerprint.add( getStringMode() ).add( getAggregate() ).add( bools ).add( dateformat ).add( dateCell );
+		return fingerprint.addSetting( styleable ).addSetting( writer );
+	}
+
+	public void setFieldValue( Object instance, Object value ) {
+		Helper.setFieldValue( instance, setter, field, value );
+	}
+
+	public Object getFieldValue( Object instance ) {
+		return Helper.getFieldValue( instance, getter, field );
+	}
+
+	private void checkDateCell() {
+		if ( dateCell && hasDateformat() && excelDateformat == null ) {
+			log.warn( "Date format \"{}\" of \"{}\" has no Excel equivalent, the dates are written as text", dateformat, getLabel() );
+		}
+	}
+
+	/**
+	 * Convert the pattern of {@link DateTimeFormatter} to the Excel number
+	 * format, the month and minute are both written as <code>m</code> and told
+	 * apart by Excel from the hour and second next to them.
+	 *
+	 * @return the number format, or <code>null</code> if the pattern has fields
+	 *         that cannot be displayed by Excel, such as the time zone
+	 */
+	private static String toExcelDateformat( String pattern ) {
+		StringBuilder format = new StringBuilder( pattern.length() + 8 );
+		for ( int i = 0, s = pattern.length(); i < s; ) {
+			char c = pattern.charAt( i );
+			if ( c == '\'' ) {
+				StringBuilder text = new StringBuilder();
+				int end = i + 1;
+				for ( ; end < s; end ++ ) {
+					if ( pattern.charAt( end ) == '\'' ) {
+						if ( end + 1 < s && pattern.charAt( end + 1 ) == '\'' ) {
+							end ++; // Escaped quote
+						} else {
+							break;
+						}
+					}
+					text.append( pattern.charAt( end ) );
+				}
+				if ( end == i + 1 ) {
+					text.append( '\'' ); // Two quotes outside the quoted text
+				}
+				if ( text.indexOf( "\"" ) >= 0 ) {
+					return null;
+				}
+				appendText( format, text );
+				i = end + 1;
+				continue;
+			}
+			int count = 1;
+			while ( i + count < s && pattern.charAt( i + count ) == c ) {
+				count ++;
+			}
+			i += count;
+			switch ( c ) {
+				case 'y':
+				case 'u':
+					format.append( count == 2 ? "yy" : "yyyy" );
+					break;
+				case 'M':
+				case 'L':
+					format.append( StringUtils.repeat( 'm', Math.min( count, 4 ) ) );
+					break;
+				case 'd':
+					format.append( count == 1 ? "d" : "dd" );
+					break;
+				case 'E':
+					format.append( count <= 3 ? "ddd" : "dddd" );
+					break;
+				case 'H':
+				case 'h':
+				case 'k':
+				case 'K':
+					format.append( count == 1 ? "h" : "hh" );
+					break;
+				case 'm':
+					format.append( count == 1 ? "m" : "mm" );
+					break;
+				case 's':
+					format.append( count == 1 ? "s" : "ss" );
+					break;
+				case 'S':
+					if ( count > 3 ) {
+						return null;
+					}
+					format.append( StringUtils.repeat( '0', count ) );
+					break;
+				case 'a':
+					format.append( "AM/PM" );
+					break;
+				default:
+					if ( ( c >= 'a' && c <= 'z' ) || ( c >= 'A' && c <= 'Z' ) || c == '"' ) {
+						return null;
+					}
+					String text = StringUtils.repeat( c, count );
+					if ( " -/:.,()".indexOf( c ) < 0 ) {
+						appendText( format, text );
+					} else {
+						format.append( text );
+					}
+			}
+		}
+		return format.toString();
+	}
+
+	/**
+	 * Append the text in quotes, or into the quoted text right before it
+	 */
+	private static void appendText( StringBuilder format, CharSequence text ) {
+		int length = format.length();
+		if ( length > 0 && format.charAt( length - 1 ) == '"' ) {
+			format.insert( length - 1, text );
+		} else {
+			format.append( '"' ).append( text ).append( '"' );
+		}
+	}
+
+}
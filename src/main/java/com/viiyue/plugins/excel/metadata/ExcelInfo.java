@@ -1,150 +1,344 @@
-/**
- * Copyright (C) 2022 the original author or authors.
- *
- * Licensed under the Apache License, Version 2.0 (the "License");
- * you may not use this file except in compliance with the License.
- * You may obtain a copy of the License at
- *
- *     http://www.apache.org/licenses/LICENSE-2.0
- *
- * Unless required by applicable law or agreed to in writing, software
- * distributed under the License is distributed on an "AS IS" BASIS,
- * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
- * See the License for the specific language governing permissions and
- * limitations under the License.
- */
-package com.viiyue.plugins.excel.metadata;
-
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-
-import org.apache.commons.collections4.CollectionUtils;
-import org.apache.commons.lang3.StringUtils;
-
-import com.viiyue.plugins.excel.converter.ReadConverter;
-import com.viiyue.plugins.excel.converter.Styleable;
-import com.viiyue.plugins.excel.converter.WriteConverter;
-
-/**
- * Bean root metadata wraper
- *
- * @author tangxbai
- * @since 1.0.0
- * @param <T>
- */
-public class ExcelInfo<T> {
-
-    private int headerIndex;
-    private int startIndex;
-    private int cellHeight;
-    private boolean strip;
-    private Styleable<T> styleable;
-    private ReadConverter reader;
-    private WriteConverter writer;
-    private List<CellInfo<T>> cells;
-    private Map<String, CellInfo<T>> mappings;
-
-    protected ExcelInfo() {}
-
-    public static final <T> ExcelInfo<T> ofBean() {
-        return new ExcelInfo<T>();
-    }
-
-    public static final ExcelInfo<Map<String, Object>> ofMap() {
-        return new ExcelInfo<Map<String, Object>>();
-    }
-
-    public ExcelInfo<T> headerIndex( int index ) {
-        this.headerIndex = index;
-        return this;
-    }
-
-    public ExcelInfo<T> strip( boolean strip ) {
-        this.strip = strip;
-        return this;
-    }
-
-    public ExcelInfo<T> cellHeight( int cellHeight ) {
-        this.cellHeight = cellHeight;
-        return this;
-    }
-
-    public ExcelInfo<T> reader( ReadConverter reader ) {
-        this.reader = reader;
-        return this;
-    }
-
-    public ExcelInfo<T> writer( WriteConverter writer ) {
-        this.writer = writer;
-        return this;
-    }
-
-    public ExcelInfo<T> styleable( Styleable<T> styleable ) {
-        this.styleable = styleable;
-        return this;
-    }
-
-    public ExcelInfo<T> startIndex( int index ) {
-        this.startIndex = index;
-        return this;
-    }
-
-    public ExcelInfo<T> addCell( CellInfo<T> cell ) {
-        if ( cell != null ) {
-            if ( this.cells == null ) {
-                this.cells = new ArrayList<CellInfo<T>>();
-                this.mappings = new HashMap<String, CellInfo<T>>();
-            }
-            if ( cell.getReader() == null ) {
-                cell.reader( reader );
-            }
-            if ( cell.getWriter() == null ) {
-                cell.writer( writer );
-            }
-            if ( cell.getStyleable() == null ) {
-                cell.styleable( styleable );
-            }
-            this.cells.add( cell );
-            this.mappings.put( cell.getLabel(), cell );
-        }
-        return this;
-    }
-
-    public ExcelInfo<T> cells( String ... labels ) {
-        for ( String label : labels ) {
-            addCell( CellInfo.newCell( label ) );
-        }
-        return this;
-    }
-
-    public CellInfo<T> getByLabel( String label ) {
-        return mappings == null ? null : mappings.get( strip ? StringUtils.strip( label ) : label );
-    }
-
-    public List<CellInfo<T>> getCells() {
-        return cells;
-    }
-
-    public boolean hasCells() {
-        return CollectionUtils.isNotEmpty( cells );
-    }
-
-    public Styleable<T> getStyleable() {
-        return styleable;
-    }
-
-    public int getHeaderIndex() {
-        return headerIndex;
-    }
-
-    public int getStartIndex() {
-        return startIndex == 0 ? headerIndex + 1 : startIndex;
-    }
-
-    public int getCellHeight() {
-        return this.cellHeight;
-    }
-
-}
+/**
+ * Copyright (C) 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.plugins.excel.metadata;
+
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.lang3.StringUtils;
+
+import com.viiyue.plugins.excel.common.Fingerprint;
+import com.viiyue.plugins.excel.converter.ReadConverter;
+import com.viiyue.plugins.excel.converter.Styleable;
+import com.viiyue.plugins.excel.converter.WriteConverter;
+import com.viiyue.plugins.excel.enums.StringMode;
+import com.viiyue.plugins.excel.enums.WriteMode;
+
+/**
+ * Bean root metadata wraper
+ *
+ * @author tangxbai
+ * @since 1.0.0
+ * @param <T>
+ */
+public class ExcelInfo<T> {
+
+    private int headerIndex;
+    private int startIndex;
+    private int cellHeight;
+    private boolean strip;
+    private int windowSize;
+    private int autoSizeSampleRows;
+    private int sharedStringsCacheSize = 4096;
+    private String groupBy;
+    private String totalLabel = "Total";
+    private String banding;
+    private List<Highlight> highlights;
+    private StringMode stringMode;
+    private WriteMode mode;
+    private Styleable<T> styleable;
+    private ReadConverter reader;
+    private WriteConverter writer;
+    private List<CellInfo<T>> cells;
+    private Map<String, CellInfo<T>> mappings;
+
+    protected ExcelInfo() {}
+
+    public static final <T> ExcelInfo<T> ofBean() {
+        return new ExcelInfo<T>();
+    }
+
+    public static final ExcelInfo<Map<String, Object>> ofMap() {
+        return new ExcelInfo<Map<String, Object>>();
+    }
+
+    /**
+     * Cells of the result set columns in order, labeled by the column labels,
+     * the date and time columns are written as native date cells.
+     *
+     * @param metadata the metadata of the result set
+     * @return the metadata of the cells
+     * @throws SQLException if the metadata cannot be read
+     * @see com.viiyue.plugins.excel.common.ResultSetSource
+     */
+    public static final ExcelInfo<Map<String, Object>> ofResultSet( ResultSetMetaData metadata ) throws SQLException {
+        ExcelInfo<Map<String, Object>> info = ofMap();
+        for ( int column = 1, count = metadata.getColumnCount(); column <= count; column ++ ) {
+            CellInfo<Map<String, Object>> cell = CellInfo.newMapCell( metadata.getColumnLabel( column ) );
+            switch ( metadata.getColumnType( column ) ) {
+                case Types.DATE:
+                    cell.dateformat( "yyyy-MM-dd" ).dateCell( true );
+                    break;
+                case Types.TIME:
+                    cell.dateformat( "HH:mm:ss" ).dateCell( true );
+                    break;
+                case Types.TIMESTAMP:
+                    cell.dateformat( "yyyy-MM-dd HH:mm:ss" ).dateCell( true );
+                    break;
+                default:
+                    break;
+            }
+            info.addCell( cell );
+        }
+        return info;
+    }
+
+    public ExcelInfo<T> headerIndex( int index ) {
+        this.headerIndex = index;
+        return this;
+    }
+
+    public ExcelInfo<T> strip( boolean strip ) {
+        this.strip = strip;
+        return this;
+    }
+
+    public ExcelInfo<T> cellHeight( int cellHeight ) {
+        this.cellHeight = cellHeight;
+        return this;
+    }
+
+    public ExcelInfo<T> mode( WriteMode mode ) {
+        this.mode = mode;
+        return this;
+    }
+
+    public ExcelInfo<T> windowSize( int windowSize ) {
+        this.windowSize = windowSize;
+        return this;
+    }
+
+    public ExcelInfo<T> autoSizeSampleRows( int autoSizeSampleRows ) {
+        this.autoSizeSampleRows = autoSizeSampleRows;
+        return this;
+    }
+
+    public ExcelInfo<T> stringMode( StringMode stringMode ) {
+        this.stringMode = stringMode;
+        return this;
+    }
+
+    public ExcelInfo<T> sharedStringsCacheSize( int sharedStringsCacheSize ) {
+        this.sharedStringsCacheSize = sharedStringsCacheSize;
+        return this;
+    }
+
+    /**
+     * @param label the label of the cell grouping the consecutive rows of the
+     *              same value for the subtotal rows
+     */
+    public ExcelInfo<T> groupBy( String label ) {
+        this.groupBy = label;
+        return this;
+    }
+
+    public ExcelInfo<T> totalLabel( String totalLabel ) {
+        this.totalLabel = totalLabel;
+        return this;
+    }
+
+    /**
+     * @param color the fill color of the even data rows, such as
+     *              <code>#F5F5F5</code>, written as a conditional formatting
+     *              rule of the sheet instead of the cell styles, so that the
+     *              stripes stay right after the rows are sorted or filtered
+     */
+    public ExcelInfo<T> banding( String color ) {
+        this.banding = color;
+        return this;
+    }
+
+    /**
+     * Fill the cells of the label whose values meet the condition, the
+     * highlights are written as conditional formatting rules of the sheet and
+     * take precedence over the banding in the order they are declared.
+     *
+     * @param label the label of the cell
+     * @param condition the comparison appended to the cell reference, such as
+     *                  <code>&lt;0</code>, <code>&gt;=1000</code> or
+     *                  <code>="FAILED"</code>
+     * @param color the fill color
+     */
+    public ExcelInfo<T> highlight( String label, String condition, String color ) {
+        return addHighlight( new Highlight( label, condition, color, false ) );
+    }
+
+    /**
+     * Same as {@link #highlight(String, String, String)}, but the whole row is
+     * filled when the cell of the label meets the condition.
+     */
+    public ExcelInfo<T> highlightRow( String label, String condition, String color ) {
+        return addHighlight( new Highlight( label, condition, color, true ) );
+    }
+
+    public ExcelInfo<T> reader( ReadConverter reader ) {
+        this.reader = reader;
+        return this;
+    }
+
+    public ExcelInfo<T> writer( WriteConverter writer ) {
+        this.writer = writer;
+        return this;
+    }
+
+    public ExcelInfo<T> styleable( Styleable<T> styleable ) {
+        this.styleable = styleable;
+        return this;
+    }
+
+    public ExcelInfo<T> startIndex( int index ) {
+        this.startIndex = index;
+        return this;
+    }
+
+    public ExcelInfo<T> addCell( CellInfo<T> cell ) {
+        if ( cell != null ) {
+            if ( this.cells == null ) {
+                this.cells = new ArrayList<CellInfo<T>>();
+                this.mappings = new HashMap<String, CellInfo<T>>();
+            }
+            if ( cell.getReader() == null ) {
+                cell.reader( reader );
+            }
+            if ( cell.getWriter() == null ) {
+                cell.writer( writer );
+            }
+            if ( cell.getStyleable() == null ) {
+                cell.styleable( styleable );
+            }
+            this.cells.add( cell );
+            this.mappings.put( cell.getLabel(), cell );
+        }
+        return this;
+    }
+
+    public ExcelInfo<T> cells( String ... labels ) {
+        for ( String label : labels ) {
+            addCell( CellInfo.newCell( label ) );
+        }
+        return this;
+    }
+
+    public CellInfo<T> getByLabel( String label ) {
+        return mappings == null ? null : mappings.get( strip ? StringUtils.strip( label ) : label );
+    }
+
+    public List<CellInfo<T>> getCells() {
+        return cells;
+    }
+
+    public boolean hasCells() {
+        return CollectionUtils.isNotEmpty( cells );
+    }
+
+    public Styleable<T> getStyleable() {
+        return styleable;
+    }
+
+    public int getHeaderIndex() {
+        return headerIndex;
+    }
+
+    public int getStartIndex() {
+        return startIndex == 0 ? headerIndex + 1 : startIndex;
+    }
+
+    public int getCellHeight() {
+        return this.cellHeight;
+    }
+
+    public WriteMode getMode() {
+        return mode == null ? WriteMode.MEMORY : mode;
+    }
+
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    public int getAutoSizeSampleRows() {
+        return autoSizeSampleRows;
+    }
+
+    public StringMode getStringMode() {
+        return stringMode == null ? StringMode.DEFAULT : stringMode;
+    }
+
+    public int getSharedStringsCacheSize() {
+        return sharedStringsCacheSize;
+    }
+
+    public String getGroupBy() {
+        return StringUtils.isEmpty( groupBy ) ? null : groupBy;
+    }
+
+    public String getTotalLabel() {
+        return totalLabel;
+    }
+
+    public String getBanding() {
+        return StringUtils.isEmpty( banding ) ? null : banding;
+    }
+
+    public List<Highlight> getHighlights() {
+        return highlights == null ? Collections.emptyList() : highlights;
+    }
+
+    /**
+     * @return whether any conditional formatting rule is declared
+     */
+    public boolean isFormattedConditionally() {
+        return getBanding() != null || highlights != null;
+    }
+
+    private ExcelInfo<T> addHighlight( Highlight highlight ) {
+        if ( highlights == null ) {
+            this.highlights = new ArrayList<Highlight>();
+        }
+        highlights.add( highlight );
+        return this;
+    }
+
+    /**
+     * Digest the settings and the cells that decide how the workbook is
+     * written, the converters and styleables by their classes and fields.
+     *
+     * @param fingerprint the fingerprint of the workbook
+     * @return the fingerprint itself
+     */
+    public Fingerprint fingerprint( Fingerprint fingerprint ) {
+        fingerprint.add( getHeaderIndex() ).add( getStartIndex() ).add( cellHeight ).add( autoSizeSampleRows );
+        fingerprint.add( sharedStringsCacheSize ).add( getStringMode() ).add( getGroupBy() ).add( totalLabel );
+        fingerprint.add( getBanding() ).add( getHighlights().size() );
+        for ( Highlight highlight : getHighlights() ) {
+            fingerprint.add( highlight.getLabel() ).add( highlight.getCondition() ).add( highlight.getColor() ).add( highlight.isWholeRow() );
+        }
+        fingerprint.addSetting( styleable ).addSetting( writer ).add( cells == null ? 0 : cells.size() );
+        if ( cells != null ) {
+            for ( CellInfo<T> cell : cells ) {
+                cell.fingerprint( fingerprint );
+            }
+        }
+        return fingerprint;
+    }
+
+}
@@ -0,0 +1,71 @@
+/**
+ * Copyright (C) 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.plugins.excel.metadata;
+
+import java.util.Objects;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Value highlight of a cell, written as a conditional formatting rule of the
+ * sheet, see {@link ExcelInfo#highlight(String, String, String)}.
+ *
+ * @author tangxbai
+ * @since 1.1.3
+ */
+public final class Highlight {
+
+    private final String label;
+    private final String condition;
+    private final String color;
+    private final boolean wholeRow;
+
+    Highlight( String label, String condition, String color, boolean wholeRow ) {
+        Objects.requireNonNull( label, "The highlighted label cannot be null" );
+        Objects.requireNonNull( color, "The highlight color cannot be null" );
+        if ( StringUtils.isEmpty( condition ) || "=<>".indexOf( condition.charAt( 0 ) ) < 0 ) {
+            throw new IllegalArgumentException( "The highlight condition must start with a comparison operator, such as \"<0\"" );
+        }
+        this.label = label;
+        this.condition = condition;
+        this.color = color;
+        this.wholeRow = wholeRow;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * @return the comparison appended to the cell reference, such as
+     *         <code>&lt;0</code> or <code>="FAILED"</code>
+     */
+    public String getCondition() {
+        return condition;
+    }
+
+    public String getColor() {
+        return color;
+    }
+
+    /**
+     * @return whether the whole row is highlighted instead of the cell
+     */
+    public boolean isWholeRow() {
+        return wholeRow;
+    }
+
+}
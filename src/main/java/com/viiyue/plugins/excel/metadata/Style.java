@@ -1,251 +1,262 @@
-/**
- * Copyright (C) 2022 the original author or authors.
- *
- * Licensed under the Apache License, Version 2.0 (the "License");
- * you may not use this file except in compliance with the License.
- * You may obtain a copy of the License at
- *
- *     http://www.apache.org/licenses/LICENSE-2.0
- *
- * Unless required by applicable law or agreed to in writing, software
- * distributed under the License is distributed on an "AS IS" BASIS,
- * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
- * See the License for the specific language governing permissions and
- * limitations under the License.
- */
-package com.viiyue.plugins.excel.metadata;
-
-import java.awt.Color;
-import java.util.Objects;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.ThreadLocalRandom;
-import java.util.function.Predicate;
-
-import org.apache.commons.lang3.StringUtils;
-import org.apache.poi.hssf.usermodel.HSSFPalette;
-import org.apache.poi.hssf.usermodel.HSSFWorkbook;
-import org.apache.poi.ss.usermodel.BorderStyle;
-import org.apache.poi.ss.usermodel.Cell;
-import org.apache.poi.ss.usermodel.CellStyle;
-import org.apache.poi.ss.usermodel.FillPatternType;
-import org.apache.poi.ss.usermodel.Font;
-import org.apache.poi.ss.usermodel.IndexedColors;
-import org.apache.poi.ss.usermodel.Workbook;
-import org.apache.poi.xssf.model.StylesTable;
-import org.apache.poi.xssf.usermodel.XSSFCellStyle;
-import org.apache.poi.xssf.usermodel.XSSFColor;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
-import com.viiyue.plugins.excel.converter.Styleable;
-import com.viiyue.plugins.excel.enums.Alignment;
-
-/**
- * Cell beautification style
- *
- * @author tangxbai
- * @since 1.0.0
- */
-public class Style {
-
-	private static final Logger LOG = LoggerFactory.getLogger( Styleable.class );
-
-	private static final int COLOR_BEGIN = 8;
-	private static final int COLOR_BOUND = IndexedColors.values().length - 1; // 64
-	private static final int COLOR_SIZE = COLOR_BOUND - COLOR_BEGIN; // 56 colors
-	private static final ConcurrentMap<String, Font> FONTS = new ConcurrentHashMap<>( 128 );
-	private static final ConcurrentMap<String, Short> COLORS = new ConcurrentHashMap<>( 128 );
-	private static final ConcurrentMap<String, Style> INSTANCES = new ConcurrentHashMap<>( 128 );
-
-	private final Workbook wb;
-	private final CellStyle style;
-	private final boolean isXssf;
-	private final boolean isHssf;
-	private final String namespace;
-
-	private static final String getCacheKey( Workbook wb, String cacheKey ) {
-		return Integer.toHexString( wb.hashCode() ) + ":" + cacheKey;
-	}
-
-	public static final void clear( Workbook wb ) {
-		Objects.requireNonNull( wb, "Workbook object cannot be null" );
-		String cachePrefix = getCacheKey( wb, "" );
-		Predicate<String> predicate = key -> StringUtils.startsWith( key, cachePrefix );
-		FONTS.keySet().removeIf( predicate );
-		COLORS.keySet().removeIf( predicate );
-		INSTANCES.keySet().removeIf( predicate );
-	}
-
-	public static final Style of( Workbook wb, String namespace ) {
-		Objects.requireNonNull( wb, "Workbook object cannot be null" );
-		String cacheKey = getCacheKey( wb, namespace );
-		Style style = INSTANCES.get( cacheKey );
-		if ( style == null ) {
-			INSTANCES.put( cacheKey, style = new Style( wb, namespace ) );
-		}
-		return style;
-	}
-
-	private Style( Workbook wb, String namespace ) {
-		this.wb = wb;
-		this.namespace = namespace;
-		this.style = wb.createCellStyle();
-		this.isHssf = wb instanceof HSSFWorkbook;
-		this.isXssf = wb instanceof XSSFWorkbook;
-	}
-
-	public boolean is( String namespace ) {
-		return Objects.equals( this.namespace, namespace ) || StringUtils.startsWith( this.namespace, namespace );
-	}
-
-	public Style autoWrap() {
-		style.setWrapText( true );
-		return this;
-	}
-
-	public Style font( int fontSize ) {
-		return font( fontSize, false );
-	}
-
-	public Style font( int fontSize, boolean blod ) {
-		return font( "default", null, fontSize, blod );
-	}
-
-	public Style font( String fontName, int fontSize ) {
-		return font( fontName, fontSize, false );
-	}
-
-	public Style font( String fontName, int fontSize, boolean blod ) {
-		return font( fontName, null, fontSize, blod );
-	}
-
-	public Style font( String fontName, String fontColor, int fontSize, boolean blod ) {
-		style.setFont( newFont( fontName, fontColor, fontSize, blod ) );
-		return this;
-	}
-
-	public Style fontColor( String fontColor ) {
-		return font( "default", fontColor, -1, false );
-	}
-
-	public Style bgColor( String bgColor ) {
-		style.setFillPattern( FillPatternType.SOLID_FOREGROUND );
-		if ( isHssf ) {
-			short colorIndex = getColorIndex( bgColor );
-			style.setFillForegroundColor( colorIndex );
-		} else if ( isXssf ) {
-			XSSFCellStyle xssfStyle = ( XSSFCellStyle ) style;
-			xssfStyle.setFillForegroundColor( newXssfColor( bgColor ) );
-		}
-		return this;
-	}
-
-	public Style alignment( Alignment alignment ) {
-		if ( alignment != null ) {
-			alignment.setAlignment( style );
-		}
-		return this;
-	}
-
-	public Style border( BorderStyle borderStyle ) {
-		style.setBorderBottom( borderStyle );
-		style.setBorderLeft( borderStyle );
-		style.setBorderTop( borderStyle );
-		style.setBorderRight( borderStyle );
-		return this;
-	}
-
-	public Style border( BorderStyle borderStyle, String borderColor ) {
-		border( borderStyle );
-		if ( isHssf ) {
-			short colorIndex = getColorIndex( borderColor );
-			style.setRightBorderColor( colorIndex );
-			style.setTopBorderColor( colorIndex );
-			style.setBottomBorderColor( colorIndex );
-			style.setLeftBorderColor( colorIndex );
-		} else if ( isXssf ) {
-			XSSFColor xssfColor = newXssfColor( borderColor );
-			XSSFCellStyle xssfStyle = ( XSSFCellStyle ) style;
-			xssfStyle.setRightBorderColor( xssfColor );
-			xssfStyle.setTopBorderColor( xssfColor );
-			xssfStyle.setBottomBorderColor( xssfColor );
-			xssfStyle.setLeftBorderColor( xssfColor );
-		}
-		return this;
-	}
-
-	public final void apply( Cell cell ) {
-		if ( cell != null ) {
-			cell.setCellStyle( style );
-		}
-	}
-
-	private XSSFColor newXssfColor( String hexColor ) {
-		XSSFWorkbook xwb = ( XSSFWorkbook ) wb;
-		StylesTable source = xwb.getStylesSource();
-		return new XSSFColor( Color.decode( hexColor ), source.getIndexedColors() );
-	}
-
-	private Font newFont( String fontName, String fontColor, int fontSize, boolean blod ) {
-		if ( fontName == null ) {
-			fontName = "default";
-		}
-		if ( fontColor == null ) {
-			fontColor = "#";
-		}
-		String cacheKey = getCacheKey( wb, fontName + ":" + fontSize + ":" + fontColor + ":" + blod );
-		Font font = FONTS.get( cacheKey );
-		if ( font == null ) {
-			font = wb.createFont();
-			if ( !Objects.equals( fontName, "default" ) ) {
-				font.setFontName( fontName );
-			}
-			if ( !Objects.equals( fontColor, "#" ) ) {
-				font.setColor( getColorIndex( fontColor ) );
-			}
-			if ( fontSize != -1 ) {
-				font.setFontHeightInPoints( ( short ) fontSize );
-			}
-			if ( blod ) {
-				font.setBold( blod );
-			}
-			FONTS.put( cacheKey, font );
-		}
-		return font;
-	}
-
-	private short getColorIndex( String hexColor ) {
-		if ( COLORS.size() >= COLOR_SIZE ) {
-			LOG.warn( "Custom color value is out of range, only {} color values are allowed", COLOR_SIZE );
-			return IndexedColors.AUTOMATIC.getIndex();
-		}
-		if ( StringUtils.isEmpty( hexColor ) ) {
-			return IndexedColors.AUTOMATIC.getIndex();
-		}
-
-		String cacheKey = getCacheKey( wb, hexColor );
-		Short colorIndex = COLORS.get( cacheKey );
-		if ( colorIndex == null ) {
-			int count = 0;
-			short index = -1;
-			do {
-				if ( count ++ >= 10 ) {
-					index = IndexedColors.AUTOMATIC.getIndex();
-					break;
-				}
-				index = ( short ) ThreadLocalRandom.current().nextInt( COLOR_BEGIN, COLOR_BOUND );
-			} while ( COLORS.containsValue( index ) );
-			Color color = Color.decode( hexColor );
-			byte r = ( byte ) color.getRed();
-			byte g = ( byte ) color.getGreen();
-			byte b = ( byte ) color.getBlue();
-			HSSFPalette palette = ( ( HSSFWorkbook ) wb ).getCustomPalette();
-			palette.setColorAtIndex( index, r, g, b );
-			COLORS.put( cacheKey , colorIndex = index );
-		}
-		return colorIndex;
-	}
-
-}
+/**
+ * Copyright (C) 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.plugins.excel.metadata;
+
+import java.io.Closeable;
+import java.util.Objects;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.poi.ss.usermodel.BorderStyle;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Color;
+import org.apache.poi.ss.usermodel.FillPatternType;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.apache.poi.xssf.usermodel.XSSFColor;
+
+import com.viiyue.plugins.excel.enums.Alignment;
+
+/**
+ * Cell beautification style. A style only keeps the attributes set on it, the
+ * cell style is taken from the style pool of the workbook by the attributes
+ * when it is needed, so the styles of different namespaces with the same
+ * attributes share the same cell style, and setting the same attributes again
+ * costs nothing.
+ *
+ * @author tangxbai
+ * @since 1.0.0
+ */
+public class Style {
+
+	private final StylePool pool;
+	private final String namespace;
+
+	private boolean wrapText;
+	private boolean hasFont;
+	private String fontName;
+	private String fontColor;
+	private int fontSize = -1;
+	private boolean bold;
+	private String bgColor;
+	private Alignment alignment;
+	private BorderStyle borderStyle;
+	private String borderColor;
+	private CellStyle style; // Taken from the pool, reset whenever an attribute changes
+
+	/**
+	 * Keep the styles of the workbook until the returned handle is closed, which
+	 * is done by the write engines for their workbooks. Otherwise the styles of
+	 * a workbook are only kept while any of them is still referenced.
+	 *
+	 * @param wb the workbook
+	 * @return the handle releasing the styles of the workbook when closed
+	 */
+	public static final Closeable open( Workbook wb ) {
+		Objects.requireNonNull( wb, "Workbook object cannot be null" );
+		return StylePool.of( wb );
+	}
+
+	/**
+	 * Release the styles of the workbook, the following styles of the workbook
+	 * take new cell styles.
+	 */
+	public static final void clear( Workbook wb ) {
+		Objects.requireNonNull( wb, "Workbook object cannot be null" );
+		StylePool.release( wb );
+	}
+
+	public static final Style of( Workbook wb, String namespace ) {
+		Objects.requireNonNull( wb, "Workbook object cannot be null" );
+		StylePool pool = StylePool.of( wb );
+		Style style = pool.getStyle( namespace );
+		if ( style == null ) {
+			pool.putStyle( namespace, style = new Style( pool, namespace ) );
+		}
+		return style;
+	}
+
+	/**
+	 * @param wb the workbook
+	 * @param hexColor the hex color, such as <code>#F5F5F5</code>
+	 * @return the color of the workbook, the color taken from the palette of
+	 *         <code>xls</code> workbooks the same way as the cell styles
+	 */
+	public static final Color color( Workbook wb, String hexColor ) {
+		Objects.requireNonNull( wb, "Workbook object cannot be null" );
+		synchronized ( wb ) {
+			return StylePool.of( wb ).getColor( hexColor );
+		}
+	}
+
+	private Style( StylePool pool, String namespace ) {
+		this.pool = pool;
+		this.namespace = namespace;
+	}
+
+	public boolean is( String namespace ) {
+		return Objects.equals( this.namespace, namespace ) || StringUtils.startsWith( this.namespace, namespace );
+	}
+
+	public Style autoWrap() {
+		if ( !wrapText ) {
+			this.wrapText = true;
+			this.style = null;
+		}
+		return this;
+	}
+
+	public Style font( int fontSize ) {
+		return font( fontSize, false );
+	}
+
+	public Style font( int fontSize, boolean blod ) {
+		return font( "default", null, fontSize, blod );
+	}
+
+	public Style font( String fontName, int fontSize ) {
+		return font( fontName, fontSize, false );
+	}
+
+	public Style font( String fontName, int fontSize, boolean blod ) {
+		return font( fontName, null, fontSize, blod );
+	}
+
+	public Style font( String fontName, String fontColor, int fontSize, boolean blod ) {
+		if ( Objects.equals( fontName, "default" ) ) {
+			fontName = null;
+		}
+		if ( !hasFont || !Objects.equals( this.fontName, fontName ) || !Objects.equals( this.fontColor, fontColor )
+				|| this.fontSize != fontSize || this.bold != blod ) {
+			this.hasFont = true;
+			this.fontName = fontName;
+			this.fontColor = fontColor;
+			this.fontSize = fontSize;
+			this.bold = blod;
+			this.style = null;
+		}
+		return this;
+	}
+
+	public Style fontColor( String fontColor ) {
+		return font( "default", fontColor, -1, false );
+	}
+
+	public Style bgColor( String bgColor ) {
+		if ( !Objects.equals( this.bgColor, bgColor ) ) {
+			this.bgColor = bgColor;
+			this.style = null;
+		}
+		return this;
+	}
+
+	public Style alignment( Alignment alignment ) {
+		if ( alignment != null && alignment != this.alignment ) {
+			this.alignment = alignment;
+			this.style = null;
+		}
+		return this;
+	}
+
+	public Style border( BorderStyle borderStyle ) {
+		if ( borderStyle != this.borderStyle ) {
+			this.borderStyle = borderStyle;
+			this.style = null;
+		}
+		return this;
+	}
+
+	public Style border( BorderStyle borderStyle, String borderColor ) {
+		border( borderStyle );
+		if ( !Objects.equals( this.borderColor, borderColor ) ) {
+			this.borderColor = borderColor;
+			this.style = null;
+		}
+		return this;
+	}
+
+	public final CellStyle getCellStyle() {
+		CellStyle style = this.style;
+		if ( style == null ) {
+			this.style = style = pool.getCellStyle( this );
+		}
+		return style;
+	}
+
+	public final void apply( Cell cell ) {
+		if ( cell != null ) {
+			cell.setCellStyle( getCellStyle() );
+		}
+	}
+
+	/**
+	 * @return the key of the attributes in the style pool
+	 */
+	String getAttributes() {
+		StringBuilder attributes = new StringBuilder( 64 ).append( wrapText );
+		if ( hasFont ) {
+			attributes.append( "|font:" ).append( fontName ).append( ':' ).append( fontColor ).append( ':' ).append( fontSize ).append( ':' ).append( bold );
+		}
+		attributes.append( "|bg:" ).append( bgColor ).append( "|align:" ).append( alignment );
+		return attributes.append( "|border:" ).append( borderStyle ).append( ':' ).append( borderColor ).toString();
+	}
+
+	/**
+	 * Set the attributes on a new cell style of the pool
+	 */
+	void applyTo( CellStyle cellStyle ) {
+		if ( wrapText ) {
+			cellStyle.setWrapText( true );
+		}
+		if ( hasFont ) {
+			cellStyle.setFont( pool.getFont( fontName, fontColor, fontSize, bold ) );
+		}
+		if ( bgColor != null ) {
+			cellStyle.setFillPattern( FillPatternType.SOLID_FOREGROUND );
+			if ( pool.isHssf() ) {
+				cellStyle.setFillForegroundColor( pool.getColorIndex( bgColor ) );
+			} else if ( pool.isXssf() ) {
+				( ( XSSFCellStyle ) cellStyle ).setFillForegroundColor( pool.getXssfColor( bgColor ) );
+			}
+		}
+		if ( alignment != null ) {
+			alignment.setAlignment( cellStyle );
+		}
+		if ( borderStyle != null ) {
+			cellStyle.setBorderBottom( borderStyle );
+			cellStyle.setBorderLeft( borderStyle );
+			cellStyle.setBorderTop( borderStyle );
+			cellStyle.setBorderRight( borderStyle );
+		}
+		if ( borderColor != null ) {
+			if ( pool.isHssf() ) {
+				short colorIndex = pool.getColorIndex( borderColor );
+				cellStyle.setRightBorderColor( colorIndex );
+				cellStyle.setTopBorderColor( colorIndex );
+				cellStyle.setBottomBorderColor( colorIndex );
+				cellStyle.setLeftBorderColor( colorIndex );
+			} else if ( pool.isXssf() ) {
+				XSSFColor xssfColor = pool.getXssfColor( borderColor );
+				XSSFCellStyle xssfStyle = ( XSSFCellStyle ) cellStyle;
+				xssfStyle.setRightBorderColor( xssfColor );
+				xssfStyle.setTopBorderColor( xssfColor );
+				xssfStyle.setBottomBorderColor( xssfColor );
+				xssfStyle.setLeftBorderColor( xssfColor );
+			}
+		}
+	}
+
+}
@@ -0,0 +1,305 @@
+/**
+ * Copyright (C) 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.plugins.excel.metadata;
+
+import java.awt.Color;
+import java.io.Closeable;
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.poi.hssf.usermodel.HSSFPalette;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.hssf.util.HSSFColor;
+import org.apache.poi.ss.usermodel.BorderStyle;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.FillPatternType;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.IndexedColors;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFColor;
+import org.apache.poi.xssf.usermodel.XSSFFont;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Styles of a workbook. The styles are looked up by namespace, and the cell
+ * styles and fonts they are made of are created by their attributes, so the
+ * namespaces with the same attributes share the same cell style. The pools
+ * are only referenced weakly by their workbooks, a pool is kept by the write
+ * engine of its workbook through {@link Style#open(Workbook)} and by its
+ * styles, and can be released earlier by {@link Style#clear(Workbook)}.
+ * Callers have to synchronize on the workbook.
+ *
+ * @author tangxbai
+ * @since 1.1.3
+ */
+final class StylePool implements Closeable {
+
+	private static final Logger LOG = LoggerFactory.getLogger( StylePool.class );
+
+	private static final int COLOR_BEGIN = 8;
+	private static final int COLOR_BOUND = IndexedColors.values().length - 1; // 64
+
+	// Workbooks are compared by identity, the pools refer to their workbooks so they cannot be held strongly
+	private static final Map<Workbook, WeakReference<StylePool>> POOLS = new WeakHashMap<Workbook, WeakReference<StylePool>>();
+
+	private final Workbook wb;
+	private final boolean isHssf;
+	private final boolean isXssf;
+	private final int maxCellStyles;
+	private final Map<String, Style> styles = new HashMap<String, Style>();
+	private final Map<String, CellStyle> cellStyles = new HashMap<String, CellStyle>();
+	private final Map<String, Font> fonts = new HashMap<String, Font>();
+	private final Map<String, Short> colors = new HashMap<String, Short>(); // By hex color
+	private boolean [] reserved; // Palette entries that must not be replaced
+	private int nextColor = COLOR_BEGIN;
+	private int [] paletteColors; // RGB of the full palette by index
+	private boolean exhausted;
+
+	private StylePool( Workbook wb ) {
+		this.wb = wb;
+		this.isHssf = wb instanceof HSSFWorkbook;
+		this.isXssf = wb instanceof XSSFWorkbook || wb instanceof SXSSFWorkbook;
+		this.maxCellStyles = wb.getSpreadsheetVersion().getMaxCellStyles();
+	}
+
+	static StylePool of( Workbook wb ) {
+		synchronized ( POOLS ) {
+			WeakReference<StylePool> reference = POOLS.get( wb );
+			StylePool pool = reference == null ? null : reference.get();
+			if ( pool == null ) {
+				POOLS.put( wb, new WeakReference<StylePool>( pool = new StylePool( wb ) ) );
+			}
+			return pool;
+		}
+	}
+
+	static void release( Workbook wb ) {
+		synchronized ( POOLS ) {
+			POOLS.remove( wb );
+		}
+	}
+
+	/**
+	 * Release the pool, unless the workbook has been given a new pool since.
+	 */
+	@Override
+	public void close() {
+		synchronized ( POOLS ) {
+			WeakReference<StylePool> reference = POOLS.get( wb );
+			if ( reference != null && reference.get() == this ) {
+				POOLS.remove( wb );
+			}
+		}
+	}
+
+	boolean isHssf() {
+		return isHssf;
+	}
+
+	boolean isXssf() {
+		return isXssf;
+	}
+
+	Style getStyle( String namespace ) {
+		return styles.get( namespace );
+	}
+
+	void putStyle( String namespace, Style style ) {
+		styles.put( namespace, style );
+	}
+
+	/**
+	 * @return the cell style of the attributes, or the default cell style once
+	 *         the cell style limit of the format has been reached
+	 */
+	CellStyle getCellStyle( Style style ) {
+		String key = style.getAttributes();
+		CellStyle cellStyle = cellStyles.get( key );
+		if ( cellStyle == null ) {
+			if ( wb.getNumCellStyles() >= maxCellStyles ) {
+				if ( !exhausted ) {
+					this.exhausted = true;
+					LOG.warn( "The workbook has reached the limit of {} cell styles, the default style is used instead", maxCellStyles );
+				}
+				return wb.getCellStyleAt( 0 );
+			}
+			cellStyle = wb.createCellStyle();
+			style.applyTo( cellStyle );
+			cellStyles.put( key, cellStyle );
+		}
+		return cellStyle;
+	}
+
+	/**
+	 * @param fontName the font name, or <code>null</code> for the default font
+	 * @param fontColor the hex color, or <code>null</code> for the default color
+	 * @param fontSize the size in points, or <code>-1</code> for the default size
+	 * @param bold whether the font is bold
+	 * @return the font of the attributes
+	 */
+	Font getFont( String fontName, String fontColor, int fontSize, boolean bold ) {
+		String key = fontName + ":" + fontColor + ":" + fontSize + ":" + bold;
+		Font font = fonts.get( key );
+		if ( font == null ) {
+			font = wb.createFont();
+			if ( fontName != null ) {
+				font.setFontName( fontName );
+			}
+			if ( fontColor != null ) {
+				if ( isXssf ) {
+					( ( XSSFFont ) font ).setColor( getXssfColor( fontColor ) );
+				} else {
+					font.setColor( getColorIndex( fontColor ) );
+				}
+			}
+			if ( fontSize != -1 ) {
+				font.setFontHeightInPoints( ( short ) fontSize );
+			}
+			if ( bold ) {
+				font.setBold( bold );
+			}
+			fonts.put( key, font );
+		}
+		return font;
+	}
+
+	org.apache.poi.ss.usermodel.Color getColor( String hexColor ) {
+		if ( isXssf ) {
+			return getXssfColor( hexColor );
+		}
+		if ( isHssf ) {
+			return ( ( HSSFWorkbook ) wb ).getCustomPalette().getColor( getColorIndex( hexColor ) );
+		}
+		throw new UnsupportedOperationException( "Unsupported workbook " + wb.getClass().getName() );
+	}
+
+	XSSFColor getXssfColor( String hexColor ) {
+		XSSFWorkbook xwb = wb instanceof SXSSFWorkbook ? ( ( SXSSFWorkbook ) wb ).getXSSFWorkbook() : ( XSSFWorkbook ) wb;
+		return new XSSFColor( Color.decode( hexColor ), xwb.getStylesSource().getIndexedColors() );
+	}
+
+	/**
+	 * Map a color to the custom palette of the <code>xls</code> workbook, each
+	 * hex color is decoded only once. A color already in the palette takes its
+	 * entry, otherwise the next free entry is replaced by the color, so the
+	 * same colors always take the same entries. The entries referenced by the
+	 * cell styles and fonts of the workbook, such as those of a template, are
+	 * never free. Once all the entries are taken, the color is mapped to the
+	 * nearest color of the palette.
+	 *
+	 * @return the index of the color in the palette
+	 */
+	short getColorIndex( String hexColor ) {
+		if ( StringUtils.isEmpty( hexColor ) ) {
+			return IndexedColors.AUTOMATIC.getIndex();
+		}
+		Short colorIndex = colors.get( hexColor );
+		if ( colorIndex == null ) {
+			Color color = Color.decode( hexColor );
+			colors.put( hexColor, colorIndex = getColorIndex( color.getRed(), color.getGreen(), color.getBlue() ) );
+		}
+		return colorIndex;
+	}
+
+	private short getColorIndex( int red, int green, int blue ) {
+		if ( reserved == null ) {
+			this.reserved = getUsedColors();
+		}
+		HSSFPalette palette = ( ( HSSFWorkbook ) wb ).getCustomPalette();
+		HSSFColor existing = palette.findColor( ( byte ) red, ( byte ) green, ( byte ) blue );
+		if ( existing != null && existing.getIndex() >= COLOR_BEGIN && existing.getIndex() < COLOR_BOUND ) {
+			reserved[ existing.getIndex() ] = true;
+			return existing.getIndex();
+		}
+		while ( nextColor < COLOR_BOUND && reserved[ nextColor ] ) {
+			nextColor ++;
+		}
+		if ( nextColor < COLOR_BOUND ) {
+			short index = ( short ) nextColor ++;
+			palette.setColorAtIndex( index, ( byte ) red, ( byte ) green, ( byte ) blue );
+			reserved[ index ] = true;
+			return index;
+		}
+		return getNearestColorIndex( palette, red, green, blue );
+	}
+
+	/**
+	 * @return the palette entries referenced by the existing cell styles and
+	 *         their fonts
+	 */
+	private boolean [] getUsedColors() {
+		boolean [] used = new boolean[ COLOR_BOUND ];
+		for ( int index = 0, count = wb.getNumCellStyles(); index < count; index ++ ) {
+			CellStyle style = wb.getCellStyleAt( index );
+			if ( style.getFillPattern() != FillPatternType.NO_FILL ) {
+				markColor( used, style.getFillForegroundColor() );
+				markColor( used, style.getFillBackgroundColor() );
+			}
+			if ( style.getBorderTop() != BorderStyle.NONE ) {
+				markColor( used, style.getTopBorderColor() );
+			}
+			if ( style.getBorderRight() != BorderStyle.NONE ) {
+				markColor( used, style.getRightBorderColor() );
+			}
+			if ( style.getBorderBottom() != BorderStyle.NONE ) {
+				markColor( used, style.getBottomBorderColor() );
+			}
+			if ( style.getBorderLeft() != BorderStyle.NONE ) {
+				markColor( used, style.getLeftBorderColor() );
+			}
+			markColor( used, wb.getFontAt( style.getFontIndexAsInt() ).getColor() );
+		}
+		return used;
+	}
+
+	private static void markColor( boolean [] used, short colorIndex ) {
+		if ( colorIndex >= COLOR_BEGIN && colorIndex < COLOR_BOUND ) {
+			used[ colorIndex ] = true;
+		}
+	}
+
+	private short getNearestColorIndex( HSSFPalette palette, int red, int green, int blue ) {
+		if ( paletteColors == null ) {
+			LOG.warn( "The palette is full, the other colors are replaced by the nearest palette colors" );
+			this.paletteColors = new int[ COLOR_BOUND ]; // The palette does not change any more
+			for ( int index = COLOR_BEGIN; index < COLOR_BOUND; index ++ ) {
+				short [] triplet = palette.getColor( index ).getTriplet();
+				paletteColors[ index ] = triplet[ 0 ] << 16 | triplet[ 1 ] << 8 | triplet[ 2 ];
+			}
+		}
+		short nearest = IndexedColors.AUTOMATIC.getIndex();
+		long minDistance = Long.MAX_VALUE;
+		for ( int index = COLOR_BEGIN; index < COLOR_BOUND; index ++ ) {
+			int rgb = paletteColors[ index ];
+			int r = rgb >> 16 & 0xFF, g = rgb >> 8 & 0xFF, b = rgb & 0xFF;
+			long mean = ( red + r ) / 2;
+			long dr = red - r, dg = green - g, db = blue - b;
+			long distance = ( ( 512 + mean ) * dr * dr >> 8 ) + 4 * dg * dg + ( ( 767 - mean ) * db * db >> 8 ); // Weighted by the red mean
+			if ( distance < minDistance ) {
+				minDistance = distance;
+				nearest = ( short ) index;
+			}
+		}
+		return nearest;
+	}
+
+}
@@ -0,0 +1,86 @@
+/**
+ * Copyright (C) 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.plugins.excel;
+
+import static com.viiyue.plugins.excel.Checks.ok;
+import static com.viiyue.plugins.excel.Checks.open;
+import static com.viiyue.plugins.excel.Checks.rows;
+import static com.viiyue.plugins.excel.Checks.tempFile;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.poi.ss.usermodel.Workbook;
+
+import com.viiyue.plugins.excel.enums.Aggregate;
+import com.viiyue.plugins.excel.enums.WriteMode;
+import com.viiyue.plugins.excel.metadata.CellInfo;
+import com.viiyue.plugins.excel.metadata.ExcelInfo;
+
+public class AggregateTester {
+
+	public static void main( String [] args ) throws Exception {
+		unorderedMapRows();
+	}
+
+	private static ExcelInfo<Map<String, Object>> orders() {
+		return ExcelInfo.ofMap().groupBy( "dept" ).totalLabel( "Total" )
+				.addCell( CellInfo.newMapCell( "dept" ) )
+				.addCell( CellInfo.newMapCell( "name" ) )
+				.addCell( CellInfo.newMapCell( "amount" ).aggregate( Aggregate.SUM ) )
+				.addCell( CellInfo.newMapCell( "qty" ).aggregate( Aggregate.MAX ) );
+	}
+
+	/**
+	 * Map rows are bound to the cells by label, whatever the iteration order
+	 * of the map and the columns it leaves out.
+	 */
+	private static void unorderedMapRows() throws Exception {
+		List<Map<String, Object>> dataList = new ArrayList<Map<String, Object>>();
+		String [] depts = { "A", "A", "B" };
+		for ( int i = 0; i < depts.length; i ++ ) {
+			Map<String, Object> row = i == 1 ? new TreeMap<String, Object>() : new HashMap<String, Object>();
+			row.put( "qty", i * 10 + 5 );
+			row.put( "amount", i + 1 );
+			row.put( "dept", depts[ i ] );
+			if ( i != 1 ) {
+				row.put( "name", "p" + i ); // Leaves out a column
+			}
+			row.put( "unknown", "ignored" );
+			dataList.add( row );
+		}
+		for ( WriteMode mode : WriteMode.values() ) {
+			File file = tempFile( ".xlsx" );
+			ExcelWriter.of( orders() ).mode( mode ).addSheet( "Orders", dataList ).writeTo( file );
+			try ( Workbook wb = open( file ) ) {
+				rows( wb.getSheetAt( 0 ),
+						"dept,name,amount,qty",
+						"A,p0,1,5",
+						"A,,2,15",
+						"A,,3,15",
+						"B,p2,3,25",
+						"B,,3,25",
+						"Total,,6,25" );
+			}
+		}
+		ok( "unordered map rows" );
+	}
+
+}
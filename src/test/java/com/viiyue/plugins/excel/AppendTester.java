@@ -0,0 +1,72 @@
+/**
+ * Copyright (C) 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.plugins.excel;
+
+import static com.viiyue.plugins.excel.Checks.equal;
+import static com.viiyue.plugins.excel.Checks.ok;
+import static com.viiyue.plugins.excel.Checks.open;
+import static com.viiyue.plugins.excel.Checks.rows;
+import static com.viiyue.plugins.excel.Checks.tempFile;
+import static com.viiyue.plugins.excel.RolloverTester.users;
+
+import java.io.File;
+
+import org.apache.poi.ss.usermodel.Workbook;
+
+import com.viiyue.plugins.excel.enums.WriteMode;
+
+public class AppendTester {
+
+	public static void main( String [] args ) throws Exception {
+		appendRoundTrip();
+		appendToFullSheet();
+	}
+
+	private static void appendRoundTrip() throws Exception {
+		for ( WriteMode mode : WriteMode.values() ) {
+			File file = tempFile( ".xlsx" );
+			ExcelWriter.of( users() ).mode( mode ).addSheet( "Users", users( 1, 2 ) ).addSheet( "Other", users( 1, 1 ) ).writeTo( file );
+			ExcelWriter.of( users() ).addSheet( "Users", users( 3, 2 ) ).appendTo( file );
+			ExcelWriter.of( users() ).addSheet( "Users", users( 5, 1 ) ).addSheet( "Other", users( 2, 1 ) ).appendTo( file );
+			try ( Workbook wb = open( file ) ) {
+				equal( 2, wb.getNumberOfSheets(), mode + " sheets" );
+				rows( wb.getSheet( "Users" ), "id,name", "1,user1", "2,user2", "3,user3", "4,user4", "5,user5" );
+				rows( wb.getSheet( "Other" ), "id,name", "1,user1", "2,user2" );
+			}
+		}
+		ok( "append round trip" );
+	}
+
+	/**
+	 * Appending to a sheet already at the row limit goes straight on with the
+	 * next sheet, and a missing sheet is added with its header.
+	 */
+	private static void appendToFullSheet() throws Exception {
+		File file = tempFile( ".xlsx" );
+		ExcelWriter.of( users() ).mode( WriteMode.DIRECT ).addSheet( "Users", users( 1, 2 ) ).writeTo( file );
+		ExcelWriter.of( users() ).rollover( null, 5 ).addSheet( "Users", users( 3, 6 ) ).appendTo( file );
+		ExcelWriter.of( users() ).rollover( null, 5 ).addSheet( "Users", users( 9, 2 ) ).addSheet( "New", users( 1, 1 ) ).appendTo( file );
+		try ( Workbook wb = open( file ) ) {
+			equal( 4, wb.getNumberOfSheets(), "sheets" );
+			rows( wb.getSheet( "Users" ), "id,name", "1,user1", "2,user2", "3,user3", "4,user4" );
+			rows( wb.getSheet( "Users (2)" ), "id,name", "5,user5", "6,user6", "7,user7", "8,user8" );
+			rows( wb.getSheet( "Users (3)" ), "id,name", "9,user9", "10,user10" );
+			rows( wb.getSheet( "New" ), "id,name", "1,user1" );
+		}
+		ok( "append to full sheet" );
+	}
+
+}
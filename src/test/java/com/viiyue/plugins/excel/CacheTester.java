@@ -0,0 +1,162 @@
+/**
+ * Copyright (C) 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.plugins.excel;
+
+import static com.viiyue.plugins.excel.Checks.check;
+import static com.viiyue.plugins.excel.Checks.equal;
+import static com.viiyue.plugins.excel.Checks.ok;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
+
+import com.viiyue.plugins.excel.common.ExportCache;
+import com.viiyue.plugins.excel.common.Fingerprint;
+import com.viiyue.plugins.excel.converter.DefaultStyleable;
+import com.viiyue.plugins.excel.enums.WriteMode;
+import com.viiyue.plugins.excel.metadata.ExcelInfo;
+import com.viiyue.plugins.excel.metadata.Style;
+
+public class CacheTester {
+
+	public static void main( String [] args ) throws Exception {
+		sameExportIsCopied();
+		lambdaComparatorsAreNotCached();
+		configuredStyleablesAreKeyedByFields();
+		arraysAreDigestedByElements();
+	}
+
+	private static void sameExportIsCopied() throws Exception {
+		CountingCache cache = new CountingCache();
+		byte [] first = export( cache, null, new Tint( "#FF0000" ) );
+		byte [] second = export( cache, null, new Tint( "#FF0000" ) );
+		equal( 1, cache.puts, "cached workbooks" );
+		equal( 1, cache.hits, "cache hits" );
+		check( Arrays.equals( first, second ), "The cached workbook differs from the written one" );
+		ok( "same export is copied" );
+	}
+
+	private static void lambdaComparatorsAreNotCached() throws Exception {
+		CountingCache cache = new CountingCache();
+		Comparator<Map<String, Object>> ascending = Comparator.comparing( row -> ( Integer ) row.get( "id" ) );
+		byte [] up = export( cache, ascending, null );
+		byte [] down = export( cache, ascending.reversed(), null );
+		equal( 0, cache.puts + cache.hits, "cache accesses" );
+		equal( "1", firstId( up ), "ascending first row" );
+		equal( "3", firstId( down ), "descending first row" );
+		ok( "lambda comparators are not cached" );
+	}
+
+	private static void configuredStyleablesAreKeyedByFields() throws Exception {
+		CountingCache cache = new CountingCache();
+		export( cache, null, new Tint( "#FF0000" ) );
+		export( cache, null, new Tint( "#00FF00" ) );
+		equal( 2, cache.puts, "cached workbooks" );
+		equal( 0, cache.hits, "cache hits" );
+		export( cache, null, new Tint( "#00FF00" ) );
+		equal( 1, cache.hits, "cache hits" );
+		ok( "configured styleables are keyed by fields" );
+	}
+
+	private static void arraysAreDigestedByElements() {
+		String digest = Fingerprint.of().add( ( Object ) new int [] { 1, 2 } ).digest();
+		equal( digest, Fingerprint.of().add( ( Object ) new int [] { 1, 2 } ).digest(), "digest of the same int array" );
+		check( !digest.equals( Fingerprint.of().add( ( Object ) new int [] { 1, 3 } ).digest() ), "Different int arrays have the same digest" );
+		check( !digest.equals( Fingerprint.of().add( ( Object ) new long [] { 1, 2 } ).digest() ), "Different array types have the same digest" );
+		check( Fingerprint.of().add( ( Object ) new double [] { 0.5 } ).isStable(), "A primitive array is not stable" );
+		check( !Fingerprint.of().add( new Object() ).isStable(), "An identity string is stable" );
+		check( !Fingerprint.of().addSetting( ( Runnable ) () -> {} ).isStable(), "A lambda setting is stable" );
+		ok( "arrays are digested by elements" );
+	}
+
+	private static byte [] export( ExportCache cache, Comparator<Map<String, Object>> sorter, Tint tint ) throws IOException {
+		List<Map<String, Object>> dataList = new ArrayList<Map<String, Object>>();
+		for ( int id : new int [] { 2, 3, 1 } ) {
+			Map<String, Object> row = new LinkedHashMap<String, Object>();
+			row.put( "id", id );
+			row.put( "name", "user" + id );
+			dataList.add( row );
+		}
+		ExcelInfo<Map<String, Object>> info = ExcelInfo.ofMap().cells( "id", "name" );
+		if ( tint != null ) {
+			info.styleable( tint );
+		}
+		ExcelWriter<Map<String, Object>> writer = ExcelWriter.of( info ).mode( WriteMode.DIRECT ).cache( cache );
+		if ( sorter != null ) {
+			writer.sort( sorter );
+		}
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		writer.addSheet( "Users", dataList ).writeTo( os, true );
+		return os.toByteArray();
+	}
+
+	private static String firstId( byte [] workbook ) throws IOException {
+		try ( Workbook wb = WorkbookFactory.create( new ByteArrayInputStream( workbook ) ) ) {
+			Sheet sheet = wb.getSheetAt( 0 );
+			return Checks.row( sheet, 1 ).split( "," )[ 0 ];
+		}
+	}
+
+	public static class Tint extends DefaultStyleable<Map<String, Object>> {
+
+		private final String color;
+
+		public Tint( String color ) {
+			this.color = color;
+		}
+
+		@Override
+		public Style beautifyIt( Workbook wb, String label, Object value, Map<String, Object> element, Integer num ) {
+			return Style.of( wb, "tint:" + color ).bgColor( color );
+		}
+
+	}
+
+	private static final class CountingCache extends ExportCache {
+
+		private final ExportCache cache = ExportCache.memory( 1 << 20 );
+		private int hits;
+		private int puts;
+
+		@Override
+		public boolean copyTo( String key, OutputStream os ) throws IOException {
+			boolean copied = cache.copyTo( key, os );
+			if ( copied ) {
+				hits ++;
+			}
+			return copied;
+		}
+
+		@Override
+		public Entry put( String key ) throws IOException {
+			puts ++;
+			return cache.put( key );
+		}
+
+	}
+
+}
@@ -0,0 +1,92 @@
+/**
+ * Copyright (C) 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.plugins.excel;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Objects;
+
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
+
+/**
+ * Checks shared by the testers, a failed check throws an
+ * {@link AssertionError} and stops the tester.
+ */
+final class Checks {
+
+	private static final DataFormatter FORMATTER = new DataFormatter();
+
+	private Checks() {}
+
+	static void check( boolean condition, String message ) {
+		if ( !condition ) {
+			throw new AssertionError( message );
+		}
+	}
+
+	static void equal( Object expected, Object actual, String message ) {
+		if ( !Objects.equals( expected, actual ) ) {
+			throw new AssertionError( message + ", expected <" + expected + "> but was <" + actual + ">" );
+		}
+	}
+
+	static File tempFile( String suffix ) throws IOException {
+		File file = File.createTempFile( "poi-lite-", suffix );
+		file.deleteOnExit();
+		return file;
+	}
+
+	static Workbook open( File file ) throws IOException {
+		return WorkbookFactory.create( file, null, true );
+	}
+
+	/**
+	 * @return the formatted cell values of a row joined by commas, or
+	 *         <code>null</code> if the row does not exist
+	 */
+	static String row( Sheet sheet, int rowIndex ) {
+		Row row = sheet.getRow( rowIndex );
+		if ( row == null ) {
+			return null;
+		}
+		StringBuilder text = new StringBuilder();
+		for ( int cellIndex = 0; cellIndex < row.getLastCellNum(); cellIndex ++ ) {
+			if ( cellIndex > 0 ) {
+				text.append( ',' );
+			}
+			if ( row.getCell( cellIndex ) != null ) {
+				text.append( FORMATTER.formatCellValue( row.getCell( cellIndex ) ) );
+			}
+		}
+		return text.toString();
+	}
+
+	static void rows( Sheet sheet, String ... expected ) {
+		for ( int rowIndex = 0; rowIndex < expected.length; rowIndex ++ ) {
+			equal( expected[ rowIndex ], row( sheet, rowIndex ), sheet.getSheetName() + " row " + rowIndex );
+		}
+		equal( expected.length - 1, sheet.getLastRowNum(), sheet.getSheetName() + " last row" );
+	}
+
+	static void ok( String name ) {
+		System.out.println( "[OK] " + name );
+	}
+
+}
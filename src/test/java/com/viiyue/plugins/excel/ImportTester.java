@@ -1,31 +1,31 @@
-/**
- * Copyright (C) 2022 the original author or authors.
- *
- * Licensed under the Apache License, Version 2.0 (the "License");
- * you may not use this file except in compliance with the License.
- * You may obtain a copy of the License at
- *
- *     http://www.apache.org/licenses/LICENSE-2.0
- *
- * Unless required by applicable law or agreed to in writing, software
- * distributed under the License is distributed on an "AS IS" BASIS,
- * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
- * See the License for the specific language governing permissions and
- * limitations under the License.
- */
-package com.viiyue.plugins.excel;
-
-import java.io.IOException;
-
-import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
-
-public class ImportTester {
-
-	public static void main( String [] args ) throws IOException, InvalidFormatException {
-//		ExcelMetadata em = ExcelMetadata.build().headerIndex( 0 ).startIndex( 1 ).cells( "name", "age", "email", "datetime" );
-		ExcelReader.of( User.class ).read( "e:\\ccc.xlsx" ).forEach( ( index, user ) -> {
-			System.out.println( index + " - " + user );
-		} );
-	}
-
-}
+/**
+ * Copyright (C) 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.plugins.excel;
+
+import java.io.IOException;
+
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+
+public class ImportTester {
+
+	public static void main( String [] args ) throws IOException, InvalidFormatException {
+//		ExcelMetadata em = ExcelMetadata.build().headerIndex( 0 ).startIndex( 1 ).cells( "name", "age", "email", "datetime" );
+		ExcelReader.of( User.class ).read( "e:\\ccc.xlsx" ).forEach( ( index, user ) -> {
+			System.out.println( index + " - " + user );
+		} );
+	}
+
+}
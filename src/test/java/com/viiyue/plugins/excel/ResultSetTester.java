@@ -0,0 +1,138 @@
+/**
+ * Copyright (C) 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.plugins.excel;
+
+import static com.viiyue.plugins.excel.Checks.check;
+import static com.viiyue.plugins.excel.Checks.equal;
+import static com.viiyue.plugins.excel.Checks.ok;
+import static com.viiyue.plugins.excel.Checks.open;
+import static com.viiyue.plugins.excel.Checks.row;
+import static com.viiyue.plugins.excel.Checks.tempFile;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+
+import com.viiyue.plugins.excel.common.ResultSetSource;
+import com.viiyue.plugins.excel.enums.WriteMode;
+import com.viiyue.plugins.excel.metadata.ExcelInfo;
+
+/**
+ * Streams the result sets of an in-process H2 database into sheets.
+ */
+public class ResultSetTester {
+
+	private static final int ORDERS = 2500;
+
+	public static void main( String [] args ) throws Exception {
+		try ( Connection connection = DriverManager.getConnection( "jdbc:h2:mem:orders" ) ) {
+			createOrders( connection );
+			streamOrders( connection );
+			rollOverOrders( connection );
+			closeOnFailure( connection );
+		}
+	}
+
+	private static void createOrders( Connection connection ) throws SQLException {
+		try ( Statement statement = connection.createStatement() ) {
+			statement.execute( "CREATE TABLE ORDERS ( ID INT PRIMARY KEY, CUSTOMER VARCHAR(32), AMOUNT DECIMAL(10, 2), PAID BOOLEAN, CREATED DATE )" );
+		}
+		try ( PreparedStatement insert = connection.prepareStatement( "INSERT INTO ORDERS VALUES ( ?, ?, ?, ?, ? )" ) ) {
+			for ( int id = 1; id <= ORDERS; id ++ ) {
+				insert.setInt( 1, id );
+				insert.setString( 2, id % 7 == 0 ? null : "customer" + id );
+				insert.setBigDecimal( 3, new BigDecimal( id ).movePointLeft( 2 ) );
+				insert.setBoolean( 4, id % 2 == 0 );
+				insert.setDate( 5, Date.valueOf( "2024-01-01" ) );
+				insert.addBatch();
+			}
+			insert.executeBatch();
+		}
+	}
+
+	private static void streamOrders( Connection connection ) throws Exception {
+		for ( WriteMode mode : WriteMode.values() ) {
+			File file = tempFile( ".xlsx" );
+			ResultSet rs;
+			try ( Statement statement = connection.createStatement() ) {
+				rs = statement.executeQuery( "SELECT ID, CUSTOMER, AMOUNT, PAID, CREATED FROM ORDERS ORDER BY ID" );
+				ExcelWriter.of( ExcelInfo.ofResultSet( rs.getMetaData() ) ).mode( mode ).addSheet( "Orders", ResultSetSource.of( rs, 100 ) ).writeTo( file );
+				check( rs.isClosed(), mode + ": the result set is not closed after its sheet" );
+			}
+			try ( Workbook wb = open( file ) ) {
+				Sheet sheet = wb.getSheetAt( 0 );
+				equal( "ID,CUSTOMER,AMOUNT,PAID,CREATED", row( sheet, 0 ), mode + " header" );
+				equal( "1,customer1,0.01,false,2024-01-01", row( sheet, 1 ), mode + " first row" );
+				equal( "7,,0.07,false,2024-01-01", row( sheet, 7 ), mode + " null column" );
+				equal( ORDERS + ",customer" + ORDERS + ",25,true,2024-01-01", row( sheet, ORDERS ), mode + " last row" );
+				equal( ORDERS, sheet.getLastRowNum(), mode + " last row number" );
+				equal( CellType.NUMERIC, sheet.getRow( 1 ).getCell( 0 ).getCellType(), mode + " number cell" );
+				check( DateUtil.isCellDateFormatted( sheet.getRow( 1 ).getCell( 4 ) ), mode + ": not a date cell" );
+			}
+		}
+		ok( "stream orders" );
+	}
+
+	private static void rollOverOrders( Connection connection ) throws Exception {
+		File file = tempFile( ".xlsx" );
+		try ( Statement statement = connection.createStatement() ) {
+			ResultSet rs = statement.executeQuery( "SELECT ID, CUSTOMER FROM ORDERS ORDER BY ID" );
+			ExcelWriter.of( ExcelInfo.ofResultSet( rs.getMetaData() ) ).mode( WriteMode.DIRECT ).rollover( null, 1001 )
+					.addSheet( "Orders", ResultSetSource.of( rs, 100 ) ).writeTo( file );
+		}
+		try ( Workbook wb = open( file ) ) {
+			equal( 3, wb.getNumberOfSheets(), "continuation sheets" );
+			equal( "1002,customer1002", row( wb.getSheetAt( 1 ), 2 ), "second row of the second sheet" );
+			equal( 500, wb.getSheetAt( 2 ).getLastRowNum(), "rows of the last sheet" );
+		}
+		ok( "roll over orders" );
+	}
+
+	private static void closeOnFailure( Connection connection ) throws Exception {
+		try ( Statement statement = connection.createStatement() ) {
+			ResultSet rs = statement.executeQuery( "SELECT ID FROM ORDERS ORDER BY ID" );
+			ExcelInfo<Map<String, Object>> info = ExcelInfo.ofResultSet( rs.getMetaData() );
+			info.getByLabel( "ID" ).writer( value -> {
+				if ( ( ( Number ) value ).intValue() == 50 ) {
+					throw new IllegalStateException( "Broken row" );
+				}
+				return value;
+			} );
+			ResultSetSource source = ResultSetSource.of( rs, 20 );
+			try {
+				ExcelWriter.of( info ).mode( WriteMode.DIRECT ).addSheet( "Orders", source ).writeTo( tempFile( ".xlsx" ) );
+				check( false, "The broken row is written" );
+			} catch ( IllegalStateException e ) {
+				equal( "Broken row", e.getMessage(), "failure" );
+			}
+			check( rs.isClosed(), "The result set is not closed after a failed sheet" );
+		}
+		ok( "close on failure" );
+	}
+
+}
@@ -0,0 +1,117 @@
+/**
+ * Copyright (C) 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.plugins.excel;
+
+import static com.viiyue.plugins.excel.Checks.equal;
+import static com.viiyue.plugins.excel.Checks.ok;
+import static com.viiyue.plugins.excel.Checks.open;
+import static com.viiyue.plugins.excel.Checks.row;
+import static com.viiyue.plugins.excel.Checks.tempFile;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+
+import com.viiyue.plugins.excel.enums.WriteMode;
+import com.viiyue.plugins.excel.metadata.ExcelInfo;
+
+public class RolloverTester {
+
+	public static void main( String [] args ) throws Exception {
+		rollOverAtRowLimit();
+		rollOverLongNames();
+		rollOverAppendedSheet();
+	}
+
+	static ExcelInfo<Map<String, Object>> users() {
+		return ExcelInfo.ofMap().cells( "id", "name" );
+	}
+
+	static List<Map<String, Object>> users( int from, int count ) {
+		List<Map<String, Object>> dataList = new ArrayList<Map<String, Object>>( count );
+		for ( int id = from; id < from + count; id ++ ) {
+			Map<String, Object> row = new LinkedHashMap<String, Object>();
+			row.put( "id", id );
+			row.put( "name", "user" + id );
+			dataList.add( row );
+		}
+		return dataList;
+	}
+
+	private static void rollOverAtRowLimit() throws Exception {
+		for ( WriteMode mode : WriteMode.values() ) {
+			File file = tempFile( ".xlsx" );
+			ExcelWriter.of( users() ).mode( mode ).rollover( null, 4 ).addSheet( "Users", users( 1, 7 ) ).writeTo( file );
+			try ( Workbook wb = open( file ) ) {
+				equal( 3, wb.getNumberOfSheets(), mode + " sheets" );
+				equal( "Users (3)", wb.getSheetName( 2 ), mode + " sheet name" );
+				for ( int i = 0; i < 3; i ++ ) {
+					Sheet sheet = wb.getSheetAt( i );
+					equal( "id,name", row( sheet, 0 ), mode + " header of " + sheet.getSheetName() );
+					equal( i < 2 ? 3 : 1, sheet.getLastRowNum(), mode + " last row of " + sheet.getSheetName() );
+					equal( ( i * 3 + 1 ) + ",user" + ( i * 3 + 1 ), row( sheet, 1 ), mode + " first row of " + sheet.getSheetName() );
+				}
+			}
+		}
+		ok( "roll over at row limit" );
+	}
+
+	/**
+	 * Long names are shortened to 31 characters, the shortened names of two
+	 * sheets sharing a prefix must not collide.
+	 */
+	private static void rollOverLongNames() throws Exception {
+		String prefix = "Quarterly revenue by customer - ";
+		for ( WriteMode mode : WriteMode.values() ) {
+			File file = tempFile( ".xlsx" );
+			ExcelWriter.of( users() ).mode( mode ).rollover( null, 3 )
+					.addSheet( prefix.substring( 0, 29 ) + "A", users( 1, 4 ) )
+					.addSheet( prefix.substring( 0, 29 ) + "B", users( 1, 4 ) )
+					.writeTo( file );
+			try ( Workbook wb = open( file ) ) {
+				equal( 4, wb.getNumberOfSheets(), mode + " sheets" );
+				equal( prefix.substring( 0, 27 ) + " (2)", wb.getSheetName( 1 ), mode + " first continuation" );
+				equal( prefix.substring( 0, 27 ) + " (3)", wb.getSheetName( 3 ), mode + " second continuation" );
+				equal( "3,user3", row( wb.getSheetAt( 3 ), 1 ), mode + " rows of the second continuation" );
+			}
+		}
+		ok( "roll over long names" );
+	}
+
+	/**
+	 * An appended sheet reaching the row limit rolls over to a new sheet
+	 * added to the workbook.
+	 */
+	private static void rollOverAppendedSheet() throws Exception {
+		File file = tempFile( ".xlsx" );
+		ExcelWriter.of( users() ).mode( WriteMode.DIRECT ).addSheet( "Users", users( 1, 2 ) ).addSheet( "Other", users( 1, 1 ) ).writeTo( file );
+		ExcelWriter.of( users() ).rollover( null, 5 ).addSheet( "Users", users( 3, 6 ) ).appendTo( file );
+		try ( Workbook wb = open( file ) ) {
+			equal( 3, wb.getNumberOfSheets(), "sheets" );
+			equal( "Users (2)", wb.getSheetName( 2 ), "added sheet" );
+			Checks.rows( wb.getSheet( "Users" ), "id,name", "1,user1", "2,user2", "3,user3", "4,user4" );
+			Checks.rows( wb.getSheet( "Users (2)" ), "id,name", "5,user5", "6,user6", "7,user7", "8,user8" );
+			Checks.rows( wb.getSheet( "Other" ), "id,name", "1,user1" );
+		}
+		ok( "roll over appended sheet" );
+	}
+
+}
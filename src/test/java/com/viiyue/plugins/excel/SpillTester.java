@@ -0,0 +1,173 @@
+/**
+ * Copyright (C) 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.plugins.excel;
+
+import static com.viiyue.plugins.excel.Checks.check;
+import static com.viiyue.plugins.excel.Checks.equal;
+import static com.viiyue.plugins.excel.Checks.ok;
+import static com.viiyue.plugins.excel.Checks.open;
+import static com.viiyue.plugins.excel.Checks.row;
+import static com.viiyue.plugins.excel.Checks.rows;
+import static com.viiyue.plugins.excel.Checks.tempFile;
+import static com.viiyue.plugins.excel.RolloverTester.users;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+
+import com.viiyue.plugins.excel.enums.WriteMode;
+import com.viiyue.plugins.excel.metadata.ExcelInfo;
+
+public class SpillTester {
+
+	public static void main( String [] args ) throws Exception {
+		spillAppendedRows();
+		deleteOnFailure();
+		deleteReplacedRows();
+		sortSpilledRuns();
+	}
+
+	private static void spillAppendedRows() throws Exception {
+		for ( WriteMode mode : WriteMode.values() ) {
+			ExcelWriter<Map<String, Object>> writer = ExcelWriter.of( RolloverTester.users() ).mode( mode ).spill( 10, 1024 );
+			writer.addSheet( "Users" );
+			users( 1, 5000 ).forEach( writer::append );
+			writer.addSheet( "Other" );
+			users( 1, 3 ).forEach( writer::append );
+			check( spilledFiles() > 0, mode + " rows are not spilled" );
+			File file = tempFile( ".xlsx" );
+			writer.writeTo( file );
+			equal( 0, spilledFiles(), mode + " spilled files left" );
+			try ( Workbook wb = open( file ) ) {
+				Sheet sheet = wb.getSheet( "Users" );
+				equal( 5000, sheet.getLastRowNum(), mode + " rows" );
+				for ( int id = 1; id <= 5000; id ++ ) {
+					equal( id + ",user" + id, row( sheet, id ), mode + " row " + id );
+				}
+				rows( wb.getSheet( "Other" ), "id,name", "1,user1", "2,user2", "3,user3" );
+			}
+		}
+		ok( "spill appended rows" );
+	}
+
+	private static void deleteOnFailure() throws Exception {
+		ExcelInfo<Map<String, Object>> info = RolloverTester.users();
+		info.getByLabel( "name" ).writer( value -> {
+			if ( "user300".equals( value ) ) {
+				throw new IllegalStateException( "Broken row" );
+			}
+			return value;
+		} );
+		ExcelWriter<Map<String, Object>> writer = ExcelWriter.of( info ).spill( 10, 1024 );
+		writer.addSheet( "Users" );
+		users( 1, 5000 ).forEach( writer::append );
+		writer.addSheet( "Other" );
+		users( 1, 5000 ).forEach( writer::append );
+		check( spilledFiles() > 0, "rows are not spilled" );
+		try {
+			writer.writeTo( tempFile( ".xlsx" ) );
+			check( false, "The broken row is written" );
+		} catch ( IllegalStateException e ) {
+			equal( "Broken row", e.getMessage(), "failure" );
+		}
+		equal( 0, spilledFiles(), "spilled files left after a failure" );
+		ok( "delete on failure" );
+	}
+
+	private static void deleteReplacedRows() throws Exception {
+		ExcelWriter<Map<String, Object>> writer = ExcelWriter.of( RolloverTester.users() ).spill( 10, 1024 );
+		writer.addSheet( "Users" );
+		users( 1, 5000 ).forEach( writer::append );
+		check( spilledFiles() > 0, "rows are not spilled" );
+		writer.addSheet( "Users", users( 1, 1 ) );
+		equal( 0, spilledFiles(), "spilled files left after the sheet is replaced" );
+		File file = tempFile( ".xlsx" );
+		writer.writeTo( file );
+		try ( Workbook wb = open( file ) ) {
+			rows( wb.getSheet( "Users" ), "id,name", "1,user1" );
+		}
+		ok( "delete replaced rows" );
+	}
+
+	/**
+	 * The rows beyond a run are sorted through spilled runs, which are merged
+	 * stably while the sheet is written and deleted afterwards.
+	 */
+	private static void sortSpilledRuns() throws Exception {
+		List<Map<String, Object>> dataList = users( 1, 5000 );
+		Collections.shuffle( dataList, new Random( 7 ) );
+		for ( Map<String, Object> row : dataList ) {
+			int id = ( Integer ) row.get( "id" );
+			row.put( "group", id % 10 == 0 ? null : id % 3 ); // Equal keys keep the order of the ids
+		}
+		List<Map<String, Object>> byGroup = new ArrayList<Map<String, Object>>( dataList );
+		byGroup.sort( Comparator.comparing( ( Map<String, Object> row ) -> ( Integer ) row.get( "id" ) ) );
+		AtomicInteger runs = new AtomicInteger();
+		ExcelInfo<Map<String, Object>> info = ExcelInfo.ofMap().cells( "id", "name", "group" );
+		info.getByLabel( "name" ).writer( value -> {
+			runs.accumulateAndGet( sortedFiles(), Math::max );
+			return value;
+		} );
+		for ( WriteMode mode : WriteMode.values() ) {
+			runs.set( 0 );
+			File file = tempFile( ".xlsx" );
+			ExcelWriter.of( info ).mode( mode ).sortRuns( 1000 ).sort( "id", true ).addSheet( "Descending", dataList ).writeTo( file );
+			equal( 4, runs.get(), mode + " spilled runs" ); // The last run stays in memory
+			equal( 0, sortedFiles(), mode + " sorted files left" );
+			try ( Workbook wb = open( file ) ) {
+				Sheet sheet = wb.getSheet( "Descending" );
+				equal( 5000, sheet.getLastRowNum(), mode + " rows" );
+				for ( int i = 1; i <= 5000; i ++ ) {
+					check( row( sheet, i ).startsWith( ( 5001 - i ) + ",user" + ( 5001 - i ) + "," ), mode + " descending row " + i + ": " + row( sheet, i ) );
+				}
+			}
+			file = tempFile( ".xlsx" );
+			ExcelWriter.of( info ).mode( mode ).sortRuns( 1000 ).sort( "group" ).addSheet( "Groups", byGroup ).writeTo( file );
+			equal( 0, sortedFiles(), mode + " sorted files left" );
+			try ( Workbook wb = open( file ) ) {
+				Sheet sheet = wb.getSheet( "Groups" );
+				String previous = "0,";
+				for ( int i = 1; i <= 5000; i ++ ) {
+					String [] values = row( sheet, i ).split( ",", -1 );
+					String key = values[ 2 ].isEmpty() ? "9" : values[ 2 ]; // Nulls last
+					String current = key + "," + String.format( "%04d", Integer.parseInt( values[ 0 ] ) );
+					check( current.compareTo( previous ) > 0, mode + " group row " + i + " after " + previous + ": " + current );
+					previous = current;
+				}
+			}
+		}
+		ok( "sort spilled runs" );
+	}
+
+	private static int sortedFiles() {
+		File [] files = new File( System.getProperty( "java.io.tmpdir" ) ).listFiles( ( dir, name ) -> name.startsWith( "poi-lite-sort" ) );
+		return files == null ? 0 : files.length;
+	}
+
+	private static int spilledFiles() {
+		File [] files = new File( System.getProperty( "java.io.tmpdir" ) ).listFiles( ( dir, name ) -> name.startsWith( "poi-lite-rows" ) );
+		return files == null ? 0 : files.length;
+	}
+
+}
@@ -0,0 +1,397 @@
+/**
+ * Copyright (C) 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.plugins.excel;
+
+import static com.viiyue.plugins.excel.Checks.check;
+import static com.viiyue.plugins.excel.Checks.equal;
+import static com.viiyue.plugins.excel.Checks.ok;
+import static com.viiyue.plugins.excel.Checks.open;
+import static com.viiyue.plugins.excel.Checks.tempFile;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.lang.ref.WeakReference;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.poi.hssf.usermodel.HSSFPalette;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.hssf.util.HSSFColor;
+import org.apache.poi.ss.usermodel.BorderStyle;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.ConditionalFormatting;
+import org.apache.poi.ss.usermodel.ConditionalFormattingRule;
+import org.apache.poi.ss.usermodel.FillPatternType;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.PatternFormatting;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.SheetConditionalFormatting;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.usermodel.XSSFColor;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+import com.viiyue.plugins.excel.common.ColumnSource;
+import com.viiyue.plugins.excel.converter.DefaultStyleable;
+import com.viiyue.plugins.excel.converter.RowStyleable;
+import com.viiyue.plugins.excel.converter.Styleable;
+import com.viiyue.plugins.excel.enums.Aggregate;
+import com.viiyue.plugins.excel.enums.WriteMode;
+import com.viiyue.plugins.excel.metadata.CellInfo;
+import com.viiyue.plugins.excel.metadata.ExcelInfo;
+import com.viiyue.plugins.excel.metadata.Style;
+
+public class StyleTester {
+
+	public static void main( String [] args ) throws Exception {
+		shareCellStyles();
+		keepOpenedStyles();
+		releaseUnusedStyles();
+		keepTemplateColors();
+		formatConditionally();
+		styleStaticColumns();
+		styleRows();
+	}
+
+	private static void shareCellStyles() throws Exception {
+		for ( Workbook wb : new Workbook [] { new HSSFWorkbook(), new XSSFWorkbook() } ) {
+			Closeable styles = Style.open( wb );
+			try {
+				int cellStyles = wb.getNumCellStyles();
+				short first = Style.of( wb, "first" ).bgColor( "#F5F5F5" ).font( 10, true ).getCellStyle().getIndex();
+				short second = Style.of( wb, "second" ).font( 10, true ).bgColor( "#F5F5F5" ).getCellStyle().getIndex();
+				equal( first, second, "cell style of the same attributes" );
+				equal( cellStyles + 1, wb.getNumCellStyles(), "cell styles created" );
+			} finally {
+				styles.close();
+				wb.close();
+			}
+		}
+		ok( "share cell styles" );
+	}
+
+	private static void keepOpenedStyles() throws Exception {
+		Workbook wb = new XSSFWorkbook();
+		Closeable styles = Style.open( wb );
+		try {
+			short index = Style.of( wb, "cell" ).bgColor( "#F5F5F5" ).getCellStyle().getIndex();
+			int cellStyles = wb.getNumCellStyles();
+			collectGarbage();
+			equal( index, Style.of( wb, "other" ).bgColor( "#F5F5F5" ).getCellStyle().getIndex(), "cell style after a collection" );
+			equal( cellStyles, wb.getNumCellStyles(), "cell styles created" );
+		} finally {
+			styles.close();
+			wb.close();
+		}
+		ok( "keep opened styles" );
+	}
+
+	/**
+	 * The styles must not keep their workbooks reachable once the workbooks
+	 * are no longer used, whether they are closed or not.
+	 */
+	private static void releaseUnusedStyles() throws Exception {
+		WeakReference<Workbook> unopened = styledWorkbook( false );
+		WeakReference<Workbook> opened = styledWorkbook( true );
+		for ( int i = 0; i < 50 && ( unopened.get() != null || opened.get() != null ); i ++ ) {
+			collectGarbage();
+		}
+		check( unopened.get() == null, "The styles keep an unopened workbook" );
+		check( opened.get() == null, "The styles keep a closed workbook" );
+		ok( "release unused styles" );
+	}
+
+	/**
+	 * The palette entries referenced by the styles of a loaded <code>xls</code>
+	 * workbook keep their colors, the new colors take the other entries.
+	 */
+	private static void keepTemplateColors() throws Exception {
+		ByteArrayOutputStream template = new ByteArrayOutputStream();
+		try ( HSSFWorkbook wb = new HSSFWorkbook() ) {
+			HSSFPalette palette = wb.getCustomPalette();
+			for ( short index = 8; index < 64; index ++ ) {
+				palette.setColorAtIndex( index, ( byte ) 1, ( byte ) 2, ( byte ) index );
+			}
+			CellStyle style = wb.createCellStyle();
+			style.setFillForegroundColor( ( short ) 9 );
+			style.setFillPattern( FillPatternType.SOLID_FOREGROUND );
+			style.setBorderTop( BorderStyle.THIN );
+			style.setTopBorderColor( ( short ) 10 );
+			Font font = wb.createFont();
+			font.setColor( ( short ) 11 );
+			style.setFont( font );
+			wb.createSheet( "Template" ).createRow( 0 ).createCell( 0 ).setCellStyle( style );
+			wb.write( template );
+		}
+		try ( HSSFWorkbook wb = new HSSFWorkbook( new ByteArrayInputStream( template.toByteArray() ) ) ) {
+			HSSFPalette palette = wb.getCustomPalette();
+			Set<Short> taken = new HashSet<Short>();
+			for ( String color : new String [] { "#F5F5F5", "#D8D8D8", "#FF0000", "#00FF00" } ) {
+				short index = Style.of( wb, color ).bgColor( color ).fontColor( color ).getCellStyle().getFillForegroundColor();
+				check( index < 9 || index > 11, color + " replaces the template color " + index );
+				check( taken.add( index ), color + " shares the entry " + index );
+				equal( color, toHex( palette.getColor( index ) ), "palette color of " + color );
+			}
+			for ( short index = 9; index <= 11; index ++ ) {
+				equal( toHex( new byte [] { 1, 2, ( byte ) index } ), toHex( palette.getColor( index ) ), "template color " + index );
+			}
+		}
+		ok( "keep template colors" );
+	}
+
+	private static String toHex( HSSFColor color ) {
+		short [] triplet = color.getTriplet();
+		return toHex( new byte [] { ( byte ) triplet[ 0 ], ( byte ) triplet[ 1 ], ( byte ) triplet[ 2 ] } );
+	}
+
+	private static String toHex( byte [] rgb ) {
+		return String.format( "#%02X%02X%02X", rgb[ 0 ] & 0xFF, rgb[ 1 ] & 0xFF, rgb[ 2 ] & 0xFF );
+	}
+
+	private static WeakReference<Workbook> styledWorkbook( boolean open ) throws Exception {
+		Workbook wb = new XSSFWorkbook();
+		Closeable styles = open ? Style.open( wb ) : null;
+		Style.of( wb, "cell" ).bgColor( "#F5F5F5" ).getCellStyle();
+		Style.color( wb, "#D8D8D8" );
+		if ( styles != null ) {
+			styles.close();
+		}
+		return new WeakReference<Workbook>( wb );
+	}
+
+	/**
+	 * The banding and highlights are written once per sheet as conditional
+	 * fills in the declared order, the subtotal rows are left out of the
+	 * ranges and the data cells keep one style per column.
+	 */
+	private static void formatConditionally() throws Exception {
+		List<Map<String, Object>> dataList = new ArrayList<Map<String, Object>>();
+		String [] depts = { "A", "A", "B", "B" };
+		for ( int i = 0; i < depts.length; i ++ ) {
+			Map<String, Object> row = new LinkedHashMap<String, Object>();
+			row.put( "dept", depts[ i ] );
+			row.put( "amount", i == 1 ? -1 : i + 1 );
+			row.put( "status", i == 2 ? "FAILED" : "DONE" );
+			dataList.add( row );
+		}
+		ExcelInfo<Map<String, Object>> info = ExcelInfo.ofMap().cells( "dept", "amount", "status" ).banding( "#EEEEEE" )
+				.highlight( "amount", "<0", "#FF0000" ).highlightRow( "status", "=\"FAILED\"", "#FFFF00" );
+		ExcelInfo<Map<String, Object>> grouped = ExcelInfo.ofMap().groupBy( "dept" ).totalLabel( "Total" ).banding( "#EEEEEE" )
+				.addCell( CellInfo.newMapCell( "dept" ) )
+				.addCell( CellInfo.newMapCell( "amount" ).aggregate( Aggregate.SUM ) );
+		for ( boolean xssf : new boolean [] { true, false } ) {
+			for ( WriteMode mode : xssf ? WriteMode.values() : new WriteMode [] { WriteMode.MEMORY } ) {
+				String name = ( xssf ? "xlsx " : "xls " ) + mode;
+				File file = tempFile( xssf ? ".xlsx" : ".xls" );
+				ExcelWriter.of( info ).mode( mode ).addSheet( "Plain", dataList ).writeTo( file );
+				try ( Workbook wb = open( file ) ) {
+					Sheet sheet = wb.getSheet( "Plain" );
+					SheetConditionalFormatting formatting = sheet.getSheetConditionalFormatting();
+					equal( 3, formatting.getNumConditionalFormattings(), name + " conditional formattings" );
+					equal( "B2:B5|B2<0|FF0000", fill( wb, formatting.getConditionalFormattingAt( 0 ) ), name + " value highlight" );
+					equal( "A2:C5|$C2=\"FAILED\"|FFFF00", fill( wb, formatting.getConditionalFormattingAt( 1 ) ), name + " row highlight" );
+					equal( "A2:C5|MOD(ROW(),2)=0|EEEEEE", fill( wb, formatting.getConditionalFormattingAt( 2 ) ), name + " banding" );
+					for ( int cellIndex = 0; cellIndex < 3; cellIndex ++ ) {
+						CellStyle style = sheet.getRow( 1 ).getCell( cellIndex ).getCellStyle();
+						equal( style.getIndex(), sheet.getRow( 2 ).getCell( cellIndex ).getCellStyle().getIndex(), name + " style of the banded column " + cellIndex );
+						equal( FillPatternType.NO_FILL, style.getFillPattern(), name + " fill of the column " + cellIndex );
+					}
+				}
+				file = tempFile( xssf ? ".xlsx" : ".xls" );
+				ExcelWriter.of( grouped ).mode( mode ).addSheet( "Grouped", dataList ).writeTo( file );
+				try ( Workbook wb = open( file ) ) {
+					// Two groups and their subtotals, followed by the total
+					SheetConditionalFormatting formatting = wb.getSheet( "Grouped" ).getSheetConditionalFormatting();
+					equal( 1, formatting.getNumConditionalFormattings(), name + " grouped conditional formattings" );
+					equal( "A2:B3 A5:B6|MOD(ROW(),2)=0|EEEEEE", fill( wb, formatting.getConditionalFormattingAt( 0 ) ), name + " grouped banding" );
+				}
+			}
+		}
+		ok( "format conditionally" );
+	}
+
+	/**
+	 * @return the ranges, formula and fill color of the first rule
+	 */
+	private static String fill( Workbook wb, ConditionalFormatting formatting ) {
+		StringBuilder ranges = new StringBuilder();
+		for ( CellRangeAddress range : formatting.getFormattingRanges() ) {
+			ranges.append( ranges.length() == 0 ? "" : " " ).append( range.formatAsString() );
+		}
+		ConditionalFormattingRule rule = formatting.getRule( 0 );
+		PatternFormatting pattern = rule.getPatternFormatting();
+		byte [] rgb;
+		if ( wb instanceof HSSFWorkbook ) {
+			short [] triplet = ( ( HSSFWorkbook ) wb ).getCustomPalette().getColor( pattern.getFillBackgroundColor() ).getTriplet();
+			rgb = new byte [] { ( byte ) triplet[ 0 ], ( byte ) triplet[ 1 ], ( byte ) triplet[ 2 ] };
+		} else {
+			rgb = ( ( XSSFColor ) pattern.getFillBackgroundColorColor() ).getRGB();
+		}
+		return ranges + "|" + rule.getFormula1() + "|" + String.format( "%02X%02X%02X", rgb[ 0 ], rgb[ 1 ], rgb[ 2 ] );
+	}
+
+	/**
+	 * The static columns are styled once per sheet, combined with their date
+	 * formats, and only the dynamic columns are beautified cell by cell.
+	 */
+	private static void styleStaticColumns() throws Exception {
+		Map<String, AtomicInteger> calls = new ConcurrentHashMap<String, AtomicInteger>();
+		Styleable<Map<String, Object>> styleable = new DefaultStyleable<Map<String, Object>>( false ) {
+			@Override
+			public Style beautifyColumn( Workbook wb, String label ) {
+				calls.computeIfAbsent( "column:" + label, key -> new AtomicInteger() ).incrementAndGet();
+				return "amount".equals( label ) ? null : Style.of( wb, "static" ).bgColor( "#DDEBF7" );
+			}
+
+			@Override
+			public Style beautifyIt( Workbook wb, String label, Object value, Map<String, Object> element, Integer num ) {
+				calls.computeIfAbsent( label, key -> new AtomicInteger() ).incrementAndGet();
+				return ( Integer ) value < 0 ? Style.of( wb, "negative" ).font( null, "#FF0000", 10, false ) : Style.of( wb, "cell" );
+			}
+		};
+		ExcelInfo<Map<String, Object>> info = ExcelInfo.ofMap().styleable( styleable ).cells( "name", "amount", "date" );
+		info.getByLabel( "date" ).dateformat( "yyyy-MM-dd" ).dateCell( true );
+		List<Map<String, Object>> dataList = new ArrayList<Map<String, Object>>();
+		for ( int i = 1; i <= 10; i ++ ) {
+			Map<String, Object> row = new LinkedHashMap<String, Object>();
+			row.put( "name", "user" + i );
+			row.put( "amount", i % 4 == 0 ? -i : i );
+			row.put( "date", LocalDate.of( 2022, 3, i ) );
+			dataList.add( row );
+		}
+		for ( boolean xssf : new boolean [] { true, false } ) {
+			for ( WriteMode mode : xssf ? WriteMode.values() : new WriteMode [] { WriteMode.MEMORY } ) {
+				String name = ( xssf ? "xlsx " : "xls " ) + mode;
+				calls.clear();
+				File file = tempFile( xssf ? ".xlsx" : ".xls" );
+				ExcelWriter.of( info ).mode( mode ).addSheet( "First", dataList ).addSheet( "Second", dataList ).writeTo( file );
+				equal( 2, calls.get( "column:name" ).get(), name + " static styles taken" );
+				equal( null, calls.get( "name" ), name + " static cells beautified" );
+				equal( null, calls.get( "date" ), name + " static date cells beautified" );
+				equal( 20, calls.get( "amount" ).get(), name + " dynamic cells beautified" );
+				try ( Workbook wb = open( file ) ) {
+					for ( Sheet sheet : wb ) {
+						Row header = sheet.getRow( 0 );
+						check( header.getCell( 0 ).getCellStyle().getIndex() != sheet.getRow( 1 ).getCell( 0 ).getCellStyle().getIndex(), name + " header takes the column style" );
+						CellStyle names = sheet.getRow( 1 ).getCell( 0 ).getCellStyle();
+						equal( FillPatternType.SOLID_FOREGROUND, names.getFillPattern(), name + " fill of the static column" );
+						equal( BorderStyle.HAIR, names.getBorderBottom(), name + " static style is not applied to all" );
+						for ( int i = 1; i <= 10; i ++ ) {
+							Row row = sheet.getRow( i );
+							equal( names.getIndex(), row.getCell( 0 ).getCellStyle().getIndex(), name + " style of the static cell " + i );
+							CellStyle dates = row.getCell( 2 ).getCellStyle();
+							equal( "yyyy-mm-dd", dates.getDataFormatString(), name + " format of the static date cell " + i );
+							equal( names.getFillForegroundColorColor(), dates.getFillForegroundColorColor(), name + " fill of the static date cell " + i );
+							short amounts = sheet.getRow( 1 ).getCell( 1 ).getCellStyle().getIndex(); // Positive
+							equal( i % 4 != 0, amounts == row.getCell( 1 ).getCellStyle().getIndex(), name + " style of the dynamic cell " + i );
+						}
+					}
+				}
+			}
+		}
+		ok( "style static columns" );
+	}
+
+	/**
+	 * The cells of the sheet styleable are styled row by row, each style is
+	 * applied once per column, and the static columns and the cells with
+	 * styleables of their own are styled as before.
+	 */
+	private static void styleRows() throws Exception {
+		Map<String, AtomicInteger> calls = new ConcurrentHashMap<String, AtomicInteger>();
+		List<Object> elements = Collections.synchronizedList( new ArrayList<Object>() );
+		RowStyleable<Map<String, Object>> styleable = new RowStyleable<Map<String, Object>>() {
+			@Override
+			public Style beautifyColumn( Workbook wb, String label ) {
+				return "id".equals( label ) ? Style.of( wb, "id" ) : null;
+			}
+
+			@Override
+			public Style [] beautifyRow( Workbook wb, Map<String, Object> element, int num ) {
+				calls.computeIfAbsent( "row", key -> new AtomicInteger() ).incrementAndGet();
+				elements.add( element == null ? "column" : element.get( "id" ) );
+				Style style = num % 3 == 0 ? Style.of( wb, "failed" ).bgColor( "#FFC7CE" ) : Style.of( wb, "normal" );
+				return new Style [] { style, style, style, null };
+			}
+
+			@Override
+			public void applyAll( Style style, String label ) {
+				String kind = style.is( "failed" ) ? "failed" : style.is( "normal" ) ? "normal" : style.is( "id" ) ? "id" : "header";
+				calls.computeIfAbsent( label + ":" + kind, key -> new AtomicInteger() ).incrementAndGet();
+				style.border( BorderStyle.THIN );
+			}
+		};
+		ExcelInfo<Map<String, Object>> info = ExcelInfo.ofMap().styleable( styleable ).cells( "id", "name", "status", "note" );
+		info.getByLabel( "name" ).styleable( ( wb, label, value, element, num ) -> Style.of( wb, "name" ) );
+		List<Map<String, Object>> dataList = new ArrayList<Map<String, Object>>();
+		for ( int id = 1; id <= 9; id ++ ) {
+			Map<String, Object> row = new LinkedHashMap<String, Object>();
+			row.put( "id", id );
+			row.put( "name", "user" + id );
+			row.put( "status", ( id + 1 ) % 3 == 0 ? "FAILED" : "DONE" ); // On the rows numbered 3, 6 and 9
+			row.put( "note", "" );
+			dataList.add( row );
+		}
+		for ( WriteMode mode : WriteMode.values() ) {
+			calls.clear();
+			elements.clear();
+			File file = tempFile( ".xlsx" );
+			ExcelWriter.of( info ).mode( mode ).addSheet( "Rows", dataList )
+					.addSheet( "Columns", ColumnSource.of( 3 ).column( "id", new int [] { 1, 2, 3 } ) ).writeTo( file );
+			equal( 12, calls.get( "row" ).get(), mode + " rows beautified" );
+			equal( Arrays.asList( 1, 2, 3, 4, 5, 6, 7, 8, 9, "column", "column", "column" ), elements, mode + " beautified elements" );
+			equal( 2, calls.get( "status:failed" ).get(), mode + " failed styles applied" ); // Once per sheet
+			equal( 2, calls.get( "status:normal" ).get(), mode + " normal styles applied" );
+			equal( 2, calls.get( "id:id" ).get(), mode + " static styles applied" );
+			equal( null, calls.get( "id:failed" ), mode + " static column beautified by row" );
+			equal( null, calls.get( "name:failed" ), mode + " own styleable replaced by the row" );
+			try ( Workbook wb = open( file ) ) {
+				Sheet sheet = wb.getSheet( "Rows" );
+				short normal = sheet.getRow( 1 ).getCell( 2 ).getCellStyle().getIndex();
+				short failed = sheet.getRow( 2 ).getCell( 2 ).getCellStyle().getIndex();
+				check( normal != failed, mode + " failed rows are not highlighted" );
+				equal( FillPatternType.SOLID_FOREGROUND, wb.getCellStyleAt( failed ).getFillPattern(), mode + " fill of the failed rows" );
+				equal( BorderStyle.THIN, wb.getCellStyleAt( failed ).getBorderBottom(), mode + " failed style is not applied to all" );
+				for ( int i = 1; i <= 9; i ++ ) {
+					Row row = sheet.getRow( i );
+					equal( "FAILED".equals( row.getCell( 2 ).getStringCellValue() ) ? failed : normal, row.getCell( 2 ).getCellStyle().getIndex(), mode + " style of row " + i );
+					equal( sheet.getRow( 1 ).getCell( 0 ).getCellStyle().getIndex(), row.getCell( 0 ).getCellStyle().getIndex(), mode + " static style of row " + i );
+					equal( sheet.getRow( 1 ).getCell( 1 ).getCellStyle().getIndex(), row.getCell( 1 ).getCellStyle().getIndex(), mode + " own style of row " + i );
+					equal( ( short ) 0, row.getCell( 3 ).getCellStyle().getIndex(), mode + " unstyled cell of row " + i );
+				}
+			}
+		}
+		ok( "style rows" );
+	}
+
+	private static void collectGarbage() throws InterruptedException {
+		System.gc();
+		Thread.sleep( 20 );
+	}
+
+}
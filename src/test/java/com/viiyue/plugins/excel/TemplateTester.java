@@ -0,0 +1,116 @@
+/**
+ * Copyright (C) 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.plugins.excel;
+
+import static com.viiyue.plugins.excel.Checks.check;
+import static com.viiyue.plugins.excel.Checks.equal;
+import static com.viiyue.plugins.excel.Checks.ok;
+import static com.viiyue.plugins.excel.Checks.open;
+import static com.viiyue.plugins.excel.Checks.row;
+import static com.viiyue.plugins.excel.Checks.tempFile;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.usermodel.FillPatternType;
+import org.apache.poi.ss.usermodel.IndexedColors;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+import com.viiyue.plugins.excel.enums.WriteMode;
+import com.viiyue.plugins.excel.metadata.ExcelInfo;
+
+public class TemplateTester {
+
+	public static void main( String [] args ) throws Exception {
+		fillDateCells();
+	}
+
+	/**
+	 * The date cells of a template sheet are written as dates in the format of
+	 * the cell, and keep the style of the anchor row and the column widths of
+	 * the template.
+	 */
+	private static void fillDateCells() throws Exception {
+		ExcelInfo<Map<String, Object>> info = ExcelInfo.ofMap().cells( "id", "date" );
+		info.getByLabel( "date" ).dateformat( "yyyy-MM-dd" ).dateCell( true ).width( 1000 );
+		List<Map<String, Object>> orders = new ArrayList<Map<String, Object>>();
+		for ( int id = 1; id <= 3; id ++ ) {
+			Map<String, Object> order = new LinkedHashMap<String, Object>();
+			order.put( "id", id );
+			order.put( "date", Date.from( LocalDate.of( 2022, 3, id ).atStartOfDay( ZoneId.systemDefault() ).toInstant() ) );
+			orders.add( order );
+		}
+		for ( boolean xssf : new boolean [] { true, false } ) {
+			File template = template( xssf );
+			for ( WriteMode mode : xssf ? WriteMode.values() : new WriteMode [] { WriteMode.MEMORY } ) {
+				File file = tempFile( xssf ? ".xlsx" : ".xls" );
+				ExcelWriter.of( info ).mode( mode ).template( template, 1 ).addSheet( "Orders", orders ).writeTo( file );
+				String name = ( xssf ? "xlsx " : "xls " ) + mode;
+				try ( Workbook wb = open( file ) ) {
+					Sheet sheet = wb.getSheet( "Orders" );
+					equal( "ID,Date", row( sheet, 0 ), name + " header" );
+					equal( 5000, sheet.getColumnWidth( 1 ), name + " column width" );
+					for ( int id = 1; id <= 3; id ++ ) {
+						Cell cell = sheet.getRow( id ).getCell( 1 );
+						equal( CellType.NUMERIC, cell.getCellType(), name + " type of the date cell " + id );
+						check( DateUtil.isCellDateFormatted( cell ), name + " date cell " + id + " is not formatted as a date" );
+						equal( id + ",2022-03-0" + id, row( sheet, id ), name + " row " + id );
+						CellStyle style = cell.getCellStyle();
+						equal( FillPatternType.SOLID_FOREGROUND, style.getFillPattern(), name + " fill of the date cell " + id );
+						equal( IndexedColors.YELLOW.getIndex(), style.getFillForegroundColor(), name + " fill color of the date cell " + id );
+					}
+				}
+			}
+		}
+		ok( "fill date cells" );
+	}
+
+	private static File template( boolean xssf ) throws Exception {
+		File file = tempFile( xssf ? ".xlsx" : ".xls" );
+		try ( Workbook wb = xssf ? new XSSFWorkbook() : new HSSFWorkbook(); OutputStream os = new FileOutputStream( file ) ) {
+			Sheet sheet = wb.createSheet( "Orders" );
+			Row header = sheet.createRow( 0 );
+			header.createCell( 0 ).setCellValue( "ID" );
+			header.createCell( 1 ).setCellValue( "Date" );
+			CellStyle style = wb.createCellStyle();
+			style.setFillForegroundColor( IndexedColors.YELLOW.getIndex() );
+			style.setFillPattern( FillPatternType.SOLID_FOREGROUND );
+			Row anchor = sheet.createRow( 1 );
+			anchor.createCell( 0 ).setCellStyle( style );
+			anchor.createCell( 1 ).setCellStyle( style );
+			sheet.setColumnWidth( 1, 5000 );
+			wb.write( os );
+		}
+		return file;
+	}
+
+}
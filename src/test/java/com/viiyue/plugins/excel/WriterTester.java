@@ -0,0 +1,576 @@
+/**
+ * Copyright (C) 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.plugins.excel;
+
+import static com.viiyue.plugins.excel.Checks.check;
+import static com.viiyue.plugins.excel.Checks.equal;
+import static com.viiyue.plugins.excel.Checks.ok;
+import static com.viiyue.plugins.excel.Checks.open;
+import static com.viiyue.plugins.excel.Checks.row;
+import static com.viiyue.plugins.excel.Checks.rows;
+import static com.viiyue.plugins.excel.Checks.tempFile;
+import static com.viiyue.plugins.excel.RolloverTester.users;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
+import org.apache.poi.ss.util.PaneInformation;
+import org.apache.poi.util.IOUtils;
+
+import com.viiyue.plugins.excel.common.ColumnSource;
+import com.viiyue.plugins.excel.common.RowQueue;
+import com.viiyue.plugins.excel.enums.Aggregate;
+import com.viiyue.plugins.excel.enums.Gender;
+import com.viiyue.plugins.excel.enums.StringMode;
+import com.viiyue.plugins.excel.enums.WriteMode;
+import com.viiyue.plugins.excel.metadata.CellInfo;
+import com.viiyue.plugins.excel.metadata.ExcelInfo;
+
+public class WriterTester {
+
+	public static void main( String [] args ) throws Exception {
+		streamThroughWindow();
+		pullLazySheets();
+		writeDirectly();
+		writeSheetsInParallel();
+		writeValueTypes();
+		estimateColumnWidths();
+		writeQueuedRows();
+		writeStringModes();
+		writeDateCells();
+		writePositionalRows();
+		writeColumns();
+	}
+
+	/**
+	 * The rows beyond the window are flushed while the sheet is written, all of
+	 * them end up in the workbook.
+	 */
+	private static void streamThroughWindow() throws Exception {
+		File file = tempFile( ".xlsx" );
+		ExcelWriter.of( RolloverTester.users() ).streaming( 100 ).addSheet( "Users", users( 1, 5000 ) ).writeTo( file );
+		try ( Workbook wb = open( file ) ) {
+			Sheet sheet = wb.getSheet( "Users" );
+			equal( 5000, sheet.getLastRowNum(), "rows" );
+			equal( "id,name", row( sheet, 0 ), "header" );
+			for ( int id = 1; id <= 5000; id ++ ) {
+				equal( id + ",user" + id, row( sheet, id ), "row " + id );
+			}
+		}
+		ok( "stream through window" );
+	}
+
+	/**
+	 * The iterators, streams and pages are only pulled while their sheets are
+	 * written, and the streams are closed afterwards.
+	 */
+	private static void pullLazySheets() throws Exception {
+		for ( WriteMode mode : WriteMode.values() ) {
+			AtomicBoolean closed = new AtomicBoolean();
+			AtomicInteger pages = new AtomicInteger();
+			ExcelWriter<Map<String, Object>> writer = ExcelWriter.of( RolloverTester.users() ).mode( mode )
+					.addSheet( "Iterator", users( 1, 1000 ).iterator() )
+					.addSheet( "Stream", users( 1, 3 ).stream().onClose( () -> closed.set( true ) ) )
+					.addSheet( "Pages", () -> users( pages.get() * 250 + 1, pages.getAndIncrement() < 4 ? 250 : 0 ) );
+			writer.append( users( 1001, 1 ).get( 0 ) );
+			equal( 0, pages.get(), mode + " pages pulled before writing" );
+			File file = tempFile( ".xlsx" );
+			writer.writeTo( file );
+			check( closed.get(), mode + " stream is not closed" );
+			equal( 5, pages.get(), mode + " pages pulled" );
+			try ( Workbook wb = open( file ) ) {
+				equal( 1000, wb.getSheet( "Iterator" ).getLastRowNum(), mode + " iterator rows" );
+				equal( "1000,user1000", row( wb.getSheet( "Iterator" ), 1000 ), mode + " last iterator row" );
+				rows( wb.getSheet( "Stream" ), "id,name", "1,user1", "2,user2", "3,user3" );
+				Sheet sheet = wb.getSheet( "Pages" );
+				equal( 1001, sheet.getLastRowNum(), mode + " paged rows" );
+				for ( int id = 1; id <= 1001; id ++ ) {
+					equal( id + ",user" + id, row( sheet, id ), mode + " paged row " + id );
+				}
+			}
+		}
+		ok( "pull lazy sheets" );
+	}
+
+	/**
+	 * The direct engine writes the same cells, header styles, freeze panes and
+	 * column widths as the memory mode.
+	 */
+	private static void writeDirectly() throws Exception {
+		ExcelInfo<Map<String, Object>> info = ExcelInfo.ofMap().cells( "id", "text", "amount", "flag", "blank", "date" ).cellHeight( 20 );
+		info.getByLabel( "text" ).width( 30 );
+		List<Map<String, Object>> rows = new ArrayList<Map<String, Object>>();
+		for ( int id = 1; id <= 300; id ++ ) {
+			Map<String, Object> row = new LinkedHashMap<String, Object>();
+			row.put( "id", id );
+			row.put( "text", id % 3 == 0 ? "<a href=\"x\">&amp;</a> ' \u4E2D\u6587 \uD83D\uDE00" : " padded " + id + " " );
+			row.put( "amount", id * 1.25 );
+			row.put( "flag", id % 2 == 0 );
+			row.put( "blank", null );
+			row.put( "date", new Date( 1646000000000L + id * 86400000L ) );
+			rows.add( row );
+		}
+		File memory = tempFile( ".xlsx" );
+		File direct = tempFile( ".xlsx" );
+		ExcelWriter.of( info ).mode( WriteMode.MEMORY ).addSheet( "First", rows ).addSheet( "Second", rows.subList( 0, 2 ) ).writeTo( memory );
+		ExcelWriter.of( info ).mode( WriteMode.DIRECT ).addSheet( "First", rows ).addSheet( "Second", rows.subList( 0, 2 ) ).writeTo( direct );
+		try ( Workbook expected = open( memory ); Workbook actual = open( direct ) ) {
+			equal( expected.getNumberOfSheets(), actual.getNumberOfSheets(), "sheets" );
+			for ( int sheetIndex = 0; sheetIndex < expected.getNumberOfSheets(); sheetIndex ++ ) {
+				Sheet expectedSheet = expected.getSheetAt( sheetIndex );
+				Sheet actualSheet = actual.getSheetAt( sheetIndex );
+				String name = expectedSheet.getSheetName();
+				equal( name, actualSheet.getSheetName(), "sheet name" );
+				equal( expectedSheet.getLastRowNum(), actualSheet.getLastRowNum(), name + " rows" );
+				equal( pane( expectedSheet ), pane( actualSheet ), name + " freeze pane" );
+				for ( int cellIndex = 0; cellIndex < 6; cellIndex ++ ) {
+					equal( expectedSheet.getColumnWidth( cellIndex ), actualSheet.getColumnWidth( cellIndex ), name + " width of column " + cellIndex );
+				}
+				for ( int rowIndex = 0; rowIndex <= expectedSheet.getLastRowNum(); rowIndex ++ ) {
+					Row expectedRow = expectedSheet.getRow( rowIndex );
+					Row actualRow = actualSheet.getRow( rowIndex );
+					equal( row( expectedSheet, rowIndex ), row( actualSheet, rowIndex ), name + " row " + rowIndex );
+					equal( expectedRow.getHeight(), actualRow.getHeight(), name + " height of row " + rowIndex );
+					for ( int cellIndex = 0; cellIndex < 6; cellIndex ++ ) {
+						Cell expectedCell = expectedRow.getCell( cellIndex );
+						Cell actualCell = actualRow.getCell( cellIndex );
+						String at = name + " cell " + rowIndex + ":" + cellIndex;
+						equal( expectedCell == null ? null : expectedCell.getCellType(), actualCell == null ? null : actualCell.getCellType(), at + " type" );
+						if ( expectedCell != null && actualCell != null ) {
+							CellStyle expectedStyle = expectedCell.getCellStyle();
+							CellStyle actualStyle = actualCell.getCellStyle();
+							equal( expectedStyle.getFillPattern(), actualStyle.getFillPattern(), at + " fill" );
+							equal( String.valueOf( expectedStyle.getFillForegroundColorColor() ), String.valueOf( actualStyle.getFillForegroundColorColor() ), at + " fill color" );
+							equal( expectedStyle.getDataFormatString(), actualStyle.getDataFormatString(), at + " data format" );
+						}
+					}
+				}
+			}
+		}
+		try ( Workbook wb = WorkbookFactory.create( new FileInputStream( direct ) ) ) {
+			equal( 300, wb.getSheet( "First" ).getLastRowNum(), "rows read by streaming" );
+		}
+		ok( "write directly" );
+	}
+
+	/**
+	 * The sheets rendered in parallel are written in the order they were
+	 * added, the same as the sheets rendered one by one.
+	 */
+	private static void writeSheetsInParallel() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool( 4 );
+		try {
+			Date timestamp = new Date( 1646000000000L );
+			ByteArrayOutputStream sequential = new ByteArrayOutputStream();
+			ByteArrayOutputStream parallel = new ByteArrayOutputStream();
+			sheets( ExcelWriter.of( RolloverTester.users() ).mode( WriteMode.DIRECT ).timestamp( timestamp ) ).writeTo( sequential, true );
+			sheets( ExcelWriter.of( RolloverTester.users() ).mode( WriteMode.DIRECT ).timestamp( timestamp ).parallel( executor ) ).writeTo( parallel, true );
+			check( Arrays.equals( sequential.toByteArray(), parallel.toByteArray() ), "The parallel workbook differs from the sequential one" );
+			try ( Workbook wb = WorkbookFactory.create( new ByteArrayInputStream( parallel.toByteArray() ) ) ) {
+				equal( 6, wb.getNumberOfSheets(), "sheets" );
+				for ( int i = 0; i < 6; i ++ ) {
+					Sheet sheet = wb.getSheetAt( i );
+					equal( "Sheet" + i, sheet.getSheetName(), "sheet name " + i );
+					equal( ( 6 - i ) * 2000, sheet.getLastRowNum(), "rows of sheet " + i );
+					equal( "1,user1", row( sheet, 1 ), "first row of sheet " + i );
+				}
+			}
+		} finally {
+			executor.shutdown();
+		}
+		ok( "write sheets in parallel" );
+	}
+
+	/**
+	 * The values are written by the writers compiled for the declared types of
+	 * the bean fields, or for the types of the values themselves, which may
+	 * change from row to row.
+	 */
+	private static void writeValueTypes() throws Exception {
+		Date date = new Date( 1646000000000L );
+		List<User> users = Arrays.asList( User.newUser( "young", 9, "young@mail.com", date, true ), User.newUser( "old", 30, null, date, false ) );
+		users.get( 1 ).setGender( Gender.MALE );
+		ExcelInfo<Map<String, Object>> info = ExcelInfo.ofMap().cells( "value" );
+		info.getByLabel( "value" ).dateformat( "yyyy-MM-dd" );
+		Object [] values = { 1, 2L, new BigDecimal( "3.5" ), "text", true, Gender.MALE, LocalDate.of( 2022, 3, 4 ), 'c', 7 };
+		List<Map<String, Object>> rows = new ArrayList<Map<String, Object>>();
+		for ( Object value : values ) {
+			rows.add( Collections.singletonMap( "value", value ) );
+		}
+		String [] texts = { "1", "2", "3.5", "text", "true", "男性", "2022-03-04", "c", "7" };
+		for ( WriteMode mode : WriteMode.values() ) {
+			File beans = tempFile( ".xlsx" );
+			File maps = tempFile( ".xlsx" );
+			ExcelWriter.of( User.class ).mode( mode ).addSheet( "Users", users ).writeTo( beans );
+			ExcelWriter.of( info ).mode( mode ).addSheet( "Values", rows ).writeTo( maps );
+			try ( Workbook wb = open( beans ) ) {
+				Sheet sheet = wb.getSheet( "Users" );
+				equal( "姓名,年龄,邮箱地址,日期,性别,状态值", row( sheet, 0 ), mode + " bean header" );
+				String time = new User.MyWriteConverter().convert( date ).toString();
+				equal( "young,9,young@mail.com," + time + ",女性,正常", row( sheet, 1 ), mode + " first bean" );
+				equal( "old,30,," + time + ",男性,异常", row( sheet, 2 ), mode + " second bean" );
+				equal( CellType.NUMERIC, sheet.getRow( 1 ).getCell( 1 ).getCellType(), mode + " type of the age" );
+				equal( CellType.STRING, sheet.getRow( 1 ).getCell( 3 ).getCellType(), mode + " type of the converted date" );
+			}
+			try ( Workbook wb = open( maps ) ) {
+				Sheet sheet = wb.getSheet( "Values" );
+				for ( int i = 0; i < values.length; i ++ ) {
+					Cell cell = sheet.getRow( i + 1 ).getCell( 0 );
+					String at = mode + " " + values[ i ].getClass().getSimpleName() + " value";
+					equal( texts[ i ], row( sheet, i + 1 ), at );
+					equal( values[ i ] instanceof Number ? CellType.NUMERIC : CellType.STRING, cell.getCellType(), at + " type" );
+				}
+			}
+		}
+		ok( "write value types" );
+	}
+
+	/**
+	 * The auto-sized columns take the widest value of the sampled rows, the
+	 * header included, wide characters counting twice and multi-line text by
+	 * its longest line.
+	 */
+	private static void estimateColumnWidths() throws Exception {
+		ExcelInfo<Map<String, Object>> info = ExcelInfo.ofMap().cells( "id", "name", "note" ).autoSizeSampleRows( 100 );
+		info.getCells().forEach( cell -> cell.widthAutoSize( true ) );
+		List<Map<String, Object>> rows = users( 1, 200 );
+		rows.get( 49 ).put( "note", "\u4E2D\u6587\u4E2D\u6587\u4E2D\u6587" ); // 12 characters wide
+		rows.get( 59 ).put( "note", "short\nshort" );
+		rows.get( 149 ).put( "note", StringUtils.repeat( 'x', 100 ) ); // Beyond the sampled rows
+		for ( WriteMode mode : WriteMode.values() ) {
+			File file = tempFile( ".xlsx" );
+			ExcelWriter.of( info ).mode( mode ).addSheet( "Users", rows ).writeTo( file );
+			try ( Workbook wb = open( file ) ) {
+				Sheet sheet = wb.getSheet( "Users" );
+				equal( ( 2 + 2 ) * 256, sheet.getColumnWidth( 0 ), mode + " width of the ids" ); // Up to "99"
+				equal( ( 6 + 2 ) * 256, sheet.getColumnWidth( 1 ), mode + " width of the names" ); // Up to "user99"
+				equal( ( 12 + 2 ) * 256, sheet.getColumnWidth( 2 ), mode + " width of the notes" );
+			}
+		}
+
+		// Without a sample size, only the direct mode bounds the rows held back
+		info.autoSizeSampleRows( 0 );
+		rows = users( 1, 6000 );
+		rows.get( 5999 ).put( "note", StringUtils.repeat( 'x', 100 ) );
+		for ( WriteMode mode : WriteMode.values() ) {
+			File file = tempFile( ".xlsx" );
+			ExcelWriter.of( info ).mode( mode ).addSheet( "Users", rows ).writeTo( file );
+			try ( Workbook wb = open( file ) ) {
+				Sheet sheet = wb.getSheet( "Users" );
+				equal( ( mode == WriteMode.DIRECT ? 4 : 100 ) + 2, sheet.getColumnWidth( 2 ) / 256, mode + " width of the last note" );
+				equal( "6000,user6000,x" + StringUtils.repeat( 'x', 99 ), row( sheet, 6000 ), mode + " last row" );
+			}
+		}
+		ok( "estimate column widths" );
+	}
+
+	/**
+	 * The producers fill the bounded queues while the workbook is written, a
+	 * failed producer fails the future instead of blocking the writer.
+	 */
+	private static void writeQueuedRows() throws Exception {
+		for ( WriteMode mode : WriteMode.values() ) {
+			RowQueue<Map<String, Object>> first = new RowQueue<Map<String, Object>>( 10 );
+			RowQueue<Map<String, Object>> second = new RowQueue<Map<String, Object>>( 10 );
+			ByteArrayOutputStream output = new ByteArrayOutputStream();
+			CompletableFuture<Long> future = ExcelWriter.of( RolloverTester.users() ).mode( mode )
+					.addSheet( "First", first ).addSheet( "Second", second ).writeToAsync( output, true );
+			produce( first, 1, 3000 ).get( 30, TimeUnit.SECONDS );
+			produce( second, 3001, 1000 ).get( 30, TimeUnit.SECONDS );
+			long bytes = future.get( 30, TimeUnit.SECONDS );
+			equal( ( long ) output.size(), bytes, mode + " bytes written" );
+			try ( Workbook wb = WorkbookFactory.create( new ByteArrayInputStream( output.toByteArray() ) ) ) {
+				equal( 3000, wb.getSheet( "First" ).getLastRowNum(), mode + " first rows" );
+				equal( 1000, wb.getSheet( "Second" ).getLastRowNum(), mode + " second rows" );
+				for ( int id = 1; id <= 3000; id ++ ) {
+					equal( id + ",user" + id, row( wb.getSheet( "First" ), id ), mode + " first row " + id );
+				}
+				equal( "4000,user4000", row( wb.getSheet( "Second" ), 1000 ), mode + " last second row" );
+			}
+
+			RowQueue<Map<String, Object>> failing = new RowQueue<Map<String, Object>>( 10 );
+			future = ExcelWriter.of( RolloverTester.users() ).mode( mode ).addSheet( "Failing", failing )
+					.writeToAsync( new ByteArrayOutputStream(), true );
+			failing.put( users( 1, 1 ).get( 0 ) );
+			failing.fail( new IllegalArgumentException( "broken source" ) );
+			try {
+				future.get( 30, TimeUnit.SECONDS );
+				throw new AssertionError( mode + " failed producer is not reported" );
+			} catch ( ExecutionException e ) {
+				Throwable cause = e.getCause();
+				while ( cause != null && !( cause instanceof IllegalArgumentException ) ) {
+					cause = cause.getCause();
+				}
+				check( cause != null && "broken source".equals( cause.getMessage() ), mode + " failure cause: " + e.getCause() );
+			}
+			check( failing.isClosed(), mode + " failed queue is not closed" );
+		}
+		ok( "write queued rows" );
+	}
+
+	/**
+	 * The shared columns reference the strings table while the inline columns
+	 * keep their text, and the bounded cache only writes a string again once
+	 * it has been evicted.
+	 */
+	private static void writeStringModes() throws Exception {
+		ExcelInfo<Map<String, Object>> info = ExcelInfo.ofMap().cells( "id", "name", "status" );
+		info.stringMode( StringMode.SHARED ).sharedStringsCacheSize( 2 );
+		info.getCells().get( 1 ).stringMode( StringMode.INLINE );
+		List<Map<String, Object>> rows = users( 1, 100 );
+		for ( Map<String, Object> row : rows ) {
+			row.put( "status", ( Integer ) row.get( "id" ) % 2 == 0 ? "on" : "off" );
+		}
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		ExcelWriter.of( info ).mode( WriteMode.DIRECT ).addSheet( "Users", rows ).writeTo( output, true );
+		Map<String, String> parts = parts( output.toByteArray() );
+		String sheet = parts.get( "xl/worksheets/sheet1.xml" );
+		equal( 101, StringUtils.countMatches( sheet, "t=\"inlineStr\"" ), "inline names" ); // Header included
+		equal( 102, StringUtils.countMatches( sheet, "t=\"s\"" ), "shared statuses" ); // Two labels included, the numeric ids are no text
+		check( parts.get( "xl/sharedStrings.xml" ).contains( "count=\"102\" uniqueCount=\"4\"" ), "cached strings: " + parts.get( "xl/sharedStrings.xml" ) );
+		try ( Workbook wb = WorkbookFactory.create( new ByteArrayInputStream( output.toByteArray() ) ) ) {
+			rows( wb.getSheet( "Users" ), expected( rows ) );
+		}
+
+		for ( Map<String, Object> row : rows ) {
+			row.put( "status", "s" + ( Integer ) row.get( "id" ) % 3 ); // Cycles through more strings than cached
+		}
+		output.reset();
+		ExcelWriter.of( info ).mode( WriteMode.DIRECT ).addSheet( "Users", rows ).writeTo( output, true );
+		check( parts( output.toByteArray() ).get( "xl/sharedStrings.xml" ).contains( "count=\"102\" uniqueCount=\"102\"" ), "evicted strings" );
+		try ( Workbook wb = WorkbookFactory.create( new ByteArrayInputStream( output.toByteArray() ) ) ) {
+			rows( wb.getSheet( "Users" ), expected( rows ) );
+		}
+
+		info.getCells().get( 1 ).stringMode( StringMode.DEFAULT );
+		info.stringMode( StringMode.INLINE );
+		output.reset();
+		ExcelWriter.of( info ).mode( WriteMode.DIRECT ).addSheet( "Users", rows ).writeTo( output, true );
+		parts = parts( output.toByteArray() );
+		check( !parts.containsKey( "xl/sharedStrings.xml" ), "strings table of an inline workbook" );
+		equal( 0, StringUtils.countMatches( parts.get( "xl/worksheets/sheet1.xml" ), "t=\"s\"" ), "shared cells of an inline workbook" );
+		ok( "write string modes" );
+	}
+
+	/**
+	 * Read by streaming, which fails if the local headers do not describe the
+	 * data descriptors of the entries.
+	 */
+	private static Map<String, String> parts( byte [] xlsx ) throws IOException {
+		Map<String, String> parts = new HashMap<String, String>();
+		try ( ZipInputStream zip = new ZipInputStream( new ByteArrayInputStream( xlsx ) ) ) {
+			for ( ZipEntry entry; ( entry = zip.getNextEntry() ) != null; ) {
+				parts.put( entry.getName(), new String( IOUtils.toByteArray( zip ), StandardCharsets.UTF_8 ) );
+			}
+		}
+		return parts;
+	}
+
+	private static String [] expected( List<Map<String, Object>> rows ) {
+		List<String> expected = new ArrayList<String>();
+		expected.add( "id,name,status" );
+		for ( Map<String, Object> row : rows ) {
+			expected.add( row.get( "id" ) + "," + row.get( "name" ) + "," + row.get( "status" ) );
+		}
+		return expected.toArray( new String[ expected.size() ] );
+	}
+
+	/**
+	 * The dates are written as numeric cells displayed in the converted
+	 * formats, a pattern that Excel cannot display keeps the text.
+	 */
+	private static void writeDateCells() throws Exception {
+		ExcelInfo<Map<String, Object>> info = ExcelInfo.ofMap().cells( "date", "day", "time", "zoned" );
+		info.getByLabel( "date" ).dateformat( "yyyy-MM-dd" ).dateCell( true );
+		info.getByLabel( "day" ).dateformat( "yyyy'\u5E74'M'\u6708'd'\u65E5'" ).dateCell( true );
+		info.getByLabel( "time" ).dateformat( "yyyy/MM/dd HH:mm:ss.SSS" ).dateCell( true );
+		info.getByLabel( "zoned" ).dateformat( "yyyy-MM-dd XXX" ).dateCell( true );
+		List<Map<String, Object>> rows = new ArrayList<Map<String, Object>>();
+		for ( int day = 1; day <= 3; day ++ ) {
+			LocalDateTime time = LocalDateTime.of( 2022, 3, day, 13, 30, 15, 250_000_000 );
+			Map<String, Object> row = new LinkedHashMap<String, Object>();
+			row.put( "date", Date.from( time.atZone( ZoneId.systemDefault() ).toInstant() ) );
+			row.put( "day", time.toLocalDate() );
+			row.put( "time", time );
+			row.put( "zoned", Date.from( time.atZone( ZoneId.systemDefault() ).toInstant() ) );
+			rows.add( row );
+		}
+		DataFormatter formatter = new DataFormatter();
+		String zone = DateTimeFormatter.ofPattern( "XXX" ).format( LocalDateTime.of( 2022, 3, 1, 0, 0 ).atZone( ZoneId.systemDefault() ) );
+		for ( boolean xssf : new boolean [] { true, false } ) {
+			for ( WriteMode mode : xssf ? WriteMode.values() : new WriteMode [] { WriteMode.MEMORY } ) {
+				String name = ( xssf ? "xlsx " : "xls " ) + mode;
+				File file = tempFile( xssf ? ".xlsx" : ".xls" );
+				ExcelWriter.of( info ).mode( mode ).addSheet( "Dates", rows ).writeTo( file );
+				try ( Workbook wb = open( file ) ) {
+					Sheet sheet = wb.getSheet( "Dates" );
+					Row first = sheet.getRow( 1 );
+					equal( "yyyy-mm-dd", first.getCell( 0 ).getCellStyle().getDataFormatString(), name + " date format" );
+					equal( "yyyy\"\u5E74\"m\"\u6708\"d\"\u65E5\"", first.getCell( 1 ).getCellStyle().getDataFormatString(), name + " quoted format" );
+					equal( "yyyy/mm/dd hh:mm:ss.000", first.getCell( 2 ).getCellStyle().getDataFormatString(), name + " time format" );
+					for ( int day = 1; day <= 3; day ++ ) {
+						Row row = sheet.getRow( day );
+						for ( int cellIndex = 0; cellIndex < 3; cellIndex ++ ) {
+							Cell cell = row.getCell( cellIndex );
+							equal( CellType.NUMERIC, cell.getCellType(), name + " type of date cell " + day + ":" + cellIndex );
+							check( DateUtil.isCellDateFormatted( cell ), name + " date cell " + day + ":" + cellIndex + " is not formatted as a date" );
+						}
+						LocalDateTime time = LocalDateTime.of( 2022, 3, day, 13, 30, 15, 250_000_000 );
+						equal( time.toLocalDate().atStartOfDay(), row.getCell( 1 ).getLocalDateTimeCellValue(), name + " day of row " + day );
+						equal( time, row.getCell( 2 ).getLocalDateTimeCellValue(), name + " time of row " + day );
+						equal( CellType.STRING, row.getCell( 3 ).getCellType(), name + " type of zoned cell " + day );
+						// The formatter of POI does not unquote the literal text of date formats
+						String text = formatter.formatCellValue( row.getCell( 0 ) ) + "," + formatter.formatCellValue( row.getCell( 2 ) ) + "," + row.getCell( 3 ).getStringCellValue();
+						equal( "2022-03-0" + day + ",2022/03/0" + day + " 13:30:15.250,2022-03-0" + day + " " + zone, text, name + " row " + day );
+					}
+				}
+			}
+		}
+		ok( "write date cells" );
+	}
+
+	/**
+	 * The values of the array and list rows are written to the cells by index,
+	 * short rows end with blank cells and the values beyond the cells are
+	 * ignored.
+	 */
+	private static void writePositionalRows() throws Exception {
+		List<Object> elements = Collections.synchronizedList( new ArrayList<Object>() );
+		ExcelInfo<Object> info = ExcelInfo.<Object>ofBean().cells( "id", "name", "note" );
+		info.getByLabel( "name" ).writer( value -> value == null ? null : value.toString().toUpperCase() );
+		info.getByLabel( "note" ).styleable( ( wb, label, value, element, num ) -> {
+			elements.add( element );
+			return null;
+		} );
+		Object [] array = { 1, "a", "first" };
+		List<Object> list = Arrays.asList( 2, "b", null );
+		List<Object> linked = new LinkedList<Object>( Arrays.asList( 3, "c", "third" ) );
+		List<Object> rows = Arrays.asList( array, list, linked, new Object [] { 4, "d" }, Arrays.asList( 5, "e", "fifth", "ignored" ) );
+		for ( WriteMode mode : WriteMode.values() ) {
+			elements.clear();
+			File file = tempFile( ".xlsx" );
+			ExcelWriter.ofRows( info ).mode( mode ).addSheet( "Rows", rows ).writeTo( file );
+			try ( Workbook wb = open( file ) ) {
+				rows( wb.getSheet( "Rows" ), "id,name,note", "1,A,first", "2,B,", "3,C,third", "4,D,", "5,E,fifth" );
+			}
+			check( elements.size() == 5 && elements.get( 0 ) == array && elements.get( 1 ) == list && elements.get( 2 ) == linked, mode + " styled elements: " + elements );
+		}
+		ok( "write positional rows" );
+	}
+
+	/**
+	 * The columns are bound to the cells by label, a cell without column is
+	 * blank, and the converted or aggregated columns are boxed as for rows.
+	 */
+	private static void writeColumns() throws Exception {
+		int [] ids = { 1, 2, 3, 4 };
+		String [] depts = { "A", "A", "B", "B" };
+		double [] prices = { 1.5, 2, 0.25, 10 };
+		ExcelInfo<Map<String, Object>> info = ExcelInfo.ofMap().cells( "dept", "id", "name", "price", "total", "note" );
+		info.getByLabel( "name" ).writer( value -> value.toString().toUpperCase() ); // Null values stay blank
+		ExcelInfo<Map<String, Object>> grouped = ExcelInfo.ofMap().groupBy( "dept" ).totalLabel( "Total" )
+				.addCell( CellInfo.newMapCell( "dept" ) )
+				.addCell( CellInfo.newMapCell( "id" ) )
+				.addCell( CellInfo.newMapCell( "price" ).aggregate( Aggregate.SUM ) );
+		for ( WriteMode mode : WriteMode.values() ) {
+			ColumnSource columns = ColumnSource.of( 4 ).column( "dept", depts ).column( "id", ids ).column( "price", prices )
+					.texts( "name", row -> row == 1 ? null : "user" + ids[ row ] )
+					.numbers( "total", row -> prices[ row ] * ids[ row ] )
+					.column( "unknown", new long [] { 1, 2, 3, 4 } );
+			File file = tempFile( ".xlsx" );
+			ExcelWriter.of( info ).mode( mode ).addSheet( "Columns", columns ).addSheet( "Again", columns ).writeTo( file );
+			try ( Workbook wb = open( file ) ) {
+				for ( String sheetName : new String [] { "Columns", "Again" } ) {
+					rows( wb.getSheet( sheetName ),
+							"dept,id,name,price,total,note",
+							"A,1,USER1,1.5,1.5,",
+							"A,2,,2,4,",
+							"B,3,USER3,0.25,0.75,",
+							"B,4,USER4,10,40," );
+				}
+			}
+			file = tempFile( ".xlsx" );
+			ExcelWriter.of( grouped ).mode( mode ).addSheet( "Groups", columns ).writeTo( file );
+			try ( Workbook wb = open( file ) ) {
+				rows( wb.getSheet( "Groups" ), "dept,id,price", "A,1,1.5", "A,2,2", "A,,3.5", "B,3,0.25", "B,4,10", "B,,10.25", "Total,,13.75" );
+			}
+		}
+		ok( "write columns" );
+	}
+
+	private static CompletableFuture<Void> produce( RowQueue<Map<String, Object>> queue, int from, int count ) {
+		return CompletableFuture.runAsync( () -> {
+			try {
+				for ( Map<String, Object> row : users( from, count ) ) {
+					queue.put( row );
+				}
+				queue.complete();
+			} catch ( InterruptedException e ) {
+				throw new IllegalStateException( e );
+			}
+		} );
+	}
+
+	private static ExcelWriter<Map<String, Object>> sheets( ExcelWriter<Map<String, Object>> writer ) {
+		for ( int i = 0; i < 6; i ++ ) {
+			writer.addSheet( "Sheet" + i, users( 1, ( 6 - i ) * 2000 ) ); // The first sheets take the longest
+		}
+		return writer;
+	}
+
+	private static String pane( Sheet sheet ) {
+		PaneInformation pane = sheet.getPaneInformation();
+		return pane == null ? null : pane.isFreezePane() + ":" + pane.getHorizontalSplitTopRow() + ":" + pane.getVerticalSplitLeftColumn();
+	}
+
+}
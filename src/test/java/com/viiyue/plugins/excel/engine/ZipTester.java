@@ -0,0 +1,222 @@
+/**
+ * Copyright (C) 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.plugins.excel.engine;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
+
+import com.viiyue.plugins.excel.ExcelWriter;
+import com.viiyue.plugins.excel.enums.Compression;
+import com.viiyue.plugins.excel.enums.WriteMode;
+import com.viiyue.plugins.excel.metadata.ExcelInfo;
+
+/**
+ * Zip entries written by {@link ZipWriter}, the large entry check writes more
+ * than 4 GB of deflated zeros, so it takes a while.
+ */
+public class ZipTester {
+
+	private static final long LARGE_SIZE = ( 1L << 32 ) + ( 1 << 20 );
+	private static final byte [] SMALL = "<small/>".getBytes( StandardCharsets.UTF_8 );
+
+	public static void main( String [] args ) throws Exception {
+		compressionLevels();
+		streamAppendedEntries();
+		rejectLargeEntry();
+	}
+
+	/**
+	 * The workbooks of every level, deflated on the writing thread or in
+	 * blocks on an executor, are read back by streaming.
+	 */
+	private static void compressionLevels() throws Exception {
+		ExcelInfo<Map<String, Object>> info = ExcelInfo.ofMap().cells( "id", "name" );
+		List<Map<String, Object>> rows = users( 1, 20000 );
+		Map<Compression, Integer> sizes = new EnumMap<Compression, Integer>( Compression.class );
+		for ( Compression compression : Compression.values() ) {
+			for ( Executor executor : new Executor [] { null, ForkJoinPool.commonPool() } ) {
+				ByteArrayOutputStream out = new ByteArrayOutputStream();
+				ExcelWriter.of( info ).mode( WriteMode.DIRECT ).compression( compression, executor ).addSheet( "Users", rows ).writeTo( out, true );
+				check( streamEntries( out.toByteArray() ).containsKey( "xl/worksheets/sheet1.xml" ), compression + " sheet is not streamed" );
+				try ( Workbook wb = WorkbookFactory.create( new ByteArrayInputStream( out.toByteArray() ) ) ) {
+					Sheet sheet = wb.getSheet( "Users" );
+					equal( 20000, sheet.getLastRowNum(), compression + " rows" );
+					equal( "user20000", sheet.getRow( 20000 ).getCell( 1 ).getStringCellValue(), compression + " last row" );
+				}
+				sizes.put( compression, out.size() );
+			}
+		}
+		check( sizes.get( Compression.STORED ) > sizes.get( Compression.BEST ), "The stored workbook is not larger, " + sizes );
+		System.out.println( "[OK] compression levels" );
+	}
+
+	/**
+	 * The continued and copied entries of an appended workbook are read by
+	 * the stream readers of the JDK and of POI.
+	 */
+	private static void streamAppendedEntries() throws Exception {
+		ExcelInfo<Map<String, Object>> info = ExcelInfo.ofMap().cells( "id", "name" );
+		Path file = Files.createTempFile( "poi-lite-", ".xlsx" );
+		try {
+			try ( OutputStream os = Files.newOutputStream( file ) ) {
+				ExcelWriter.of( info ).mode( WriteMode.DIRECT ).addSheet( "Users", users( 1, 50 ) ).addSheet( "Other", users( 1, 1 ) ).writeTo( os, true );
+			}
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			ExcelWriter.of( info ).addSheet( "Users", users( 51, 50 ) ).appendTo( file.toFile(), out );
+			Map<String, Long> entries = streamEntries( out.toByteArray() );
+			try ( ZipFile zip = new ZipFile( file.toFile() ) ) {
+				equal( ( long ) zip.size(), ( long ) entries.size(), "streamed entries" );
+				equal( zip.getEntry( "xl/worksheets/sheet2.xml" ).getSize(), entries.get( "xl/worksheets/sheet2.xml" ), "size of the copied sheet" );
+			}
+			try ( Workbook wb = WorkbookFactory.create( new ByteArrayInputStream( out.toByteArray() ) ) ) {
+				equal( 100, wb.getSheet( "Users" ).getLastRowNum(), "appended rows" );
+				equal( "user100", wb.getSheet( "Users" ).getRow( 100 ).getCell( 1 ).getStringCellValue(), "last appended row" );
+			}
+		} finally {
+			Files.deleteIfExists( file );
+		}
+		System.out.println( "[OK] stream appended entries" );
+	}
+
+	/**
+	 * The local header of a written entry is followed by its data before its
+	 * size is known, so an entry cannot grow beyond 4 GB, it fails as soon as
+	 * it does instead of writing a corrupt file.
+	 */
+	private static void rejectLargeEntry() throws Exception {
+		ByteArrayOutputStream head = new ByteArrayOutputStream();
+		OutputStream out = new OutputStream() {
+			@Override
+			public void write( int b ) {
+				write( new byte [] { ( byte ) b }, 0, 1 );
+			}
+
+			@Override
+			public void write( byte [] b, int off, int len ) {
+				head.write( b, off, Math.max( 0, Math.min( len, 1024 - head.size() ) ) ); // Only the small entry
+			}
+		};
+		ZipWriter zip = new ZipWriter( out, Deflater.BEST_SPEED, null );
+		zip.putNextEntry( "small.xml" );
+		zip.write( SMALL );
+		zip.putNextEntry( "large.xml" );
+		try {
+			writeZeros( zip, LARGE_SIZE );
+			check( false, "The large entry is written" );
+		} catch ( ZipException e ) {
+			check( e.getMessage().contains( "large.xml" ), "Unexpected failure " + e.getMessage() );
+		}
+		try ( ZipInputStream in = new ZipInputStream( new ByteArrayInputStream( head.toByteArray() ) ) ) {
+			equal( "small.xml", in.getNextEntry().getName(), "entry before the large entry" );
+			check( Arrays.equals( SMALL, readAll( in ) ), "The small entry is not streamed" );
+		}
+		System.out.println( "[OK] reject large entry" );
+	}
+
+	/**
+	 * @return the sizes of the entries read by the stream reader of the JDK,
+	 *         which takes the sizes of the data descriptors from the local
+	 *         headers
+	 */
+	private static Map<String, Long> streamEntries( byte [] zip ) throws IOException {
+		Map<String, Long> entries = new LinkedHashMap<String, Long>();
+		try ( ZipInputStream in = new ZipInputStream( new ByteArrayInputStream( zip ) ) ) {
+			for ( ZipEntry entry; ( entry = in.getNextEntry() ) != null; ) {
+				entries.put( entry.getName(), skipAll( in ) );
+			}
+		}
+		return entries;
+	}
+
+	private static List<Map<String, Object>> users( int from, int count ) {
+		List<Map<String, Object>> rows = new ArrayList<Map<String, Object>>();
+		for ( int id = from; id < from + count; id ++ ) {
+			Map<String, Object> row = new LinkedHashMap<String, Object>();
+			row.put( "id", id );
+			row.put( "name", "user" + id );
+			rows.add( row );
+		}
+		return rows;
+	}
+
+	private static long writeZeros( OutputStream out, long size ) throws IOException {
+		byte [] zeros = new byte[ 1 << 20 ];
+		CRC32 crc = new CRC32();
+		for ( long remaining = size; remaining > 0; ) {
+			int count = ( int ) Math.min( zeros.length, remaining );
+			out.write( zeros, 0, count );
+			crc.update( zeros, 0, count );
+			remaining -= count;
+		}
+		return crc.getValue();
+	}
+
+	private static byte [] readAll( InputStream in ) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte [] buffer = new byte[ 1024 ];
+		for ( int count; ( count = in.read( buffer ) ) > 0; ) {
+			out.write( buffer, 0, count );
+		}
+		return out.toByteArray();
+	}
+
+	private static long skipAll( InputStream in ) throws IOException {
+		byte [] buffer = new byte[ 1 << 16 ];
+		long size = 0;
+		for ( int count; ( count = in.read( buffer ) ) > 0; ) {
+			size += count;
+		}
+		return size;
+	}
+
+	private static void check( boolean condition, String message ) {
+		if ( !condition ) {
+			throw new AssertionError( message );
+		}
+	}
+
+	private static void equal( Object expected, Object actual, String message ) {
+		if ( !Objects.equals( expected, actual ) ) {
+			throw new AssertionError( message + ", expected <" + expected + "> but was <" + actual + ">" );
+		}
+	}
+
+}